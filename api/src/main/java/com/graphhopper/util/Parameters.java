@@ -96,6 +96,15 @@ public class Parameters {
         public static final String U_TURN_COSTS = "u_turn_costs";
         public static final String MAX_VISITED_NODES = "max_visited_nodes";
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
+        /**
+         * the number of threads used to calculate the legs of multi-via routes concurrently, 1 disables it
+         */
+        public static final String INIT_LEG_THREADS = ROUTING_INIT_PREFIX + "leg_threads";
+        /**
+         * the maximum number of unidirectional and of bidirectional search workspaces that are kept for re-use by all
+         * threads of a GraphHopper instance together. Each needs up to 10MB, 0 disables the re-use
+         */
+        public static final String INIT_MAX_IDLE_WORKSPACES = ROUTING_INIT_PREFIX + "max_idle_workspaces";
         /**
          * if true the response will contain turn instructions
          */
@@ -0,0 +1,164 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.CHProfileConfig;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.AStarBidirection;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Imports the fixture graph for the benchmarks once per JVM and stores it below target/ so that later forks and
+ * runs only need to load it. The OSM file and the graph location can be changed via the system properties
+ * benchmark.osm_file and benchmark.graph_location, the defaults are resolved relative to the project folder of this
+ * module and not relative to the working directory.
+ */
+public class BenchmarkGraph {
+    public static final String PROFILE = "car";
+    private static GraphHopper hopper;
+    private static GraphHopper turnCostHopper;
+
+    public static synchronized GraphHopper getHopper() {
+        if (hopper == null) {
+            GraphHopper tmp = new GraphHopperOSM().
+                    setOSMFile(getOSMFile()).
+                    setGraphHopperLocation(getGraphLocation()).
+                    setEncodingManager(EncodingManager.create(PROFILE)).
+                    setProfiles(new ProfileConfig(PROFILE).setVehicle("car").setWeighting("fastest")).
+                    setStoreOnFlush(true);
+            tmp.getCHPreparationHandler().setCHProfileConfigs(new CHProfileConfig(PROFILE));
+            tmp.importOrLoad();
+            hopper = tmp;
+        }
+        return hopper;
+    }
+
+    private static String getOSMFile() {
+        String osmFile = System.getProperty("benchmark.osm_file");
+        if (osmFile != null)
+            return osmFile;
+        return new File(getBaseDir().getParentFile(), "core/files/andorra.osm.pbf").getAbsolutePath();
+    }
+
+    private static String getGraphLocation() {
+        String graphLocation = System.getProperty("benchmark.graph_location");
+        if (graphLocation != null)
+            return graphLocation;
+        return new File(getBaseDir(), "target/benchmark-andorra-gh").getAbsolutePath();
+    }
+
+    /**
+     * @return the folder of the benchmarks module as written into the basedir resource at build time
+     */
+    private static File getBaseDir() {
+        try (InputStream is = BenchmarkGraph.class.getResourceAsStream("basedir")) {
+            if (is == null)
+                throw new IllegalStateException("Resource basedir not found, build the benchmarks via Maven");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            return new File(reader.readLine().trim());
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot read resource basedir", ex);
+        }
+    }
+
+    /**
+     * @return the fixture graph imported with turn costs for car but without any preparation, stored next to the
+     * graph of {@link #getHopper()}
+     */
+    public static synchronized GraphHopper getTurnCostHopper() {
+        if (turnCostHopper == null) {
+            GraphHopper tmp = new GraphHopperOSM().
+                    setOSMFile(getOSMFile()).
+                    setGraphHopperLocation(getGraphLocation() + "-turn-costs").
+                    setEncodingManager(EncodingManager.create("car|turn_costs=true")).
+                    setProfiles(new ProfileConfig(PROFILE).setVehicle("car").setWeighting("fastest").setTurnCosts(true)).
+                    setStoreOnFlush(true);
+            tmp.importOrLoad();
+            turnCostHopper = tmp;
+        }
+        return turnCostHopper;
+    }
+
+    /**
+     * @return random points within the bounds of the fixture graph, the same for every call with the same seed
+     */
+    public static GHPoint[] createRandomPoints(int count, long seed) {
+        BBox bounds = getHopper().getGraphHopperStorage().getBounds();
+        Random rand = new Random(seed);
+        GHPoint[] points = new GHPoint[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = new GHPoint(bounds.minLat + rand.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + rand.nextDouble() * (bounds.maxLon - bounds.minLon));
+        }
+        return points;
+    }
+
+    /**
+     * @return random node pairs stored as {from0, to0, from1, to1, ...}
+     */
+    public static int[] createRandomNodePairs(int count, long seed) {
+        int nodes = getHopper().getGraphHopperStorage().getNodes();
+        Random rand = new Random(seed);
+        int[] pairs = new int[2 * count];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = rand.nextInt(nodes);
+        }
+        return pairs;
+    }
+
+    public static Weighting createWeighting() {
+        return new FastestWeighting(getHopper().getEncodingManager().getEncoder("car"));
+    }
+
+    /**
+     * @return the found paths between count random node pairs of the base graph
+     */
+    public static List<Path> createRandomPaths(int count, long seed) {
+        GraphHopper hopper = getHopper();
+        Weighting weighting = createWeighting();
+        int[] pairs = createRandomNodePairs(count, seed);
+        List<Path> paths = new ArrayList<>(count);
+        for (int i = 0; i < pairs.length; i += 2) {
+            Path path = new AStarBidirection(hopper.getGraphHopperStorage(), weighting, TraversalMode.NODE_BASED).
+                    calcPath(pairs[i], pairs[i + 1]);
+            if (path.isFound())
+                paths.add(path);
+        }
+        if (paths.isEmpty())
+            throw new IllegalStateException("No path found between " + count + " random node pairs");
+        return paths;
+    }
+}
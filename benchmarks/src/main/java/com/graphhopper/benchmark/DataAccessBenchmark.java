@@ -0,0 +1,122 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures int reads and writes of the different DataAccess implementations. Each invocation touches all ints of a
+ * 64MB DataAccess, either sequentially or in a random but fixed order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataAccessBenchmark {
+    private static final int INTS = 16 * 1024 * 1024;
+
+    @Param({"RAM", "RAM_INT", "MMAP", "RAM_OFFHEAP"})
+    public String type;
+
+    private String location;
+    private Directory dir;
+    private DataAccess da;
+    private long[] randomPointers;
+
+    @Setup
+    public void setup() {
+        location = System.getProperty("java.io.tmpdir") + "/gh-benchmark-dataaccess-" + type;
+        Helper.removeDir(new File(location));
+        dir = new GHDirectory(location, toDAType(type)).create();
+        da = dir.find("benchmark");
+        da.create(4L * INTS);
+        for (int i = 0; i < INTS; i++) {
+            da.setInt(4L * i, i);
+        }
+
+        Random rand = new Random(42);
+        randomPointers = new long[1024 * 1024];
+        for (int i = 0; i < randomPointers.length; i++) {
+            randomPointers[i] = 4L * rand.nextInt(INTS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dir.clear();
+        Helper.removeDir(new File(location));
+    }
+
+    static DAType toDAType(String type) {
+        switch (type) {
+            case "RAM":
+                return DAType.RAM;
+            case "RAM_INT":
+                return DAType.RAM_INT;
+            case "MMAP":
+                return DAType.MMAP;
+            case "RAM_OFFHEAP":
+                return DAType.RAM_OFFHEAP;
+            default:
+                throw new IllegalArgumentException("Unknown DataAccess type " + type);
+        }
+    }
+
+    @Benchmark
+    public long sequentialGet() {
+        long sum = 0;
+        for (int i = 0; i < INTS; i++) {
+            sum += da.getInt(4L * i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void sequentialSet() {
+        for (int i = 0; i < INTS; i++) {
+            da.setInt(4L * i, INTS - i);
+        }
+    }
+
+    @Benchmark
+    public long randomGet() {
+        long sum = 0;
+        for (long pointer : randomPointers) {
+            sum += da.getInt(pointer);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void randomSet() {
+        for (int i = 0; i < randomPointers.length; i++) {
+            da.setInt(randomPointers[i], i);
+        }
+    }
+}
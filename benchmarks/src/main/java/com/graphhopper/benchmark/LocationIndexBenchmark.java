@@ -0,0 +1,78 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures LocationIndexTree.findClosest for random points within the fixture graph, one by one and in batches of
+ * 1000 points.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationIndexBenchmark {
+    private LocationIndex index;
+    private GHPoint[] points;
+    private int counter;
+    private double[] batchLats;
+    private double[] batchLons;
+
+    @Setup
+    public void setup() {
+        index = BenchmarkGraph.getHopper().getLocationIndex();
+        points = BenchmarkGraph.createRandomPoints(10_000, 123);
+        batchLats = new double[1000];
+        batchLons = new double[1000];
+        for (int i = 0; i < batchLats.length; i++) {
+            batchLats[i] = points[i].lat;
+            batchLons[i] = points[i].lon;
+        }
+    }
+
+    @Benchmark
+    public QueryResult findClosest() {
+        GHPoint p = points[counter++ % points.length];
+        return index.findClosest(p.lat, p.lon, EdgeFilter.ALL_EDGES);
+    }
+
+    @Benchmark
+    public QueryResult findClosestSequential1000() {
+        QueryResult last = null;
+        for (int i = 0; i < batchLats.length; i++) {
+            last = index.findClosest(batchLats[i], batchLons[i], EdgeFilter.ALL_EDGES);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public List<QueryResult> findClosestBatch1000() {
+        return ((LocationIndexTree) index).findClosest(batchLats, batchLons, EdgeFilter.ALL_EDGES);
+    }
+}
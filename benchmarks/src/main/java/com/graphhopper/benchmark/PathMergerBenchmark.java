@@ -0,0 +1,78 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.routing.InstructionsFromEdges;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.InstructionList;
+import com.graphhopper.util.PathMerger;
+import com.graphhopper.util.Translation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of already calculated paths into the response, i.e. the work done after the routing
+ * algorithm finished.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathMergerBenchmark {
+    private Graph graph;
+    private Weighting weighting;
+    private EncodingManager encodingManager;
+    private Translation translation;
+    private List<Path> paths;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.getHopper();
+        graph = hopper.getGraphHopperStorage();
+        weighting = BenchmarkGraph.createWeighting();
+        encodingManager = hopper.getEncodingManager();
+        translation = hopper.getTranslationMap().getWithFallBack(Locale.US);
+        paths = BenchmarkGraph.createRandomPaths(200, 1011);
+    }
+
+    @Benchmark
+    public PathWrapper pathMerger() {
+        Path path = paths.get(counter++ % paths.size());
+        PathWrapper pathWrapper = new PathWrapper();
+        new PathMerger(graph, weighting).doWork(pathWrapper, Collections.singletonList(path), encodingManager, translation);
+        return pathWrapper;
+    }
+
+    @Benchmark
+    public InstructionList instructionsFromEdges() {
+        Path path = paths.get(counter++ % paths.size());
+        return InstructionsFromEdges.calcInstructions(path, graph, weighting, encodingManager, translation);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.routing.Path;
+import com.graphhopper.util.PointList;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the polyline encoding of route geometries as it is done for points_encoded=true.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PolylineBenchmark {
+    private PointList[] pointLists;
+    private int counter;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Setup
+    public void setup() {
+        List<Path> paths = BenchmarkGraph.createRandomPaths(200, 1213);
+        pointLists = new PointList[paths.size()];
+        for (int i = 0; i < pointLists.length; i++) {
+            pointLists[i] = paths.get(i).calcPoints();
+        }
+    }
+
+    @Benchmark
+    public String encodePolyline() {
+        return WebHelper.encodePolyline(pointLists[counter++ % pointLists.length], false, 1e5);
+    }
+
+    @Benchmark
+    public int writePolyline() throws IOException {
+        out.reset();
+        JsonGenerator json = jsonFactory.createGenerator(out);
+        WebHelper.writePolyline(json, pointLists[counter++ % pointLists.length], false, 1e5);
+        json.close();
+        return out.size();
+    }
+}
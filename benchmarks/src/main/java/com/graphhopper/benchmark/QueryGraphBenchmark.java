@@ -0,0 +1,63 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of a QueryGraph for two snapped points. QueryGraph.lookup modifies the QueryResults, so every
+ * invocation has to snap the points again and the lookup benchmark includes the findClosest calls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryGraphBenchmark {
+    private Graph graph;
+    private LocationIndex index;
+    private GHPoint[] points;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        graph = BenchmarkGraph.getHopper().getGraphHopperStorage();
+        index = BenchmarkGraph.getHopper().getLocationIndex();
+        points = BenchmarkGraph.createRandomPoints(10_000, 456);
+    }
+
+    @Benchmark
+    public QueryGraph findClosestAndLookup() {
+        GHPoint from = points[counter++ % points.length];
+        GHPoint to = points[counter++ % points.length];
+        QueryResult fromQR = index.findClosest(from.lat, from.lon, EdgeFilter.ALL_EDGES);
+        QueryResult toQR = index.findClosest(to.lat, to.lon, EdgeFilter.ALL_EDGES);
+        if (!fromQR.isValid() || !toQR.isValid())
+            return null;
+        return QueryGraph.lookup(graph, fromQR, toQR);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.AStarBidirection;
+import com.graphhopper.routing.DijkstraBidirectionCH;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures point-to-point queries between random nodes of the fixture graph, with and without contraction
+ * hierarchies. The algorithms are created per query like the GraphHopper class does it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class RoutingBenchmark {
+    private GraphHopperStorage graph;
+    private RoutingCHGraph routingCHGraph;
+    private Weighting weighting;
+    private int[] nodePairs;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.getHopper();
+        graph = hopper.getGraphHopperStorage();
+        CHGraph chGraph = graph.getCHGraph(BenchmarkGraph.PROFILE);
+        routingCHGraph = new RoutingCHGraphImpl(chGraph, chGraph.getCHProfile().getWeighting());
+        weighting = BenchmarkGraph.createWeighting();
+        nodePairs = BenchmarkGraph.createRandomNodePairs(1_000, 789);
+    }
+
+    @Benchmark
+    public Path dijkstraBidirectionCH() {
+        int idx = 2 * (counter++ % (nodePairs.length / 2));
+        return new DijkstraBidirectionCH(routingCHGraph).calcPath(nodePairs[idx], nodePairs[idx + 1]);
+    }
+
+    @Benchmark
+    public Path aStarBidirection() {
+        int idx = 2 * (counter++ % (nodePairs.length / 2));
+        return new AStarBidirection(graph, weighting, TraversalMode.NODE_BASED).calcPath(nodePairs[idx], nodePairs[idx + 1]);
+    }
+}
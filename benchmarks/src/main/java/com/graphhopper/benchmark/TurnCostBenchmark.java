@@ -0,0 +1,116 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.profiles.DecimalEncodedValue;
+import com.graphhopper.routing.profiles.TurnCost;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.CHProfile;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.TurnCostStorage;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the turn cost lookup via the per node lists and via the hash table of TurnCostStorage, once for single
+ * lookups and once for the edge-based CH preparation. Use a region with many turn restrictions via
+ * -Dbenchmark.osm_file to see the difference.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class TurnCostBenchmark {
+    @Param({"false", "true"})
+    public boolean lookupTable;
+    private GraphHopperStorage graph;
+    private CHProfile chProfile;
+    private TurnCostStorage turnCostStorage;
+    private DecimalEncodedValue turnCostEnc;
+    private int[] turnRelations;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        // the CH preparation modifies the graph so every iteration starts with a fresh copy
+        GraphHopperStorage imported = BenchmarkGraph.getTurnCostHopper().getGraphHopperStorage();
+        FlagEncoder encoder = imported.getEncodingManager().getEncoder("car");
+        graph = new GraphHopperStorage(new RAMDirectory(), imported.getEncodingManager(), false, true, -1);
+        turnCostStorage = graph.getTurnCostStorage();
+        chProfile = CHProfile.edgeBased(new FastestWeighting(encoder, new DefaultTurnCostProvider(encoder, turnCostStorage)));
+        graph.addCHGraph(chProfile).create(1000);
+        imported.copyTo(graph.getBaseGraph());
+        if (lookupTable)
+            turnCostStorage.buildLookupTable();
+        graph.freeze();
+
+        turnCostEnc = imported.getEncodingManager().getDecimalEncodedValue(TurnCost.key("car"));
+        turnRelations = createRandomTurnRelations(10_000, 123);
+    }
+
+    /**
+     * @return random from/via/to triples of edges adjacent to the same node, mostly without turn cost entry
+     */
+    private int[] createRandomTurnRelations(int count, long seed) {
+        Random rand = new Random(seed);
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        IntArrayList edges = new IntArrayList();
+        IntArrayList relations = new IntArrayList(3 * count);
+        while (relations.size() < 3 * count) {
+            int node = rand.nextInt(graph.getNodes());
+            edges.clear();
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                edges.add(iter.getEdge());
+            }
+            if (edges.isEmpty())
+                continue;
+            relations.add(edges.get(rand.nextInt(edges.size())), node, edges.get(rand.nextInt(edges.size())));
+        }
+        return relations.toArray();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public double turnCostLookup10000() {
+        double sum = 0;
+        for (int i = 0; i < turnRelations.length; i += 3) {
+            sum += turnCostStorage.get(turnCostEnc, turnRelations[i], turnRelations[i + 1], turnRelations[i + 2]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public int prepareEdgeBasedCH() {
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(graph, chProfile);
+        pch.doWork();
+        return graph.getCHGraph(chProfile).getEdges();
+    }
+}
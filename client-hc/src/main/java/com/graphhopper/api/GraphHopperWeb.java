@@ -25,18 +25,23 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.PathWrapper;
+import com.graphhopper.http.GHResponseBinaryCodec;
 import com.graphhopper.http.WebHelper;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.PathWrapperDeserializer;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.GHPoint;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 
+import java.io.BufferedReader;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -65,6 +70,7 @@ public class GraphHopperWeb implements GraphHopperAPI {
     private boolean elevation = false;
     private String optimize = "false";
     private boolean postRequest = true;
+    private boolean binaryResponse = false;
     int maxUnzippedLength = 1000;
     private final Set<String> ignoreSet;
     private final Set<String> ignoreSetForPost;
@@ -146,6 +152,16 @@ public class GraphHopperWeb implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Request the compact binary response format instead of JSON, see GHResponseBinaryCodec. Decoding it needs
+     * considerably less CPU than the JSON for long routes. Servers that do not support it still return JSON. The
+     * default is false.
+     */
+    public GraphHopperWeb setBinaryResponse(boolean binaryResponse) {
+        this.binaryResponse = binaryResponse;
+        return this;
+    }
+
     /**
      * Enable or disable calculating points for the way. The default is true.
      */
@@ -194,7 +210,13 @@ public class GraphHopperWeb implements GraphHopperAPI {
             ghRequest.getHints().remove("turn_description"); // do not include in request
 
             Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
+            if (binaryResponse)
+                // servers without support of the binary format will fall back to JSON
+                okRequest = okRequest.newBuilder().header("Accept", GHResponseBinaryCodec.MEDIA_TYPE + ", application/json;q=0.5").build();
             rspBody = getClientForRequest(ghRequest).newCall(okRequest).execute().body();
+            if (isBinary(rspBody.contentType()))
+                return GHResponseBinaryCodec.read(rspBody.byteStream(), tmpTurnDescription);
+
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
             GHResponse res = new GHResponse();
@@ -202,6 +224,15 @@ public class GraphHopperWeb implements GraphHopperAPI {
             if (res.hasErrors())
                 return res;
 
+            JsonNode hints = json.get("hints");
+            if (hints != null && hints.isObject()) {
+                Iterator<Map.Entry<String, JsonNode>> hintIterator = hints.fields();
+                while (hintIterator.hasNext()) {
+                    Map.Entry<String, JsonNode> hint = hintIterator.next();
+                    res.getHints().put(hint.getKey(), hint.getValue().asText());
+                }
+            }
+
             JsonNode paths = json.get("paths");
 
             for (JsonNode path : paths) {
@@ -218,6 +249,85 @@ public class GraphHopperWeb implements GraphHopperAPI {
         }
     }
 
+    /**
+     * Calculates many independent routes with one HTTP request via POST /route/batch. The server streams the results
+     * as soon as they are finished and this method collects them in the order of the specified requests. If the whole
+     * batch fails, e.g. because it is too large, every response contains the error. The timeout of the first request
+     * is used for the entire batch.
+     */
+    public List<GHResponse> routeBatch(List<GHRequest> ghRequests) {
+        if (ghRequests.isEmpty())
+            throw new IllegalArgumentException("Specify at least one request");
+
+        ResponseBody rspBody = null;
+        try {
+            boolean[] hasElevation = new boolean[ghRequests.size()];
+            boolean[] turnDescription = new boolean[ghRequests.size()];
+            ObjectNode batchJson = objectMapper.createObjectNode();
+            ArrayNode requestsJson = batchJson.putArray("requests");
+            for (int i = 0; i < ghRequests.size(); i++) {
+                GHRequest ghRequest = ghRequests.get(i);
+                hasElevation[i] = ghRequest.getHints().getBool("elevation", elevation);
+                turnDescription[i] = ghRequest.getHints().getBool("turn_description", true);
+                ghRequest.getHints().remove("turn_description"); // do not include in request
+                requestsJson.add(createRequestJson(ghRequest));
+            }
+
+            String url = ghRequests.get(0).getHints().get(SERVICE_URL, routeServiceUrl) + "/batch?";
+            if (!Helper.isEmpty(key))
+                url += "key=" + key;
+            rspBody = getClientForRequest(ghRequests.get(0)).newCall(createPostRequest(url, batchJson)).execute().body();
+
+            List<GHResponse> responses = new ArrayList<>(ghRequests.size());
+            for (int i = 0; i < ghRequests.size(); i++) {
+                responses.add(null);
+            }
+            MediaType contentType = rspBody.contentType();
+            if (contentType == null || !"x-ndjson".equals(contentType.subtype())) {
+                // the whole batch failed
+                List<Throwable> errors = PathWrapperDeserializer.readErrors(objectMapper, objectMapper.reader().readTree(rspBody.byteStream()));
+                for (int i = 0; i < responses.size(); i++) {
+                    GHResponse res = new GHResponse();
+                    res.addErrors(errors);
+                    responses.set(i, res);
+                }
+                return responses;
+            }
+
+            BufferedReader reader = new BufferedReader(rspBody.charStream());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                JsonNode json = objectMapper.reader().readTree(line);
+                int index = json.get("index").asInt();
+                JsonNode responseJson = json.get("response");
+                GHResponse res = new GHResponse();
+                res.addErrors(PathWrapperDeserializer.readErrors(objectMapper, responseJson));
+                if (!res.hasErrors()) {
+                    for (JsonNode path : responseJson.get("paths")) {
+                        res.add(PathWrapperDeserializer.createPathWrapper(objectMapper, path, hasElevation[index], turnDescription[index]));
+                    }
+                }
+                responses.set(index, res);
+            }
+
+            for (int i = 0; i < responses.size(); i++) {
+                if (responses.get(i) == null)
+                    throw new IllegalStateException("Response for request " + i + " is missing");
+            }
+            return responses;
+        } catch (Exception ex) {
+            throw new RuntimeException("Problem while fetching batch of " + ghRequests.size() + " paths: " + ex.getMessage(), ex);
+        } finally {
+            Helper.close(rspBody);
+        }
+    }
+
+    private static boolean isBinary(MediaType contentType) {
+        return contentType != null && GHResponseBinaryCodec.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype());
+    }
+
     private OkHttpClient getClientForRequest(GHRequest request) {
         OkHttpClient client = this.downloader;
         if (request.getHints().has(TIMEOUT)) {
@@ -237,6 +347,10 @@ public class GraphHopperWeb implements GraphHopperAPI {
         if (!Helper.isEmpty(key))
             url += "key=" + key;
 
+        return createPostRequest(url, createRequestJson(ghRequest));
+    }
+
+    private ObjectNode createRequestJson(GHRequest ghRequest) {
         ObjectNode requestJson = objectMapper.createObjectNode();
         requestJson.putArray("points").addAll(createPointList(ghRequest.getPoints()));
         if (!ghRequest.getPointHints().isEmpty())
@@ -266,6 +380,10 @@ public class GraphHopperWeb implements GraphHopperAPI {
             String hint = hintsMap.get(hintKey);
             requestJson.put(hintKey, hint);
         }
+        return requestJson;
+    }
+
+    private Request createPostRequest(String url, ObjectNode requestJson) {
         String stringData = requestJson.toString();
         Request.Builder builder = new Request.Builder().url(url).post(RequestBody.create(MT_JSON, stringData));
         // force avoiding our GzipRequestInterceptor for smaller requests ~30 locations
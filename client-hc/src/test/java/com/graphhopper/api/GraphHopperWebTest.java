@@ -0,0 +1,194 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.http.GHResponseBinaryCodec;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.shapes.GHPoint;
+import okhttp3.*;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GraphHopperWebTest {
+
+    @Test
+    public void testBinaryResponseSameAsJson() throws IOException {
+        GHResponse rsp = createResponse();
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        byte[] json = objectMapper.writeValueAsBytes(WebHelper.jsonObject(rsp, true, true, true, true, 0.1f));
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        GHResponseBinaryCodec.write(binary, rsp, true, true, true, 0.1f);
+
+        GHResponse jsonRsp = createClient(json, "application/json", false).route(createRequest());
+        GHResponse binaryRsp = createClient(binary.toByteArray(), GHResponseBinaryCodec.MEDIA_TYPE, true).route(createRequest());
+        assertFalse(jsonRsp.getErrors().toString(), jsonRsp.hasErrors());
+        assertFalse(binaryRsp.getErrors().toString(), binaryRsp.hasErrors());
+        assertEquals(jsonRsp.getHints().toMap(), binaryRsp.getHints().toMap());
+        assertEquals("123", binaryRsp.getHints().get("visited_nodes.sum", ""));
+        assertEquals(jsonRsp.getAll().size(), binaryRsp.getAll().size());
+        for (int i = 0; i < jsonRsp.getAll().size(); i++) {
+            assertPathEquals(jsonRsp.getAll().get(i), binaryRsp.getAll().get(i));
+        }
+    }
+
+    private static GHRequest createRequest() {
+        GHRequest req = new GHRequest(new GHPoint(42.554851, 1.536198), new GHPoint(42.510071, 1.548128));
+        req.getHints().put("elevation", true);
+        return req;
+    }
+
+    /**
+     * Creates a client that answers every request with the specified body.
+     */
+    private static GraphHopperWeb createClient(final byte[] body, final String mediaType, boolean binaryResponse) {
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) {
+                return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(200).message("OK").
+                        body(ResponseBody.create(MediaType.parse(mediaType), body)).build();
+            }
+        }).build();
+        return new GraphHopperWeb().setDownloader(client).setBinaryResponse(binaryResponse);
+    }
+
+    /**
+     * Creates a response like the server does, i.e. all values that are rounded in the JSON are already rounded.
+     */
+    private static GHResponse createResponse() {
+        PointList points = Helper.createPointList3D(42.554851, 1.536198, 1210.5, 42.553, 1.537, 1203,
+                42.551, 1.539, 1190.25, 42.530, 1.542, 1150, 42.510071, 1.548128, 1100);
+        PathWrapper path = new PathWrapper().setDistance(1234.567).setTime(5678).setRouteWeight(12.345678);
+        path.setAscend(10.5).setDescend(121);
+        path.setDescription(Collections.singletonList("via la Callisa"));
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(42.554851, 1.536198, 1210.5, 42.530, 1.542, 1150, 42.510071, 1.548128, 1100));
+        path.setPointsOrder(Arrays.asList(0, 1, 2));
+
+        InstructionList il = new InstructionList(null);
+        Instruction instr = new Instruction(Instruction.CONTINUE_ON_STREET, "la Callisa", InstructionAnnotation.EMPTY, points.copy(0, 1));
+        instr.setExtraInfo("heading", 123.4);
+        il.add(instr.setDistance(100.5).setTime(2000));
+        RoundaboutInstruction ri = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "la Callisa", new InstructionAnnotation(1, "toll"), points.copy(1, 3));
+        ri.setExitNumber(2).setExited().setDirOfRotation(-0.5).setRadian(-2.5);
+        il.add(ri.setDistance(600.25).setTime(2000));
+        FinishInstruction legFinish = new FinishInstruction("", points, 3);
+        legFinish.setExtraInfo("last_heading", 170.25);
+        ViaInstruction via = new ViaInstruction(legFinish);
+        via.setViaCount(1);
+        il.add(via.setDistance(0).setTime(0));
+        il.add(new Instruction(Instruction.TURN_LEFT, "Avinguda", InstructionAnnotation.EMPTY, points.copy(3, 4)).setDistance(533.817).setTime(1678));
+        FinishInstruction finish = new FinishInstruction("", points, 4);
+        finish.setExtraInfo("last_heading", 160.5);
+        il.add(finish.setDistance(0).setTime(0));
+        for (Instruction i : il) {
+            i.setUseRawName();
+        }
+        path.setInstructions(il);
+
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("average_speed", Arrays.asList(createDetail(new PathDetail(30.0), 0, 2), createDetail(new PathDetail(60.1), 2, 4)));
+        details.put("edge_id", Arrays.asList(createDetail(new PathDetail(880L), 0, 3), createDetail(new PathDetail(5_000_000_000L), 3, 4)));
+        details.put("toll", Collections.singletonList(createDetail(new PathDetail(false), 0, 4)));
+        details.put("street_name", Arrays.asList(createDetail(new PathDetail("la Callisa"), 0, 3), createDetail(new PathDetail("Avinguda"), 3, 4)));
+        path.addPathDetails(details);
+
+        GHResponse rsp = new GHResponse();
+        rsp.getHints().put("visited_nodes.sum", 123);
+        rsp.getHints().put("visited_nodes.average", 61.5);
+        rsp.add(path);
+        return rsp;
+    }
+
+    private static void assertPathEquals(PathWrapper expected, PathWrapper path) {
+        assertEquals(expected.getDistance(), path.getDistance(), 1e-6);
+        assertEquals(expected.getTime(), path.getTime());
+        assertEquals(expected.getRouteWeight(), path.getRouteWeight(), 1e-6);
+        assertEquals(expected.getAscend(), path.getAscend(), 1e-6);
+        assertEquals(expected.getDescend(), path.getDescend(), 1e-6);
+        assertEquals(expected.getDescription(), path.getDescription());
+        assertEquals(expected.getPointsOrder(), path.getPointsOrder());
+        assertPointsEquals(expected.getWaypoints(), path.getWaypoints());
+        assertPointsEquals(expected.getPoints(), path.getPoints());
+
+        InstructionList expectedInstructions = expected.getInstructions();
+        InstructionList instructions = path.getInstructions();
+        assertEquals(expectedInstructions.size(), instructions.size());
+        for (int i = 0; i < expectedInstructions.size(); i++) {
+            Instruction expectedInstruction = expectedInstructions.get(i);
+            Instruction instruction = instructions.get(i);
+            assertEquals(expectedInstruction.getClass(), instruction.getClass());
+            assertEquals(expectedInstruction.getSign(), instruction.getSign());
+            assertEquals(expectedInstruction.getName(), instruction.getName());
+            assertEquals(expectedInstruction.getTurnDescription(null), instruction.getTurnDescription(null));
+            assertEquals(expectedInstruction.getAnnotation().getMessage(), instruction.getAnnotation().getMessage());
+            assertEquals(expectedInstruction.getAnnotation().getImportance(), instruction.getAnnotation().getImportance());
+            assertEquals(expectedInstruction.getDistance(), instruction.getDistance(), 1e-6);
+            assertEquals(expectedInstruction.getTime(), instruction.getTime());
+            assertEquals(expectedInstruction.getExtraInfoJSON(), instruction.getExtraInfoJSON());
+            assertPointsEquals(expectedInstruction.getPoints(), instruction.getPoints());
+        }
+        assertEquals(160.5, instructions.get(instructions.size() - 1).getExtraInfoJSON().get("last_heading"));
+
+        Map<String, List<PathDetail>> expectedDetails = expected.getPathDetails();
+        Map<String, List<PathDetail>> details = path.getPathDetails();
+        assertEquals(expectedDetails.keySet(), details.keySet());
+        for (Map.Entry<String, List<PathDetail>> entry : expectedDetails.entrySet()) {
+            List<PathDetail> detailList = details.get(entry.getKey());
+            assertEquals(entry.getValue().size(), detailList.size());
+            for (int i = 0; i < detailList.size(); i++) {
+                PathDetail expectedDetail = entry.getValue().get(i);
+                PathDetail detail = detailList.get(i);
+                assertEquals(expectedDetail.getFirst(), detail.getFirst());
+                assertEquals(expectedDetail.getLast(), detail.getLast());
+                assertEquals(expectedDetail.getValue(), detail.getValue());
+            }
+        }
+    }
+
+    /**
+     * The client requests encoded points, i.e. the JSON has a lower precision than the binary format
+     */
+    private static void assertPointsEquals(PointList expected, PointList points) {
+        assertEquals(expected.size(), points.size());
+        assertEquals(expected.is3D(), points.is3D());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getLat(i), points.getLat(i), 1e-5);
+            assertEquals(expected.getLon(i), points.getLon(i), 1e-5);
+            if (expected.is3D())
+                assertEquals(expected.getEle(i), points.getEle(i), 1e-2);
+        }
+    }
+
+    private static PathDetail createDetail(PathDetail pd, int first, int last) {
+        pd.setFirst(first);
+        pd.setLast(last);
+        return pd;
+    }
+}
@@ -65,6 +65,9 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -94,7 +97,14 @@ public class GraphHopper implements GraphHopperAPI {
     private int defaultSegmentSize = -1;
     private String ghLocation = "";
     private DAType dataAccessType = DAType.RAM_STORE;
+    private final LinkedHashMap<String, Integer> mmapPreloads = new LinkedHashMap<>();
+    private int mmapPreloadThreads = 2;
     private boolean sortGraph = false;
+    private boolean compressedGeometry = false;
+    private boolean dictionaryEncodedNames = false;
+    private boolean adjacencyArrays = false;
+    private boolean turnCostLookupTable = false;
+    private String sortType = "hilbert";
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -102,12 +112,17 @@ public class GraphHopper implements GraphHopperAPI {
     private boolean smoothElevation = false;
     // for routing
     private final RoutingConfig routingConfig = new RoutingConfig();
+    private ExecutorService legExecutor;
+    // the heaps, labels and maps of finished searches, shared by all threads that route with this instance
+    private final SearchWorkspacePool workspacePool = new SearchWorkspacePool(Runtime.getRuntime().availableProcessors(), 200_000);
     private ProfileResolver profileResolver = new ProfileResolver();
 
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private boolean streamingIndexPreparation = false;
+    private int indexPreparationThreads = 1;
     // for prepare
     private int minNetworkSize = 200;
     private int minOneWayNetworkSize = 0;
@@ -120,6 +135,7 @@ public class GraphHopper implements GraphHopperAPI {
     private String dataReaderFile;
     private double dataReaderWayPointMaxDistance = 1;
     private int dataReaderWorkerThreads = 2;
+    private int dataReaderWayWorkerThreads = 1;
     private ElevationProvider eleProvider = ElevationProvider.NOOP;
     private FlagEncoderFactory flagEncoderFactory = new DefaultFlagEncoderFactory();
     private EncodedValueFactory encodedValueFactory = new DefaultEncodedValueFactory();
@@ -344,6 +360,16 @@ public class GraphHopper implements GraphHopperAPI {
         routingConfig.setMaxVisitedNodes(maxVisitedNodes);
     }
 
+    /**
+     * Calculates the legs of routes with more than one via point concurrently, using a thread pool of the specified
+     * size that is shared by all requests. The default is 1, i.e. the legs are calculated one after another.
+     */
+    public void setLegThreads(int legThreads) {
+        if (legThreads < 1)
+            throw new IllegalArgumentException("leg threads must be positive but was " + legThreads);
+        routingConfig.setLegThreads(legThreads);
+    }
+
     /**
      * @return true if storing and fetching elevation data is enabled. Default is false
      */
@@ -451,6 +477,18 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Specifies how the graph is sorted if sorting is enabled: 'hilbert' orders the nodes along a space filling curve
+     * (default), 'dfs' in depth-first order.
+     */
+    public GraphHopper setSortType(String sortType) {
+        ensureNotLoaded();
+        if (!sortType.equals("hilbert") && !sortType.equals("dfs"))
+            throw new IllegalArgumentException("Unknown sort type " + sortType + ", use hilbert or dfs");
+        this.sortType = sortType;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -526,8 +564,16 @@ public class GraphHopper implements GraphHopperAPI {
 
         String graphDATypeStr = ghConfig.get("graph.dataaccess", "RAM_STORE");
         dataAccessType = DAType.fromString(graphDATypeStr);
+        mmapPreloads.clear();
+        mmapPreloads.putAll(parseMMapPreloads(ghConfig.get("graph.dataaccess.mmap.preload", "")));
+        mmapPreloadThreads = ghConfig.getInt("graph.dataaccess.mmap.preload_threads", mmapPreloadThreads);
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
+        setSortType(ghConfig.get("graph.sort_type", sortType));
+        compressedGeometry = ghConfig.getBool("graph.compressed_geometry", compressedGeometry);
+        dictionaryEncodedNames = ghConfig.getBool("graph.dictionary_encoded_names", dictionaryEncodedNames);
+        adjacencyArrays = ghConfig.getBool("graph.adjacency_arrays", adjacencyArrays);
+        turnCostLookupTable = ghConfig.getBool("graph.turn_costs.lookup_table", turnCostLookupTable);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
         EncodingManager encodingManager = createEncodingManager(ghConfig);
         if (encodingManager != null) {
@@ -560,15 +606,20 @@ public class GraphHopper implements GraphHopperAPI {
         dataReaderWayPointMaxDistance = ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, dataReaderWayPointMaxDistance);
 
         dataReaderWorkerThreads = ghConfig.getInt("datareader.worker_threads", dataReaderWorkerThreads);
+        dataReaderWayWorkerThreads = ghConfig.getInt("datareader.way_worker_threads", dataReaderWayWorkerThreads);
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = ghConfig.getInt("index.max_region_search", maxRegionSearch);
+        streamingIndexPreparation = ghConfig.getBool("index.streaming_preparation", streamingIndexPreparation);
+        indexPreparationThreads = ghConfig.getInt("index.preparation_threads", indexPreparationThreads);
 
         // routing
         routingConfig.setMaxVisitedNodes(ghConfig.getInt(Routing.INIT_MAX_VISITED_NODES, routingConfig.getMaxVisitedNodes()));
         routingConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routingConfig.getMaxRoundTripRetries()));
         routingConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routingConfig.getNonChMaxWaypointDistance()));
+        setLegThreads(ghConfig.getInt(Routing.INIT_LEG_THREADS, routingConfig.getLegThreads()));
+        workspacePool.setMaxIdle(ghConfig.getInt(Routing.INIT_MAX_IDLE_WORKSPACES, workspacePool.getMaxIdle()));
 
         return this;
     }
@@ -592,6 +643,31 @@ public class GraphHopper implements GraphHopperAPI {
         }
     }
 
+    /**
+     * Parses a comma separated list like "nodes:100,edges:100,shortcuts_.*:50" into a map from a regular expression
+     * for DataAccess names to the percentage that should be preloaded. A missing percentage means 100.
+     */
+    static LinkedHashMap<String, Integer> parseMMapPreloads(String preloadStr) {
+        LinkedHashMap<String, Integer> preloads = new LinkedHashMap<>();
+        for (String entry : preloadStr.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty())
+                continue;
+            int index = entry.lastIndexOf(':');
+            String pattern = index < 0 ? entry : entry.substring(0, index).trim();
+            int percentage;
+            try {
+                percentage = index < 0 ? 100 : Integer.parseInt(entry.substring(index + 1).trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid percentage in graph.dataaccess.mmap.preload: " + entry);
+            }
+            if (pattern.isEmpty() || percentage < 0 || percentage > 100)
+                throw new IllegalArgumentException("Invalid entry in graph.dataaccess.mmap.preload: " + entry);
+            preloads.put(pattern, percentage);
+        }
+        return preloads;
+    }
+
     private static ElevationProvider createElevationProvider(GraphHopperConfig ghConfig) {
         String eleProviderStr = toLowerCase(ghConfig.get("graph.elevation.provider", "noop"));
 
@@ -735,6 +811,7 @@ public class GraphHopper implements GraphHopperAPI {
         return reader.setFile(new File(dataReaderFile)).
                 setElevationProvider(eleProvider).
                 setWorkerThreads(dataReaderWorkerThreads).
+                setWayWorkerThreads(dataReaderWayWorkerThreads).
                 setWayPointMaxDistance(dataReaderWayPointMaxDistance).
                 setSmoothElevation(this.smoothElevation);
     }
@@ -779,6 +856,8 @@ public class GraphHopper implements GraphHopperAPI {
 
         GHDirectory dir = new GHDirectory(ghLocation, dataAccessType);
         ghStorage = new GraphHopperStorage(dir, encodingManager, hasElevation(), encodingManager.needsTurnCostsSupport(), defaultSegmentSize);
+        ghStorage.setCompressedGeometry(compressedGeometry);
+        ghStorage.setDictionaryEncodedNames(dictionaryEncodedNames);
 
         checkProfilesConsistency();
 
@@ -813,6 +892,8 @@ public class GraphHopper implements GraphHopperAPI {
                 return false;
 
             postProcessing(false);
+            if (dataAccessType.isMMap() && ghStorage.getDirectory() instanceof GHDirectory)
+                ((GHDirectory) ghStorage.getDirectory()).loadMMap(mmapPreloads, mmapPreloadThreads);
             setFullyLoaded();
             return true;
         } finally {
@@ -879,14 +960,21 @@ public class GraphHopper implements GraphHopperAPI {
 
         // for now do not allow mixing CH&LM #1082,#1889
         if (chPreparationHandler.isEnabled() && !disableCH) {
-            return chPreparationHandler.getAlgorithmFactory(profile);
+            return chPreparationHandler.getAlgorithmFactory(profile).setWorkspacePool(workspacePool);
         } else if (lmPreparationHandler.isEnabled() && !disableLM) {
-            return lmPreparationHandler.getAlgorithmFactory(profile);
+            return lmPreparationHandler.getAlgorithmFactory(profile).setWorkspacePool(workspacePool);
         } else {
-            return new RoutingAlgorithmFactorySimple();
+            return new RoutingAlgorithmFactorySimple().setWorkspacePool(workspacePool);
         }
     }
 
+    /**
+     * @return the pool the algorithms of this instance borrow their heaps, labels and maps from
+     */
+    public SearchWorkspacePool getWorkspacePool() {
+        return workspacePool;
+    }
+
     public final CHPreparationHandler getCHPreparationHandler() {
         return chPreparationHandler;
     }
@@ -941,13 +1029,17 @@ public class GraphHopper implements GraphHopperAPI {
         // Later: move this into the GraphStorage.optimize method
         // Or: Doing it after preparation to optimize shortcuts too. But not possible yet #12
 
-        if (sortGraph) {
+        if (sortGraph && ghStorage.getProperties().get(SORTED_KEY).isEmpty()) {
             if (ghStorage.isCHPossible() && isCHPrepared())
                 throw new IllegalArgumentException("Sorting a prepared CHGraph is not possible yet. See #12");
 
             GraphHopperStorage newGraph = GHUtility.newStorage(ghStorage);
-            GHUtility.sortDFS(ghStorage, newGraph);
-            logger.info("graph sorted (" + getMemInfo() + ")");
+            if (sortType.equals("dfs"))
+                GHUtility.sortDFS(ghStorage, newGraph);
+            else
+                GHUtility.sortHilbert(ghStorage, newGraph);
+            newGraph.getProperties().put(SORTED_KEY, sortType);
+            logger.info("graph sorted via " + sortType + " (" + getMemInfo() + ")");
             ghStorage = newGraph;
         }
 
@@ -959,6 +1051,15 @@ public class GraphHopper implements GraphHopperAPI {
 
         importPublicTransit();
 
+        if (adjacencyArrays) {
+            // the arrays are read-only so no edge must be added after this point
+            ghStorage.freeze();
+            ghStorage.setAdjacencyArrays(true);
+        }
+
+        if (turnCostLookupTable && ghStorage.getTurnCostStorage() != null)
+            ghStorage.getTurnCostStorage().buildLookupTable();
+
         if (lmPreparationHandler.isEnabled())
             lmPreparationHandler.createPreparations(ghStorage, locationIndex);
         loadOrPrepareLM(closeEarly);
@@ -967,6 +1068,9 @@ public class GraphHopper implements GraphHopperAPI {
             chPreparationHandler.createPreparations(ghStorage);
         if (!isCHPrepared())
             prepareCH(closeEarly);
+
+        if (adjacencyArrays && !closeEarly && ghStorage.isCHPossible() && isCHPrepared())
+            ghStorage.setCHAdjacencyArrays(true);
     }
 
     protected void registerCustomEncodedValues(EncodingManager.Builder emBuilder) {
@@ -978,6 +1082,7 @@ public class GraphHopper implements GraphHopperAPI {
     }
 
     private static final String INTERPOLATION_KEY = "prepare.elevation_interpolation.done";
+    private static final String SORTED_KEY = "graph.sorted";
 
     private boolean hasInterpolated() {
         return "true".equals(ghStorage.getProperties().get(INTERPOLATION_KEY));
@@ -1143,11 +1248,31 @@ public class GraphHopper implements GraphHopperAPI {
             routingTemplate = new RoundTripRoutingTemplate(request, ghRsp, locationIndex, encodingManager, weighting, routingConfig.getMaxRoundTripRetries());
         else if (ALT_ROUTE.equalsIgnoreCase(algoStr))
             routingTemplate = new AlternativeRoutingTemplate(request, ghRsp, locationIndex, encodingManager, weighting);
-        else
-            routingTemplate = new ViaRoutingTemplate(request, ghRsp, locationIndex, encodingManager, weighting);
+        else {
+            ViaRoutingTemplate viaRoutingTemplate = new ViaRoutingTemplate(request, ghRsp, locationIndex, encodingManager, weighting);
+            if (routingConfig.getLegThreads() > 1)
+                viaRoutingTemplate.setLegExecutor(getLegExecutor());
+            routingTemplate = viaRoutingTemplate;
+        }
         return routingTemplate;
     }
 
+    private synchronized ExecutorService getLegExecutor() {
+        if (legExecutor == null)
+            legExecutor = Executors.newFixedThreadPool(routingConfig.getLegThreads(), new ThreadFactory() {
+                private int counter;
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "leg-" + counter++);
+                    // do not prevent the JVM from exiting if close was not called
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        return legExecutor;
+    }
+
     /**
      * This method applies the changes to the graph specified as feature collection. It does so by locking the routing
      * to avoid concurrent changes which could result in incorrect routing (like when done while a Dijkstra search) or
@@ -1208,6 +1333,8 @@ public class GraphHopper implements GraphHopperAPI {
         LocationIndexTree tmpIndex = new LocationIndexTree(ghStorage, dir);
         tmpIndex.setResolution(preciseIndexResolution);
         tmpIndex.setMaxRegionSearch(maxRegionSearch);
+        tmpIndex.setStreamingPreparation(streamingIndexPreparation);
+        tmpIndex.setPreparationThreads(indexPreparationThreads);
         if (!tmpIndex.loadExisting()) {
             ensureWriteAccess();
             tmpIndex.prepareIndex();
@@ -1295,6 +1422,13 @@ public class GraphHopper implements GraphHopperAPI {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        synchronized (this) {
+            if (legExecutor != null) {
+                legExecutor.shutdownNow();
+                legExecutor = null;
+            }
+        }
+
         if (ghStorage != null)
             ghStorage.close();
 
@@ -1391,6 +1525,7 @@ public class GraphHopper implements GraphHopperAPI {
         private int maxVisitedNodes = Integer.MAX_VALUE;
         private int maxRoundTripRetries = 3;
         private int nonChMaxWaypointDistance = Integer.MAX_VALUE;
+        private int legThreads = 1;
         private boolean calcPoints = true;
         private boolean simplifyResponse = true;
 
@@ -1418,6 +1553,14 @@ public class GraphHopper implements GraphHopperAPI {
             this.nonChMaxWaypointDistance = nonChMaxWaypointDistance;
         }
 
+        public int getLegThreads() {
+            return legThreads;
+        }
+
+        public void setLegThreads(int legThreads) {
+            this.legThreads = legThreads;
+        }
+
         public boolean isCalcPoints() {
             return calcPoints;
         }
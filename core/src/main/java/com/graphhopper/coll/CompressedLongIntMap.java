@@ -0,0 +1,291 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * A memory efficient map from long to int for many keys, e.g. the OSM node ids of a planet import. The keys are kept
+ * sorted in blocks of {@link #BLOCK_SIZE} entries. A sparse index stores the first key of every block and the other
+ * keys are stored as variable length deltas to their predecessor. For OSM node ids this results in roughly one or two
+ * bytes per key plus four bytes for the value. Lookups only need a binary search in the small index and decoding a
+ * single block, which is a sequential read.
+ * <p>
+ * Changing the value of an existing key is done in place. A new key that is bigger than all existing keys, like the
+ * sorted node ids of a PBF file, is appended to the last block directly. Other new keys are collected in a small hash
+ * map and merged into the blocks when this buffer is full or when calling {@link #optimize()}. Every merge rewrites
+ * all blocks, so this map is only efficient for mostly increasing keys. The blocks are stored in DataAccess objects
+ * of the specified directory, e.g. use a MMapDirectory to spill them to disc. Note that while merging the old and the
+ * new blocks exist at the same time.
+ */
+public class CompressedLongIntMap implements LongIntMap {
+    static final int BLOCK_SIZE = 64;
+    // every block has an index entry with the first key and the position of the deltas in the keys DataAccess
+    private static final int INDEX_ENTRY_BYTES = 16;
+    // the maximum number of keys that are not appended in order before they are merged into the blocks
+    static final int MAX_BUFFER_SIZE = 1 << 16;
+    private final Directory dir;
+    private final String name;
+    private final int noEntryValue;
+    private final LongIntHashMap buffer = new LongIntHashMap();
+    // the sorted blocks, new keys are appended to the last one
+    private BlockWriter blocks;
+    private int generation;
+
+    public CompressedLongIntMap(Directory dir, String name) {
+        this(dir, name, -1);
+    }
+
+    public CompressedLongIntMap(Directory dir, String name, int noEntryValue) {
+        this.dir = dir;
+        this.name = name;
+        this.noEntryValue = noEntryValue;
+        blocks = new BlockWriter(create("index"), create("keys"), create("values"));
+    }
+
+    private DataAccess create(String type) {
+        DataAccess da = dir.find(name + "_" + type + "_" + generation);
+        da.create(1000);
+        return da;
+    }
+
+    @Override
+    public int put(long key, int value) {
+        int bufferIndex = buffer.indexOf(key);
+        if (buffer.indexExists(bufferIndex))
+            return buffer.indexReplace(bufferIndex, value);
+
+        // the buffer only contains keys that are smaller than the last key of the blocks
+        if (blocks.size == 0 || key > blocks.lastKey) {
+            blocks.add(key, value);
+            return noEntryValue;
+        }
+
+        long rank = findRank(key);
+        if (rank >= 0) {
+            int oldValue = blocks.values.getInt(rank * 4);
+            blocks.values.setInt(rank * 4, value);
+            return oldValue;
+        }
+
+        buffer.indexInsert(bufferIndex, key, value);
+        if (buffer.size() >= MAX_BUFFER_SIZE)
+            merge();
+        return noEntryValue;
+    }
+
+    @Override
+    public int get(long key) {
+        int bufferIndex = buffer.indexOf(key);
+        if (buffer.indexExists(bufferIndex))
+            return buffer.indexGet(bufferIndex);
+
+        long rank = findRank(key);
+        if (rank < 0)
+            return noEntryValue;
+        return blocks.values.getInt(rank * 4);
+    }
+
+    /**
+     * @return the position of the specified key in the sorted blocks or -1 if it is not contained
+     */
+    private long findRank(long key) {
+        long sortedSize = blocks.size;
+        if (sortedSize == 0 || key < getFirstKey(0) || key > blocks.lastKey)
+            return -1;
+
+        // find the last block with a first key that is not bigger than the specified key
+        long low = 0, high = (sortedSize - 1) / BLOCK_SIZE;
+        while (low < high) {
+            long guess = (low + high + 1) >>> 1;
+            if (getFirstKey(guess) <= key)
+                low = guess;
+            else
+                high = guess - 1;
+        }
+
+        long currentKey = getFirstKey(low);
+        long rank = low * BLOCK_SIZE;
+        if (currentKey == key)
+            return rank;
+
+        long pointer = getLong(blocks.index, low * INDEX_ENTRY_BYTES + 8);
+        long end = Math.min(sortedSize, rank + BLOCK_SIZE);
+        for (rank++; rank < end; rank++) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = blocks.keys.getByte(pointer++);
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            currentKey += delta;
+            if (currentKey == key)
+                return rank;
+            if (currentKey > key)
+                return -1;
+        }
+        return -1;
+    }
+
+    private long getFirstKey(long block) {
+        return getLong(blocks.index, block * INDEX_ENTRY_BYTES);
+    }
+
+    /**
+     * Merges the keys of the buffer into the sorted blocks.
+     */
+    private void merge() {
+        if (buffer.isEmpty())
+            return;
+
+        long[] newKeys = buffer.keys().toArray();
+        Arrays.sort(newKeys);
+
+        DataAccess oldIndex = blocks.index, oldKeys = blocks.keys, oldValues = blocks.values;
+        long sortedSize = blocks.size;
+        generation++;
+        BlockWriter writer = new BlockWriter(create("index"), create("keys"), create("values"));
+        int newKeyIndex = 0;
+        long pointer = 0;
+        long currentKey = 0;
+        for (long rank = 0; rank < sortedSize; rank++) {
+            if (rank % BLOCK_SIZE == 0) {
+                currentKey = getLong(oldIndex, rank / BLOCK_SIZE * INDEX_ENTRY_BYTES);
+            } else {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = oldKeys.getByte(pointer++);
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                currentKey += delta;
+            }
+
+            for (; newKeyIndex < newKeys.length && newKeys[newKeyIndex] < currentKey; newKeyIndex++) {
+                writer.add(newKeys[newKeyIndex], buffer.get(newKeys[newKeyIndex]));
+            }
+            writer.add(currentKey, oldValues.getInt(rank * 4));
+        }
+        for (; newKeyIndex < newKeys.length; newKeyIndex++) {
+            writer.add(newKeys[newKeyIndex], buffer.get(newKeys[newKeyIndex]));
+        }
+
+        dir.remove(oldIndex);
+        dir.remove(oldKeys);
+        dir.remove(oldValues);
+        blocks = writer;
+        buffer.clear();
+    }
+
+    @Override
+    public long getSize() {
+        return blocks.size + buffer.size();
+    }
+
+    /**
+     * @return the number of keys that were not appended in order and are not yet merged into the blocks
+     */
+    int getBufferSize() {
+        return buffer.size();
+    }
+
+    /**
+     * Merges all new keys into the sorted blocks which makes the following lookups faster.
+     */
+    @Override
+    public void optimize() {
+        merge();
+    }
+
+    @Override
+    public int getMemoryUsage() {
+        long bytes = blocks.index.getCapacity() + blocks.keys.getCapacity() + blocks.values.getCapacity()
+                + (long) buffer.keys.length * (8 + 4);
+        return Math.round(bytes / Helper.MB);
+    }
+
+    /**
+     * Removes the DataAccess objects of this map from the directory.
+     */
+    public void remove() {
+        dir.remove(blocks.index);
+        dir.remove(blocks.keys);
+        dir.remove(blocks.values);
+        buffer.release();
+    }
+
+    private static long getLong(DataAccess da, long bytePos) {
+        return ((long) da.getInt(bytePos + 4) << 32) | (da.getInt(bytePos) & 0xFFFFFFFFL);
+    }
+
+    private static void setLong(DataAccess da, long bytePos, long value) {
+        da.setInt(bytePos, (int) value);
+        da.setInt(bytePos + 4, (int) (value >>> 32));
+    }
+
+    /**
+     * Appends increasing keys to the blocks.
+     */
+    private static class BlockWriter {
+        final DataAccess index;
+        final DataAccess keys;
+        final DataAccess values;
+        long size;
+        long keysPointer;
+        long lastKey;
+
+        BlockWriter(DataAccess index, DataAccess keys, DataAccess values) {
+            this.index = index;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        void add(long key, int value) {
+            if (size % BLOCK_SIZE == 0) {
+                long indexPointer = size / BLOCK_SIZE * INDEX_ENTRY_BYTES;
+                index.ensureCapacity(indexPointer + INDEX_ENTRY_BYTES);
+                setLong(index, indexPointer, key);
+                setLong(index, indexPointer + 8, keysPointer);
+            } else {
+                // the keys are increasing, so the unsigned delta is also correct if it overflows a signed long
+                long delta = key - lastKey;
+                keys.ensureCapacity(keysPointer + 10);
+                while ((delta & ~0x7FL) != 0) {
+                    keys.setByte(keysPointer++, (byte) ((delta & 0x7F) | 0x80));
+                    delta >>>= 7;
+                }
+                keys.setByte(keysPointer++, (byte) delta);
+            }
+
+            values.ensureCapacity((size + 1) * 4);
+            values.setInt(size * 4, value);
+            lastKey = key;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min heap of non-negative int ids with double keys. Unlike {@link java.util.PriorityQueue} or
+ * {@link com.graphhopper.apache.commons.collections.IntDoubleBinaryHeap} it keeps track of the position of every id
+ * in the heap, so {@link #update} (decrease-key or increase-key) runs in O(log n) instead of O(n). All arrays grow on
+ * demand and are kept when calling {@link #clear}, so a heap instance can be re-used without allocations.
+ * <p>
+ * The ids are used as array indices, so they should be dense, e.g. node ids or label indices.
+ */
+public class MinHeapWithUpdate {
+    private static final int NOT_PRESENT = -1;
+    // the heap is stored 1-based, i.e. tree[1] is the root
+    private int[] tree;
+    private double[] keys;
+    // positions[id] is the index of the given id in tree
+    private int[] positions;
+    private int size;
+
+    public MinHeapWithUpdate(int capacity) {
+        capacity = Math.max(capacity, 16);
+        tree = new int[capacity + 1];
+        keys = new double[capacity + 1];
+        positions = new int[capacity];
+        Arrays.fill(positions, NOT_PRESENT);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds an id that is not yet contained in the heap.
+     */
+    public void push(int id, double key) {
+        ensureIdCapacity(id);
+        if (positions[id] != NOT_PRESENT)
+            throw new IllegalStateException("Cannot push id " + id + ", it is already contained in the heap");
+        size++;
+        if (size == tree.length) {
+            int newLength = tree.length * 2;
+            tree = Arrays.copyOf(tree, newLength);
+            keys = Arrays.copyOf(keys, newLength);
+        }
+        tree[size] = id;
+        keys[size] = key;
+        positions[id] = size;
+        percolateUp(size);
+    }
+
+    public boolean contains(int id) {
+        return id < positions.length && positions[id] != NOT_PRESENT;
+    }
+
+    /**
+     * Changes the key of an id that is already contained in the heap.
+     */
+    public void update(int id, double key) {
+        if (!contains(id))
+            throw new IllegalStateException("Cannot update id " + id + ", it is not contained in the heap");
+        int pos = positions[id];
+        double oldKey = keys[pos];
+        keys[pos] = key;
+        if (key < oldKey)
+            percolateUp(pos);
+        else
+            percolateDown(pos);
+    }
+
+    public int peekId() {
+        checkNotEmpty();
+        return tree[1];
+    }
+
+    public double peekKey() {
+        checkNotEmpty();
+        return keys[1];
+    }
+
+    /**
+     * Removes the id with the smallest key and returns it
+     */
+    public int poll() {
+        checkNotEmpty();
+        int id = tree[1];
+        positions[id] = NOT_PRESENT;
+        if (size > 1) {
+            tree[1] = tree[size];
+            keys[1] = keys[size];
+            positions[tree[1]] = 1;
+        }
+        size--;
+        if (size > 1)
+            percolateDown(1);
+        return id;
+    }
+
+    /**
+     * Removes all ids in O(size), the allocated memory is kept.
+     */
+    public void clear() {
+        for (int i = 1; i <= size; i++)
+            positions[tree[i]] = NOT_PRESENT;
+        size = 0;
+    }
+
+    private void percolateUp(int pos) {
+        int id = tree[pos];
+        double key = keys[pos];
+        while (pos > 1 && keys[pos >> 1] > key) {
+            int parent = pos >> 1;
+            tree[pos] = tree[parent];
+            keys[pos] = keys[parent];
+            positions[tree[pos]] = pos;
+            pos = parent;
+        }
+        tree[pos] = id;
+        keys[pos] = key;
+        positions[id] = pos;
+    }
+
+    private void percolateDown(int pos) {
+        int id = tree[pos];
+        double key = keys[pos];
+        while (true) {
+            int child = pos << 1;
+            if (child > size)
+                break;
+            if (child < size && keys[child + 1] < keys[child])
+                child++;
+            if (keys[child] >= key)
+                break;
+            tree[pos] = tree[child];
+            keys[pos] = keys[child];
+            positions[tree[pos]] = pos;
+            pos = child;
+        }
+        tree[pos] = id;
+        keys[pos] = key;
+        positions[id] = pos;
+    }
+
+    private void ensureIdCapacity(int id) {
+        if (id < 0)
+            throw new IllegalArgumentException("Illegal id: " + id + ", ids must be non-negative");
+        if (id < positions.length)
+            return;
+        int oldLength = positions.length;
+        positions = Arrays.copyOf(positions, Math.max(id + 1, oldLength * 2));
+        Arrays.fill(positions, oldLength, positions.length, NOT_PRESENT);
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0)
+            throw new NoSuchElementException("Heap is empty");
+    }
+}
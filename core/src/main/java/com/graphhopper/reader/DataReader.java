@@ -34,6 +34,12 @@ public interface DataReader {
 
     DataReader setWorkerThreads(int workerThreads);
 
+    /**
+     * Sets the number of threads that accept ways and encode their flags while importing. The edges are still
+     * added to the graph by one thread.
+     */
+    DataReader setWayWorkerThreads(int wayWorkerThreads);
+
     DataReader setWayPointMaxDistance(double wayPointMaxDistance);
 
     DataReader setSmoothElevation(boolean smoothElevation);
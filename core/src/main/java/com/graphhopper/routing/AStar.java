@@ -17,38 +17,55 @@
  */
 package com.graphhopper.routing;
 
-import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.BeelineWeightApproximator;
 import com.graphhopper.routing.weighting.WeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.storage.SPTLabelStore;
 import com.graphhopper.util.*;
 
-import java.util.PriorityQueue;
+import static com.graphhopper.storage.SPTLabelStore.NO_LABEL;
 
 /**
  * This class implements the A* algorithm according to
  * http://en.wikipedia.org/wiki/A*_search_algorithm
  * <p>
- * Different distance calculations can be used via setApproximation.
+ * Different distance calculations can be used via setApproximation. Like {@link Dijkstra} the shortest path tree is
+ * kept in a {@link SPTLabelStore}, the heap is keyed by the estimated full weight of every label.
  * <p>
  *
  * @author Peter Karich
  */
 public class AStar extends AbstractRoutingAlgorithm {
-    private GHIntObjectHashMap<AStarEntry> fromMap;
-    private PriorityQueue<AStarEntry> fromHeap;
-    private AStarEntry currEdge;
+    protected SPTLabelStore labels;
+    protected MinHeapWithUpdate fromHeap;
+    protected int currLabel = NO_LABEL;
+    private SearchWorkspacePool workspacePool;
     private int visitedNodes;
     private int to = -1;
     private WeightApproximator weightApprox;
 
     public AStar(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
-        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
-        initCollections(size);
+        initCollections(getInitialCapacity(graph));
+        BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, weighting);
+        defaultApprox.setDistanceCalc(Helper.DIST_PLANE);
+        setApproximation(defaultApprox);
+    }
+
+    /**
+     * Creates an instance that borrows the labels and heap from the given pool instead of allocating its own. The
+     * workspace is only borrowed while {@link #calcPath} runs, so an instance that is never used keeps nothing.
+     * Without a pool the instance allocates its own collections.
+     */
+    public AStar(Graph graph, Weighting weighting, TraversalMode tMode, SearchWorkspacePool workspacePool) {
+        super(graph, weighting, tMode);
+        this.workspacePool = workspacePool;
+        if (workspacePool == null)
+            initCollections(getInitialCapacity(graph));
         BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, weighting);
         defaultApprox.setDistanceCalc(Helper.DIST_PLANE);
         setApproximation(defaultApprox);
@@ -63,22 +80,40 @@ public class AStar extends AbstractRoutingAlgorithm {
     }
 
     protected void initCollections(int size) {
-        fromMap = new GHIntObjectHashMap<>();
-        fromHeap = new PriorityQueue<>(size);
+        labels = new SPTLabelStore(size);
+        fromHeap = new MinHeapWithUpdate(size);
     }
 
     @Override
     public Path calcPath(int from, int to) {
         checkAlreadyRun();
-        this.to = to;
-        weightApprox.setTo(to);
-        double weightToGoal = weightApprox.approximate(from);
-        currEdge = new AStarEntry(EdgeIterator.NO_EDGE, from, 0 + weightToGoal, 0);
-        if (!traversalMode.isEdgeBased()) {
-            fromMap.put(from, currEdge);
+        SearchWorkspace workspace = null;
+        if (workspacePool != null) {
+            workspace = workspacePool.borrow(getInitialCapacity(graph));
+            labels = workspace.getLabels();
+            fromHeap = workspace.getHeap();
         }
-        runAlgo();
-        return extractPath();
+        try {
+            this.to = to;
+            weightApprox.setTo(to);
+            currLabel = labels.add(EdgeIterator.NO_EDGE, from, 0, NO_LABEL);
+            if (!traversalMode.isEdgeBased()) {
+                labels.setLabel(from, currLabel);
+            }
+            runAlgo();
+            return extractPath();
+        } finally {
+            if (workspace != null) {
+                workspace.release();
+                // another thread may borrow the workspace now, so it must not be read after the search
+                labels = null;
+                fromHeap = null;
+            }
+        }
+    }
+
+    private static int getInitialCapacity(Graph graph) {
+        return Math.min(Math.max(200, graph.getNodes() / 10), 2000);
     }
 
     private void runAlgo() {
@@ -88,67 +123,62 @@ public class AStar extends AbstractRoutingAlgorithm {
             if (isMaxVisitedNodesExceeded() || finished())
                 break;
 
-            int currNode = currEdge.adjNode;
+            int currNode = labels.getAdjNode(currLabel);
+            int currEdge = labels.getEdge(currLabel);
+            double currWeight = labels.getWeight(currLabel);
             EdgeIterator iter = edgeExplorer.setBaseNode(currNode);
             while (iter.next()) {
-                if (!accept(iter, currEdge.edge))
+                if (!accept(iter, currEdge))
                     continue;
 
                 // todo: for #1776/#1835 move the access check into weighting
                 double tmpWeight = !outEdgeFilter.accept(iter)
                         ? Double.POSITIVE_INFINITY
-                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge.edge) + currEdge.weightOfVisitedPath);
+                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge) + currWeight);
                 if (Double.isInfinite(tmpWeight)) {
                     continue;
                 }
                 int traversalId = traversalMode.createTraversalId(iter, false);
 
-                AStarEntry ase = fromMap.get(traversalId);
-                if (ase == null || ase.weightOfVisitedPath > tmpWeight) {
+                int label = labels.getLabel(traversalId);
+                if (label == NO_LABEL || labels.getWeight(label) > tmpWeight) {
                     int neighborNode = iter.getAdjNode();
                     currWeightToGoal = weightApprox.approximate(neighborNode);
                     estimationFullWeight = tmpWeight + currWeightToGoal;
-                    if (ase == null) {
-                        ase = new AStarEntry(iter.getEdge(), neighborNode, estimationFullWeight, tmpWeight);
-                        fromMap.put(traversalId, ase);
+                    if (label == NO_LABEL) {
+                        label = labels.add(iter.getEdge(), neighborNode, tmpWeight, currLabel);
+                        labels.setLabel(traversalId, label);
+                        fromHeap.push(label, estimationFullWeight);
                     } else {
-//                        assert (ase.weight > 0.9999999 * estimationFullWeight) : "Inconsistent distance estimate. It is expected weight >= estimationFullWeight but was "
-//                                + ase.weight + " < " + estimationFullWeight + " (" + ase.weight / estimationFullWeight + "), and weightOfVisitedPath:"
-//                                + ase.weightOfVisitedPath + " vs. alreadyVisitedWeight:" + alreadyVisitedWeight + " (" + ase.weightOfVisitedPath / alreadyVisitedWeight + ")";
-
-                        fromHeap.remove(ase);
-                        ase.edge = iter.getEdge();
-                        ase.weight = estimationFullWeight;
-                        ase.weightOfVisitedPath = tmpWeight;
+                        labels.update(label, iter.getEdge(), tmpWeight, currLabel);
+                        if (fromHeap.contains(label))
+                            fromHeap.update(label, estimationFullWeight);
+                        else
+                            fromHeap.push(label, estimationFullWeight);
                     }
 
-                    ase.parent = currEdge;
-                    fromHeap.add(ase);
-
-                    updateBestPath(iter, ase, traversalId);
+                    updateBestPath(iter, label, traversalId);
                 }
             }
 
             if (fromHeap.isEmpty())
                 break;
 
-            currEdge = fromHeap.poll();
-            if (currEdge == null)
-                throw new AssertionError("Empty edge cannot happen");
+            currLabel = fromHeap.poll();
         }
     }
 
     @Override
     protected boolean finished() {
-        return currEdge.adjNode == to;
+        return labels.getAdjNode(currLabel) == to;
     }
 
     @Override
     protected Path extractPath() {
-        if (currEdge == null || !finished())
+        if (currLabel == NO_LABEL || !finished())
             return createEmptyPath();
 
-        return PathExtractor.extractPath(graph, weighting, currEdge);
+        return PathExtractor.extractPath(graph, weighting, labels.toSPTEntry(currLabel));
     }
 
     @Override
@@ -156,7 +186,10 @@ public class AStar extends AbstractRoutingAlgorithm {
         return visitedNodes;
     }
 
-    protected void updateBestPath(EdgeIteratorState edgeState, SPTEntry bestSPTEntry, int traversalId) {
+    /**
+     * @param label the label (an index into {@link #labels}) that was just added or improved
+     */
+    protected void updateBestPath(EdgeIteratorState edgeState, int label, int traversalId) {
     }
 
     public static class AStarEntry extends SPTEntry {
@@ -25,13 +25,12 @@ import com.graphhopper.routing.weighting.WeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.storage.SPTEntryHeap;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 
-import java.util.PriorityQueue;
-
 /**
  * This class implements a bidirectional A* algorithm. It is interesting to note that a
  * bidirectional dijkstra is far more efficient than a single direction one. The same does not hold
@@ -138,33 +137,28 @@ public class AStarBidirection extends AbstractNonCHBidirAlgo implements Recalcul
         return Parameters.Algorithms.ASTAR_BI + "|" + weightApprox;
     }
 
-    public static void updatePriorityQueues(PriorityQueue<SPTEntry> pqOpenSetFrom, PriorityQueue<SPTEntry> pqOpenSetTo, BalancedWeightApproximator weightApprox, boolean forward, boolean backward) {
+    public static void updatePriorityQueues(SPTEntryHeap pqOpenSetFrom, SPTEntryHeap pqOpenSetTo, BalancedWeightApproximator weightApprox, boolean forward, boolean backward) {
         if (forward) {
             // update PQ due to heuristic change (i.e. weight changed)
             if (!pqOpenSetFrom.isEmpty()) {
-                // copy into temporary array to avoid pointer change of PQ
-                AStarEntry[] entries = pqOpenSetFrom.toArray(new AStarEntry[pqOpenSetFrom.size()]);
-                pqOpenSetFrom.clear();
-                for (AStarEntry value : entries) {
+                for (SPTEntry entry : pqOpenSetFrom.toArray()) {
+                    AStarEntry value = (AStarEntry) entry;
                     value.weight = value.weightOfVisitedPath + weightApprox.approximate(value.adjNode, false);
                     // does not work for edge based
                     // ignoreExplorationFrom.add(value.adjNode);
-
-                    pqOpenSetFrom.add(value);
                 }
+                pqOpenSetFrom.rebuild();
             }
         }
 
         if (backward) {
             if (!pqOpenSetTo.isEmpty()) {
-                AStarEntry[] entries = pqOpenSetTo.toArray(new AStarEntry[pqOpenSetTo.size()]);
-                pqOpenSetTo.clear();
-                for (AStarEntry value : entries) {
+                for (SPTEntry entry : pqOpenSetTo.toArray()) {
+                    AStarEntry value = (AStarEntry) entry;
                     value.weight = value.weightOfVisitedPath + weightApprox.approximate(value.adjNode, true);
                     // ignoreExplorationTo.add(value.adjNode);
-
-                    pqOpenSetTo.add(value);
                 }
+                pqOpenSetTo.rebuild();
             }
         }
     }
@@ -22,10 +22,10 @@ import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.storage.SPTEntryHeap;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 
@@ -45,14 +45,16 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
     protected double bestWeight = Double.MAX_VALUE;
     protected NodeAccess nodeAccess;
     protected int maxVisitedNodes = Integer.MAX_VALUE;
-    PriorityQueue<SPTEntry> pqOpenSetFrom;
-    PriorityQueue<SPTEntry> pqOpenSetTo;
+    SPTEntryHeap pqOpenSetFrom;
+    SPTEntryHeap pqOpenSetTo;
     protected boolean updateBestPath = true;
     protected boolean finishedFrom;
     protected boolean finishedTo;
     int visitedCountFrom;
     int visitedCountTo;
     private boolean alreadyRun;
+    private int collectionsSize;
+    private SearchWorkspacePool workspacePool;
 
     public AbstractBidirAlgo(TraversalMode traversalMode) {
         this.traversalMode = traversalMode;
@@ -60,12 +62,20 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
         toInEdge = ANY_EDGE;
     }
 
+    /**
+     * Sets the initial size of the heaps and maps. They are allocated when a search direction is initialized, unless
+     * {@link #calcPath} borrows them from the workspace pool.
+     */
     protected void initCollections(int size) {
-        pqOpenSetFrom = new PriorityQueue<>(size);
-        bestWeightMapFrom = new GHIntObjectHashMap<>(size);
+        collectionsSize = size;
+    }
 
-        pqOpenSetTo = new PriorityQueue<>(size);
-        bestWeightMapTo = new GHIntObjectHashMap<>(size);
+    /**
+     * Lets {@link #calcPath} borrow the heaps and maps from the given pool instead of allocating its own. Subclasses
+     * that read the maps after the search, like {@link AlternativeRouteCH}, must not use a pool.
+     */
+    public void setWorkspacePool(SearchWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
     }
 
     /**
@@ -86,9 +96,25 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
         this.fromOutEdge = fromOutEdge;
         this.toInEdge = toInEdge;
         checkAlreadyRun();
-        init(from, 0, to, 0);
-        runAlgo();
-        return extractPath();
+        BidirSearchWorkspace workspace = null;
+        if (workspacePool != null) {
+            workspace = workspacePool.borrowBidir(collectionsSize);
+            pqOpenSetFrom = workspace.getHeapFrom();
+            pqOpenSetTo = workspace.getHeapTo();
+            bestWeightMapFrom = workspace.getBestWeightMapFrom();
+            bestWeightMapTo = workspace.getBestWeightMapTo();
+        }
+        try {
+            init(from, 0, to, 0);
+            runAlgo();
+            return extractPath();
+        } finally {
+            if (workspace != null) {
+                workspace.release();
+                bestWeightMapFrom = bestWeightMapTo = bestWeightMapOther = null;
+                pqOpenSetFrom = pqOpenSetTo = null;
+            }
+        }
     }
 
     void init(int from, double fromWeight, int to, double toWeight) {
@@ -99,6 +125,10 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
 
     protected void initFrom(int from, double weight) {
         this.from = from;
+        if (pqOpenSetFrom == null) {
+            pqOpenSetFrom = new SPTEntryHeap(collectionsSize);
+            bestWeightMapFrom = new GHIntObjectHashMap<>(collectionsSize);
+        }
         currFrom = createStartEntry(from, weight, false);
         pqOpenSetFrom.add(currFrom);
         if (!traversalMode.isEdgeBased()) {
@@ -108,6 +138,10 @@ public abstract class AbstractBidirAlgo implements BidirRoutingAlgorithm {
 
     protected void initTo(int to, double weight) {
         this.to = to;
+        if (pqOpenSetTo == null) {
+            pqOpenSetTo = new SPTEntryHeap(collectionsSize);
+            bestWeightMapTo = new GHIntObjectHashMap<>(collectionsSize);
+        }
         currTo = createStartEntry(to, weight, true);
         pqOpenSetTo.add(currTo);
         if (!traversalMode.isEdgeBased()) {
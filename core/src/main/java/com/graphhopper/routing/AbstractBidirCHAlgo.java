@@ -22,8 +22,6 @@ import com.graphhopper.routing.ch.NodeBasedCHBidirPathExtractor;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.storage.*;
 
-import java.util.PriorityQueue;
-
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 
 /**
@@ -39,6 +37,8 @@ public abstract class AbstractBidirCHAlgo extends AbstractBidirAlgo implements B
     protected RoutingCHEdgeExplorer allEdgeExplorer;
     protected RoutingCHEdgeExplorer inEdgeExplorer;
     protected RoutingCHEdgeExplorer outEdgeExplorer;
+    protected RoutingCHEdgeExplorer upwardInEdgeExplorer;
+    protected RoutingCHEdgeExplorer upwardOutEdgeExplorer;
     protected CHEdgeFilter levelEdgeFilter;
 
     public AbstractBidirCHAlgo(RoutingCHGraph graph, TraversalMode tMode) {
@@ -48,6 +48,8 @@ public abstract class AbstractBidirCHAlgo extends AbstractBidirAlgo implements B
         allEdgeExplorer = graph.createAllEdgeExplorer();
         outEdgeExplorer = graph.createOutEdgeExplorer();
         inEdgeExplorer = graph.createInEdgeExplorer();
+        upwardOutEdgeExplorer = graph.createUpwardOutEdgeExplorer();
+        upwardInEdgeExplorer = graph.createUpwardInEdgeExplorer();
         levelEdgeFilter = new CHLevelEdgeFilter(graph);
         int size = Math.min(Math.max(200, graph.getNodes() / 10), 150_000);
         initCollections(size);
@@ -154,7 +156,7 @@ public abstract class AbstractBidirCHAlgo extends AbstractBidirAlgo implements B
             return false;
         }
         bestWeightMapOther = bestWeightMapTo;
-        fillEdges(currFrom, pqOpenSetFrom, bestWeightMapFrom, outEdgeExplorer, false);
+        fillEdges(currFrom, pqOpenSetFrom, bestWeightMapFrom, isUpwardSearch() ? upwardOutEdgeExplorer : outEdgeExplorer, false);
         return true;
     }
 
@@ -172,11 +174,19 @@ public abstract class AbstractBidirCHAlgo extends AbstractBidirAlgo implements B
             return false;
         }
         bestWeightMapOther = bestWeightMapFrom;
-        fillEdges(currTo, pqOpenSetTo, bestWeightMapTo, inEdgeExplorer, true);
+        fillEdges(currTo, pqOpenSetTo, bestWeightMapTo, isUpwardSearch() ? upwardInEdgeExplorer : inEdgeExplorer, true);
         return true;
     }
 
-    private void fillEdges(SPTEntry currEdge, PriorityQueue<SPTEntry> prioQueue,
+    /**
+     * @return true if only edges to nodes with an equal or higher level are expanded. This is not the case e.g. for
+     * the first step of edge-based CH or if the edge filter was replaced temporarily
+     */
+    private boolean isUpwardSearch() {
+        return levelEdgeFilter instanceof CHLevelEdgeFilter;
+    }
+
+    private void fillEdges(SPTEntry currEdge, SPTEntryHeap prioQueue,
                            IntObjectMap<SPTEntry> bestWeightMap, RoutingCHEdgeExplorer explorer, boolean reverse) {
         RoutingCHEdgeIterator iter = explorer.setBaseNode(currEdge.adjNode);
         while (iter.next()) {
@@ -195,9 +205,8 @@ public abstract class AbstractBidirCHAlgo extends AbstractBidirAlgo implements B
                 bestWeightMap.put(traversalId, entry);
                 prioQueue.add(entry);
             } else if (entry.getWeightOfVisitedPath() > weight) {
-                prioQueue.remove(entry);
                 updateEntry(entry, iter, origEdgeId, weight, currEdge, reverse);
-                prioQueue.add(entry);
+                prioQueue.update(entry);
             } else
                 continue;
 
@@ -25,17 +25,21 @@ import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.storage.SPTEntryHeap;
 import com.graphhopper.util.EdgeExplorer;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 
-import java.util.PriorityQueue;
-
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 
 /**
  * Common subclass for bidirectional algorithms.
+ * <p>
+ * Unlike {@link Dijkstra} and {@link AStar} these algorithms still use {@link SPTEntry} objects instead of an
+ * {@link com.graphhopper.storage.SPTLabelStore}: the entries and maps are shared with the CH algorithms via
+ * {@link AbstractBidirAlgo} and are read after the search by {@link AlternativeRoute}, the landmark preparation and
+ * the debug UI. Their heaps and maps can be borrowed from a {@link SearchWorkspacePool} instead.
  *
  * @author Peter Karich
  * @author easbar
@@ -161,7 +165,7 @@ public abstract class AbstractNonCHBidirAlgo extends AbstractBidirAlgo implement
         return true;
     }
 
-    private void fillEdges(SPTEntry currEdge, PriorityQueue<SPTEntry> prioQueue, IntObjectMap<SPTEntry> bestWeightMap, boolean reverse) {
+    private void fillEdges(SPTEntry currEdge, SPTEntryHeap prioQueue, IntObjectMap<SPTEntry> bestWeightMap, boolean reverse) {
         EdgeIterator iter = edgeExplorer.setBaseNode(currEdge.adjNode);
         while (iter.next()) {
             if (!accept(iter, currEdge, reverse))
@@ -179,9 +183,8 @@ public abstract class AbstractNonCHBidirAlgo extends AbstractBidirAlgo implement
                 bestWeightMap.put(traversalId, entry);
                 prioQueue.add(entry);
             } else if (entry.getWeightOfVisitedPath() > weight) {
-                prioQueue.remove(entry);
                 updateEntry(entry, iter, origEdgeId, weight, currEdge, reverse);
-                prioQueue.add(entry);
+                prioQueue.update(entry);
             } else
                 continue;
 
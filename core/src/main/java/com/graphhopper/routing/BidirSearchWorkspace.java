@@ -0,0 +1,87 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.storage.SPTEntryHeap;
+
+/**
+ * The data structures of a bidirectional search like {@link DijkstraBidirectionRef} or
+ * {@link DijkstraBidirectionCH}: a heap and a map from traversal id to the best entry for both directions. Like
+ * {@link SearchWorkspace} it is borrowed from a {@link SearchWorkspacePool} for exactly one search. The shortest path
+ * tree entries themselves are not pooled, they are dropped when the workspace is released.
+ */
+public class BidirSearchWorkspace {
+    private final SearchWorkspacePool pool;
+    private final SPTEntryHeap heapFrom;
+    private final SPTEntryHeap heapTo;
+    private final GHIntObjectHashMap<SPTEntry> bestWeightMapFrom;
+    private final GHIntObjectHashMap<SPTEntry> bestWeightMapTo;
+    private boolean borrowed;
+
+    BidirSearchWorkspace(SearchWorkspacePool pool, int capacity) {
+        this.pool = pool;
+        this.heapFrom = new SPTEntryHeap(capacity);
+        this.heapTo = new SPTEntryHeap(capacity);
+        this.bestWeightMapFrom = new GHIntObjectHashMap<>(capacity);
+        this.bestWeightMapTo = new GHIntObjectHashMap<>(capacity);
+    }
+
+    public SPTEntryHeap getHeapFrom() {
+        return heapFrom;
+    }
+
+    public SPTEntryHeap getHeapTo() {
+        return heapTo;
+    }
+
+    public GHIntObjectHashMap<SPTEntry> getBestWeightMapFrom() {
+        return bestWeightMapFrom;
+    }
+
+    public GHIntObjectHashMap<SPTEntry> getBestWeightMapTo() {
+        return bestWeightMapTo;
+    }
+
+    /**
+     * @return the number of entries the maps can hold without growing
+     */
+    int getCapacity() {
+        return (int) (Math.max(bestWeightMapFrom.keys.length, bestWeightMapTo.keys.length) * 0.75);
+    }
+
+    /**
+     * Gives this workspace back to its pool. It must not be used afterwards.
+     */
+    public void release() {
+        if (!borrowed)
+            throw new IllegalStateException("Workspace was already released");
+        borrowed = false;
+        // clear before the workspace becomes idle, so it does not keep the shortest path trees alive
+        heapFrom.clear();
+        heapTo.clear();
+        bestWeightMapFrom.clear();
+        bestWeightMapTo.clear();
+        pool.release(this);
+    }
+
+    void borrow() {
+        borrowed = true;
+    }
+}
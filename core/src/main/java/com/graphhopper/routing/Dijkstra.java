@@ -17,54 +17,86 @@
  */
 package com.graphhopper.routing;
 
-import com.carrotsearch.hppc.IntObjectMap;
-import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
-import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.storage.SPTLabelStore;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Parameters;
 
-import java.util.PriorityQueue;
+import static com.graphhopper.storage.SPTLabelStore.NO_LABEL;
 
 /**
  * Implements a single source shortest path algorithm
  * http://en.wikipedia.org/wiki/Dijkstra's_algorithm
  * <p>
+ * The shortest path tree is kept in a {@link SPTLabelStore} and the open set in a {@link MinHeapWithUpdate} keyed by
+ * the label index, so no objects are created per relaxed edge.
  *
  * @author Peter Karich
  */
 public class Dijkstra extends AbstractRoutingAlgorithm {
-    protected IntObjectMap<SPTEntry> fromMap;
-    protected PriorityQueue<SPTEntry> fromHeap;
-    protected SPTEntry currEdge;
+    protected SPTLabelStore labels;
+    protected MinHeapWithUpdate fromHeap;
+    protected int currLabel = NO_LABEL;
+    private SearchWorkspacePool workspacePool;
     private int visitedNodes;
     private int to = -1;
 
     public Dijkstra(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
-        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
-        initCollections(size);
+        initCollections(getInitialCapacity(graph));
+    }
+
+    /**
+     * Creates an instance that borrows the labels and heap from the given pool instead of allocating its own. The
+     * workspace is only borrowed while {@link #calcPath} runs, so an instance that is never used keeps nothing.
+     * Without a pool the instance allocates its own collections.
+     */
+    public Dijkstra(Graph graph, Weighting weighting, TraversalMode tMode, SearchWorkspacePool workspacePool) {
+        super(graph, weighting, tMode);
+        this.workspacePool = workspacePool;
+        if (workspacePool == null)
+            initCollections(getInitialCapacity(graph));
     }
 
     protected void initCollections(int size) {
-        fromHeap = new PriorityQueue<>(size);
-        fromMap = new GHIntObjectHashMap<>(size);
+        fromHeap = new MinHeapWithUpdate(size);
+        labels = new SPTLabelStore(size);
     }
 
     @Override
     public Path calcPath(int from, int to) {
         checkAlreadyRun();
-        this.to = to;
-        currEdge = new SPTEntry(from, 0);
-        if (!traversalMode.isEdgeBased()) {
-            fromMap.put(from, currEdge);
+        SearchWorkspace workspace = null;
+        if (workspacePool != null) {
+            workspace = workspacePool.borrow(getInitialCapacity(graph));
+            labels = workspace.getLabels();
+            fromHeap = workspace.getHeap();
+        }
+        try {
+            this.to = to;
+            currLabel = labels.add(EdgeIterator.NO_EDGE, from, 0, NO_LABEL);
+            if (!traversalMode.isEdgeBased()) {
+                labels.setLabel(from, currLabel);
+            }
+            runAlgo();
+            return extractPath();
+        } finally {
+            if (workspace != null) {
+                workspace.release();
+                // another thread may borrow the workspace now, so it must not be read after the search
+                labels = null;
+                fromHeap = null;
+            }
         }
-        runAlgo();
-        return extractPath();
+    }
+
+    private static int getInitialCapacity(Graph graph) {
+        return Math.min(Math.max(200, graph.getNodes() / 10), 2000);
     }
 
     protected void runAlgo() {
@@ -73,59 +105,58 @@ public class Dijkstra extends AbstractRoutingAlgorithm {
             if (isMaxVisitedNodesExceeded() || finished())
                 break;
 
-            int currNode = currEdge.adjNode;
+            int currNode = labels.getAdjNode(currLabel);
+            int currEdge = labels.getEdge(currLabel);
+            double currWeight = labels.getWeight(currLabel);
             EdgeIterator iter = edgeExplorer.setBaseNode(currNode);
             while (iter.next()) {
-                if (!accept(iter, currEdge.edge))
+                if (!accept(iter, currEdge))
                     continue;
 
                 // todo: for #1776/#1835 move the access check into weighting
                 double tmpWeight = !outEdgeFilter.accept(iter)
                         ? Double.POSITIVE_INFINITY
-                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge.edge) + currEdge.weight);
+                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge) + currWeight);
                 if (Double.isInfinite(tmpWeight)) {
                     continue;
                 }
                 int traversalId = traversalMode.createTraversalId(iter, false);
 
-                SPTEntry nEdge = fromMap.get(traversalId);
-                if (nEdge == null) {
-                    nEdge = new SPTEntry(iter.getEdge(), iter.getAdjNode(), tmpWeight);
-                    nEdge.parent = currEdge;
-                    fromMap.put(traversalId, nEdge);
-                    fromHeap.add(nEdge);
-                } else if (nEdge.weight > tmpWeight) {
-                    fromHeap.remove(nEdge);
-                    nEdge.edge = iter.getEdge();
-                    nEdge.weight = tmpWeight;
-                    nEdge.parent = currEdge;
-                    fromHeap.add(nEdge);
+                int label = labels.getLabel(traversalId);
+                if (label == NO_LABEL) {
+                    label = labels.add(iter.getEdge(), iter.getAdjNode(), tmpWeight, currLabel);
+                    labels.setLabel(traversalId, label);
+                    fromHeap.push(label, tmpWeight);
+                } else if (labels.getWeight(label) > tmpWeight) {
+                    labels.update(label, iter.getEdge(), tmpWeight, currLabel);
+                    if (fromHeap.contains(label))
+                        fromHeap.update(label, tmpWeight);
+                    else
+                        fromHeap.push(label, tmpWeight);
                 } else
                     continue;
 
-                updateBestPath(iter, nEdge, traversalId);
+                updateBestPath(iter, label, traversalId);
             }
 
             if (fromHeap.isEmpty())
                 break;
 
-            currEdge = fromHeap.poll();
-            if (currEdge == null)
-                throw new AssertionError("Empty edge cannot happen");
+            currLabel = fromHeap.poll();
         }
     }
 
     @Override
     protected boolean finished() {
-        return currEdge.adjNode == to;
+        return labels.getAdjNode(currLabel) == to;
     }
 
     @Override
     protected Path extractPath() {
-        if (currEdge == null || !finished())
+        if (currLabel == NO_LABEL || !finished())
             return createEmptyPath();
 
-        return PathExtractor.extractPath(graph, weighting, currEdge);
+        return PathExtractor.extractPath(graph, weighting, labels.toSPTEntry(currLabel));
     }
 
     @Override
@@ -133,7 +164,10 @@ public class Dijkstra extends AbstractRoutingAlgorithm {
         return visitedNodes;
     }
 
-    protected void updateBestPath(EdgeIteratorState edgeState, SPTEntry bestSPTEntry, int traversalId) {
+    /**
+     * @param label the label (an index into {@link #labels}) that was just added or improved
+     */
+    protected void updateBestPath(EdgeIteratorState edgeState, int label, int traversalId) {
     }
 
     @Override
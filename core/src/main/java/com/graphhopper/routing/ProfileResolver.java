@@ -23,15 +23,22 @@ import com.graphhopper.routing.lm.LMProfile;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortFastestWeighting;
 import com.graphhopper.storage.CHProfile;
 import com.graphhopper.util.Parameters;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.graphhopper.routing.weighting.Weighting.INFINITE_U_TURN_COSTS;
 
 public class ProfileResolver {
+    // the request hints that are read by the weightings, see canUseCH
+    private static final List<String> WEIGHTING_HINTS = Arrays.asList(Parameters.Routing.BLOCK_AREA,
+            FastestWeighting.DESTINATION_FACTOR, FastestWeighting.PRIVATE_FACTOR,
+            ShortFastestWeighting.TIME_FACTOR, ShortFastestWeighting.DISTANCE_FACTOR);
 
     public ProfileConfig resolveProfile(EncodingManager encodingManager, List<CHProfile> chProfiles, List<LMProfile> lmProfiles, HintsMap hints) {
         // default handling
@@ -78,6 +85,33 @@ public class ProfileResolver {
         return profileName;
     }
 
+    /**
+     * A CH search uses the weighting of the CH preparation, which only depends on the profile. Requests that change
+     * the weighting with one of the weighting hints have to be calculated without CH instead of silently ignoring them.
+     *
+     * @return false if CH is disabled by the hints or the hints change the weighting
+     */
+    public boolean canUseCH(HintsMap hints) {
+        if (hints.getBool(Parameters.CH.DISABLE, false))
+            return false;
+        for (String hint : WEIGHTING_HINTS) {
+            if (hints.has(hint))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the node-based CH profile that was prepared for the given profile or null if there is none
+     */
+    public CHProfile findNodeBasedCHProfile(List<CHProfile> chProfiles, ProfileConfig profile) {
+        for (CHProfile chProfile : chProfiles) {
+            if (chProfile.getName().equals(profile.getName()) && !chProfile.isEdgeBased())
+                return chProfile;
+        }
+        return null;
+    }
+
     /**
      * @param chProfiles the CH profiles to choose from
      * @param hintsMap   a map used to describe the CH profile that shall be selected
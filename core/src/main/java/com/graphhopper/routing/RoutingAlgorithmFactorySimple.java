@@ -34,27 +34,41 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
  * @author Peter Karich
  */
 public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
+    private SearchWorkspacePool workspacePool;
+
+    /**
+     * Sets the pool the algorithms borrow their heaps, labels and maps from. Without a pool every algorithm allocates
+     * its own.
+     */
+    public RoutingAlgorithmFactorySimple setWorkspacePool(SearchWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
         Weighting weighting = g.wrapWeighting(opts.getWeighting());
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
-            ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
+            DijkstraBidirectionRef dijkstraBi = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
+            dijkstraBi.setWorkspacePool(workspacePool);
+            ra = dijkstraBi;
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
-            ra = new Dijkstra(g, weighting, opts.getTraversalMode());
+            ra = new Dijkstra(g, weighting, opts.getTraversalMode(), workspacePool);
 
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
                     opts.getTraversalMode());
             aStarBi.setApproximation(getApproximation(ASTAR_BI, opts, g.getNodeAccess()));
+            aStarBi.setWorkspacePool(workspacePool);
             ra = aStarBi;
 
         } else if (DIJKSTRA_ONE_TO_MANY.equalsIgnoreCase(algoStr)) {
             ra = new DijkstraOneToMany(g, weighting, opts.getTraversalMode());
 
         } else if (ASTAR.equalsIgnoreCase(algoStr)) {
-            AStar aStar = new AStar(g, weighting, opts.getTraversalMode());
+            AStar aStar = new AStar(g, weighting, opts.getTraversalMode(), workspacePool);
             aStar.setApproximation(getApproximation(ASTAR, opts, g.getNodeAccess()));
             ra = aStar;
 
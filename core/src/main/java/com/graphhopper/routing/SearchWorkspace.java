@@ -0,0 +1,63 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.storage.SPTLabelStore;
+
+/**
+ * The data structures of a single source search like {@link Dijkstra} or {@link AStar}. A workspace is borrowed from
+ * a {@link SearchWorkspacePool}, used for exactly one search and then given back via {@link #release}, so the next
+ * search can re-use the already grown arrays.
+ */
+public class SearchWorkspace {
+    private final SearchWorkspacePool pool;
+    private final SPTLabelStore labels;
+    private final MinHeapWithUpdate heap;
+    private boolean borrowed;
+
+    SearchWorkspace(SearchWorkspacePool pool, int capacity) {
+        this.pool = pool;
+        this.labels = new SPTLabelStore(capacity);
+        this.heap = new MinHeapWithUpdate(capacity);
+    }
+
+    public SPTLabelStore getLabels() {
+        return labels;
+    }
+
+    public MinHeapWithUpdate getHeap() {
+        return heap;
+    }
+
+    /**
+     * Gives this workspace back to its pool. It must not be used afterwards.
+     */
+    public void release() {
+        if (!borrowed)
+            throw new IllegalStateException("Workspace was already released");
+        borrowed = false;
+        pool.release(this);
+    }
+
+    void borrow() {
+        labels.clear();
+        heap.clear();
+        borrowed = true;
+    }
+}
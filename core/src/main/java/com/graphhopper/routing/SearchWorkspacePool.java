@@ -0,0 +1,119 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps released {@link SearchWorkspace}s and {@link BidirSearchWorkspace}s so that e.g. the worker threads of a web
+ * server do not allocate and grow the heaps, labels and maps for every request. Every GraphHopper instance has its own
+ * pool that is shared by all threads and passed to the algorithm factories, see GraphHopper.getWorkspacePool. The pool
+ * is bounded: at most maxIdle workspaces of each kind are retained and workspaces that grew too large during a search
+ * are dropped on release. A workspace is owned by a single algorithm until it is released. A retained workspace needs
+ * roughly 50 bytes per label, i.e. with 200 000 retained labels a pool keeps at most maxIdle workspaces of 10MB per
+ * kind, see {@link com.graphhopper.util.Parameters.Routing#INIT_MAX_IDLE_WORKSPACES}.
+ */
+public class SearchWorkspacePool {
+    private final int maxRetainedLabels;
+    private final ArrayDeque<SearchWorkspace> idleWorkspaces = new ArrayDeque<>();
+    private final ArrayDeque<BidirSearchWorkspace> idleBidirWorkspaces = new ArrayDeque<>();
+    private int maxIdle;
+
+    /**
+     * @param maxIdle           the maximum number of released workspaces kept by this pool
+     * @param maxRetainedLabels workspaces that can hold more labels than this are not retained after a search
+     */
+    public SearchWorkspacePool(int maxIdle, int maxRetainedLabels) {
+        setMaxIdle(maxIdle);
+        this.maxRetainedLabels = maxRetainedLabels;
+    }
+
+    /**
+     * Changes the maximum number of retained workspaces. Surplus idle workspaces are dropped.
+     */
+    public synchronized SearchWorkspacePool setMaxIdle(int maxIdle) {
+        if (maxIdle < 0)
+            throw new IllegalArgumentException("maxIdle must not be negative: " + maxIdle);
+        this.maxIdle = maxIdle;
+        while (idleWorkspaces.size() > maxIdle)
+            idleWorkspaces.pollLast();
+        while (idleBidirWorkspaces.size() > maxIdle)
+            idleBidirWorkspaces.pollLast();
+        return this;
+    }
+
+    public synchronized int getMaxIdle() {
+        return maxIdle;
+    }
+
+    /**
+     * @param capacity the initial capacity, only used if a new workspace needs to be created
+     * @return an empty workspace that needs to be released after the search
+     */
+    public SearchWorkspace borrow(int capacity) {
+        SearchWorkspace workspace;
+        synchronized (this) {
+            workspace = idleWorkspaces.pollFirst();
+        }
+        if (workspace == null)
+            workspace = new SearchWorkspace(this, capacity);
+        // clearing takes time proportional to the last search, so do it outside of the lock
+        workspace.borrow();
+        return workspace;
+    }
+
+    /**
+     * @param capacity the initial capacity, only used if a new workspace needs to be created
+     * @return an empty workspace for a bidirectional search that needs to be released after the search
+     */
+    public BidirSearchWorkspace borrowBidir(int capacity) {
+        BidirSearchWorkspace workspace;
+        synchronized (this) {
+            workspace = idleBidirWorkspaces.pollFirst();
+        }
+        if (workspace == null)
+            workspace = new BidirSearchWorkspace(this, capacity);
+        workspace.borrow();
+        return workspace;
+    }
+
+    void release(SearchWorkspace workspace) {
+        if (workspace.getLabels().getCapacity() > maxRetainedLabels)
+            return;
+        synchronized (this) {
+            if (idleWorkspaces.size() < maxIdle)
+                idleWorkspaces.addFirst(workspace);
+        }
+    }
+
+    void release(BidirSearchWorkspace workspace) {
+        if (workspace.getCapacity() > maxRetainedLabels)
+            return;
+        synchronized (this) {
+            if (idleBidirWorkspaces.size() < maxIdle)
+                idleBidirWorkspaces.addFirst(workspace);
+        }
+    }
+
+    /**
+     * @return the number of workspaces currently kept by this pool
+     */
+    public synchronized int getIdleCount() {
+        return idleWorkspaces.size() + idleBidirWorkspaces.size();
+    }
+}
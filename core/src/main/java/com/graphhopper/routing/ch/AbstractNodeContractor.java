@@ -22,6 +22,14 @@ import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.GHDirectory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 abstract class AbstractNodeContractor implements NodeContractor {
     final PrepareCHGraph prepareGraph;
     PrepareCHEdgeExplorer inEdgeExplorer;
@@ -49,6 +57,92 @@ abstract class AbstractNodeContractor implements NodeContractor {
         originalEdges.close();
     }
 
+    /**
+     * Calculates the priorities one after the other, sub-classes that support concurrent witness searches can do
+     * better.
+     */
+    @Override
+    public void calculatePriorities(int[] nodes, float[] priorities, ExecutorService executor, int threads) {
+        for (int i = 0; i < nodes.length; i++) {
+            priorities[i] = calculatePriority(nodes[i]);
+        }
+    }
+
+    /**
+     * Contracts the nodes one after the other, sub-classes that support concurrent witness searches can do better.
+     */
+    @Override
+    public void contractNodes(int[] nodes, int[] levels, ExecutorService executor, int threads) {
+        for (int i = 0; i < nodes.length; i++) {
+            contractNode(nodes[i]);
+            prepareGraph.setLevel(nodes[i], levels[i]);
+        }
+    }
+
+    /**
+     * Makes sure the original edge counts of all edges currently in the graph can be read without growing the
+     * underlying storage, which is necessary to read them from multiple threads.
+     */
+    void ensureOrigEdgeCountCapacity() {
+        long edges = Math.max(0, prepareGraph.getEdges() - maxEdgesCount);
+        originalEdges.ensureCapacity(edges * 4 + 4);
+    }
+
+    /**
+     * Runs the given task for all indices in [0, count) using the given executor. At most threads jobs are submitted,
+     * every job is identified by a worker index in [0, threads) and takes chunks of indices until all indices were
+     * processed. So two indices with the same worker index are never processed at the same time. This method returns
+     * once all indices were processed.
+     */
+    static void runParallel(final int count, ExecutorService executor, int threads, final IndexTask task) {
+        if (executor == null || threads <= 1 || count <= 1) {
+            for (int i = 0; i < count; i++) {
+                task.run(0, i);
+            }
+            return;
+        }
+        // use more chunks than threads as the witness searches take very different amounts of time
+        final int chunkSize = Math.max(1, count / (threads * 4));
+        final AtomicInteger nextChunk = new AtomicInteger();
+        int jobCount = Math.min(threads, (count + chunkSize - 1) / chunkSize);
+        List<Callable<Object>> jobs = new ArrayList<>(jobCount);
+        for (int w = 0; w < jobCount; w++) {
+            final int worker = w;
+            jobs.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    int from;
+                    while ((from = nextChunk.getAndAdd(chunkSize)) < count) {
+                        int to = Math.min(count, from + chunkSize);
+                        for (int i = from; i < to; i++) {
+                            task.run(worker, i);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Object> future : executor.invokeAll(jobs)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    interface IndexTask {
+        /**
+         * @param worker the index of the job that runs this task, see {@link #runParallel}
+         */
+        void run(int worker, int index);
+    }
+
     boolean isContracted(int node) {
         return prepareGraph.getLevel(node) != maxLevel;
     }
@@ -165,7 +165,7 @@ public class CHPreparationHandler {
      * @return a {@link RoutingAlgorithmFactory} for CH or throw an error if no preparation is available for the given
      * profile name
      */
-    public RoutingAlgorithmFactory getAlgorithmFactory(String profile) {
+    public CHRoutingAlgorithmFactory getAlgorithmFactory(String profile) {
         return getPreparation(profile).getRoutingAlgorithmFactory();
     }
 
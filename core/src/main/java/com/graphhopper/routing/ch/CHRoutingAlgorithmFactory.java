@@ -28,11 +28,20 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.MAX_WEIGHT;
 
 public class CHRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private final CHProfile chProfile;
+    private SearchWorkspacePool workspacePool;
 
     public CHRoutingAlgorithmFactory(CHGraph chGraph) {
         this.chProfile = chGraph.getCHProfile();
     }
 
+    /**
+     * Sets the pool the bidirectional algorithms borrow their heaps and maps from.
+     */
+    public CHRoutingAlgorithmFactory setWorkspacePool(SearchWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph graph, AlgorithmOptions opts) {
         // todo: This method does not really fit for CH: We get a graph, but really we already know which
@@ -61,26 +70,30 @@ public class CHRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     }
 
     private RoutingAlgorithm createAlgoEdgeBased(RoutingCHGraph g, AlgorithmOptions opts) {
+        AbstractBidirAlgo algo;
         if (ASTAR_BI.equals(opts.getAlgorithm())) {
-            return new AStarBidirectionEdgeCHNoSOD(g)
+            algo = new AStarBidirectionEdgeCHNoSOD(g)
                     .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, g.getGraph().getNodeAccess()));
         } else if (DIJKSTRA_BI.equals(opts.getAlgorithm())) {
-            return new DijkstraBidirectionEdgeCHNoSOD(g);
+            algo = new DijkstraBidirectionEdgeCHNoSOD(g);
         } else {
             throw new IllegalArgumentException("Algorithm " + opts.getAlgorithm() + " not supported for edge-based Contraction Hierarchies. Try with ch.disable=true");
         }
+        algo.setWorkspacePool(workspacePool);
+        return algo;
     }
 
     private RoutingAlgorithm createAlgoNodeBased(RoutingCHGraph g, AlgorithmOptions opts) {
         if (ASTAR_BI.equals(opts.getAlgorithm())) {
-            return new AStarBidirectionCH(g)
+            AStarBidirectionCH algo = new AStarBidirectionCH(g)
                     .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, g.getGraph().getNodeAccess()));
+            algo.setWorkspacePool(workspacePool);
+            return algo;
         } else if (DIJKSTRA_BI.equals(opts.getAlgorithm())) {
-            if (opts.getHints().getBool("stall_on_demand", true)) {
-                return new DijkstraBidirectionCH(g);
-            } else {
-                return new DijkstraBidirectionCHNoSOD(g);
-            }
+            AbstractBidirAlgo algo = opts.getHints().getBool("stall_on_demand", true)
+                    ? new DijkstraBidirectionCH(g) : new DijkstraBidirectionCHNoSOD(g);
+            algo.setWorkspacePool(workspacePool);
+            return algo;
         } else if (ALT_ROUTE.equalsIgnoreCase(opts.getAlgorithm())) {
             AlternativeRouteCH altRouteAlgo = new AlternativeRouteCH(g);
             altRouteAlgo.setMaxWeightFactor(opts.getHints().getDouble(MAX_WEIGHT, 1.4));
@@ -25,9 +25,8 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
-import java.util.Locale;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
@@ -46,34 +45,18 @@ import static com.graphhopper.util.Helper.nf;
  */
 class EdgeBasedNodeContractor extends AbstractNodeContractor {
     private static final Logger LOGGER = LoggerFactory.getLogger(EdgeBasedNodeContractor.class);
-    private final ShortcutHandler addingShortcutHandler = new AddingShortcutHandler();
-    private final ShortcutHandler countingShortcutHandler = new CountingShortcutHandler();
     private final Params params = new Params();
     private final PMap pMap;
-    private ShortcutHandler activeShortcutHandler;
-    private final StopWatch dijkstraSW = new StopWatch();
-    private final SearchStrategy activeStrategy = new AggressiveStrategy();
+    // the witness searches are done by workers, the sequential methods use the first one and every parallel job uses
+    // the worker with its job index, see runParallel
+    private final List<Worker> workers = new ArrayList<>();
     private int[] hierarchyDepths;
-    private EdgeBasedWitnessPathSearcher witnessPathSearcher;
     private PrepareCHEdgeExplorer existingShortcutExplorer;
     private PrepareCHEdgeExplorer allEdgeExplorer;
-    private PrepareCHEdgeExplorer sourceNodeOrigInEdgeExplorer;
-    private PrepareCHEdgeExplorer targetNodeOrigOutEdgeExplorer;
-    private PrepareCHEdgeExplorer loopAvoidanceInEdgeExplorer;
-    private PrepareCHEdgeExplorer loopAvoidanceOutEdgeExplorer;
 
     // counts the total number of added shortcuts
     private int addedShortcutsCount;
 
-    // edge counts used to calculate priority
-    private int numShortcuts;
-    private int numPrevEdges;
-    private int numOrigEdges;
-    private int numPrevOrigEdges;
-
-    // counters used for performance analysis
-    private int numPolledEdges;
-
     public EdgeBasedNodeContractor(PrepareCHGraph prepareGraph, PMap pMap) {
         super(prepareGraph);
         this.pMap = pMap;
@@ -89,52 +72,79 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
     @Override
     public void initFromGraph() {
         super.initFromGraph();
-        witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph, pMap);
-        inEdgeExplorer = prepareGraph.createInEdgeExplorer();
-        outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        workers.clear();
+        ensureWorkers(1);
         allEdgeExplorer = prepareGraph.createAllEdgeExplorer();
         existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
-        sourceNodeOrigInEdgeExplorer = prepareGraph.createOriginalInEdgeExplorer();
-        targetNodeOrigOutEdgeExplorer = prepareGraph.createOriginalOutEdgeExplorer();
-        loopAvoidanceInEdgeExplorer = prepareGraph.createOriginalInEdgeExplorer();
-        loopAvoidanceOutEdgeExplorer = prepareGraph.createOriginalOutEdgeExplorer();
         hierarchyDepths = new int[prepareGraph.getNodes()];
     }
 
     @Override
     public void prepareContraction() {
-        // not needed 
+        // not needed
     }
 
     @Override
     public float calculatePriority(int node) {
-        activeShortcutHandler = countingShortcutHandler;
-        stats().stopWatch.start();
-        findAndHandleShortcuts(node);
-        stats().stopWatch.stop();
-        countPreviousEdges(node);
-        // the higher the priority the later (!) this node will be contracted
-        float edgeQuotient = numShortcuts / (float) numPrevEdges;
-        float origEdgeQuotient = numOrigEdges / (float) numPrevOrigEdges;
-        int hierarchyDepth = hierarchyDepths[node];
-        float priority = params.edgeQuotientWeight * edgeQuotient +
-                params.originalEdgeQuotientWeight * origEdgeQuotient +
-                params.hierarchyDepthWeight * hierarchyDepth;
-        LOGGER.trace(String.format(Locale.ROOT, "node: %d, eq: %d / %d = %f, oeq: %d / %d = %f, depth: %d --> %f\n",
-                node,
-                numShortcuts, numPrevEdges, edgeQuotient,
-                numOrigEdges, numPrevOrigEdges, origEdgeQuotient,
-                hierarchyDepth, priority));
-        return priority;
+        return workers.get(0).calculatePriority(node);
+    }
+
+    @Override
+    public void calculatePriorities(final int[] nodes, final float[] priorities, ExecutorService executor, int threads) {
+        ensureOrigEdgeCountCapacity();
+        ensureWorkers(threads);
+        runParallel(nodes.length, executor, threads, new IndexTask() {
+            @Override
+            public void run(int worker, int index) {
+                priorities[index] = workers.get(worker).calculatePriority(nodes[index]);
+            }
+        });
     }
 
     @Override
     public void contractNode(int node) {
-        activeShortcutHandler = addingShortcutHandler;
-        stats().stopWatch.start();
-        findAndHandleShortcuts(node);
+        Worker worker = workers.get(0);
+        Stats stats = worker.addingShortcutHandler.getStats();
+        stats.stopWatch.start();
+        worker.findAndHandleShortcuts(node, worker.addingShortcutHandler);
         updateHierarchyDepthsOfNeighbors(node);
-        stats().stopWatch.stop();
+        stats.stopWatch.stop();
+    }
+
+    /**
+     * Contracts the given nodes like {@link #contractNode}, but the witness searches for the different nodes run in
+     * parallel. The nodes are marked as contracted before the witness searches start, so no witness path can lead
+     * via any of them. The shortcuts found for each node are added to the graph sequentially afterwards.
+     */
+    @Override
+    public void contractNodes(final int[] nodes, int[] levels, ExecutorService executor, int threads) {
+        for (int i = 0; i < nodes.length; i++) {
+            prepareGraph.setLevel(nodes[i], levels[i]);
+        }
+        ensureOrigEdgeCountCapacity();
+        final List<List<PendingShortcut>> shortcutsPerNode = new ArrayList<>(Collections.nCopies(nodes.length, (List<PendingShortcut>) null));
+        ensureWorkers(threads);
+        runParallel(nodes.length, executor, threads, new IndexTask() {
+            @Override
+            public void run(int workerIndex, int index) {
+                shortcutsPerNode.set(index, workers.get(workerIndex).collectShortcuts(nodes[index]));
+            }
+        });
+        for (int i = 0; i < nodes.length; i++) {
+            for (PendingShortcut shortcut : shortcutsPerNode.get(i)) {
+                addShortcut(shortcut.edgeFrom, shortcut.edgeTo);
+            }
+            updateHierarchyDepthsOfNeighbors(nodes[i]);
+        }
+    }
+
+    /**
+     * Creates the workers for the given number of parallel jobs up front, so the jobs only read the worker list.
+     */
+    private void ensureWorkers(int count) {
+        while (workers.size() < Math.max(1, count)) {
+            workers.add(new Worker());
+        }
     }
 
     @Override
@@ -144,66 +154,46 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
 
     @Override
     public long getDijkstraCount() {
-        return witnessPathSearcher.getTotalNumSearches();
+        long count = 0;
+        for (Worker worker : workers) {
+            count += worker.witnessPathSearcher.getTotalNumSearches();
+        }
+        return count;
     }
 
+    /**
+     * @return the time spent for witness searches summed over all threads
+     */
     @Override
     public float getDijkstraSeconds() {
-        return dijkstraSW.getCurrentSeconds();
+        float seconds = 0;
+        for (Worker worker : workers) {
+            seconds += worker.dijkstraSW.getCurrentSeconds();
+        }
+        return seconds;
     }
 
     @Override
     public String getStatisticsString() {
-        String result =
-                "sc-handler-count: " + countingShortcutHandler.getStats() + ", " +
-                        "sc-handler-contract: " + addingShortcutHandler.getStats() + ", " +
-                        activeStrategy.getStatisticsString();
-        activeStrategy.resetStats();
-        return result;
+        Stats countStats = new Stats();
+        Stats contractStats = new Stats();
+        StringBuilder searcherStats = new StringBuilder();
+        for (Worker worker : workers) {
+            countStats.add(worker.countingShortcutHandler.getStats());
+            contractStats.add(worker.addingShortcutHandler.getStats());
+            contractStats.add(worker.collectingShortcutHandler.getStats());
+            if (searcherStats.length() > 0)
+                searcherStats.append("; ");
+            searcherStats.append(worker.witnessPathSearcher.getStatisticsString());
+            worker.witnessPathSearcher.resetStats();
+        }
+        return "sc-handler-count: " + countStats + ", " +
+                "sc-handler-contract: " + contractStats + ", " +
+                searcherStats;
     }
 
     public int getNumPolledEdges() {
-        return numPolledEdges;
-    }
-
-    private void findAndHandleShortcuts(int node) {
-        numPolledEdges = 0;
-        activeStrategy.findAndHandleShortcuts(node);
-    }
-
-    private void countPreviousEdges(int node) {
-        // todo: this edge counting can probably be simplified, but we might need to re-optimize heuristic parameters then
-        PrepareCHEdgeIterator outIter = outEdgeExplorer.setBaseNode(node);
-        while (outIter.next()) {
-            if (isContracted(outIter.getAdjNode()))
-                continue;
-            numPrevEdges++;
-            if (!outIter.isShortcut()) {
-                numPrevOrigEdges++;
-            }
-        }
-
-        PrepareCHEdgeIterator inIter = inEdgeExplorer.setBaseNode(node);
-        while (inIter.next()) {
-            if (isContracted(inIter.getAdjNode()))
-                continue;
-            // do not consider loop edges a second time
-            if (inIter.getBaseNode() == inIter.getAdjNode())
-                continue;
-            numPrevEdges++;
-            if (!inIter.isShortcut()) {
-                numPrevOrigEdges++;
-            }
-        }
-
-        PrepareCHEdgeIterator allIter = allEdgeExplorer.setBaseNode(node);
-        while (allIter.next()) {
-            if (isContracted(allIter.getAdjNode()))
-                continue;
-            if (allIter.isShortcut()) {
-                numPrevOrigEdges += getOrigEdgeCount(allIter.getEdge());
-            }
-        }
+        return workers.get(0).numPolledEdges;
     }
 
     private void updateHierarchyDepthsOfNeighbors(int node) {
@@ -215,41 +205,6 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
         }
     }
 
-    private void handleShortcuts(CHEntry chEntry, CHEntry root) {
-        LOGGER.trace("Adding shortcuts for target entry {}", chEntry);
-        if (root.parent.adjNode == chEntry.adjNode &&
-                //here we misuse root.parent.incEdge as first orig edge of the potential shortcut
-                !loopShortcutNecessary(
-                        chEntry.adjNode, root.getParent().incEdge, chEntry.incEdge, chEntry.weight)) {
-            stats().loopsAvoided++;
-            return;
-        }
-        activeShortcutHandler.handleShortcut(root, chEntry);
-    }
-
-    /**
-     * A given potential loop shortcut is only necessary if there is at least one pair of original in- & out-edges for
-     * which taking the loop is cheaper than doing the direct turn. However this is almost always the case, because
-     * doing a u-turn at any of the incoming edges is forbidden, i.e. the costs of the direct turn will be infinite.
-     */
-    private boolean loopShortcutNecessary(int node, int firstOrigEdge, int lastOrigEdge, double loopWeight) {
-        PrepareCHEdgeIterator inIter = loopAvoidanceInEdgeExplorer.setBaseNode(node);
-        while (inIter.next()) {
-            PrepareCHEdgeIterator outIter = loopAvoidanceOutEdgeExplorer.setBaseNode(node);
-            double inTurnCost = getTurnCost(inIter.getEdge(), node, firstOrigEdge);
-            while (outIter.next()) {
-                double totalLoopCost = inTurnCost + loopWeight +
-                        getTurnCost(lastOrigEdge, node, outIter.getEdge());
-                double directTurnCost = getTurnCost(inIter.getEdge(), node, outIter.getEdge());
-                if (totalLoopCost < directTurnCost) {
-                    return true;
-                }
-            }
-        }
-        LOGGER.trace("Loop avoidance -> no shortcut");
-        return false;
-    }
-
     private CHEntry addShortcut(CHEntry edgeFrom, CHEntry edgeTo) {
         if (edgeTo.parent.edge != edgeFrom.edge) {
             CHEntry prev = addShortcut(edgeFrom, edgeTo.getParent());
@@ -311,78 +266,329 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
         return prepareGraph.getTurnWeight(inEdge, node, outEdge);
     }
 
-    private void resetEdgeCounters() {
-        numShortcuts = 0;
-        numPrevEdges = 0;
-        numOrigEdges = 0;
-        numPrevOrigEdges = 0;
-    }
+    /**
+     * Holds everything needed to run the witness searches for one node, so different nodes can be handled by
+     * different workers at the same time. The graph is only changed by the {@link AddingShortcutHandler}.
+     */
+    private class Worker {
+        private final EdgeBasedWitnessPathSearcher witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph, pMap);
+        private final PrepareCHEdgeExplorer inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        private final PrepareCHEdgeExplorer outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        private final PrepareCHEdgeExplorer allEdgeExplorer = prepareGraph.createAllEdgeExplorer();
+        private final PrepareCHEdgeExplorer existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
+        private final PrepareCHEdgeExplorer sourceNodeOrigInEdgeExplorer = prepareGraph.createOriginalInEdgeExplorer();
+        private final PrepareCHEdgeExplorer targetNodeOrigOutEdgeExplorer = prepareGraph.createOriginalOutEdgeExplorer();
+        private final PrepareCHEdgeExplorer loopAvoidanceInEdgeExplorer = prepareGraph.createOriginalInEdgeExplorer();
+        private final PrepareCHEdgeExplorer loopAvoidanceOutEdgeExplorer = prepareGraph.createOriginalOutEdgeExplorer();
+        private final AddingShortcutHandler addingShortcutHandler = new AddingShortcutHandler();
+        private final CollectingShortcutHandler collectingShortcutHandler = new CollectingShortcutHandler();
+        private final CountingShortcutHandler countingShortcutHandler = new CountingShortcutHandler();
+        private final StopWatch dijkstraSW = new StopWatch();
+        private final SearchStrategy activeStrategy = new AggressiveStrategy();
+        private ShortcutHandler activeShortcutHandler;
+
+        // edge counts used to calculate priority
+        private int numShortcuts;
+        private int numPrevEdges;
+        private int numOrigEdges;
+        private int numPrevOrigEdges;
+
+        // counters used for performance analysis
+        private int numPolledEdges;
+
+        float calculatePriority(int node) {
+            countingShortcutHandler.getStats().stopWatch.start();
+            findAndHandleShortcuts(node, countingShortcutHandler);
+            countingShortcutHandler.getStats().stopWatch.stop();
+            countPreviousEdges(node);
+            // the higher the priority the later (!) this node will be contracted
+            float edgeQuotient = numShortcuts / (float) numPrevEdges;
+            float origEdgeQuotient = numOrigEdges / (float) numPrevOrigEdges;
+            int hierarchyDepth = hierarchyDepths[node];
+            float priority = params.edgeQuotientWeight * edgeQuotient +
+                    params.originalEdgeQuotientWeight * origEdgeQuotient +
+                    params.hierarchyDepthWeight * hierarchyDepth;
+            LOGGER.trace(String.format(Locale.ROOT, "node: %d, eq: %d / %d = %f, oeq: %d / %d = %f, depth: %d --> %f\n",
+                    node,
+                    numShortcuts, numPrevEdges, edgeQuotient,
+                    numOrigEdges, numPrevOrigEdges, origEdgeQuotient,
+                    hierarchyDepth, priority));
+            return priority;
+        }
 
-    private Stats stats() {
-        return activeShortcutHandler.getStats();
-    }
+        /**
+         * Finds the shortcuts required to contract the given node without adding them to the graph.
+         */
+        List<PendingShortcut> collectShortcuts(int node) {
+            Stats stats = collectingShortcutHandler.getStats();
+            stats.stopWatch.start();
+            collectingShortcutHandler.shortcuts = new ArrayList<>();
+            findAndHandleShortcuts(node, collectingShortcutHandler);
+            stats.stopWatch.stop();
+            return collectingShortcutHandler.shortcuts;
+        }
 
-    private interface ShortcutHandler {
+        void findAndHandleShortcuts(int node, ShortcutHandler shortcutHandler) {
+            activeShortcutHandler = shortcutHandler;
+            numPolledEdges = 0;
+            activeStrategy.findAndHandleShortcuts(node);
+        }
 
-        void handleShortcut(CHEntry edgeFrom, CHEntry edgeTo);
+        private Stats stats() {
+            return activeShortcutHandler.getStats();
+        }
 
-        Stats getStats();
+        private void countPreviousEdges(int node) {
+            // todo: this edge counting can probably be simplified, but we might need to re-optimize heuristic parameters then
+            PrepareCHEdgeIterator outIter = outEdgeExplorer.setBaseNode(node);
+            while (outIter.next()) {
+                if (isContracted(outIter.getAdjNode()))
+                    continue;
+                numPrevEdges++;
+                if (!outIter.isShortcut()) {
+                    numPrevOrigEdges++;
+                }
+            }
 
-        String getAction();
-    }
+            PrepareCHEdgeIterator inIter = inEdgeExplorer.setBaseNode(node);
+            while (inIter.next()) {
+                if (isContracted(inIter.getAdjNode()))
+                    continue;
+                // do not consider loop edges a second time
+                if (inIter.getBaseNode() == inIter.getAdjNode())
+                    continue;
+                numPrevEdges++;
+                if (!inIter.isShortcut()) {
+                    numPrevOrigEdges++;
+                }
+            }
 
-    private class AddingShortcutHandler implements ShortcutHandler {
-        private Stats stats = new Stats();
+            PrepareCHEdgeIterator allIter = allEdgeExplorer.setBaseNode(node);
+            while (allIter.next()) {
+                if (isContracted(allIter.getAdjNode()))
+                    continue;
+                if (allIter.isShortcut()) {
+                    numPrevOrigEdges += getOrigEdgeCount(allIter.getEdge());
+                }
+            }
+        }
 
-        @Override
-        public void handleShortcut(CHEntry edgeFrom, CHEntry edgeTo) {
-            addShortcut(edgeFrom, edgeTo);
+        private void handleShortcuts(CHEntry chEntry, CHEntry root) {
+            LOGGER.trace("Adding shortcuts for target entry {}", chEntry);
+            if (root.parent.adjNode == chEntry.adjNode &&
+                    //here we misuse root.parent.incEdge as first orig edge of the potential shortcut
+                    !loopShortcutNecessary(
+                            chEntry.adjNode, root.getParent().incEdge, chEntry.incEdge, chEntry.weight)) {
+                stats().loopsAvoided++;
+                return;
+            }
+            activeShortcutHandler.handleShortcut(root, chEntry);
         }
 
-        @Override
-        public Stats getStats() {
-            return stats;
+        /**
+         * A given potential loop shortcut is only necessary if there is at least one pair of original in- & out-edges for
+         * which taking the loop is cheaper than doing the direct turn. However this is almost always the case, because
+         * doing a u-turn at any of the incoming edges is forbidden, i.e. the costs of the direct turn will be infinite.
+         */
+        private boolean loopShortcutNecessary(int node, int firstOrigEdge, int lastOrigEdge, double loopWeight) {
+            PrepareCHEdgeIterator inIter = loopAvoidanceInEdgeExplorer.setBaseNode(node);
+            while (inIter.next()) {
+                PrepareCHEdgeIterator outIter = loopAvoidanceOutEdgeExplorer.setBaseNode(node);
+                double inTurnCost = getTurnCost(inIter.getEdge(), node, firstOrigEdge);
+                while (outIter.next()) {
+                    double totalLoopCost = inTurnCost + loopWeight +
+                            getTurnCost(lastOrigEdge, node, outIter.getEdge());
+                    double directTurnCost = getTurnCost(inIter.getEdge(), node, outIter.getEdge());
+                    if (totalLoopCost < directTurnCost) {
+                        return true;
+                    }
+                }
+            }
+            LOGGER.trace("Loop avoidance -> no shortcut");
+            return false;
         }
 
-        @Override
-        public String getAction() {
-            return "add";
+        private void resetEdgeCounters() {
+            numShortcuts = 0;
+            numPrevEdges = 0;
+            numOrigEdges = 0;
+            numPrevOrigEdges = 0;
         }
-    }
 
-    private class CountingShortcutHandler implements ShortcutHandler {
-        private Stats stats = new Stats();
+        private class AddingShortcutHandler implements ShortcutHandler {
+            private Stats stats = new Stats();
 
-        @Override
-        public void handleShortcut(CHEntry edgeFrom, CHEntry edgeTo) {
-            int fromNode = edgeFrom.parent.adjNode;
-            int toNode = edgeTo.adjNode;
-            int firstOrigEdge = edgeFrom.getParent().incEdge;
-            int lastOrigEdge = edgeTo.incEdge;
-
-            // check if this shortcut already exists
-            final PrepareCHEdgeIterator iter = existingShortcutExplorer.setBaseNode(fromNode);
-            while (iter.next()) {
-                if (isSameShortcut(iter, toNode, firstOrigEdge, lastOrigEdge)) {
-                    // this shortcut exists already, maybe its weight will be updated but we should not count it as
-                    // a new edge
-                    return;
+            @Override
+            public void handleShortcut(CHEntry edgeFrom, CHEntry edgeTo) {
+                addShortcut(edgeFrom, edgeTo);
+            }
+
+            @Override
+            public Stats getStats() {
+                return stats;
+            }
+
+            @Override
+            public String getAction() {
+                return "add";
+            }
+        }
+
+        /**
+         * Keeps the shortcuts instead of adding them, used to run the witness searches of several nodes in parallel.
+         */
+        private class CollectingShortcutHandler implements ShortcutHandler {
+            private Stats stats = new Stats();
+            private List<PendingShortcut> shortcuts;
+
+            @Override
+            public void handleShortcut(CHEntry edgeFrom, CHEntry edgeTo) {
+                shortcuts.add(new PendingShortcut(edgeFrom, edgeTo));
+            }
+
+            @Override
+            public Stats getStats() {
+                return stats;
+            }
+
+            @Override
+            public String getAction() {
+                return "collect";
+            }
+        }
+
+        private class CountingShortcutHandler implements ShortcutHandler {
+            private Stats stats = new Stats();
+
+            @Override
+            public void handleShortcut(CHEntry edgeFrom, CHEntry edgeTo) {
+                int fromNode = edgeFrom.parent.adjNode;
+                int toNode = edgeTo.adjNode;
+                int firstOrigEdge = edgeFrom.getParent().incEdge;
+                int lastOrigEdge = edgeTo.incEdge;
+
+                // check if this shortcut already exists
+                final PrepareCHEdgeIterator iter = existingShortcutExplorer.setBaseNode(fromNode);
+                while (iter.next()) {
+                    if (isSameShortcut(iter, toNode, firstOrigEdge, lastOrigEdge)) {
+                        // this shortcut exists already, maybe its weight will be updated but we should not count it as
+                        // a new edge
+                        return;
+                    }
                 }
+
+                // this shortcut is new --> increase counts
+                numShortcuts++;
+                numOrigEdges += getOrigEdgeCount(edgeFrom.edge) + getOrigEdgeCount(edgeTo.edge);
             }
 
-            // this shortcut is new --> increase counts
-            numShortcuts++;
-            numOrigEdges += getOrigEdgeCount(edgeFrom.edge) + getOrigEdgeCount(edgeTo.edge);
+            @Override
+            public Stats getStats() {
+                return stats;
+            }
+
+            @Override
+            public String getAction() {
+                return "count";
+            }
         }
 
-        @Override
-        public Stats getStats() {
-            return stats;
+        private class AggressiveStrategy implements SearchStrategy {
+            private IntSet sourceNodes = new IntHashSet(10);
+            private IntSet toNodes = new IntHashSet(10);
+
+            @Override
+            public void findAndHandleShortcuts(int node) {
+                LOGGER.trace("Finding shortcuts (aggressive) for node {}, required shortcuts will be {}ed", node, activeShortcutHandler.getAction());
+                stats().nodes++;
+                resetEdgeCounters();
+                Set<AddedShortcut> addedShortcuts = new HashSet<>();
+
+                // first we need to identify the possible source nodes from which we can reach the center node
+                sourceNodes.clear();
+                PrepareCHEdgeIterator incomingEdges = inEdgeExplorer.setBaseNode(node);
+                while (incomingEdges.next()) {
+                    int sourceNode = incomingEdges.getAdjNode();
+                    if (isContracted(sourceNode) || sourceNode == node) {
+                        continue;
+                    }
+                    boolean isNewSourceNode = sourceNodes.add(sourceNode);
+                    if (!isNewSourceNode) {
+                        continue;
+                    }
+                    // for each source node we need to look at every incoming original edge and find the initial entries
+                    PrepareCHEdgeIterator origInIter = sourceNodeOrigInEdgeExplorer.setBaseNode(sourceNode);
+                    while (origInIter.next()) {
+                        int numInitialEntries = witnessPathSearcher.initSearch(node, sourceNode, origInIter.getOrigEdgeLast());
+                        if (numInitialEntries < 1) {
+                            continue;
+                        }
+
+                        // now we need to identify all target nodes that can be reached from the center node
+                        toNodes.clear();
+                        PrepareCHEdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(node);
+                        while (outgoingEdges.next()) {
+                            int targetNode = outgoingEdges.getAdjNode();
+                            if (isContracted(targetNode) || targetNode == node) {
+                                continue;
+                            }
+                            boolean isNewTargetNode = toNodes.add(targetNode);
+                            if (!isNewTargetNode) {
+                                continue;
+                            }
+                            // for each target edge outgoing from a target node we need to check if reaching it requires
+                            // a 'bridge-path'
+                            PrepareCHEdgeIterator targetEdgeIter = targetNodeOrigOutEdgeExplorer.setBaseNode(targetNode);
+                            while (targetEdgeIter.next()) {
+                                int targetEdge = targetEdgeIter.getOrigEdgeFirst();
+                                dijkstraSW.start();
+                                CHEntry entry = witnessPathSearcher.runSearch(targetNode, targetEdge);
+                                dijkstraSW.stop();
+                                if (entry == null || Double.isInfinite(entry.weight)) {
+                                    continue;
+                                }
+                                CHEntry root = entry.getParent();
+                                while (EdgeIterator.Edge.isValid(root.parent.edge)) {
+                                    root = root.getParent();
+                                }
+                                // removing this 'optimization' improves contraction time, but introduces more
+                                // shortcuts (makes slower queries). note that 'duplicate' shortcuts get detected at time
+                                // of insertion when running with adding shortcut handler, but not when we are only counting.
+                                // only running this check while counting does not seem to improve contraction time a lot.
+                                AddedShortcut addedShortcut = new AddedShortcut(sourceNode, root.getParent().incEdge, targetNode, entry.incEdge);
+                                if (addedShortcuts.contains(addedShortcut)) {
+                                    continue;
+                                }
+                                // root parent weight was misused to store initial turn cost here
+                                double initialTurnCost = root.getParent().weight;
+                                entry.weight -= initialTurnCost;
+                                handleShortcuts(entry, root);
+                                addedShortcuts.add(addedShortcut);
+                            }
+                        }
+                        numPolledEdges += witnessPathSearcher.getNumPolledEdges();
+                    }
+                }
+            }
         }
+    }
 
-        @Override
-        public String getAction() {
-            return "count";
+    private interface ShortcutHandler {
+
+        void handleShortcut(CHEntry edgeFrom, CHEntry edgeTo);
+
+        Stats getStats();
+
+        String getAction();
+    }
+
+    private static class PendingShortcut {
+        final CHEntry edgeFrom;
+        final CHEntry edgeTo;
+
+        PendingShortcut(CHEntry edgeFrom, CHEntry edgeTo) {
+            this.edgeFrom = edgeFrom;
+            this.edgeTo = edgeTo;
         }
     }
 
@@ -396,112 +602,25 @@ class EdgeBasedNodeContractor extends AbstractNodeContractor {
     private static class Stats {
         int nodes;
         long loopsAvoided;
+        double seconds;
         StopWatch stopWatch = new StopWatch();
 
+        void add(Stats other) {
+            nodes += other.nodes;
+            loopsAvoided += other.loopsAvoided;
+            seconds += other.stopWatch.getCurrentSeconds();
+        }
+
         @Override
         public String toString() {
             return String.format(Locale.ROOT,
                     "time: %7.2fs, nodes-handled: %10s, loopsAvoided: %10s",
-                    stopWatch.getCurrentSeconds(), nf(nodes), nf(loopsAvoided));
+                    seconds + stopWatch.getCurrentSeconds(), nf(nodes), nf(loopsAvoided));
         }
     }
 
     private interface SearchStrategy {
         void findAndHandleShortcuts(int node);
-
-        String getStatisticsString();
-
-        void resetStats();
-
-    }
-
-    private class AggressiveStrategy implements SearchStrategy {
-        private IntSet sourceNodes = new IntHashSet(10);
-        private IntSet toNodes = new IntHashSet(10);
-
-        @Override
-        public String getStatisticsString() {
-            return witnessPathSearcher.getStatisticsString();
-        }
-
-        @Override
-        public void resetStats() {
-            witnessPathSearcher.resetStats();
-        }
-
-        @Override
-        public void findAndHandleShortcuts(int node) {
-            LOGGER.trace("Finding shortcuts (aggressive) for node {}, required shortcuts will be {}ed", node, activeShortcutHandler.getAction());
-            stats().nodes++;
-            resetEdgeCounters();
-            Set<AddedShortcut> addedShortcuts = new HashSet<>();
-
-            // first we need to identify the possible source nodes from which we can reach the center node
-            sourceNodes.clear();
-            PrepareCHEdgeIterator incomingEdges = inEdgeExplorer.setBaseNode(node);
-            while (incomingEdges.next()) {
-                int sourceNode = incomingEdges.getAdjNode();
-                if (isContracted(sourceNode) || sourceNode == node) {
-                    continue;
-                }
-                boolean isNewSourceNode = sourceNodes.add(sourceNode);
-                if (!isNewSourceNode) {
-                    continue;
-                }
-                // for each source node we need to look at every incoming original edge and find the initial entries
-                PrepareCHEdgeIterator origInIter = sourceNodeOrigInEdgeExplorer.setBaseNode(sourceNode);
-                while (origInIter.next()) {
-                    int numInitialEntries = witnessPathSearcher.initSearch(node, sourceNode, origInIter.getOrigEdgeLast());
-                    if (numInitialEntries < 1) {
-                        continue;
-                    }
-
-                    // now we need to identify all target nodes that can be reached from the center node
-                    toNodes.clear();
-                    PrepareCHEdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(node);
-                    while (outgoingEdges.next()) {
-                        int targetNode = outgoingEdges.getAdjNode();
-                        if (isContracted(targetNode) || targetNode == node) {
-                            continue;
-                        }
-                        boolean isNewTargetNode = toNodes.add(targetNode);
-                        if (!isNewTargetNode) {
-                            continue;
-                        }
-                        // for each target edge outgoing from a target node we need to check if reaching it requires
-                        // a 'bridge-path'
-                        PrepareCHEdgeIterator targetEdgeIter = targetNodeOrigOutEdgeExplorer.setBaseNode(targetNode);
-                        while (targetEdgeIter.next()) {
-                            int targetEdge = targetEdgeIter.getOrigEdgeFirst();
-                            dijkstraSW.start();
-                            CHEntry entry = witnessPathSearcher.runSearch(targetNode, targetEdge);
-                            dijkstraSW.stop();
-                            if (entry == null || Double.isInfinite(entry.weight)) {
-                                continue;
-                            }
-                            CHEntry root = entry.getParent();
-                            while (EdgeIterator.Edge.isValid(root.parent.edge)) {
-                                root = root.getParent();
-                            }
-                            // removing this 'optimization' improves contraction time, but introduces more
-                            // shortcuts (makes slower queries). note that 'duplicate' shortcuts get detected at time
-                            // of insertion when running with adding shortcut handler, but not when we are only counting.
-                            // only running this check while counting does not seem to improve contraction time a lot.
-                            AddedShortcut addedShortcut = new AddedShortcut(sourceNode, root.getParent().incEdge, targetNode, entry.incEdge);
-                            if (addedShortcuts.contains(addedShortcut)) {
-                                continue;
-                            }
-                            // root parent weight was misused to store initial turn cost here
-                            double initialTurnCost = root.getParent().weight;
-                            entry.weight -= initialTurnCost;
-                            handleShortcuts(entry, root);
-                            addedShortcuts.add(addedShortcut);
-                        }
-                    }
-                    numPolledEdges += witnessPathSearcher.getNumPolledEdges();
-                }
-            }
-        }
     }
 
     private static class AddedShortcut {
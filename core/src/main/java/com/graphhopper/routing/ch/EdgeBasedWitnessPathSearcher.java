@@ -473,8 +473,12 @@ public class EdgeBasedWitnessPathSearcher {
         return chGraph.getTurnWeight(inEdge, viaNode, outEdge);
     }
 
+    /**
+     * The center node is never considered contracted: when several nodes are contracted in parallel their levels are
+     * set before the witness searches start.
+     */
     private boolean isContracted(int node) {
-        return chGraph.getLevel(node) != maxLevel;
+        return node != centerNode && chGraph.getLevel(node) != maxLevel;
     }
 
     static class Params {
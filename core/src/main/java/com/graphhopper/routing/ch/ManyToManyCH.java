@@ -0,0 +1,308 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.Arrays;
+
+import static com.graphhopper.storage.SPTLabelStore.NO_LABEL;
+
+/**
+ * Calculates the weights, times and distances between many sources and many targets on a node-based CH graph using
+ * the bucket-based approach (Knopp et al., 'Computing Many-to-Many Shortest Paths Using Highway Hierarchies'):
+ * <p>
+ * For every target we run a single backward search in the upward graph and store the settled nodes and their
+ * weights in 'buckets'. Then for every source we run a single forward search in the upward graph and scan the
+ * buckets of every settled node. Every shortest path in a CH graph has a highest node that is settled by both
+ * searches, so the minimum over all bucket entries yields the correct result. For n sources and m targets this
+ * means n + m one-directional searches instead of n * m bidirectional queries.
+ * <p>
+ * Times and distances are calculated along the shortest path trees by unpacking the shortcuts of the settled
+ * entries, so no path needs to be extracted. Only node-based CH graphs are supported.
+ */
+public class ManyToManyCH {
+    private static final int NO_BUCKET_ENTRY = -1;
+    private final RoutingCHGraph graph;
+    private final Weighting weighting;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final int maxNodes;
+    private final ShortcutUnpacker shortcutUnpacker;
+    // the heap is keyed by the dense label indices of the current search, not by the node ids, so its size depends
+    // on the search space only, even for the virtual nodes of a QueryGraph
+    private final MinHeapWithUpdate heap = new MinHeapWithUpdate(1000);
+    private final Labels labels = new Labels(1000);
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+    private int visitedNodes;
+    private long unpackedTime;
+    private double unpackedDistance;
+
+    // the buckets are stored as linked lists, the bucket heads are stored per node
+    private final IntIntHashMap bucketHeads = new IntIntHashMap();
+    private final IntArrayList bucketNext = new IntArrayList();
+    private final IntArrayList bucketTargets = new IntArrayList();
+    private final DoubleArrayList bucketWeights = new DoubleArrayList();
+    private final LongArrayList bucketTimes = new LongArrayList();
+    private final DoubleArrayList bucketDistances = new DoubleArrayList();
+
+    public ManyToManyCH(RoutingCHGraph graph) {
+        this.graph = graph;
+        this.weighting = graph.getWeighting();
+        this.outEdgeExplorer = graph.createOutEdgeExplorer();
+        this.inEdgeExplorer = graph.createInEdgeExplorer();
+        this.maxNodes = graph.getBaseGraph().getNodes();
+        this.shortcutUnpacker = new ShortcutUnpacker(graph, new ShortcutUnpacker.Visitor() {
+            @Override
+            public void visit(EdgeIteratorState edge, boolean reverse, int prevOrNextEdgeId) {
+                unpackedDistance += edge.getDistance();
+                unpackedTime += weighting.calcEdgeMillis(edge, reverse);
+            }
+        }, false);
+    }
+
+    /**
+     * Limits the number of nodes that are settled by every single one-directional search. Entries that are not
+     * reached because of this limit are reported as not found.
+     */
+    public ManyToManyCH setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+        return this;
+    }
+
+    /**
+     * @return the total number of nodes settled by all searches of the last {@link #calc} call
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @param sources the source nodes, i.e. the rows of the resulting tables
+     * @param targets the target nodes, i.e. the columns of the resulting tables. Negative source or target nodes
+     *                are skipped and yield unconnected rows/columns.
+     * @throws IllegalStateException if the calling thread is interrupted. This is checked before every single search,
+     *                               which allows cancelling a long running calculation.
+     */
+    public Result calc(int[] sources, int[] targets) {
+        Result result = new Result(sources.length, targets.length);
+        visitedNodes = 0;
+        clearBuckets();
+        for (int targetIdx = 0; targetIdx < targets.length; targetIdx++) {
+            searchUpward(targets[targetIdx], true, targetIdx, result);
+        }
+        for (int sourceIdx = 0; sourceIdx < sources.length; sourceIdx++) {
+            searchUpward(sources[sourceIdx], false, sourceIdx, result);
+        }
+        return result;
+    }
+
+    private void searchUpward(int node, boolean reverse, int index, Result result) {
+        if (node < 0)
+            return;
+        if (Thread.currentThread().isInterrupted())
+            throw new IllegalStateException("Matrix calculation was interrupted");
+        heap.clear();
+        labels.clear();
+        int rootLabel = labels.add(EdgeIterator.NO_EDGE, node, 0, NO_LABEL);
+        labels.setLabel(node, rootLabel);
+        heap.push(rootLabel, 0);
+        int settledNodes = 0;
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        while (!heap.isEmpty()) {
+            int currLabel = heap.poll();
+            if (++settledNodes > maxVisitedNodes)
+                break;
+
+            int currNode = labels.getAdjNode(currLabel);
+            int parentLabel = labels.getParent(currLabel);
+            if (parentLabel != NO_LABEL) {
+                unpackedTime = 0;
+                unpackedDistance = 0;
+                if (reverse)
+                    shortcutUnpacker.visitOriginalEdgesBwd(labels.getEdge(currLabel), currNode, false, EdgeIterator.NO_EDGE);
+                else
+                    shortcutUnpacker.visitOriginalEdgesFwd(labels.getEdge(currLabel), currNode, false, EdgeIterator.NO_EDGE);
+                labels.setTimeAndDistance(currLabel, labels.getTime(parentLabel) + unpackedTime,
+                        labels.getDistance(parentLabel) + unpackedDistance);
+            }
+
+            if (reverse)
+                addToBucket(currLabel, index);
+            else
+                scanBucket(currLabel, index, result);
+
+            double currWeight = labels.getWeight(currLabel);
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(currNode);
+            while (iter.next()) {
+                if (!isUpward(iter))
+                    continue;
+                double weight = iter.getWeight(reverse) + currWeight;
+                if (Double.isInfinite(weight))
+                    continue;
+                int label = labels.getLabel(iter.getAdjNode());
+                if (label == NO_LABEL) {
+                    label = labels.add(iter.getEdge(), iter.getAdjNode(), weight, currLabel);
+                    labels.setLabel(iter.getAdjNode(), label);
+                    heap.push(label, weight);
+                } else if (labels.getWeight(label) > weight && heap.contains(label)) {
+                    labels.update(label, iter.getEdge(), weight, currLabel);
+                    heap.update(label, weight);
+                }
+            }
+        }
+        visitedNodes += settledNodes;
+    }
+
+    private boolean isUpward(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        // shortcuts in wrong direction are disconnected, so no need to exclude them
+        if (edgeState.isShortcut())
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    private void addToBucket(int label, int targetIdx) {
+        int node = labels.getAdjNode(label);
+        int entryIdx = bucketTargets.size();
+        bucketNext.add(bucketHeads.getOrDefault(node, NO_BUCKET_ENTRY));
+        bucketTargets.add(targetIdx);
+        bucketWeights.add(labels.getWeight(label));
+        bucketTimes.add(labels.getTime(label));
+        bucketDistances.add(labels.getDistance(label));
+        bucketHeads.put(node, entryIdx);
+    }
+
+    private void scanBucket(int label, int sourceIdx, Result result) {
+        int entryIdx = bucketHeads.getOrDefault(labels.getAdjNode(label), NO_BUCKET_ENTRY);
+        double[] weightRow = result.weights[sourceIdx];
+        double labelWeight = labels.getWeight(label);
+        long labelTime = labels.getTime(label);
+        double labelDistance = labels.getDistance(label);
+        while (entryIdx != NO_BUCKET_ENTRY) {
+            int targetIdx = bucketTargets.get(entryIdx);
+            double weight = labelWeight + bucketWeights.get(entryIdx);
+            if (weight < weightRow[targetIdx]) {
+                weightRow[targetIdx] = weight;
+                result.times[sourceIdx][targetIdx] = labelTime + bucketTimes.get(entryIdx);
+                result.distances[sourceIdx][targetIdx] = labelDistance + bucketDistances.get(entryIdx);
+            }
+            entryIdx = bucketNext.get(entryIdx);
+        }
+    }
+
+    private void clearBuckets() {
+        bucketHeads.clear();
+        bucketNext.clear();
+        bucketTargets.clear();
+        bucketWeights.clear();
+        bucketTimes.clear();
+        bucketDistances.clear();
+    }
+
+    /**
+     * The labels of a single search with the time and distance from the root as additional columns
+     */
+    private static class Labels extends SPTLabelStore {
+        private long[] times;
+        private double[] distances;
+
+        Labels(int capacity) {
+            super(capacity);
+            times = new long[getCapacity()];
+            distances = new double[getCapacity()];
+        }
+
+        @Override
+        public int add(int edge, int adjNode, double weight, int parent) {
+            int label = super.add(edge, adjNode, weight, parent);
+            times[label] = 0;
+            distances[label] = 0;
+            return label;
+        }
+
+        void setTimeAndDistance(int label, long time, double distance) {
+            times[label] = time;
+            distances[label] = distance;
+        }
+
+        long getTime(int label) {
+            return times[label];
+        }
+
+        double getDistance(int label) {
+            return distances[label];
+        }
+
+        @Override
+        protected void grow(int newCapacity) {
+            super.grow(newCapacity);
+            times = Arrays.copyOf(times, newCapacity);
+            distances = Arrays.copyOf(distances, newCapacity);
+        }
+    }
+
+    /**
+     * The weight, time (in ms) and distance (in meter) tables, indexed by [sourceIdx][targetIdx]. Pairs without a
+     * connection have an infinite weight and distance and a time of {@link Long#MAX_VALUE}.
+     */
+    public static class Result {
+        private final double[][] weights;
+        private final long[][] times;
+        private final double[][] distances;
+
+        Result(int numSources, int numTargets) {
+            weights = new double[numSources][numTargets];
+            times = new long[numSources][numTargets];
+            distances = new double[numSources][numTargets];
+            for (int i = 0; i < numSources; i++) {
+                Arrays.fill(weights[i], Double.POSITIVE_INFINITY);
+                Arrays.fill(times[i], Long.MAX_VALUE);
+                Arrays.fill(distances[i], Double.POSITIVE_INFINITY);
+            }
+        }
+
+        public boolean isConnected(int sourceIdx, int targetIdx) {
+            return !Double.isInfinite(weights[sourceIdx][targetIdx]);
+        }
+
+        public double getWeight(int sourceIdx, int targetIdx) {
+            return weights[sourceIdx][targetIdx];
+        }
+
+        public long getTime(int sourceIdx, int targetIdx) {
+            return times[sourceIdx][targetIdx];
+        }
+
+        public double getDistance(int sourceIdx, int targetIdx) {
+            return distances[sourceIdx][targetIdx];
+        }
+    }
+}
@@ -21,24 +21,18 @@ import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
 
 class NodeBasedNodeContractor extends AbstractNodeContractor {
-    private final Map<Shortcut, Shortcut> shortcuts = new HashMap<>();
-    private final AddShortcutHandler addScHandler = new AddShortcutHandler();
-    private final CalcShortcutHandler calcScHandler = new CalcShortcutHandler();
     private final Params params = new Params();
-    private PrepareCHEdgeExplorer allEdgeExplorer;
-    private NodeBasedWitnessPathSearcher prepareAlgo;
+    // the witness searches are done by workers, the sequential methods use the first one and every parallel job uses
+    // the worker with its job index, see runParallel
+    private final List<Worker> workers = new ArrayList<>();
     private int addedShortcutsCount;
-    private long dijkstraCount;
-    private StopWatch dijkstraSW = new StopWatch();
     // meanDegree is the number of edges / number of nodes ratio of the graph, not really the average degree, because
     // each edge can exist in both directions
     private double meanDegree;
@@ -57,8 +51,7 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
     @Override
     public void initFromGraph() {
         super.initFromGraph();
-        allEdgeExplorer = prepareGraph.createAllEdgeExplorer();
-        prepareAlgo = new NodeBasedWitnessPathSearcher(prepareGraph, maxLevel);
+        ensureWorkers(1);
     }
 
     @Override
@@ -74,7 +67,10 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
     @Override
     public void close() {
         super.close();
-        prepareAlgo.close();
+        for (Worker worker : workers) {
+            worker.prepareAlgo.close();
+        }
+        workers.clear();
     }
 
     /**
@@ -84,135 +80,207 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
      */
     @Override
     public float calculatePriority(int node) {
-        if (prepareGraph.getLevel(node) != maxLevel) {
-            throw new IllegalArgumentException("Priority should only be calculated for not yet contracted nodes");
-        }
-        CalcShortcutsResult calcShortcutsResult = calcShortcutCount(node);
-
-        // # huge influence: the bigger the less shortcuts gets created and the faster is the preparation
-        //
-        // every adjNode has an 'original edge' number associated. initially it is r=1
-        // when a new shortcut is introduced then r of the associated edges is summed up:
-        // r(u,w)=r(u,v)+r(v,w) now we can define
-        // originalEdgesCount = σ(v) := sum_{ (u,w) ∈ shortcuts(v) } of r(u, w)
-        int originalEdgesCount = calcShortcutsResult.originalEdgesCount;
-
-        // # lowest influence on preparation speed or shortcut creation count
-        // (but according to paper should speed up queries)
-        //
-        // number of already contracted neighbors of v
-        int contractedNeighbors = 0;
-        int degree = 0;
-        PrepareCHEdgeIterator iter = allEdgeExplorer.setBaseNode(node);
-        while (iter.next()) {
-            // only increase the degree for edges going to equal level nodes (the current node is at maxLevel)
-            // todo: for historic reasons increase degree also for all shortcuts, even though its wrong, see #1810
-            if (iter.isShortcut() || prepareGraph.getLevel(iter.getAdjNode()) == maxLevel) {
-                degree++;
+        return workers.get(0).calculatePriority(node);
+    }
+
+    @Override
+    public void calculatePriorities(final int[] nodes, final float[] priorities, ExecutorService executor, int threads) {
+        ensureOrigEdgeCountCapacity();
+        ensureWorkers(threads);
+        runParallel(nodes.length, executor, threads, new IndexTask() {
+            @Override
+            public void run(int worker, int index) {
+                priorities[index] = workers.get(worker).calculatePriority(nodes[index]);
             }
-            // todo: just because there is a shortcut it does not mean the neighbor is contracted AND
-            //       just because an edge is not a shortcut does not mean the neighbor is not contracted
-            //       see #1810
-            if (iter.isShortcut()) {
-                contractedNeighbors++;
+        });
+    }
+
+    @Override
+    public void contractNode(int node) {
+        Worker worker = workers.get(0);
+        AddShortcutHandler handler = worker.addScHandler.setNode(node);
+        long degree = worker.findShortcuts(handler);
+        applyShortcuts(handler.shortcuts.keySet(), degree);
+    }
+
+    /**
+     * Contracts the given nodes like {@link #contractNode}, but the witness searches for the different nodes run in
+     * parallel. The nodes are marked as contracted before the witness searches start, so no witness path can lead
+     * via any of them. This way the result does not depend on the order in which the nodes are contracted. The
+     * shortcuts are added to the graph sequentially afterwards.
+     */
+    @Override
+    public void contractNodes(final int[] nodes, int[] levels, ExecutorService executor, int threads) {
+        for (int i = 0; i < nodes.length; i++) {
+            prepareGraph.setLevel(nodes[i], levels[i]);
+        }
+        ensureOrigEdgeCountCapacity();
+        final List<Collection<Shortcut>> shortcutsPerNode = new ArrayList<>(Collections.nCopies(nodes.length, (Collection<Shortcut>) null));
+        final long[] degrees = new long[nodes.length];
+        ensureWorkers(threads);
+        runParallel(nodes.length, executor, threads, new IndexTask() {
+            @Override
+            public void run(int workerIndex, int index) {
+                Worker worker = workers.get(workerIndex);
+                AddShortcutHandler handler = worker.addScHandler.setNode(nodes[index]);
+                degrees[index] = worker.findShortcuts(handler);
+                // the handler is re-used for the next node of this worker, so we need to copy the shortcuts
+                shortcutsPerNode.set(index, new ArrayList<>(handler.shortcuts.keySet()));
             }
+        });
+        for (int i = 0; i < nodes.length; i++) {
+            applyShortcuts(shortcutsPerNode.get(i), degrees[i]);
         }
+    }
 
-        // from shortcuts we can compute the edgeDifference
-        // # low influence: with it the shortcut creation is slightly faster
-        //
-        // |shortcuts(v)| − |{(u, v) | v uncontracted}| − |{(v, w) | v uncontracted}|
-        // meanDegree is used instead of outDegree+inDegree as if one adjNode is in both directions
-        // only one bucket memory is used. Additionally one shortcut could also stand for two directions.
-        int edgeDifference = calcShortcutsResult.shortcutsCount - degree;
-
-        // according to the paper do a simple linear combination of the properties to get the priority.
-        return params.edgeDifferenceWeight * edgeDifference +
-                params.originalEdgesCountWeight * originalEdgesCount +
-                params.contractedNeighborsWeight * contractedNeighbors;
+    /**
+     * Creates the workers for the given number of parallel jobs up front, so the jobs only read the worker list.
+     */
+    private void ensureWorkers(int count) {
+        while (workers.size() < Math.max(1, count)) {
+            workers.add(new Worker());
+        }
     }
 
-    @Override
-    public void contractNode(int node) {
-        shortcuts.clear();
-        long degree = findShortcuts(addScHandler.setNode(node));
-        addedShortcutsCount += addShortcuts(shortcuts.keySet());
+    private void applyShortcuts(Collection<Shortcut> shortcuts, long degree) {
+        addedShortcutsCount += addShortcuts(shortcuts);
         // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
         meanDegree = (meanDegree * 2 + degree) / 3;
     }
 
     @Override
     public String getStatisticsString() {
-        return String.format(Locale.ROOT, "meanDegree: %.2f, dijkstras: %10s, mem: %10s",
-                meanDegree, nf(dijkstraCount), prepareAlgo.getMemoryUsageAsString());
+        return String.format(Locale.ROOT, "meanDegree: %.2f, dijkstras: %10s, workers: %d, mem: %10s",
+                meanDegree, nf(getDijkstraCount()), workers.size(), workers.isEmpty() ? "-" : workers.get(0).prepareAlgo.getMemoryUsageAsString());
     }
 
-    /**
-     * Searches for shortcuts and calls the given handler on each shortcut that is found. The graph is not directly
-     * changed by this method.
-     * Returns the 'degree' of the handler's node (disregarding edges from/to already contracted nodes). Note that
-     * here the degree is not the total number of adjacent edges, but only the number of incoming edges
-     */
-    private long findShortcuts(ShortcutHandler sch) {
-        int maxVisitedNodes = getMaxVisitedNodesEstimate();
-        long degree = 0;
-        PrepareCHEdgeIterator incomingEdges = inEdgeExplorer.setBaseNode(sch.getNode());
-        // collect outgoing nodes (goal-nodes) only once
-        while (incomingEdges.next()) {
-            int fromNode = incomingEdges.getAdjNode();
-            // accept only not-contracted nodes, do not consider loops at the node that is being contracted
-            if (fromNode == sch.getNode() || isContracted(fromNode))
-                continue;
-
-            final double incomingEdgeWeight = incomingEdges.getWeight(true);
-            // this check is important to prevent calling calcMillis on inaccessible edges and also allows early exit
-            if (Double.isInfinite(incomingEdgeWeight)) {
-                continue;
+    private class Worker {
+        private final PrepareCHEdgeExplorer inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        private final PrepareCHEdgeExplorer outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        private final PrepareCHEdgeExplorer allEdgeExplorer = prepareGraph.createAllEdgeExplorer();
+        private final NodeBasedWitnessPathSearcher prepareAlgo = new NodeBasedWitnessPathSearcher(prepareGraph, maxLevel);
+        private final AddShortcutHandler addScHandler = new AddShortcutHandler();
+        private final CalcShortcutHandler calcScHandler = new CalcShortcutHandler();
+        private final StopWatch dijkstraSW = new StopWatch();
+        private long dijkstraCount;
+
+        float calculatePriority(int node) {
+            if (prepareGraph.getLevel(node) != maxLevel) {
+                throw new IllegalArgumentException("Priority should only be calculated for not yet contracted nodes");
             }
-            int incomingEdge = incomingEdges.getEdge();
-            int inOrigEdgeCount = getOrigEdgeCount(incomingEdge);
+            findShortcuts(calcScHandler.setNode(node));
+            CalcShortcutsResult calcShortcutsResult = calcScHandler.calcShortcutsResult;
+
+            // # huge influence: the bigger the less shortcuts gets created and the faster is the preparation
+            //
+            // every adjNode has an 'original edge' number associated. initially it is r=1
+            // when a new shortcut is introduced then r of the associated edges is summed up:
+            // r(u,w)=r(u,v)+r(v,w) now we can define
+            // originalEdgesCount = σ(v) := sum_{ (u,w) ∈ shortcuts(v) } of r(u, w)
+            int originalEdgesCount = calcShortcutsResult.originalEdgesCount;
+
+            // # lowest influence on preparation speed or shortcut creation count
+            // (but according to paper should speed up queries)
+            //
+            // number of already contracted neighbors of v
+            int contractedNeighbors = 0;
+            int degree = 0;
+            PrepareCHEdgeIterator iter = allEdgeExplorer.setBaseNode(node);
+            while (iter.next()) {
+                // only increase the degree for edges going to equal level nodes (the current node is at maxLevel)
+                // todo: for historic reasons increase degree also for all shortcuts, even though its wrong, see #1810
+                if (iter.isShortcut() || prepareGraph.getLevel(iter.getAdjNode()) == maxLevel) {
+                    degree++;
+                }
+                // todo: just because there is a shortcut it does not mean the neighbor is contracted AND
+                //       just because an edge is not a shortcut does not mean the neighbor is not contracted
+                //       see #1810
+                if (iter.isShortcut()) {
+                    contractedNeighbors++;
+                }
+            }
+
+            // from shortcuts we can compute the edgeDifference
+            // # low influence: with it the shortcut creation is slightly faster
+            //
+            // |shortcuts(v)| − |{(u, v) | v uncontracted}| − |{(v, w) | v uncontracted}|
+            // meanDegree is used instead of outDegree+inDegree as if one adjNode is in both directions
+            // only one bucket memory is used. Additionally one shortcut could also stand for two directions.
+            int edgeDifference = calcShortcutsResult.shortcutsCount - degree;
+
+            // according to the paper do a simple linear combination of the properties to get the priority.
+            return params.edgeDifferenceWeight * edgeDifference +
+                    params.originalEdgesCountWeight * originalEdgesCount +
+                    params.contractedNeighborsWeight * contractedNeighbors;
+        }
+
+        /**
+         * Searches for shortcuts and calls the given handler on each shortcut that is found. The graph is not directly
+         * changed by this method.
+         * Returns the 'degree' of the handler's node (disregarding edges from/to already contracted nodes). Note that
+         * here the degree is not the total number of adjacent edges, but only the number of incoming edges
+         */
+        long findShortcuts(ShortcutHandler sch) {
+            int maxVisitedNodes = getMaxVisitedNodesEstimate();
+            long degree = 0;
+            PrepareCHEdgeIterator incomingEdges = inEdgeExplorer.setBaseNode(sch.getNode());
             // collect outgoing nodes (goal-nodes) only once
-            PrepareCHEdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(sch.getNode());
-            // force fresh maps etc as this cannot be determined by from node alone (e.g. same from node but different avoidNode)
-            prepareAlgo.clear();
-            degree++;
-            while (outgoingEdges.next()) {
-                int toNode = outgoingEdges.getAdjNode();
-                // add only not-contracted nodes, do not consider loops at the node that is being contracted
-                if (toNode == sch.getNode() || isContracted(toNode) || fromNode == toNode)
+            while (incomingEdges.next()) {
+                int fromNode = incomingEdges.getAdjNode();
+                // accept only not-contracted nodes, do not consider loops at the node that is being contracted
+                if (fromNode == sch.getNode() || isContracted(fromNode))
                     continue;
 
-                // Limit weight as ferries or forbidden edges can increase local search too much.
-                // If we decrease the correct weight we only explore less and introduce more shortcuts.
-                // I.e. no change to accuracy is made.
-                double existingDirectWeight = incomingEdgeWeight + outgoingEdges.getWeight(false);
-                if (Double.isNaN(existingDirectWeight))
-                    throw new IllegalStateException("Weighting should never return NaN values"
-                            + ", in:" + getCoords(incomingEdges, prepareGraph.getNodeAccess()) + ", out:" + getCoords(outgoingEdges, prepareGraph.getNodeAccess()));
-
-                if (Double.isInfinite(existingDirectWeight))
+                final double incomingEdgeWeight = incomingEdges.getWeight(true);
+                // this check is important to prevent calling calcMillis on inaccessible edges and also allows early exit
+                if (Double.isInfinite(incomingEdgeWeight)) {
                     continue;
+                }
+                int incomingEdge = incomingEdges.getEdge();
+                int inOrigEdgeCount = getOrigEdgeCount(incomingEdge);
+                // collect outgoing nodes (goal-nodes) only once
+                PrepareCHEdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(sch.getNode());
+                // force fresh maps etc as this cannot be determined by from node alone (e.g. same from node but different avoidNode)
+                prepareAlgo.clear();
+                degree++;
+                while (outgoingEdges.next()) {
+                    int toNode = outgoingEdges.getAdjNode();
+                    // add only not-contracted nodes, do not consider loops at the node that is being contracted
+                    if (toNode == sch.getNode() || isContracted(toNode) || fromNode == toNode)
+                        continue;
 
-                prepareAlgo.setWeightLimit(existingDirectWeight);
-                prepareAlgo.setMaxVisitedNodes(maxVisitedNodes);
-                prepareAlgo.ignoreNode(sch.getNode());
+                    // Limit weight as ferries or forbidden edges can increase local search too much.
+                    // If we decrease the correct weight we only explore less and introduce more shortcuts.
+                    // I.e. no change to accuracy is made.
+                    double existingDirectWeight = incomingEdgeWeight + outgoingEdges.getWeight(false);
+                    if (Double.isNaN(existingDirectWeight))
+                        throw new IllegalStateException("Weighting should never return NaN values"
+                                + ", in:" + getCoords(incomingEdges, prepareGraph.getNodeAccess()) + ", out:" + getCoords(outgoingEdges, prepareGraph.getNodeAccess()));
 
-                dijkstraSW.start();
-                dijkstraCount++;
-                int endNode = prepareAlgo.findEndNode(fromNode, toNode);
-                dijkstraSW.stop();
+                    if (Double.isInfinite(existingDirectWeight))
+                        continue;
 
-                // compare end node as the limit could force dijkstra to finish earlier
-                if (endNode == toNode && prepareAlgo.getWeight(endNode) <= existingDirectWeight)
-                    // FOUND witness path, so do not add shortcut
-                    continue;
+                    prepareAlgo.setWeightLimit(existingDirectWeight);
+                    prepareAlgo.setMaxVisitedNodes(maxVisitedNodes);
+                    prepareAlgo.ignoreNode(sch.getNode());
+
+                    dijkstraSW.start();
+                    dijkstraCount++;
+                    int endNode = prepareAlgo.findEndNode(fromNode, toNode);
+                    dijkstraSW.stop();
+
+                    // compare end node as the limit could force dijkstra to finish earlier
+                    if (endNode == toNode && prepareAlgo.getWeight(endNode) <= existingDirectWeight)
+                        // FOUND witness path, so do not add shortcut
+                        continue;
 
-                sch.foundShortcut(fromNode, toNode, existingDirectWeight,
-                        outgoingEdges.getEdge(), getOrigEdgeCount(outgoingEdges.getEdge()),
-                        incomingEdge, inOrigEdgeCount);
+                    sch.foundShortcut(fromNode, toNode, existingDirectWeight,
+                            outgoingEdges.getEdge(), getOrigEdgeCount(outgoingEdges.getEdge()),
+                            incomingEdge, inOrigEdgeCount);
+                }
             }
+            return degree;
         }
-        return degree;
     }
 
     /**
@@ -267,11 +335,6 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
         return tmpNewShortcuts;
     }
 
-    private CalcShortcutsResult calcShortcutCount(int node) {
-        findShortcuts(calcScHandler.setNode(node));
-        return calcScHandler.calcShortcutsResult;
-    }
-
     private String getCoords(PrepareCHEdgeIterator edge, NodeAccess na) {
         int base = edge.getBaseNode();
         int adj = edge.getAdjNode();
@@ -286,12 +349,23 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
 
     @Override
     public long getDijkstraCount() {
-        return dijkstraCount;
+        long count = 0;
+        for (Worker worker : workers) {
+            count += worker.dijkstraCount;
+        }
+        return count;
     }
 
+    /**
+     * @return the time spent for witness searches summed over all threads
+     */
     @Override
     public float getDijkstraSeconds() {
-        return dijkstraSW.getCurrentSeconds();
+        float seconds = 0;
+        for (Worker worker : workers) {
+            seconds += worker.dijkstraSW.getCurrentSeconds();
+        }
+        return seconds;
     }
 
     private int getMaxVisitedNodesEstimate() {
@@ -381,6 +455,7 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
     }
 
     private class AddShortcutHandler implements ShortcutHandler {
+        final Map<Shortcut, Shortcut> shortcuts = new HashMap<>();
         int node;
 
         @Override
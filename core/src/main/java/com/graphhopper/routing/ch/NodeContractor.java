@@ -18,6 +18,8 @@
 
 package com.graphhopper.routing.ch;
 
+import java.util.concurrent.ExecutorService;
+
 public interface NodeContractor {
     void initFromGraph();
 
@@ -33,6 +35,18 @@ public interface NodeContractor {
      */
     void contractNode(int node);
 
+    /**
+     * Calculates the priorities of the given nodes like {@link #calculatePriority} and stores them in the given array.
+     * The witness searches may run on up to the given number of threads of the given executor.
+     */
+    void calculatePriorities(int[] nodes, float[] priorities, ExecutorService executor, int threads);
+
+    /**
+     * Adds the required shortcuts for the given nodes and sets their levels. No two of the given nodes may be
+     * adjacent. The witness searches may run on up to the given number of threads of the given executor.
+     */
+    void contractNodes(int[] nodes, int[] levels, ExecutorService executor, int threads);
+
     long getAddedShortcutsCount();
 
     String getStatisticsString();
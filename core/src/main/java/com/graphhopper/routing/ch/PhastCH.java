@@ -0,0 +1,402 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.ShortcutUnpacker;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.Arrays;
+
+/**
+ * Calculates the weights, times and distances from one node to all other nodes (or from all nodes to one node) on a
+ * node-based CH graph using PHAST (Delling et al., 'PHAST: Hardware-Accelerated Shortest Path Trees'):
+ * <p>
+ * First a Dijkstra search in the upward graph settles all nodes that can be reached from the source via edges
+ * leading to higher levels. Then all nodes are scanned once in descending level order and every node is relaxed
+ * from its higher neighbors, which were all finished before. The second phase needs no priority queue and only a
+ * single linear sweep, so its cost does not depend on the size of the explored area.
+ * <p>
+ * Times and distances are calculated by unpacking the edge of every node that was used to reach it. This is skipped
+ * for nodes whose predecessor is already beyond the time or distance limit, so that large graphs can be queried with
+ * small limits without unpacking the whole shortest path tree. The graph can be a CHGraph or a QueryGraph wrapping
+ * it, but the source must be the only virtual node that is used.
+ * <p>
+ * The level order of the nodes and the arrays of the result are taken from a {@link PhastCHPool}, which should be
+ * shared by all searches on the same CH graph. Release a result via {@link Result#release} once it is not needed
+ * anymore to give its arrays back.
+ */
+public class PhastCH {
+    private static final int NO_NODE = -1;
+    // check the interrupted flag for the first node and then only every 16384 nodes
+    private static final int INTERRUPT_CHECK_MASK = (1 << 14) - 1;
+    private final RoutingCHGraph graph;
+    private final Weighting weighting;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final int maxNodes;
+    private final PhastCHPool pool;
+    private final int[] nodesByLevel;
+    private final ShortcutUnpacker shortcutUnpacker;
+    private long timeLimit = Long.MAX_VALUE;
+    private double distanceLimit = Double.POSITIVE_INFINITY;
+    private int maxReachedNodes = Integer.MAX_VALUE;
+    private boolean reverse;
+    private int visitedNodes;
+    private int reachedNodes;
+
+    // the state of the current unpacking, see finishNode
+    private int unpackedNode;
+    private long unpackedTime;
+    private double unpackedDistance;
+    private int unpackedEdge;
+    private int unpackedPrevNode;
+
+    private double[] weights;
+    private long[] times;
+    private double[] distances;
+    private int[] edges;
+    private int[] prevNodes;
+
+    /**
+     * Creates a search that sorts the nodes and allocates the arrays on its own, which is fine for a single search.
+     */
+    public PhastCH(RoutingCHGraph graph) {
+        this(graph, new PhastCHPool(0));
+    }
+
+    public PhastCH(RoutingCHGraph graph, PhastCHPool pool) {
+        this.graph = graph;
+        this.weighting = graph.getWeighting();
+        this.outEdgeExplorer = graph.createOutEdgeExplorer();
+        this.inEdgeExplorer = graph.createInEdgeExplorer();
+        this.maxNodes = graph.getBaseGraph().getNodes();
+        this.pool = pool;
+        this.nodesByLevel = pool.getNodesByLevel(graph, maxNodes);
+        this.shortcutUnpacker = new ShortcutUnpacker(graph, new ShortcutUnpacker.Visitor() {
+            @Override
+            public void visit(EdgeIteratorState edge, boolean reverse, int prevOrNextEdgeId) {
+                unpackedDistance += edge.getDistance();
+                unpackedTime += weighting.calcEdgeMillis(edge, reverse);
+                // a shortest path touches its last node only once, so this finds the original edge adjacent to it
+                if (edge.getAdjNode() == unpackedNode) {
+                    unpackedEdge = edge.getEdge();
+                    unpackedPrevNode = edge.getBaseNode();
+                } else if (edge.getBaseNode() == unpackedNode) {
+                    unpackedEdge = edge.getEdge();
+                    unpackedPrevNode = edge.getAdjNode();
+                }
+            }
+        }, false);
+    }
+
+    /**
+     * @param reverse if true the weights, times and distances from all nodes to the given node are calculated
+     */
+    public PhastCH setReverse(boolean reverse) {
+        this.reverse = reverse;
+        return this;
+    }
+
+    /**
+     * Nodes that have a larger time (in ms) than this limit are reported as not reached.
+     */
+    public PhastCH setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+        return this;
+    }
+
+    /**
+     * Nodes that have a larger distance (in meter) than this limit are reported as not reached.
+     */
+    public PhastCH setDistanceLimit(double distanceLimit) {
+        this.distanceLimit = distanceLimit;
+        return this;
+    }
+
+    /**
+     * Stops the search once more nodes than this are within the time and distance limits, which bounds the work for
+     * the callers processing the reached nodes. The sweep over all nodes is linear and not bounded by this.
+     */
+    public PhastCH setMaxReachedNodes(int maxReachedNodes) {
+        this.maxReachedNodes = maxReachedNodes;
+        return this;
+    }
+
+    /**
+     * @return the number of nodes settled by the upward search plus the number of nodes scanned by the downward sweep
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @return the number of nodes within the time and distance limits including the source
+     */
+    public int getReachedNodes() {
+        return reachedNodes;
+    }
+
+    /**
+     * @return true if the last search was stopped because of {@link #setMaxReachedNodes}. The result is incomplete
+     * then.
+     */
+    public boolean isMaxReachedNodesExceeded() {
+        return reachedNodes > maxReachedNodes;
+    }
+
+    public Result calc(int source) {
+        int nodes = graph.getNodes();
+        PhastCHPool.Workspace workspace = pool.borrow(nodes);
+        weights = workspace.weights;
+        times = workspace.times;
+        distances = workspace.distances;
+        edges = workspace.edges;
+        prevNodes = workspace.prevNodes;
+        Arrays.fill(weights, 0, nodes, Double.POSITIVE_INFINITY);
+        Arrays.fill(times, 0, nodes, Long.MAX_VALUE);
+        Arrays.fill(distances, 0, nodes, Double.POSITIVE_INFINITY);
+        Arrays.fill(edges, 0, nodes, EdgeIterator.NO_EDGE);
+        Arrays.fill(prevNodes, 0, nodes, NO_NODE);
+        visitedNodes = 0;
+        reachedNodes = 1;
+
+        weights[source] = 0;
+        times[source] = 0;
+        distances[source] = 0;
+        try {
+            searchUpward(source);
+            if (!isMaxReachedNodesExceeded())
+                sweepDownward();
+        } catch (RuntimeException ex) {
+            // e.g. if the search was interrupted the arrays can be used by the next search
+            pool.release(workspace);
+            throw ex;
+        } finally {
+            weights = null;
+            times = null;
+            distances = null;
+            edges = null;
+            prevNodes = null;
+        }
+        return new Result(pool, workspace, nodes);
+    }
+
+    private void checkInterrupted() {
+        // a running search can be cancelled, e.g. an asynchronous isochrone job
+        if ((visitedNodes & INTERRUPT_CHECK_MASK) == 1 && Thread.currentThread().isInterrupted())
+            throw new IllegalStateException("Shortest path tree calculation was interrupted");
+    }
+
+    private void searchUpward(int source) {
+        // while a node is in the heap edges and prevNodes store the CH edge and its other node, see finishNode
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(1000);
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        heap.push(source, 0);
+        while (!heap.isEmpty() && !isMaxReachedNodesExceeded()) {
+            int node = heap.poll();
+            visitedNodes++;
+            checkInterrupted();
+            if (node != source)
+                finishNode(node, edges[node], prevNodes[node]);
+
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (!isUpward(iter))
+                    continue;
+                double weight = iter.getWeight(reverse) + weights[node];
+                if (Double.isInfinite(weight))
+                    continue;
+                int adjNode = iter.getAdjNode();
+                if (weights[adjNode] > weight) {
+                    if (heap.contains(adjNode))
+                        heap.update(adjNode, weight);
+                    else
+                        heap.push(adjNode, weight);
+                    weights[adjNode] = weight;
+                    edges[adjNode] = iter.getEdge();
+                    prevNodes[adjNode] = node;
+                }
+            }
+        }
+    }
+
+    private void sweepDownward() {
+        // in forward direction a node is reached via the edges coming from its higher neighbors and vice versa
+        RoutingCHEdgeExplorer explorer = reverse ? outEdgeExplorer : inEdgeExplorer;
+        for (int node : nodesByLevel) {
+            if (isMaxReachedNodesExceeded())
+                return;
+            visitedNodes++;
+            checkInterrupted();
+            int level = graph.getLevel(node);
+            double bestWeight = weights[node];
+            int bestEdge = EdgeIterator.NO_EDGE;
+            int bestPrevNode = NO_NODE;
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int adjNode = iter.getAdjNode();
+                // virtual nodes are only reached by the upward search and are finished already
+                if (adjNode < maxNodes && graph.getLevel(adjNode) <= level)
+                    continue;
+                double weight = iter.getWeight(!reverse) + weights[adjNode];
+                if (weight < bestWeight) {
+                    bestWeight = weight;
+                    bestEdge = iter.getEdge();
+                    bestPrevNode = adjNode;
+                }
+            }
+            if (bestPrevNode != NO_NODE) {
+                weights[node] = bestWeight;
+                finishNode(node, bestEdge, bestPrevNode);
+            }
+        }
+    }
+
+    /**
+     * Calculates the time and distance of the given node from the one of its predecessor and replaces the CH edge
+     * and its other node with the last original edge and node of the path. The downward sweep calls this again for
+     * nodes that were finished by the upward search already if it found a better weight.
+     */
+    private void finishNode(int node, int chEdge, int chPrevNode) {
+        // count every node only once, no matter how often it was finished
+        if (times[node] != Long.MAX_VALUE)
+            reachedNodes--;
+        if (times[chPrevNode] == Long.MAX_VALUE) {
+            // the predecessor is beyond the limits already
+            times[node] = Long.MAX_VALUE;
+            distances[node] = Double.POSITIVE_INFINITY;
+            edges[node] = EdgeIterator.NO_EDGE;
+            prevNodes[node] = NO_NODE;
+            return;
+        }
+        unpackedNode = node;
+        unpackedTime = 0;
+        unpackedDistance = 0;
+        unpackedEdge = EdgeIterator.NO_EDGE;
+        unpackedPrevNode = NO_NODE;
+        if (reverse)
+            shortcutUnpacker.visitOriginalEdgesBwd(chEdge, node, false, EdgeIterator.NO_EDGE);
+        else
+            shortcutUnpacker.visitOriginalEdgesFwd(chEdge, node, false, EdgeIterator.NO_EDGE);
+        long time = times[chPrevNode] + unpackedTime;
+        double distance = distances[chPrevNode] + unpackedDistance;
+        if (time > timeLimit || distance > distanceLimit) {
+            times[node] = Long.MAX_VALUE;
+            distances[node] = Double.POSITIVE_INFINITY;
+            edges[node] = EdgeIterator.NO_EDGE;
+            prevNodes[node] = NO_NODE;
+        } else {
+            reachedNodes++;
+            times[node] = time;
+            distances[node] = distance;
+            edges[node] = unpackedEdge;
+            prevNodes[node] = unpackedPrevNode;
+        }
+    }
+
+    private boolean isUpward(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        // shortcuts in wrong direction are disconnected, so no need to exclude them
+        if (edgeState.isShortcut())
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    /**
+     * The weight, time (in ms) and distance (in meter) of every node of the graph. Nodes that cannot be reached or
+     * that are beyond the limits have an infinite distance and a time of {@link Long#MAX_VALUE}.
+     */
+    public static class Result {
+        private final PhastCHPool pool;
+        private PhastCHPool.Workspace workspace;
+        private final int nodes;
+        private final double[] weights;
+        private final long[] times;
+        private final double[] distances;
+        private final int[] edges;
+        private final int[] prevNodes;
+
+        Result(PhastCHPool pool, PhastCHPool.Workspace workspace, int nodes) {
+            this.pool = pool;
+            this.workspace = workspace;
+            this.nodes = nodes;
+            this.weights = workspace.weights;
+            this.times = workspace.times;
+            this.distances = workspace.distances;
+            this.edges = workspace.edges;
+            this.prevNodes = workspace.prevNodes;
+        }
+
+        public int getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Gives the arrays of this result back to the pool. The result must not be used afterwards.
+         */
+        public void release() {
+            if (workspace == null)
+                throw new IllegalStateException("The result was released already");
+            pool.release(workspace);
+            workspace = null;
+        }
+
+        public boolean isReached(int node) {
+            return times[node] != Long.MAX_VALUE;
+        }
+
+        public double getWeight(int node) {
+            return weights[node];
+        }
+
+        public long getTime(int node) {
+            return times[node];
+        }
+
+        public double getDistance(int node) {
+            return distances[node];
+        }
+
+        /**
+         * @return the original edge that is used to reach the given node or {@link EdgeIterator#NO_EDGE} for the
+         * source and for nodes that are not reached
+         */
+        public int getEdge(int node) {
+            return edges[node];
+        }
+
+        /**
+         * @return the node before the given node on the shortest path or -1 for the source and for nodes that are
+         * not reached
+         */
+        public int getPrevNode(int node) {
+            return prevNodes[node];
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.storage.RoutingCHGraph;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps what {@link PhastCH} needs for every search on one CH graph, so that e.g. isochrone requests neither sort the
+ * nodes by level nor allocate node-sized arrays again: The nodes in descending level order are calculated on first use
+ * and a few sets of arrays are kept after a search. A set needs 32 bytes per node, so the number of retained sets is
+ * bounded for all threads together. A pool must only be used for the CH graph (or QueryGraphs wrapping it) it was
+ * first used with.
+ */
+public class PhastCHPool {
+    private final int maxIdle;
+    private final ArrayDeque<Workspace> idleWorkspaces = new ArrayDeque<>();
+    private int[] nodesByLevel;
+
+    /**
+     * @param maxIdle the maximum number of released array sets kept for later searches
+     */
+    public PhastCHPool(int maxIdle) {
+        if (maxIdle < 0)
+            throw new IllegalArgumentException("maxIdle must not be negative: " + maxIdle);
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * @return the nodes of the CH graph sorted by descending level
+     */
+    synchronized int[] getNodesByLevel(RoutingCHGraph graph, int baseNodes) {
+        if (nodesByLevel == null)
+            nodesByLevel = sortByLevelDescending(graph, baseNodes);
+        else if (nodesByLevel.length != baseNodes)
+            throw new IllegalArgumentException("The pool was used for a graph with " + nodesByLevel.length
+                    + " nodes but this graph has " + baseNodes + " nodes");
+        return nodesByLevel;
+    }
+
+    /**
+     * The levels of a CH graph are bounded by the number of nodes, so a counting sort is sufficient.
+     */
+    private static int[] sortByLevelDescending(RoutingCHGraph graph, int nodes) {
+        int maxLevel = 0;
+        for (int node = 0; node < nodes; node++) {
+            maxLevel = Math.max(maxLevel, graph.getLevel(node));
+        }
+        int[] offsets = new int[maxLevel + 2];
+        for (int node = 0; node < nodes; node++) {
+            offsets[maxLevel - graph.getLevel(node) + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] sorted = new int[nodes];
+        for (int node = 0; node < nodes; node++) {
+            sorted[offsets[maxLevel - graph.getLevel(node)]++] = node;
+        }
+        return sorted;
+    }
+
+    /**
+     * @return arrays for at least the given number of nodes, their content is undefined
+     */
+    synchronized Workspace borrow(int nodes) {
+        Workspace workspace = idleWorkspaces.pollFirst();
+        // the number of virtual nodes differs between the searches, so a set could be slightly too small
+        if (workspace == null || workspace.weights.length < nodes)
+            workspace = new Workspace(nodes);
+        return workspace;
+    }
+
+    synchronized void release(Workspace workspace) {
+        if (idleWorkspaces.size() < maxIdle)
+            idleWorkspaces.addFirst(workspace);
+    }
+
+    /**
+     * @return the number of array sets currently kept
+     */
+    public synchronized int getIdleCount() {
+        return idleWorkspaces.size();
+    }
+
+    static class Workspace {
+        final double[] weights;
+        final long[] times;
+        final double[] distances;
+        final int[] edges;
+        final int[] prevNodes;
+
+        Workspace(int nodes) {
+            // reserve a few more entries for the virtual nodes of later searches
+            int capacity = nodes + 8;
+            weights = new double[capacity];
+            times = new long[capacity];
+            distances = new double[capacity];
+            edges = new int[capacity];
+            prevNodes = new int[capacity];
+        }
+    }
+}
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntSet;
 import com.graphhopper.coll.GHTreeMapComposed;
@@ -33,6 +34,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
@@ -51,6 +54,8 @@ import static com.graphhopper.util.Helper.nf;
  * @author Peter Karich
  */
 public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
+    // the maximum number of nodes per thread that are contracted at once when using multiple threads
+    private static final int NODES_PER_BATCH_AND_THREAD = 64;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final CHProfile chProfile;
     private final CHGraph chGraph;
@@ -70,9 +75,13 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private int maxLevel;
     // nodes with highest priority come last
     private GHTreeMapComposed sortedNodes;
+    private PhastCHPool phastPool;
     private float[] oldPriorities;
     private PMap pMap = new PMap();
     private int checkCounter;
+    private int contractionThreads = 1;
+    // only set while the graph is contracted with more than one thread
+    private ExecutorService executor;
 
     public static PrepareContractionHierarchies fromGraphHopperStorage(GraphHopperStorage ghStorage, CHProfile chProfile) {
         return new PrepareContractionHierarchies(ghStorage, chProfile);
@@ -103,6 +112,20 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         params.setNeighborUpdatePercentage(pMap.getInt(NEIGHBOR_UPDATES, params.getNeighborUpdatePercentage()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        setContractionThreads(pMap.getInt(CONTRACTION_THREADS, contractionThreads));
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used to contract the graph of this profile. With more than one thread batches of
+     * non-adjacent nodes are contracted at once and the witness searches for the nodes of a batch as well as the
+     * priority updates run in parallel. Every thread allocates its own witness search arrays, i.e. roughly 16 bytes
+     * per node for node-based CH and roughly 50 bytes per edge for edge-based CH.
+     */
+    public PrepareContractionHierarchies setContractionThreads(int contractionThreads) {
+        if (contractionThreads < 1)
+            throw new IllegalArgumentException(CONTRACTION_THREADS + " has to be at least 1, but was " + contractionThreads);
+        this.contractionThreads = contractionThreads;
         return this;
     }
 
@@ -148,6 +171,14 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         setMaxLevelOnAllNodes();
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+        } else if (contractionThreads > 1) {
+            executor = Executors.newFixedThreadPool(contractionThreads);
+            try {
+                contractNodesUsingHeuristicNodeOrdering();
+            } finally {
+                executor.shutdownNow();
+                executor = null;
+            }
         } else {
             contractNodesUsingHeuristicNodeOrdering();
         }
@@ -183,11 +214,18 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         periodicUpdateSW.start();
         sortedNodes.clear();
         final int nodes = prepareGraph.getNodes();
+        IntArrayList remainingNodes = new IntArrayList();
         for (int node = 0; node < nodes; node++) {
             if (prepareGraph.getLevel(node) != maxLevel)
                 continue;
-            float priority = oldPriorities[node] = calculatePriority(node);
-            sortedNodes.insert(node, priority);
+            remainingNodes.add(node);
+        }
+        int[] nodesToUpdate = remainingNodes.toArray();
+        float[] priorities = new float[nodesToUpdate.length];
+        nodeContractor.calculatePriorities(nodesToUpdate, priorities, executor, contractionThreads);
+        for (int i = 0; i < nodesToUpdate.length; i++) {
+            oldPriorities[nodesToUpdate[i]] = priorities[i];
+            sortedNodes.insert(nodesToUpdate[i], priorities[i]);
         }
         periodicUpdateSW.stop();
     }
@@ -226,6 +264,77 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         // reduces number of shortcuts.
         final boolean neighborUpdate = (params.getNeighborUpdatePercentage() != 0);
 
+        if (executor != null) {
+            // contract batches of nodes in parallel as long as there are enough nodes left that do not need lazy updates
+            long nodesSinceUpdate = 0;
+            long nodesSinceLog = 0;
+            final long minRemainingNodes = Math.max(lastNodesLazyUpdates, nodesToAvoidContract);
+            final IntArrayList batch = new IntArrayList();
+            final IntArrayList neighborsToUpdate = new IntArrayList();
+            while (true) {
+                stopIfInterrupted();
+                long batchLimit = Math.min(contractionThreads * NODES_PER_BATCH_AND_THREAD, sortedNodes.getSize() - minRemainingNodes);
+                // for the last few nodes parallelization does not pay off
+                if (batchLimit < contractionThreads)
+                    break;
+
+                if (nodesSinceUpdate >= periodicUpdatesCount) {
+                    updatePrioritiesOfRemainingNodes();
+                    updateCounter++;
+                    nodesSinceUpdate = 0;
+                }
+                if (nodesSinceLog >= logSize || checkCounter == 0) {
+                    logHeuristicStats(updateCounter);
+                    nodesSinceLog = 0;
+                }
+
+                pollIndependentNodes((int) batchLimit, batch);
+                checkCounter += batch.size();
+                nodesSinceUpdate += batch.size();
+                nodesSinceLog += batch.size();
+                int[] nodes = batch.toArray();
+                int[] levels = new int[nodes.length];
+                for (int i = 0; i < nodes.length; i++) {
+                    levels[i] = level++;
+                }
+                contractionSW.start();
+                nodeContractor.contractNodes(nodes, levels, executor, contractionThreads);
+                contractionSW.stop();
+
+                updatedNeighbors.clear();
+                neighborsToUpdate.clear();
+                for (int node : nodes) {
+                    PrepareCHEdgeIterator iter = allEdgeExplorer.setBaseNode(node);
+                    while (iter.next()) {
+                        int nn = iter.getAdjNode();
+                        if (prepareGraph.getLevel(nn) != maxLevel)
+                            continue;
+
+                        if (neighborUpdate && !updatedNeighbors.contains(nn) && rand.nextInt(100) < params.getNeighborUpdatePercentage()) {
+                            updatedNeighbors.add(nn);
+                            neighborsToUpdate.add(nn);
+                        }
+                        prepareGraph.disconnect(disconnectExplorer, iter);
+                    }
+                }
+                if (!neighborsToUpdate.isEmpty()) {
+                    neighborUpdateSW.start();
+                    int[] neighbors = neighborsToUpdate.toArray();
+                    float[] priorities = new float[neighbors.length];
+                    nodeContractor.calculatePriorities(neighbors, priorities, executor, contractionThreads);
+                    for (int i = 0; i < neighbors.length; i++) {
+                        int nn = neighbors[i];
+                        float oldPrio = oldPriorities[nn];
+                        if (priorities[i] != oldPrio) {
+                            sortedNodes.update(nn, oldPrio, priorities[i]);
+                            oldPriorities[nn] = priorities[i];
+                        }
+                    }
+                    neighborUpdateSW.stop();
+                }
+            }
+        }
+
         while (!sortedNodes.isEmpty()) {
             stopIfInterrupted();
             // periodically update priorities of ALL nodes
@@ -304,6 +413,33 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         _close();
     }
 
+    /**
+     * Polls up to the given number of nodes with the lowest priorities and keeps those that are not adjacent to
+     * another polled node with lower priority. The other nodes are put back into the queue.
+     */
+    private void pollIndependentNodes(int maxNodes, IntArrayList batch) {
+        batch.clear();
+        IntArrayList rejected = new IntArrayList();
+        IntHashSet blocked = new IntHashSet(maxNodes * 4);
+        for (int i = 0; i < maxNodes && !sortedNodes.isEmpty(); i++) {
+            int node = sortedNodes.pollKey();
+            if (blocked.contains(node)) {
+                rejected.add(node);
+                continue;
+            }
+            batch.add(node);
+            PrepareCHEdgeIterator iter = allEdgeExplorer.setBaseNode(node);
+            while (iter.next()) {
+                if (prepareGraph.getLevel(iter.getAdjNode()) == maxLevel)
+                    blocked.add(iter.getAdjNode());
+            }
+        }
+        for (int i = 0; i < rejected.size(); i++) {
+            int node = rejected.get(i);
+            sortedNodes.insert(node, oldPriorities[node]);
+        }
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         nodeContractor.prepareContraction();
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
@@ -435,10 +571,20 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         cg.close();
     }
 
-    public RoutingAlgorithmFactory getRoutingAlgorithmFactory() {
+    public CHRoutingAlgorithmFactory getRoutingAlgorithmFactory() {
         return new CHRoutingAlgorithmFactory(chGraph);
     }
 
+    /**
+     * @return the pool shared by all {@link PhastCH} searches on the CH graph of this preparation. It is dropped
+     * together with the GraphHopper instance, e.g. when a new graph is loaded.
+     */
+    public synchronized PhastCHPool getPhastCHPool() {
+        if (phastPool == null)
+            phastPool = new PhastCHPool(2);
+        return phastPool;
+    }
+
     private static class Params {
         /**
          * Specifies after how many contracted nodes a full refresh of the queue of remaining/not contracted nodes
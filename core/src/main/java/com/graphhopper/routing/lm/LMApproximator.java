@@ -171,9 +171,9 @@ public class LMApproximator implements WeightApproximator {
         Dijkstra dijkstra = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED) {
             @Override
             protected boolean finished() {
-                towerNodeNextToT = currEdge.adjNode;
-                weightFromTToTowerNode = currEdge.weight;
-                return currEdge.adjNode < maxBaseNodes;
+                towerNodeNextToT = labels.getAdjNode(currLabel);
+                weightFromTToTowerNode = labels.getWeight(currLabel);
+                return towerNodeNextToT < maxBaseNodes;
             }
 
             // We only expect a very short search
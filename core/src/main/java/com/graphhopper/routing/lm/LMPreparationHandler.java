@@ -60,6 +60,7 @@ public class LMPreparationHandler {
     private int preparationThreads;
     private ExecutorService threadPool;
     private boolean logDetails = false;
+    private int landmarkThreads = 1;
 
     public LMPreparationHandler() {
         setPreparationThreads(1);
@@ -82,6 +83,7 @@ public class LMPreparationHandler {
                     + " should be less or equal to landmark count of " + landmarkCount);
         logDetails = ghConfig.getBool(Landmark.PREPARE + "log_details", false);
         minNodes = ghConfig.getInt(Landmark.PREPARE + "min_network_size", -1);
+        landmarkThreads = ghConfig.getInt(Landmark.PREPARE + "landmark_threads", landmarkThreads);
 
         for (String loc : ghConfig.get(Landmark.PREPARE + "suggestions_location", "").split(",")) {
             if (!loc.trim().isEmpty())
@@ -182,7 +184,7 @@ public class LMPreparationHandler {
      * @return a {@link RoutingAlgorithmFactory} for LM or throw an error if no preparation is available for the given
      * profile name
      */
-    public RoutingAlgorithmFactory getAlgorithmFactory(String profile) {
+    public LMRoutingAlgorithmFactory getAlgorithmFactory(String profile) {
         PrepareLandmarks preparation = getPreparation(profile);
         return preparation.getRoutingAlgorithmFactory().setDefaultActiveLandmarks(activeLandmarkCount);
     }
@@ -278,7 +280,8 @@ public class LMPreparationHandler {
                     lmProfile, landmarkCount).
                     setLandmarkSuggestions(lmSuggestions).
                     setMaximumWeight(maximumWeight).
-                    setLogDetails(logDetails);
+                    setLogDetails(logDetails).
+                    setLandmarkThreads(landmarkThreads);
             if (minNodes > 1)
                 tmpPrepareLM.setMinimumNodes(minNodes);
             addPreparation(tmpPrepareLM);
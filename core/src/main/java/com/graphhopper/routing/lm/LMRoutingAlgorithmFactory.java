@@ -32,6 +32,7 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private final Weighting prepareWeighting;
     private final int numBaseNodes;
     private int defaultActiveLandmarks;
+    private SearchWorkspacePool workspacePool;
 
     public LMRoutingAlgorithmFactory(LandmarkStorage lms) {
         this.lms = lms;
@@ -45,6 +46,14 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         return this;
     }
 
+    /**
+     * Sets the pool the A* algorithms borrow their heaps, labels and maps from.
+     */
+    public LMRoutingAlgorithmFactory setWorkspacePool(SearchWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
         if (!lms.isInitialized())
@@ -54,7 +63,7 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         final Weighting weighting = g.wrapWeighting(opts.getWeighting());
         if (ASTAR.equalsIgnoreCase(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStar.EPSILON, 1);
-            AStar algo = new AStar(g, weighting, opts.getTraversalMode());
+            AStar algo = new AStar(g, weighting, opts.getTraversalMode(), workspacePool);
             algo.setApproximation(getApproximator(g, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             return algo;
@@ -62,6 +71,7 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
             AStarBidirection algo = new AStarBidirection(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, activeLM, epsilon));
+            algo.setWorkspacePool(workspacePool);
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             return algo;
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
@@ -41,6 +41,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -86,6 +87,7 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private SpatialRuleLookup ruleLookup;
     private boolean logDetails = false;
+    private int landmarkThreads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -157,6 +159,18 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         this.logDetails = logDetails;
     }
 
+    /**
+     * Sets the number of threads used to calculate the weights from and to the landmarks. The landmarks itself are
+     * still picked one after the other. Every thread needs memory for its own search tree, so for big graphs change
+     * this only if you have enough RAM.
+     */
+    public LandmarkStorage setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark threads has to be at least 1, but was " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -274,6 +288,9 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
 
         EdgeExplorer tmpExplorer = graph.createEdgeExplorer(new RequireBothDirectionsEdgeFilter(encoder));
 
+        // the weights of the first landmark of every subnetwork are calculated directly as they determine the subnetwork
+        // ids, the weights of all other landmarks do not depend on each other and are calculated afterwards
+        List<Callable<Object>> weightTasks = new ArrayList<>();
         int nodes = 0;
         for (IntArrayList subnetworkIds : graphComponents) {
             nodes += subnetworkIds.size();
@@ -292,7 +309,7 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
                         LOGGER.info("start node: " + nextStartNode + " (" + p + ") subnetwork size: " + subnetworkIds.size()
                                 + ", " + Helper.getMemInfo() + ((ruleLookup == null) ? "" : " area:" + ruleLookup.lookupRule(p).getId()));
 
-                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, blockedEdges))
+                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, blockedEdges, weightTasks))
                         break;
                 }
             }
@@ -300,6 +317,11 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
                 LOGGER.warn("next start node not found in big enough network of size " + subnetworkIds.size() + ", first element is " + subnetworkIds.get(0) + ", " + createPoint(graph, subnetworkIds.get(0)));
         }
 
+        sw = new StopWatch().start();
+        runWeightTasks(weightTasks);
+        if (logDetails)
+            LOGGER.info("Calculated weights of " + weightTasks.size() + " landmarks with " + landmarkThreads + " threads in " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
+
         int subnetworkCount = landmarkIDs.size();
         // store all landmark node IDs and one int for the factor itself.
         this.landmarkWeightDA.ensureCapacity(maxBytes /* landmark weights */ + subnetworkCount * landmarks /* landmark mapping per subnetwork */);
@@ -336,7 +358,8 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
      *
      * @return landmark mapping
      */
-    private boolean createLandmarksForSubnetwork(final int startNode, final byte[] subnetworks, IntHashSet blockedEdges) {
+    private boolean createLandmarksForSubnetwork(final int startNode, final byte[] subnetworks, final IntHashSet blockedEdges,
+                                                 List<Callable<Object>> weightTasks) {
         final int subnetworkId = landmarkIDs.size();
         int[] tmpLandmarkNodeIds = new int[landmarks];
         int logOffset = Math.max(1, tmpLandmarkNodeIds.length / 2);
@@ -405,37 +428,37 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted");
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, false, true);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
-
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, true, false);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        // set subnetwork id to all explored nodes, but do this only for the first landmark
+        int lmNodeId = tmpLandmarkNodeIds[0];
+        LandmarkExplorer explorer = calcLandmarkWeights(0, lmNodeId, blockedEdges, true);
+        if (explorer.setSubnetworks(subnetworks, subnetworkId))
+            return false;
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
+        explorer = calcLandmarkWeights(0, lmNodeId, blockedEdges, false);
+        if (explorer.setSubnetworks(subnetworks, subnetworkId))
+            return false;
 
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+        for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+            final int tmpLMIdx = lmIdx;
+            final int tmpLMNodeId = tmpLandmarkNodeIds[lmIdx];
+            final boolean log = logDetails && lmIdx % logOffset == 0;
+            final int landmarkCount = tmpLandmarkNodeIds.length;
+            weightTasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new RuntimeException("Thread was interrupted");
+                    }
+                    // the 'from' and 'to' weights of one landmark are stored in the same four bytes of a row, so they
+                    // have to be written from the same thread
+                    calcLandmarkWeights(tmpLMIdx, tmpLMNodeId, blockedEdges, true);
+                    calcLandmarkWeights(tmpLMIdx, tmpLMNodeId, blockedEdges, false);
+                    if (log)
+                        LOGGER.info("Set landmarks weights [" + weighting + "] for landmark " + tmpLMIdx + " of " + landmarkCount
+                                + " in subnetwork " + subnetworkId);
+                    return null;
+                }
+            });
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -443,6 +466,50 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         return true;
     }
 
+    private LandmarkExplorer calcLandmarkWeights(int lmIdx, int lmNodeId, IntHashSet blockedEdges, boolean from) {
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, from);
+        explorer.setStartNode(lmNodeId);
+        explorer.setFilter(blockedEdges, !from, from);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, from ? FROM_OFFSET : TO_OFFSET);
+        return explorer;
+    }
+
+    /**
+     * Runs the given weight calculations. Every task writes a different column of the landmark rows, so with more
+     * than one landmark thread the tasks run concurrently.
+     */
+    private void runWeightTasks(List<Callable<Object>> weightTasks) {
+        if (landmarkThreads <= 1 || weightTasks.size() <= 1) {
+            for (Callable<Object> task : weightTasks) {
+                try {
+                    task.call();
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(landmarkThreads, weightTasks.size()));
+        try {
+            for (Future<Object> future : executor.invokeAll(weightTasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -137,18 +137,45 @@ public class QueryGraph implements Graph {
      * @return boolean indicating if enforcement took place
      */
     public boolean enforceHeading(int nodeId, double favoredHeading, boolean incoming) {
+        List<VirtualEdgeIteratorState> edges = findEdgesAgainstHeading(nodeId, favoredHeading, incoming);
+        for (VirtualEdgeIteratorState edge : edges) {
+            edge.setUnfavored(true);
+            unfavoredEdges.add(edge);
+        }
+        return !edges.isEmpty();
+    }
+
+    /**
+     * Same as {@link #enforceHeading(int, double, boolean)} but does not change the status of the edges of this
+     * QueryGraph. Instead it returns unfavored copies of the affected edges, which can be used to enforce the heading
+     * for a single route calculation via {@link com.graphhopper.routing.weighting.UnfavoredEdgesWeighting} while other
+     * calculations use this QueryGraph concurrently.
+     */
+    public List<EdgeIteratorState> createUnfavoredEdgesAgainstHeading(int nodeId, double favoredHeading, boolean incoming) {
+        List<EdgeIteratorState> result = new ArrayList<>();
+        for (VirtualEdgeIteratorState edge : findEdgesAgainstHeading(nodeId, favoredHeading, incoming)) {
+            result.add(edge.copyUnfavored());
+        }
+        return result;
+    }
+
+    /**
+     * @return the virtual edges at the virtual node nodeId that require at least a turn of 100° from favoredHeading,
+     * including their reverse edges
+     */
+    private List<VirtualEdgeIteratorState> findEdgesAgainstHeading(int nodeId, double favoredHeading, boolean incoming) {
         if (Double.isNaN(favoredHeading))
-            return false;
+            return Collections.emptyList();
 
         if (!isVirtualNode(nodeId))
-            return false;
+            return Collections.emptyList();
 
+        List<VirtualEdgeIteratorState> result = new ArrayList<>(4);
         int virtNodeIDintern = nodeId - mainNodes;
         favoredHeading = AC.convertAzimuth2xaxisAngle(favoredHeading);
 
         // either penalize incoming or outgoing edges
         int[] edgePositions = incoming ? new int[]{VE_BASE, VE_ADJ_REV} : new int[]{VE_BASE_REV, VE_ADJ};
-        boolean enforcementOccurred = false;
         for (int edgePos : edgePositions) {
             VirtualEdgeIteratorState edge = getVirtualEdge(virtNodeIDintern * 4 + edgePos);
 
@@ -168,17 +195,13 @@ public class QueryGraph implements Graph {
 
             if (Math.abs(delta) > 1.74) // penalize if a turn of more than 100°
             {
-                edge.setUnfavored(true);
-                unfavoredEdges.add(edge);
+                result.add(edge);
                 //also apply to opposite edge for reverse routing
-                VirtualEdgeIteratorState reverseEdge = getVirtualEdge(virtNodeIDintern * 4 + getPosOfReverseEdge(edgePos));
-                reverseEdge.setUnfavored(true);
-                unfavoredEdges.add(reverseEdge);
-                enforcementOccurred = true;
+                result.add(getVirtualEdge(virtNodeIDintern * 4 + getPosOfReverseEdge(edgePos)));
             }
 
         }
-        return enforcementOccurred;
+        return result;
     }
 
     /**
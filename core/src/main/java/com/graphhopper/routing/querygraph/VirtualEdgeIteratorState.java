@@ -249,6 +249,17 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState, CHEdgeIterat
         this.unfavored = unfavored;
     }
 
+    /**
+     * @return a copy of this edge with the unfavored status, the original edge is not changed
+     */
+    VirtualEdgeIteratorState copyUnfavored() {
+        VirtualEdgeIteratorState copy = new VirtualEdgeIteratorState(originalEdgeKey, edgeId, baseNode, adjNode,
+                distance, edgeFlags, name, pointList, reverse);
+        copy.reverseEdge = reverseEdge;
+        copy.unfavored = true;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return baseNode + "->" + adjNode;
@@ -29,9 +29,11 @@ import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.NameSimilarityEdgeFilter;
 import com.graphhopper.routing.util.SnapPreventionEdgeFilter;
+import com.graphhopper.routing.weighting.UnfavoredEdgesWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.Routing;
@@ -41,6 +43,10 @@ import com.graphhopper.util.shapes.GHPoint;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -53,6 +59,8 @@ import static com.graphhopper.util.Parameters.Routing.CURBSIDE;
  * @author Peter Karich
  */
 public class ViaRoutingTemplate extends AbstractRoutingTemplate implements RoutingTemplate {
+    // the batch lookup only pays off if several points share the tiles of the index, for a few points it is slower
+    private static final int MIN_BATCH_LOOKUP_POINTS = 10;
     protected final GHRequest ghRequest;
     protected final GHResponse ghResponse;
     // result from route
@@ -60,6 +68,7 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
     protected final PathWrapper altResponse = new PathWrapper();
     private final EnumEncodedValue<RoadClass> roadClassEnc;
     private final EnumEncodedValue<RoadEnvironment> roadEnvEnc;
+    private ExecutorService legExecutor;
 
     public ViaRoutingTemplate(GHRequest ghRequest, GHResponse ghRsp, LocationIndex locationIndex,
                               EncodedValueLookup lookup, final Weighting weighting) {
@@ -70,6 +79,16 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         this.roadEnvEnc = lookup.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
     }
 
+    /**
+     * Calculates the legs between the via points concurrently with the specified executor. The heading is then enforced
+     * per leg via an {@link UnfavoredEdgesWeighting} instead of changing the shared QueryGraph. Requests with
+     * pass_through still calculate one leg after another as every leg depends on the previous one.
+     */
+    public ViaRoutingTemplate setLegExecutor(ExecutorService legExecutor) {
+        this.legExecutor = legExecutor;
+        return this;
+    }
+
     @Override
     public List<QueryResult> lookup(List<GHPoint> points) {
         if (points.size() < 2)
@@ -79,15 +98,25 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
                 ? edgeFilter
                 : new SnapPreventionEdgeFilter(edgeFilter, roadClassEnc, roadEnvEnc, ghRequest.getSnapPreventions());
         queryResults = new ArrayList<>(points.size());
+        List<QueryResult> batchResults = null;
+        if (points.size() >= MIN_BATCH_LOOKUP_POINTS && !ghRequest.hasPointHints() && !ghRequest.hasSnapPreventions()
+                && locationIndex instanceof LocationIndexTree) {
+            double[] lats = new double[points.size()], lons = new double[points.size()];
+            for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
+                lats[placeIndex] = points.get(placeIndex).lat;
+                lons[placeIndex] = points.get(placeIndex).lon;
+            }
+            batchResults = ((LocationIndexTree) locationIndex).findClosest(lats, lons, edgeFilter);
+        }
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
             GHPoint point = points.get(placeIndex);
-            QueryResult qr = null;
+            QueryResult qr = batchResults == null ? null : batchResults.get(placeIndex);
             if (ghRequest.hasPointHints())
                 qr = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
                         ghRequest.getPointHints().get(placeIndex), point, 100));
             else if (ghRequest.hasSnapPreventions())
                 qr = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
-            if (qr == null || !qr.isValid())
+            if (batchResults == null && (qr == null || !qr.isValid()))
                 qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
             if (!qr.isValid())
                 ghResponse.addError(new PointNotFoundException("Cannot find point " + placeIndex + ": " + point, placeIndex));
@@ -115,94 +144,38 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         }
 
         final boolean forceCurbsides = ghRequest.getHints().getBool(Routing.FORCE_CURBSIDE, true);
-        QueryResult fromQResult = queryResults.get(0);
-        StopWatch sw;
-        for (int placeIndex = 1; placeIndex < pointsCount; placeIndex++) {
-            if (placeIndex == 1) {
-                // enforce start direction
-                queryGraph.enforceHeading(fromQResult.getClosestNode(), ghRequest.getFavoredHeading(0), false);
-            } else if (viaTurnPenalty) {
-                // enforce straight start after via stop
-                Path prevRoute = pathList.get(placeIndex - 2);
-                if (prevRoute.getEdgeCount() > 0) {
-                    EdgeIteratorState incomingVirtualEdge = prevRoute.getFinalEdge();
-                    queryGraph.unfavorVirtualEdgePair(fromQResult.getClosestNode(), incomingVirtualEdge.getEdge());
-                }
+        if (legExecutor != null && pointsCount > 2 && !viaTurnPenalty) {
+            for (Future<LegPaths> future : calcLegsConcurrently(queryGraph, algoFactory, algoOpts, directions, forceCurbsides)) {
+                visitedNodesSum = addLeg(getLeg(future), algoOpts, visitedNodesSum);
             }
-
-            QueryResult toQResult = queryResults.get(placeIndex);
-
-            // enforce end direction
-            queryGraph.enforceHeading(toQResult.getClosestNode(), ghRequest.getFavoredHeading(placeIndex), true);
-
-            sw = new StopWatch().start();
-            RoutingAlgorithm algo = algoFactory.createAlgo(queryGraph, algoOpts);
-            String debug = ", algoInit:" + sw.stop().getSeconds() + "s";
-
-            sw = new StopWatch().start();
-
-            // calculate paths
-            List<Path> tmpPathList;
-            if (!directions.isEmpty()) {
-                if (ghRequest.getCurbsides().size() != ghRequest.getPoints().size())
-                    throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
-
-                if (!(algo instanceof BidirRoutingAlgorithm))
-                    throw new IllegalArgumentException("To make use of the " + Routing.CURBSIDE + " parameter you need a bidirectional algorithm, got: " + algo.getName());
-
-                final String fromCurbside = ghRequest.getCurbsides().get(placeIndex - 1);
-                final String toCurbside = ghRequest.getCurbsides().get(placeIndex);
-                int sourceOutEdge = DirectionResolverResult.getOutEdge(directions.get(placeIndex - 1), fromCurbside);
-                int targetInEdge = DirectionResolverResult.getInEdge(directions.get(placeIndex), toCurbside);
-                sourceOutEdge = ignoreThrowOrAcceptImpossibleCurbsides(sourceOutEdge, placeIndex - 1, forceCurbsides);
-                targetInEdge = ignoreThrowOrAcceptImpossibleCurbsides(targetInEdge, placeIndex, forceCurbsides);
-
-                if (fromQResult.getClosestNode() == toQResult.getClosestNode()) {
-                    // special case where we go from one point back to itself. for example going from a point A
-                    // with curbside right to the same point with curbside right is interpreted as 'being there
-                    // already' -> empty path. Similarly if the curbside for the start/target is not even specified
-                    // there is no need to drive a loop. However, going from point A/right to point A/left (or the
-                    // other way around) means we need to drive some kind of loop to get back to the same location
-                    // (arriving on the other side of the road).
-                    if (Helper.isEmpty(fromCurbside) || Helper.isEmpty(toCurbside) || fromCurbside.equals(CURBSIDE_ANY) ||
-                            toCurbside.equals(CURBSIDE_ANY) || fromCurbside.equals(toCurbside)) {
-                        // we just disable start/target edge constraints to get an empty path
-                        sourceOutEdge = ANY_EDGE;
-                        targetInEdge = ANY_EDGE;
+        } else {
+            QueryResult fromQResult = queryResults.get(0);
+            for (int placeIndex = 1; placeIndex < pointsCount; placeIndex++) {
+                if (placeIndex == 1) {
+                    // enforce start direction
+                    queryGraph.enforceHeading(fromQResult.getClosestNode(), ghRequest.getFavoredHeading(0), false);
+                } else if (viaTurnPenalty) {
+                    // enforce straight start after via stop
+                    Path prevRoute = pathList.get(placeIndex - 2);
+                    if (prevRoute.getEdgeCount() > 0) {
+                        EdgeIteratorState incomingVirtualEdge = prevRoute.getFinalEdge();
+                        queryGraph.unfavorVirtualEdgePair(fromQResult.getClosestNode(), incomingVirtualEdge.getEdge());
                     }
                 }
-                // todo: enable curbside feature for alternative routes as well ?
-                tmpPathList = Collections.singletonList(((BidirRoutingAlgorithm) algo)
-                        .calcPath(fromQResult.getClosestNode(), toQResult.getClosestNode(), sourceOutEdge, targetInEdge));
 
-            } else {
-                tmpPathList = algo.calcPaths(fromQResult.getClosestNode(), toQResult.getClosestNode());
-            }
-            debug += ", " + algo.getName() + "-routing:" + sw.stop().getSeconds() + "s";
-            if (tmpPathList.isEmpty())
-                throw new IllegalStateException("At least one path has to be returned for " + fromQResult + " -> " + toQResult);
-
-            int idx = 0;
-            for (Path path : tmpPathList) {
-                if (path.getTime() < 0)
-                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + idx + ". Please report as bug and include:" + ghRequest);
-
-                pathList.add(path);
-                debug += ", " + path.getDebugInfo();
-                idx++;
-            }
+                QueryResult toQResult = queryResults.get(placeIndex);
 
-            altResponse.addDebugInfo(debug);
+                // enforce end direction
+                queryGraph.enforceHeading(toQResult.getClosestNode(), ghRequest.getFavoredHeading(placeIndex), true);
 
-            // reset all direction enforcements in queryGraph to avoid influencing next path
-            queryGraph.clearUnfavoredStatus();
+                LegPaths leg = calcLeg(queryGraph, algoFactory, algoOpts, placeIndex, directions, forceCurbsides);
 
-            if (algo.getVisitedNodes() >= algoOpts.getMaxVisitedNodes())
-                throw new IllegalArgumentException("No path found due to maximum nodes exceeded " + algoOpts.getMaxVisitedNodes());
+                // reset all direction enforcements in queryGraph to avoid influencing next path
+                queryGraph.clearUnfavoredStatus();
 
-            visitedNodesSum += algo.getVisitedNodes();
-            altResponse.addDebugInfo("visited nodes sum: " + visitedNodesSum);
-            fromQResult = toQResult;
+                visitedNodesSum = addLeg(leg, algoOpts, visitedNodesSum);
+                fromQResult = toQResult;
+            }
         }
 
         ghResponse.getHints().put("visited_nodes.sum", visitedNodesSum);
@@ -211,6 +184,134 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         return pathList;
     }
 
+    private List<Future<LegPaths>> calcLegsConcurrently(final QueryGraph queryGraph, final RoutingAlgorithmFactory algoFactory,
+                                                        AlgorithmOptions algoOpts, final List<DirectionResolverResult> directions,
+                                                        final boolean forceCurbsides) {
+        List<Callable<LegPaths>> tasks = new ArrayList<>(queryResults.size() - 1);
+        for (int placeIndex = 1; placeIndex < queryResults.size(); placeIndex++) {
+            final int legIndex = placeIndex;
+            final AlgorithmOptions legOpts = createLegOptions(queryGraph, algoOpts, placeIndex);
+            tasks.add(new Callable<LegPaths>() {
+                @Override
+                public LegPaths call() {
+                    return calcLeg(queryGraph, algoFactory, legOpts, legIndex, directions, forceCurbsides);
+                }
+            });
+        }
+
+        try {
+            return legExecutor.invokeAll(tasks);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        }
+    }
+
+    private static LegPaths getLeg(Future<LegPaths> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * Enforces the start and end direction of the specified leg without changing the shared QueryGraph
+     */
+    private AlgorithmOptions createLegOptions(QueryGraph queryGraph, AlgorithmOptions algoOpts, int placeIndex) {
+        List<EdgeIteratorState> unfavoredEdges = new ArrayList<>();
+        if (placeIndex == 1)
+            unfavoredEdges.addAll(queryGraph.createUnfavoredEdgesAgainstHeading(queryResults.get(0).getClosestNode(),
+                    ghRequest.getFavoredHeading(0), false));
+        unfavoredEdges.addAll(queryGraph.createUnfavoredEdgesAgainstHeading(queryResults.get(placeIndex).getClosestNode(),
+                ghRequest.getFavoredHeading(placeIndex), true));
+        if (unfavoredEdges.isEmpty())
+            return algoOpts;
+
+        return AlgorithmOptions.start(algoOpts).weighting(new UnfavoredEdgesWeighting(algoOpts.getWeighting(), unfavoredEdges)).build();
+    }
+
+    private LegPaths calcLeg(QueryGraph queryGraph, RoutingAlgorithmFactory algoFactory, AlgorithmOptions algoOpts,
+                             int placeIndex, List<DirectionResolverResult> directions, boolean forceCurbsides) {
+        QueryResult fromQResult = queryResults.get(placeIndex - 1);
+        QueryResult toQResult = queryResults.get(placeIndex);
+        StopWatch sw = new StopWatch().start();
+        RoutingAlgorithm algo = algoFactory.createAlgo(queryGraph, algoOpts);
+        String debug = ", algoInit:" + sw.stop().getSeconds() + "s";
+
+        sw = new StopWatch().start();
+
+        // calculate paths
+        List<Path> tmpPathList;
+        if (!directions.isEmpty()) {
+            if (ghRequest.getCurbsides().size() != ghRequest.getPoints().size())
+                throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
+
+            if (!(algo instanceof BidirRoutingAlgorithm))
+                throw new IllegalArgumentException("To make use of the " + Routing.CURBSIDE + " parameter you need a bidirectional algorithm, got: " + algo.getName());
+
+            final String fromCurbside = ghRequest.getCurbsides().get(placeIndex - 1);
+            final String toCurbside = ghRequest.getCurbsides().get(placeIndex);
+            int sourceOutEdge = DirectionResolverResult.getOutEdge(directions.get(placeIndex - 1), fromCurbside);
+            int targetInEdge = DirectionResolverResult.getInEdge(directions.get(placeIndex), toCurbside);
+            sourceOutEdge = ignoreThrowOrAcceptImpossibleCurbsides(sourceOutEdge, placeIndex - 1, forceCurbsides);
+            targetInEdge = ignoreThrowOrAcceptImpossibleCurbsides(targetInEdge, placeIndex, forceCurbsides);
+
+            if (fromQResult.getClosestNode() == toQResult.getClosestNode()) {
+                // special case where we go from one point back to itself. for example going from a point A
+                // with curbside right to the same point with curbside right is interpreted as 'being there
+                // already' -> empty path. Similarly if the curbside for the start/target is not even specified
+                // there is no need to drive a loop. However, going from point A/right to point A/left (or the
+                // other way around) means we need to drive some kind of loop to get back to the same location
+                // (arriving on the other side of the road).
+                if (Helper.isEmpty(fromCurbside) || Helper.isEmpty(toCurbside) || fromCurbside.equals(CURBSIDE_ANY) ||
+                        toCurbside.equals(CURBSIDE_ANY) || fromCurbside.equals(toCurbside)) {
+                    // we just disable start/target edge constraints to get an empty path
+                    sourceOutEdge = ANY_EDGE;
+                    targetInEdge = ANY_EDGE;
+                }
+            }
+            // todo: enable curbside feature for alternative routes as well ?
+            tmpPathList = Collections.singletonList(((BidirRoutingAlgorithm) algo)
+                    .calcPath(fromQResult.getClosestNode(), toQResult.getClosestNode(), sourceOutEdge, targetInEdge));
+
+        } else {
+            tmpPathList = algo.calcPaths(fromQResult.getClosestNode(), toQResult.getClosestNode());
+        }
+        debug += ", " + algo.getName() + "-routing:" + sw.stop().getSeconds() + "s";
+        if (tmpPathList.isEmpty())
+            throw new IllegalStateException("At least one path has to be returned for " + fromQResult + " -> " + toQResult);
+
+        return new LegPaths(tmpPathList, debug, algo.getVisitedNodes());
+    }
+
+    private long addLeg(LegPaths leg, AlgorithmOptions algoOpts, long visitedNodesSum) {
+        String debug = leg.debug;
+        int idx = 0;
+        for (Path path : leg.paths) {
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for index " + idx + ". Please report as bug and include:" + ghRequest);
+
+            pathList.add(path);
+            debug += ", " + path.getDebugInfo();
+            idx++;
+        }
+
+        altResponse.addDebugInfo(debug);
+
+        if (leg.visitedNodes >= algoOpts.getMaxVisitedNodes())
+            throw new IllegalArgumentException("No path found due to maximum nodes exceeded " + algoOpts.getMaxVisitedNodes());
+
+        visitedNodesSum += leg.visitedNodes;
+        altResponse.addDebugInfo("visited nodes sum: " + visitedNodesSum);
+        return visitedNodesSum;
+    }
+
     private int ignoreThrowOrAcceptImpossibleCurbsides(int edge, int placeIndex, boolean forceCurbsides) {
         if (edge != NO_EDGE) {
             return edge;
@@ -236,4 +337,16 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
         pathMerger.doWork(altResponse, pathList, lookup, tr);
     }
 
+    private static class LegPaths {
+        final List<Path> paths;
+        final String debug;
+        final int visitedNodes;
+
+        LegPaths(List<Path> paths, String debug, int visitedNodes) {
+            this.paths = paths;
+            this.debug = debug;
+            this.visitedNodes = visitedNodes;
+        }
+    }
+
 }
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.graphhopper.routing.profiles.BooleanEncodedValue;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.util.CHEdgeIteratorState;
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * Accepts the edges a CH query expands in the forward (or backward) search: edges leading to nodes with an equal or
+ * higher level that are accessible in the search direction. Virtual edges are always accepted, see #288.
+ */
+public class UpwardEdgeFilter implements EdgeFilter {
+    private final CHGraph graph;
+    private final int maxNodes;
+    private final BooleanEncodedValue accessEnc;
+    private final boolean reverse;
+
+    public UpwardEdgeFilter(CHGraph g, boolean reverse) {
+        graph = g;
+        maxNodes = g.getNodes();
+        accessEnc = g.getCHProfile().getWeighting().getFlagEncoder().getAccessEnc();
+        this.reverse = reverse;
+    }
+
+    public CHGraph getGraph() {
+        return graph;
+    }
+
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    @Override
+    public boolean accept(EdgeIteratorState edgeIterState) {
+        int base = edgeIterState.getBaseNode();
+        int adj = edgeIterState.getAdjNode();
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+
+        // a QueryGraph detaches the original edges at real nodes next to virtual nodes from the base graph, so they
+        // are not necessarily CH edge states
+        if (edgeIterState instanceof CHEdgeIteratorState && ((CHEdgeIteratorState) edgeIterState).isShortcut()) {
+            CHEdgeIteratorState chEdge = (CHEdgeIteratorState) edgeIterState;
+            // shortcuts in wrong direction are disconnected, so only the access needs to be checked
+            if (base == adj)
+                return chEdge.getFwdAccess() || chEdge.getBwdAccess();
+            return reverse ? chEdge.getBwdAccess() : chEdge.getFwdAccess();
+        }
+
+        if (graph.getLevel(base) > graph.getLevel(adj))
+            return false;
+        // c.f. comment in DefaultEdgeFilter
+        if (base == adj)
+            return edgeIterState.get(accessEnc) || edgeIterState.getReverse(accessEnc);
+        return reverse ? edgeIterState.getReverse(accessEnc) : edgeIterState.get(accessEnc);
+    }
+
+    @Override
+    public String toString() {
+        return "upward, reverse:" + reverse;
+    }
+}
@@ -41,6 +41,8 @@ public class FastestWeighting extends AbstractWeighting {
      * costs or traffic light costs etc)
      */
     protected final static double SPEED_CONV = 3.6;
+    public static final String DESTINATION_FACTOR = "road_access_destination_factor";
+    public static final String PRIVATE_FACTOR = "road_access_private_factor";
     private final double headingPenalty;
     private final long headingPenaltyMillis;
     private final double maxSpeed;
@@ -71,9 +73,9 @@ public class FastestWeighting extends AbstractWeighting {
 
         // ensure that we do not need to change getMinWeight, i.e. road_access_factor >= 1
         double defaultDestinationFactor = encoder.getTransportationMode() == TransportationMode.MOTOR_VEHICLE ? 10 : 1;
-        destinationPenalty = checkBounds("road_access_destination_factor", map.getDouble("road_access_destination_factor", defaultDestinationFactor), 1, 10);
+        destinationPenalty = checkBounds(DESTINATION_FACTOR, map.getDouble(DESTINATION_FACTOR, defaultDestinationFactor), 1, 10);
         double defaultPrivateFactor = encoder.getTransportationMode() == TransportationMode.MOTOR_VEHICLE ? 10 : 1.2;
-        privatePenalty = checkBounds("road_access_private_factor", map.getDouble("road_access_private_factor", defaultPrivateFactor), 1, 10);
+        privatePenalty = checkBounds(PRIVATE_FACTOR, map.getDouble(PRIVATE_FACTOR, defaultPrivateFactor), 1, 10);
         roadAccessEnc = destinationPenalty > 1 || privatePenalty > 1 ? encoder.getEnumEncodedValue(RoadAccess.KEY, RoadAccess.class) : null;
     }
 
@@ -32,8 +32,8 @@ import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PR
 public class ShortFastestWeighting extends FastestWeighting {
     // For now keep parameters local within class
     private static final String NAME = "short_fastest";
-    private static final String TIME_FACTOR = "short_fastest.time_factor";
-    private static final String DISTANCE_FACTOR = "short_fastest.distance_factor";
+    public static final String TIME_FACTOR = "short_fastest.time_factor";
+    public static final String DISTANCE_FACTOR = "short_fastest.distance_factor";
     private final double distanceFactor;
     private final double timeFactor;
 
@@ -0,0 +1,69 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+import java.util.Collection;
+
+/**
+ * Applies the 'unfavored' status of the specified edges for the route calculations using this weighting only, see
+ * {@link com.graphhopper.routing.querygraph.QueryGraph#createUnfavoredEdgesAgainstHeading}. Other calculations on the
+ * same QueryGraph are not influenced, e.g. when the legs of a route are calculated concurrently.
+ */
+public class UnfavoredEdgesWeighting extends AbstractAdjustedWeighting {
+    // maps the edge key to the unfavored copy of the edge
+    private final IntObjectMap<EdgeIteratorState> unfavoredEdges;
+
+    public UnfavoredEdgesWeighting(Weighting superWeighting, Collection<EdgeIteratorState> unfavoredEdges) {
+        super(superWeighting);
+        this.unfavoredEdges = new GHIntObjectHashMap<>(unfavoredEdges.size());
+        for (EdgeIteratorState edge : unfavoredEdges) {
+            if (!edge.get(EdgeIteratorState.UNFAVORED_EDGE))
+                throw new IllegalArgumentException("Edge " + edge + " is not unfavored");
+            this.unfavoredEdges.put(createEdgeKey(edge), edge);
+        }
+    }
+
+    @Override
+    public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        return superWeighting.calcEdgeWeight(getEdge(edgeState), reverse);
+    }
+
+    @Override
+    public long calcEdgeMillis(EdgeIteratorState edgeState, boolean reverse) {
+        return superWeighting.calcEdgeMillis(getEdge(edgeState), reverse);
+    }
+
+    private EdgeIteratorState getEdge(EdgeIteratorState edgeState) {
+        EdgeIteratorState unfavoredEdge = unfavoredEdges.get(createEdgeKey(edgeState));
+        return unfavoredEdge == null ? edgeState : unfavoredEdge;
+    }
+
+    private static int createEdgeKey(EdgeIteratorState edge) {
+        return GHUtility.createEdgeKey(edge.getBaseNode(), edge.getAdjNode(), edge.getEdge(), false);
+    }
+
+    @Override
+    public String getName() {
+        return "unfavored_edges";
+    }
+}
@@ -43,6 +43,15 @@ public class StringIndex implements Storable<StringIndex> {
     // Note, that we detect duplicate values via smallCache and then use the negative key index as 'duplicate' marker.
     // We then store only the delta (signed int) instead the absolute unsigned long value to reduce memory usage when duplicate entries.
     private final DataAccess vals;
+    // With dictionary encoding every value is stored only once in dict and an entry references it via its offset:
+    // 1 byte    | 2 bytes  | 4 bytes     | 2 bytes  | 4 bytes     | ...
+    // vals count| key_idx_0| dict_ref_0  | key_idx_1| dict_ref_1  | ...
+    // where dict_ref 0 is the empty value and every dict entry is stored as 1 byte length followed by the bytes.
+    private final DataAccess dict;
+    private boolean dictionaryEncoding = false;
+    private long dictPointer = START_POINTER;
+    // only used while adding values, lazily filled from dict after loadExisting
+    private Map<String, Integer> dictRefs;
     // array.indexOf could be faster than hashmap.get if not too many keys or even sort keys and use binarySearch
     private final Map<String, Integer> keysInMem = new LinkedHashMap<>();
     private final List<String> keyList = new ArrayList<>();
@@ -50,6 +59,10 @@ public class StringIndex implements Storable<StringIndex> {
     private long bytePointer = START_POINTER;
     private long lastEntryPointer = -1;
     private Map<String, String> lastEntryMap;
+    // decoded values are shared between all threads, the same value pointer of the same DataAccess (vals or dict)
+    // always resolves to the same String
+    private static final int VALUE_CACHE_SIZE = 1 << 14;
+    private final CachedValue[] valueCache = new CachedValue[VALUE_CACHE_SIZE];
 
     public StringIndex(Directory dir) {
         this(dir, 1000);
@@ -62,6 +75,7 @@ public class StringIndex implements Storable<StringIndex> {
         keys = dir.find("string_index_keys");
         keys.setSegmentSize(10 * 1024);
         vals = dir.find("string_index_vals");
+        dict = dir.find("string_index_dict");
         smallCache = new LinkedHashMap<String, Long>(cacheSize, 0.75f, true) {
             @Override
             protected boolean removeEldestEntry(Map.Entry<String, Long> entry) {
@@ -70,10 +84,30 @@ public class StringIndex implements Storable<StringIndex> {
         };
     }
 
+    /**
+     * Stores every distinct value only once and references it from the entries, which makes the storage a lot smaller
+     * for typical street names. Call this before {@link #create(long)}, a loaded StringIndex uses the format it was
+     * created with.
+     */
+    public StringIndex setDictionaryEncoding(boolean dictionaryEncoding) {
+        if (bytePointer > START_POINTER)
+            throw new IllegalStateException("Cannot change the encoding after values were added");
+        this.dictionaryEncoding = dictionaryEncoding;
+        return this;
+    }
+
+    public boolean isDictionaryEncoding() {
+        return dictionaryEncoding;
+    }
+
     @Override
     public StringIndex create(long initBytes) {
         keys.create(initBytes);
         vals.create(initBytes);
+        if (dictionaryEncoding) {
+            dict.create(initBytes);
+            dictRefs = new HashMap<>();
+        }
         // add special empty case to have a reliable duplicate detection via negative keyIndex
         keysInMem.put("", 0);
         keyList.add("");
@@ -86,6 +120,15 @@ public class StringIndex implements Storable<StringIndex> {
             if (!keys.loadExisting())
                 throw new IllegalStateException("Loaded values but cannot load keys");
             bytePointer = BitUtil.LITTLE.combineIntsToLong(vals.getHeader(0), vals.getHeader(4));
+            int valueFormat = vals.getHeader(8);
+            if (valueFormat != 0 && valueFormat != 1)
+                throw new IllegalStateException("Unknown string index format " + valueFormat + ", the graph was created by another GraphHopper version");
+            dictionaryEncoding = valueFormat == 1;
+            if (dictionaryEncoding) {
+                if (!dict.loadExisting())
+                    throw new IllegalStateException("Loaded dictionary encoded values but cannot load the dictionary");
+                dictPointer = BitUtil.LITTLE.combineIntsToLong(dict.getHeader(0), dict.getHeader(4));
+            }
 
             // load keys into memory
             int count = keys.getShort(0);
@@ -145,7 +188,12 @@ public class StringIndex implements Storable<StringIndex> {
                 keyList.add(key);
             }
 
-            if (value == null || value.isEmpty()) {
+            if (dictionaryEncoding) {
+                vals.ensureCapacity(currentPointer + 2 + 4);
+                vals.setShort(currentPointer, keyIndex.shortValue());
+                vals.setInt(currentPointer + 2, getDictRef(key, value));
+                currentPointer += 2 + 4;
+            } else if (value == null || value.isEmpty()) {
                 vals.ensureCapacity(currentPointer + 3);
                 vals.setShort(currentPointer, keyIndex.shortValue());
                 // ensure that also in case of MMap value is set to 0
@@ -188,6 +236,42 @@ public class StringIndex implements Storable<StringIndex> {
         return lastEntryPointer;
     }
 
+    /**
+     * @return the offset of the specified value in the dictionary. The value is appended if it does not exist yet.
+     */
+    private int getDictRef(String key, String value) {
+        if (value == null || value.isEmpty())
+            return 0;
+
+        if (dictRefs == null)
+            dictRefs = loadDictRefs();
+        Integer ref = dictRefs.get(value);
+        if (ref != null)
+            return ref;
+
+        byte[] valueBytes = getBytesForString("Value for key" + key, value);
+        if (dictPointer + 1 + valueBytes.length > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many unique values are stored, currently limited to int pointer");
+
+        dict.ensureCapacity(dictPointer + 1 + valueBytes.length);
+        dict.setByte(dictPointer, (byte) valueBytes.length);
+        dict.setBytes(dictPointer + 1, valueBytes, valueBytes.length);
+        ref = (int) dictPointer;
+        dictPointer += 1 + valueBytes.length;
+        dictRefs.put(value, ref);
+        return ref;
+    }
+
+    private Map<String, Integer> loadDictRefs() {
+        Map<String, Integer> refs = new HashMap<>();
+        long pointer = START_POINTER;
+        while (pointer < dictPointer) {
+            refs.put(readValue(dict, pointer), (int) pointer);
+            pointer += 1 + (dict.getByte(pointer) & 0xFF);
+        }
+        return refs;
+    }
+
     public Map<String, String> getAll(final long entryPointer) {
         if (entryPointer < 0)
             throw new IllegalStateException("Pointer to access StringIndex cannot be negative:" + entryPointer);
@@ -205,7 +289,10 @@ public class StringIndex implements Storable<StringIndex> {
             int currentKeyIndex = vals.getShort(tmpPointer);
             tmpPointer += 2;
 
-            if (currentKeyIndex < 0) {
+            if (dictionaryEncoding) {
+                map.put(keyList.get(currentKeyIndex), readDictValue(vals.getInt(tmpPointer)));
+                tmpPointer += 4;
+            } else if (currentKeyIndex < 0) {
                 currentKeyIndex = -currentKeyIndex;
                 byte[] valueBytes = new byte[4];
                 vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
@@ -227,19 +314,34 @@ public class StringIndex implements Storable<StringIndex> {
     }
 
     private int putIntoMap(Map<String, String> map, long tmpPointer, int currentKeyIndex) {
-        int valueLength = vals.getByte(tmpPointer) & 0xFF;
-        tmpPointer++;
-        String valueStr;
-        if (valueLength == 0) {
-            valueStr = "";
-        } else {
-            byte[] valueBytes = new byte[valueLength];
-            vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
-            valueStr = new String(valueBytes, Helper.UTF_CS);
-        }
+        map.put(keyList.get(currentKeyIndex), readValue(vals, tmpPointer));
+        return vals.getByte(tmpPointer) & 0xFF;
+    }
 
-        map.put(keyList.get(currentKeyIndex), valueStr);
-        return valueLength;
+    private String readDictValue(int dictRef) {
+        return dictRef == 0 ? "" : readValue(dict, dictRef);
+    }
+
+    /**
+     * Reads the value stored as length byte followed by the bytes at the specified pointer. Values are never
+     * modified after they were added and so the decoded String can be shared via the valueCache. The cache entries
+     * remember their DataAccess as the same pointer can refer to different values in vals and dict.
+     */
+    private String readValue(DataAccess da, long valuePointer) {
+        int valueLength = da.getByte(valuePointer) & 0xFF;
+        if (valueLength == 0)
+            return "";
+
+        int cacheIndex = (int) (valuePointer ^ (valuePointer >>> 32)) & (VALUE_CACHE_SIZE - 1);
+        CachedValue cached = valueCache[cacheIndex];
+        if (cached != null && cached.pointer == valuePointer && cached.source == da)
+            return cached.value;
+
+        byte[] valueBytes = new byte[valueLength];
+        da.getBytes(valuePointer + 1, valueBytes, valueBytes.length);
+        String valueStr = new String(valueBytes, Helper.UTF_CS);
+        valueCache[cacheIndex] = new CachedValue(da, valuePointer, valueStr);
+        return valueStr;
     }
 
     public String get(final long entryPointer, String key) {
@@ -259,6 +361,14 @@ public class StringIndex implements Storable<StringIndex> {
             return null;
 
         long tmpPointer = entryPointer + 1;
+        if (dictionaryEncoding) {
+            for (int i = 0; i < keyCount; i++, tmpPointer += 2 + 4) {
+                if (vals.getShort(tmpPointer) == keyIndex)
+                    return readDictValue(vals.getInt(tmpPointer + 2));
+            }
+            return null;
+        }
+
         for (int i = 0; i < keyCount; i++) {
             int currentKeyIndex = vals.getShort(tmpPointer);
             tmpPointer += 2;
@@ -272,14 +382,7 @@ public class StringIndex implements Storable<StringIndex> {
                         throw new IllegalStateException("dup marker " + bytePointer + " should exist but points into not yet allocated area " + tmpPointer);
                 }
 
-                int valueLength = vals.getByte(tmpPointer) & 0xFF;
-                if (valueLength == 0)
-                    return "";
-
-                tmpPointer++;
-                byte[] valueBytes = new byte[valueLength];
-                vals.getBytes(tmpPointer, valueBytes, valueBytes.length);
-                return new String(valueBytes, Helper.UTF_CS);
+                return readValue(vals, tmpPointer);
             }
             int valueLength = vals.getByte(tmpPointer) & 0xFF;
             tmpPointer += 1 + valueLength;
@@ -319,13 +422,22 @@ public class StringIndex implements Storable<StringIndex> {
 
         vals.setHeader(0, BitUtil.LITTLE.getIntLow(bytePointer));
         vals.setHeader(4, BitUtil.LITTLE.getIntHigh(bytePointer));
+        vals.setHeader(8, dictionaryEncoding ? 1 : 0);
         vals.flush();
+
+        if (dictionaryEncoding) {
+            dict.setHeader(0, BitUtil.LITTLE.getIntLow(dictPointer));
+            dict.setHeader(4, BitUtil.LITTLE.getIntHigh(dictPointer));
+            dict.flush();
+        }
     }
 
     @Override
     public void close() {
         keys.close();
         vals.close();
+        if (dictionaryEncoding)
+            dict.close();
     }
 
     @Override
@@ -336,15 +448,33 @@ public class StringIndex implements Storable<StringIndex> {
     public void setSegmentSize(int segments) {
         keys.setSegmentSize(segments);
         vals.setSegmentSize(segments);
+        dict.setSegmentSize(segments);
     }
 
     @Override
     public long getCapacity() {
-        return vals.getCapacity() + keys.getCapacity();
+        return vals.getCapacity() + keys.getCapacity() + (dictionaryEncoding ? dict.getCapacity() : 0);
     }
 
     public void copyTo(StringIndex stringIndex) {
         keys.copyTo(stringIndex.keys);
         vals.copyTo(stringIndex.vals);
+        if (dictionaryEncoding) {
+            dict.copyTo(stringIndex.dict);
+            stringIndex.dictionaryEncoding = true;
+            stringIndex.dictPointer = dictPointer;
+        }
+    }
+
+    private static final class CachedValue {
+        final DataAccess source;
+        final long pointer;
+        final String value;
+
+        CachedValue(DataAccess source, long pointer, String value) {
+            this.source = source;
+            this.pointer = pointer;
+            this.value = value;
+        }
     }
 }
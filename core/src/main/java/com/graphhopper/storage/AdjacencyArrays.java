@@ -0,0 +1,102 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+/**
+ * A read-only compressed sparse row representation of the adjacency lists of a frozen {@link BaseGraph} or of the
+ * upward edges of a prepared {@link CHGraphImpl}. The edges of node n are stored contiguously in
+ * [getStart(n), getStart(n + 1)) and in the same order as the linked lists of the edges DataAccess return them.
+ * Iterating them avoids following the link pointers that are scattered over the edges DataAccess. An entry consists of
+ * the edge ID, or ~edgeId if the node is the adjacent node of the stored edge, and the adjacent node as seen from the
+ * node, so that iterating the edges of a node does not read the rows of the edges DataAccess at all. These are only
+ * read when a property of the edge like the flags or the distance is requested.
+ */
+final class AdjacencyArrays {
+    // every entry stores the edge ID and the adjacent node
+    private static final int ENTRY_BYTES = 8;
+    private final DataAccess offsets;
+    private final DataAccess entries;
+
+    private AdjacencyArrays(DataAccess offsets, DataAccess entries) {
+        this.offsets = offsets;
+        this.entries = entries;
+    }
+
+    static AdjacencyArrays build(BaseGraph baseGraph) {
+        BaseGraph.EdgeIterable iter = new BaseGraph.EdgeIterable(baseGraph, baseGraph.edgeAccess, EdgeFilter.ALL_EDGES);
+        return build(baseGraph.getNodes(), (long) baseGraph.getEdges() * 2, iter, iter);
+    }
+
+    /**
+     * @param explorer the edges it returns for a node are copied in the same order
+     * @param state    the iterator state behind the explorer, used to read the edge ID, its direction and the adjacent
+     *                 node after next
+     */
+    static AdjacencyArrays build(int nodes, long expectedEntries, EdgeExplorer explorer, BaseGraph.CommonEdgeIterator state) {
+        Directory dir = new GHDirectory("", DAType.RAM_INT);
+        DataAccess offsets = dir.find("adjacency_offsets").create((long) (nodes + 1) * 4);
+        DataAccess entries = dir.find("adjacency_entries").create(Math.max(ENTRY_BYTES, expectedEntries * ENTRY_BYTES));
+        offsets.ensureCapacity((long) (nodes + 1) * 4);
+
+        long index = 0;
+        for (int node = 0; node < nodes; node++) {
+            offsets.setInt((long) node * 4, (int) index);
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                entries.ensureCapacity((index + 1) * ENTRY_BYTES);
+                entries.setInt(index * ENTRY_BYTES, state.reverse ? ~state.edgeId : state.edgeId);
+                entries.setInt(index * ENTRY_BYTES + 4, state.adjNode);
+                index++;
+            }
+        }
+        offsets.setInt((long) nodes * 4, (int) index);
+        return new AdjacencyArrays(offsets, entries);
+    }
+
+    /**
+     * @return the index of the first entry of the specified node
+     */
+    long getStart(int node) {
+        // the number of entries can exceed Integer.MAX_VALUE
+        return offsets.getInt((long) node * 4) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return the edge ID or ~edgeId if the node of the entry is the adjacent node of the stored edge
+     */
+    int getEdgeEntry(long index) {
+        return entries.getInt(index * ENTRY_BYTES);
+    }
+
+    int getAdjNode(long index) {
+        return entries.getInt(index * ENTRY_BYTES + 4);
+    }
+
+    long getCapacity() {
+        return offsets.getCapacity() + entries.getCapacity();
+    }
+
+    void close() {
+        offsets.close();
+        entries.close();
+    }
+}
@@ -98,7 +98,10 @@ class BaseGraph implements Graph {
     private GHBitSet removedNodes;
     private int edgeEntryIndex, nodeEntryIndex;
     private long maxGeoRef;
+    private boolean compressedGeometry = false;
     private boolean frozen = false;
+    private boolean adjacencyArraysEnabled = false;
+    private AdjacencyArrays adjacencyArrays;
 
     public BaseGraph(Directory dir, final EncodingManager encodingManager, boolean withElevation,
                      InternalGraphEventListener listener, boolean withTurnCosts, int segmentSize) {
@@ -243,15 +246,34 @@ class BaseGraph implements Graph {
 
     protected int loadWayGeometryHeader() {
         maxGeoRef = bitUtil.combineIntsToLong(wayGeometry.getHeader(0), wayGeometry.getHeader(4));
+        int geometryFormat = wayGeometry.getHeader(2 * 4);
+        if (geometryFormat != 0 && geometryFormat != 1)
+            throw new IllegalStateException("Unknown geometry format " + geometryFormat + ", the graph was created by another GraphHopper version");
+        compressedGeometry = geometryFormat == 1;
         return 1;
     }
 
     protected int setWayGeometryHeader() {
         wayGeometry.setHeader(0, bitUtil.getIntLow(maxGeoRef));
         wayGeometry.setHeader(4, bitUtil.getIntHigh(maxGeoRef));
+        wayGeometry.setHeader(2 * 4, compressedGeometry ? 1 : 0);
         return 1;
     }
 
+    /**
+     * Stores the pillar nodes of new geometries delta and variable-length encoded instead of 4 bytes per value.
+     * Has to be called before create, a loaded graph uses the format it was created with.
+     */
+    void setCompressedGeometry(boolean compressedGeometry) {
+        if (maxGeoRef > 0)
+            throw new IllegalStateException("Cannot change the geometry format after the storage was created or loaded");
+        this.compressedGeometry = compressedGeometry;
+    }
+
+    boolean isCompressedGeometry() {
+        return compressedGeometry;
+    }
+
     void initStorage() {
         edgeEntryIndex = 0;
         nodeEntryIndex = 0;
@@ -379,6 +401,27 @@ class BaseGraph implements Graph {
 
         frozen = true;
         listener.freeze();
+        if (adjacencyArraysEnabled)
+            adjacencyArrays = AdjacencyArrays.build(this);
+    }
+
+    /**
+     * If enabled the edge explorers of the frozen graph iterate read-only adjacency arrays instead of the linked
+     * lists in the edges DataAccess. The arrays are built in memory when the graph is frozen or a frozen graph is
+     * loaded (or immediately if the graph is already frozen).
+     */
+    synchronized void setAdjacencyArrays(boolean enabled) {
+        this.adjacencyArraysEnabled = enabled;
+        if (enabled && isFrozen() && adjacencyArrays == null) {
+            adjacencyArrays = AdjacencyArrays.build(this);
+        } else if (!enabled && adjacencyArrays != null) {
+            adjacencyArrays.close();
+            adjacencyArrays = null;
+        }
+    }
+
+    boolean hasAdjacencyArrays() {
+        return adjacencyArrays != null;
     }
 
     synchronized boolean isFrozen() {
@@ -479,6 +522,10 @@ class BaseGraph implements Graph {
     }
 
     public void close() {
+        if (adjacencyArrays != null) {
+            adjacencyArrays.close();
+            adjacencyArrays = null;
+        }
         if (!wayGeometry.isClosed())
             wayGeometry.close();
         if (!stringIndex.isClosed())
@@ -492,7 +539,8 @@ class BaseGraph implements Graph {
 
     long getCapacity() {
         return edges.getCapacity() + nodes.getCapacity() + stringIndex.getCapacity()
-                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0);
+                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0)
+                + (adjacencyArrays != null ? adjacencyArrays.getCapacity() : 0);
     }
 
     long getMaxGeoRef() {
@@ -526,6 +574,8 @@ class BaseGraph implements Graph {
         loadNodesHeader();
         loadEdgesHeader();
         loadWayGeometryHeader();
+        if (adjacencyArraysEnabled && isFrozen())
+            adjacencyArrays = AdjacencyArrays.build(this);
     }
 
     /**
@@ -598,6 +648,8 @@ class BaseGraph implements Graph {
 
     @Override
     public EdgeExplorer createEdgeExplorer(EdgeFilter filter) {
+        if (adjacencyArrays != null)
+            return new AdjacencyEdgeIterable(this, adjacencyArrays, filter);
         return new EdgeIterable(this, edgeAccess, filter);
     }
 
@@ -713,7 +765,7 @@ class BaseGraph implements Graph {
             itemsToMove++;
         }
 
-        EdgeIterable adjNodesToDelIter = (EdgeIterable) createEdgeExplorer();
+        EdgeIterable adjNodesToDelIter = new EdgeIterable(this, edgeAccess, EdgeFilter.ALL_EDGES);
         // now similar process to disconnectEdges but only for specific nodes
         // all deleted nodes could be connected to existing. remove the connections
         for (int removeNode = toRemoveSet.next(0);
@@ -894,6 +946,11 @@ class BaseGraph implements Graph {
                 throw new IllegalArgumentException("Cannot use pointlist which is " + pillarNodes.getDimension()
                         + "D for graph which is " + nodeAccess.getDimension() + "D");
 
+            if (compressedGeometry) {
+                setCompressedWayGeometry(pillarNodes, edgePointer, reverse);
+                return;
+            }
+
             long existingGeoRef = Helper.toUnsignedLong(edges.getInt(edgePointer + E_GEO));
 
             int len = pillarNodes.getSize();
@@ -950,6 +1007,81 @@ class BaseGraph implements Graph {
         return bytes;
     }
 
+    /**
+     * The compressed format stores the number of points, the number of reserved bytes and the zig-zag encoded
+     * deltas of the integer coordinates as VLongs. The reserved bytes allow to overwrite the geometry in place if the
+     * new geometry is not longer.
+     */
+    private void setCompressedWayGeometry(PointList pillarNodes, long edgePointer, boolean reverse) {
+        VLongStorage storage = createCompressedWayGeometry(pillarNodes, reverse);
+        int byteLength = (int) storage.getPosition();
+        long geoRef = Helper.toUnsignedLong(edges.getInt(edgePointer + E_GEO));
+        int reservedBytes;
+        if (geoRef > 0 && wayGeometry.getInt(geoRef * 4L + 4) >= byteLength) {
+            reservedBytes = wayGeometry.getInt(geoRef * 4L + 4);
+        } else {
+            int reservedInts = (byteLength + 3) / 4;
+            reservedBytes = reservedInts * 4;
+            geoRef = nextGeoRef(reservedInts + 1);
+        }
+
+        long geoRefPosition = geoRef * 4;
+        ensureGeometry(geoRefPosition, reservedBytes + 8);
+        wayGeometry.setInt(geoRefPosition, pillarNodes.getSize());
+        wayGeometry.setInt(geoRefPosition + 4, reservedBytes);
+        wayGeometry.setBytes(geoRefPosition + 8, storage.getBytes(), byteLength);
+        edges.setInt(edgePointer + E_GEO, Helper.toSignedInt(geoRef));
+    }
+
+    private VLongStorage createCompressedWayGeometry(PointList pillarNodes, boolean reverse) {
+        int len = pillarNodes.getSize();
+        boolean is3D = nodeAccess.is3D();
+        VLongStorage storage = new VLongStorage(len * nodeAccess.getDimension() * 3);
+        long prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int j = 0; j < len; j++) {
+            int i = reverse ? len - 1 - j : j;
+            long lat = Helper.degreeToInt(pillarNodes.getLatitude(i));
+            long lon = Helper.degreeToInt(pillarNodes.getLongitude(i));
+            storage.writeVLong(zigZagEncode(lat - prevLat));
+            storage.writeVLong(zigZagEncode(lon - prevLon));
+            prevLat = lat;
+            prevLon = lon;
+            if (is3D) {
+                long ele = Helper.eleToInt(pillarNodes.getElevation(i));
+                storage.writeVLong(zigZagEncode(ele - prevEle));
+                prevEle = ele;
+            }
+        }
+        return storage;
+    }
+
+    /**
+     * Decodes count pillar nodes of the compressed format and appends them to the specified PointList
+     */
+    private void decodeCompressedWayGeometry(byte[] bytes, int count, PointList pillarNodes) {
+        VLongStorage storage = new VLongStorage(bytes);
+        boolean is3D = nodeAccess.is3D();
+        long lat = 0, lon = 0, ele = 0;
+        for (int i = 0; i < count; i++) {
+            lat += zigZagDecode(storage.readVLong());
+            lon += zigZagDecode(storage.readVLong());
+            if (is3D) {
+                ele += zigZagDecode(storage.readVLong());
+                pillarNodes.add(Helper.intToDegree((int) lat), Helper.intToDegree((int) lon), Helper.intToEle((int) ele));
+            } else {
+                pillarNodes.add(Helper.intToDegree((int) lat), Helper.intToDegree((int) lon));
+            }
+        }
+    }
+
+    private static long zigZagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
     private PointList fetchWayGeometry_(long edgePointer, boolean reverse, int mode, int baseNode, int adjNode) {
         if (mode == 4) {
             // no reverse handling required as adjNode and baseNode is already properly switched
@@ -966,7 +1098,12 @@ class BaseGraph implements Graph {
             count = wayGeometry.getInt(geoRef);
 
             geoRef += 4L;
-            bytes = new byte[count * nodeAccess.getDimension() * 4];
+            if (compressedGeometry) {
+                bytes = new byte[wayGeometry.getInt(geoRef)];
+                geoRef += 4L;
+            } else {
+                bytes = new byte[count * nodeAccess.getDimension() * 4];
+            }
             wayGeometry.getBytes(geoRef, bytes, bytes.length);
         } else if (mode == 0)
             return PointList.EMPTY;
@@ -978,17 +1115,21 @@ class BaseGraph implements Graph {
         } else if ((mode & 1) != 0)
             pillarNodes.add(nodeAccess, baseNode);
 
-        int index = 0;
-        for (int i = 0; i < count; i++) {
-            double lat = Helper.intToDegree(bitUtil.toInt(bytes, index));
-            index += 4;
-            double lon = Helper.intToDegree(bitUtil.toInt(bytes, index));
-            index += 4;
-            if (nodeAccess.is3D()) {
-                pillarNodes.add(lat, lon, Helper.intToEle(bitUtil.toInt(bytes, index)));
+        if (compressedGeometry) {
+            decodeCompressedWayGeometry(bytes, count, pillarNodes);
+        } else {
+            int index = 0;
+            for (int i = 0; i < count; i++) {
+                double lat = Helper.intToDegree(bitUtil.toInt(bytes, index));
                 index += 4;
-            } else {
-                pillarNodes.add(lat, lon);
+                double lon = Helper.intToDegree(bitUtil.toInt(bytes, index));
+                index += 4;
+                if (nodeAccess.is3D()) {
+                    pillarNodes.add(lat, lon, Helper.intToEle(bitUtil.toInt(bytes, index)));
+                    index += 4;
+                } else {
+                    pillarNodes.add(lat, lon);
+                }
             }
         }
 
@@ -1128,6 +1269,66 @@ class BaseGraph implements Graph {
         }
     }
 
+    /**
+     * Iterates the edges of a node via the {@link AdjacencyArrays} instead of following the linked list in the edges
+     * DataAccess. The order of the edges and the state of the iterator are the same as for EdgeIterable.
+     */
+    protected static class AdjacencyEdgeIterable extends CommonEdgeIterator implements EdgeExplorer, EdgeIterator {
+        final EdgeFilter filter;
+        private final AdjacencyArrays adjacencyArrays;
+        private long index;
+        private long endIndex;
+
+        AdjacencyEdgeIterable(BaseGraph baseGraph, AdjacencyArrays adjacencyArrays, EdgeFilter filter) {
+            super(-1, baseGraph.edgeAccess, baseGraph);
+
+            if (filter == null)
+                throw new IllegalArgumentException("Instead null filter use EdgeFilter.ALL_EDGES");
+            this.filter = filter;
+            this.adjacencyArrays = adjacencyArrays;
+        }
+
+        @Override
+        public EdgeIterator setBaseNode(int baseNode) {
+            this.baseNode = baseNode;
+            edgeId = EdgeIterator.NO_EDGE;
+            index = adjacencyArrays.getStart(baseNode);
+            endIndex = adjacencyArrays.getStart(baseNode + 1);
+            return this;
+        }
+
+        @Override
+        public final boolean next() {
+            while (index < endIndex) {
+                int entry = adjacencyArrays.getEdgeEntry(index);
+                adjNode = adjacencyArrays.getAdjNode(index);
+                index++;
+                reverse = entry < 0;
+                edgeId = reverse ? ~entry : entry;
+                // only calculates the pointer, the edge row is not read before a property is requested
+                edgePointer = edgeAccess.toPointer(edgeId);
+                freshFlags = false;
+                if (filter.accept(this))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public EdgeIteratorState detach(boolean reverseArg) {
+            if (!EdgeIterator.Edge.isValid(edgeId))
+                throw new IllegalStateException("call next before detaching (edgeId:" + edgeId + ")");
+
+            EdgeIteratorState iter = edgeAccess.getEdgeProps(edgeId, reverseArg ? baseNode : adjNode, filter);
+            assert iter != null;
+            if (reverseArg) {
+                // for #162
+                ((EdgeIterable) iter).reverse = !reverse;
+            }
+            return iter;
+        }
+    }
+
     /**
      * Include all edges of this storage in the iterator.
      */
@@ -25,6 +25,7 @@ import com.graphhopper.routing.profiles.EnumEncodedValue;
 import com.graphhopper.routing.profiles.IntEncodedValue;
 import com.graphhopper.routing.util.AllCHEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.UpwardEdgeFilter;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph.AllEdgeIterator;
 import com.graphhopper.storage.BaseGraph.EdgeIterable;
@@ -66,6 +67,8 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     private int S_SKIP_EDGE1, S_SKIP_EDGE2, S_ORIG_FIRST, S_ORIG_LAST;
     private int shortcutCount = 0;
     private boolean isReadyForContraction;
+    private AdjacencyArrays upwardOutArrays;
+    private AdjacencyArrays upwardInArrays;
 
     CHGraphImpl(CHProfile chProfile, Directory dir, final BaseGraph baseGraph, int segmentSize) {
         if (chProfile.getWeighting() == null)
@@ -168,9 +171,45 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
 
     @Override
     public CHEdgeExplorer createEdgeExplorer(EdgeFilter filter) {
+        if (filter instanceof UpwardEdgeFilter && ((UpwardEdgeFilter) filter).getGraph() == this) {
+            // the filter was already applied when the arrays were built
+            AdjacencyArrays arrays = ((UpwardEdgeFilter) filter).isReverse() ? upwardInArrays : upwardOutArrays;
+            if (arrays != null)
+                return new CHAdjacencyEdgeIteratorImpl(arrays, filter);
+        }
         return new CHEdgeIteratorImpl(baseGraph, chEdgeAccess, filter);
     }
 
+    /**
+     * Copies the edges accepted by the forward and the backward {@link UpwardEdgeFilter} into read-only adjacency
+     * arrays, so that the explorers created for these filters scan only the relevant edges and with sequential
+     * memory access. Must be called after the preparation finished as shortcuts added later are not visible.
+     */
+    synchronized void setUpwardAdjacencyArrays(boolean enabled) {
+        closeUpwardAdjacencyArrays();
+        if (!enabled)
+            return;
+
+        long expectedEntries = getEdges();
+        CHEdgeIteratorImpl outIter = new CHEdgeIteratorImpl(baseGraph, chEdgeAccess, new UpwardEdgeFilter(this, false));
+        upwardOutArrays = AdjacencyArrays.build(getNodes(), expectedEntries, outIter, outIter.edgeIterable);
+        CHEdgeIteratorImpl inIter = new CHEdgeIteratorImpl(baseGraph, chEdgeAccess, new UpwardEdgeFilter(this, true));
+        upwardInArrays = AdjacencyArrays.build(getNodes(), expectedEntries, inIter, inIter.edgeIterable);
+    }
+
+    boolean hasUpwardAdjacencyArrays() {
+        return upwardOutArrays != null;
+    }
+
+    private void closeUpwardAdjacencyArrays() {
+        if (upwardOutArrays != null) {
+            upwardOutArrays.close();
+            upwardInArrays.close();
+            upwardOutArrays = null;
+            upwardInArrays = null;
+        }
+    }
+
     @Override
     public EdgeExplorer createOriginalEdgeExplorer() {
         return createOriginalEdgeExplorer(EdgeFilter.ALL_EDGES);
@@ -369,6 +408,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
 
     @Override
     public void close() {
+        closeUpwardAdjacencyArrays();
         nodesCH.close();
         shortcuts.close();
     }
@@ -380,7 +420,8 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
 
     @Override
     public long getCapacity() {
-        return nodesCH.getCapacity() + shortcuts.getCapacity();
+        return nodesCH.getCapacity() + shortcuts.getCapacity()
+                + (upwardOutArrays != null ? upwardOutArrays.getCapacity() + upwardInArrays.getCapacity() : 0);
     }
 
     @Override
@@ -504,6 +545,58 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
 
     }
 
+    /**
+     * Iterates the upward edges of a node via the {@link AdjacencyArrays} instead of following the linked lists.
+     */
+    class CHAdjacencyEdgeIteratorImpl extends CommonCHEdgeIteratorState implements CHEdgeExplorer, CHEdgeIterator {
+        private final EdgeIterable edgeIterable;
+        private final AdjacencyArrays adjacencyArrays;
+        private long index;
+        private long endIndex;
+
+        CHAdjacencyEdgeIteratorImpl(AdjacencyArrays adjacencyArrays, EdgeFilter filter) {
+            super(new EdgeIterable(baseGraph, chEdgeAccess, filter));
+            this.edgeIterable = (EdgeIterable) super.edgeIterable;
+            this.adjacencyArrays = adjacencyArrays;
+        }
+
+        public final CHEdgeIterator setBaseNode(int baseNode) {
+            edgeIterable.setEdgeId(EdgeIterator.NO_EDGE);
+            edgeIterable._setBaseNode(baseNode);
+            index = adjacencyArrays.getStart(baseNode);
+            endIndex = adjacencyArrays.getStart(baseNode + 1);
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            if (index >= endIndex)
+                return false;
+
+            int entry = adjacencyArrays.getEdgeEntry(index);
+            edgeIterable.adjNode = adjacencyArrays.getAdjNode(index);
+            index++;
+            boolean reverse = entry < 0;
+            int edgeId = reverse ? ~entry : entry;
+            EdgeAccess edgeAccess = edgeId < baseGraph.edgeCount ? baseGraph.edgeAccess : chEdgeAccess;
+            edgeIterable.edgeAccess = edgeAccess;
+            edgeIterable.edgeId = edgeId;
+            edgeIterable.edgePointer = edgeAccess.toPointer(edgeId);
+            edgeIterable.reverse = reverse;
+            edgeIterable.freshFlags = false;
+            return true;
+        }
+
+        @Override
+        public EdgeIteratorState detach(boolean reverseArg) {
+            if (!EdgeIterator.Edge.isValid(edgeIterable.edgeId))
+                throw new IllegalStateException("call next before detaching (edgeId:" + edgeIterable.edgeId + ")");
+            EdgeIteratorState iter = edgeIterable.edgeAccess.getEdgeProps(edgeIterable.edgeId, reverseArg ? edgeIterable.baseNode : edgeIterable.adjNode, edgeIterable.filter);
+            assert iter != null;
+            return iter;
+        }
+    }
+
     class AllCHEdgesIteratorImpl extends CommonCHEdgeIteratorState implements AllCHEdgesIterator {
         private final AllEdgeIterator allEdgeIterator;
 
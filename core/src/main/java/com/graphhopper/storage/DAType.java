@@ -53,6 +53,14 @@ public class DAType {
      * embedded data stores.
      */
     public static final DAType MMAP_RO = new DAType(MemRef.MMAP, true, false, false);
+    /**
+     * The DA object is hold entirely in-memory but outside of the Java heap. See OffHeapDataAccess.
+     */
+    public static final DAType RAM_OFFHEAP = new DAType(MemRef.OFF_HEAP, false, false, true);
+    /**
+     * Like RAM_OFFHEAP but loads from and flushes to disc, the file format is the same as for RAM_STORE.
+     */
+    public static final DAType RAM_OFFHEAP_STORE = new DAType(MemRef.OFF_HEAP, true, false, true);
     private final MemRef memRef;
     private final boolean storing;
     private final boolean integ;
@@ -78,6 +86,8 @@ public class DAType {
             type = DAType.MMAP;
         else if (dataAccess.contains("UNSAFE"))
             throw new IllegalArgumentException("UNSAFE option is no longer supported, see #1620");
+        else if (dataAccess.contains("OFFHEAP"))
+            type = dataAccess.contains("STORE") ? DAType.RAM_OFFHEAP_STORE : DAType.RAM_OFFHEAP;
         else if (dataAccess.contains("RAM_STORE"))
             type = DAType.RAM_STORE;
         else
@@ -116,6 +126,13 @@ public class DAType {
         return memRef == MemRef.MMAP;
     }
 
+    /**
+     * @return true if data resides in memory but outside of the JVM heap.
+     */
+    public boolean isOffHeap() {
+        return memRef == MemRef.OFF_HEAP;
+    }
+
     /**
      * Temporary data or store (with loading and storing)? default is false
      */
@@ -135,6 +152,8 @@ public class DAType {
         String str;
         if (getMemRef() == MemRef.MMAP)
             str = "MMAP";
+        else if (getMemRef() == MemRef.OFF_HEAP)
+            str = "RAM_OFFHEAP";
         else
             str = "RAM";
 
@@ -171,6 +190,6 @@ public class DAType {
     }
 
     public enum MemRef {
-        HEAP, MMAP
+        HEAP, MMAP, OFF_HEAP
     }
 }
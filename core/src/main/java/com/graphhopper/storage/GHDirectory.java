@@ -17,11 +17,15 @@
  */
 package com.graphhopper.storage;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.File;
 import java.nio.ByteOrder;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.graphhopper.util.Helper.*;
 
@@ -31,6 +35,7 @@ import static com.graphhopper.util.Helper.*;
  * @author Peter Karich
  */
 public class GHDirectory implements Directory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GHDirectory.class);
     protected final String location;
     private final DAType defaultType;
     private final ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
@@ -98,6 +103,8 @@ public class GHDirectory implements Directory {
                 da = new RAMDataAccess(name, location, false, byteOrder);
         } else if (type.isMMap()) {
             da = new MMapDataAccess(name, location, byteOrder, type.isAllowWrites());
+        } else if (type.isOffHeap()) {
+            da = new OffHeapDataAccess(name, location, type.isStoring(), byteOrder);
         } else {
             throw new IllegalArgumentException("DAType not supported " + type);
         }
@@ -106,6 +113,80 @@ public class GHDirectory implements Directory {
         return da;
     }
 
+    /**
+     * Pulls memory mapped DataAccess objects into the page cache, see {@link MMapDataAccess#load(int)}. Every
+     * DataAccess name is matched against the regular expressions in the specified order and the percentage of the
+     * first match is loaded. Names without a match, e.g. a large geometry storage, stay lazy. Only objects that were
+     * already loaded via this directory are considered.
+     *
+     * @param preloads maps a regular expression for the DataAccess name to the percentage that should be loaded
+     * @param threads  the number of DataAccess objects that are loaded in parallel
+     */
+    public void loadMMap(LinkedHashMap<String, Integer> preloads, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads for loadMMap must be positive but was " + threads);
+        if (preloads.isEmpty())
+            return;
+
+        final Map<MMapDataAccess, Integer> toLoad = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>();
+        long requestedBytes = 0;
+        for (DataAccess da : map.values()) {
+            if (!(da instanceof MMapDataAccess))
+                continue;
+            for (Map.Entry<String, Integer> entry : preloads.entrySet()) {
+                if (da.getName().matches(entry.getKey())) {
+                    if (entry.getValue() > 0) {
+                        toLoad.put((MMapDataAccess) da, entry.getValue());
+                        names.add(da.getName());
+                        requestedBytes += da.getCapacity() * entry.getValue() / 100;
+                    }
+                    break;
+                }
+            }
+        }
+        if (toLoad.isEmpty())
+            return;
+
+        LOGGER.info("preloading " + toLoad.size() + " memory mapped DataAccess objects (~" + requestedBytes / MB
+                + "MB) with " + threads + " threads: " + names);
+        final long start = System.currentTimeMillis();
+        final int count = toLoad.size();
+        final AtomicInteger finished = new AtomicInteger();
+        final AtomicLong loadedBytes = new AtomicLong();
+        List<Callable<Object>> tasks = new ArrayList<>(count);
+        for (final Map.Entry<MMapDataAccess, Integer> entry : toLoad.entrySet()) {
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    long bytes = entry.getKey().load(entry.getValue());
+                    long total = loadedBytes.addAndGet(bytes);
+                    LOGGER.info("preloaded " + entry.getKey().getName() + " (" + entry.getValue() + "%, " + bytes / MB
+                            + "MB), " + finished.incrementAndGet() + "/" + count + " done, " + total / MB + "MB in total");
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, count));
+        try {
+            for (Future<Object> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        LOGGER.info("finished preloading " + loadedBytes.get() / MB + "MB in "
+                + (System.currentTimeMillis() - start) / 1000f + "s");
+    }
+
     @Override
     public void close() {
         for (DataAccess da : map.values()) {
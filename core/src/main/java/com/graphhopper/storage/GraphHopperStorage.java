@@ -138,6 +138,55 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         throw new IllegalStateException("Cannot find CHGraph for the specified profile: " + profileName + ", existing:" + existing);
     }
 
+    /**
+     * Stores the way geometry delta and variable-length encoded, which makes the geometry file a lot smaller. Call
+     * this before {@link #create(long)}, a loaded storage uses the format it was created with.
+     */
+    public GraphHopperStorage setCompressedGeometry(boolean compressedGeometry) {
+        baseGraph.setCompressedGeometry(compressedGeometry);
+        return this;
+    }
+
+    public boolean isCompressedGeometry() {
+        return baseGraph.isCompressedGeometry();
+    }
+
+    /**
+     * Stores every distinct street name only once and references it from the edges, see
+     * {@link com.graphhopper.search.StringIndex#setDictionaryEncoding(boolean)}. Call this before {@link #create(long)}.
+     */
+    public GraphHopperStorage setDictionaryEncodedNames(boolean dictionaryEncodedNames) {
+        baseGraph.stringIndex.setDictionaryEncoding(dictionaryEncodedNames);
+        return this;
+    }
+
+    public boolean isDictionaryEncodedNames() {
+        return baseGraph.stringIndex.isDictionaryEncoding();
+    }
+
+    /**
+     * Lets the edge explorers of the base graph iterate contiguous read-only adjacency arrays once the graph is
+     * frozen, which avoids the random access of the linked edge lists e.g. for Dijkstra, AStar, landmarks and
+     * isochrones. Needs roughly 4 bytes per node and 8 bytes per edge in memory. The explorers of the CH graphs are
+     * not affected.
+     */
+    public GraphHopperStorage setAdjacencyArrays(boolean adjacencyArrays) {
+        baseGraph.setAdjacencyArrays(adjacencyArrays);
+        return this;
+    }
+
+    /**
+     * Copies the upward edges of all CH graphs into read-only adjacency arrays, separately for the forward and the
+     * backward search, so that the bidirectional CH algorithms do not need to skip downward edges at query time.
+     * Call this after the CH preparation finished (or after a prepared storage was loaded).
+     */
+    public GraphHopperStorage setCHAdjacencyArrays(boolean adjacencyArrays) {
+        for (CHGraphImpl cg : chGraphs) {
+            cg.setUpwardAdjacencyArrays(adjacencyArrays);
+        }
+        return this;
+    }
+
     public boolean isCHPossible() {
         return !chGraphs.isEmpty();
     }
@@ -299,6 +299,30 @@ public final class MMapDataAccess extends AbstractDataAccess {
         }
     }
 
+    /**
+     * Forces the first <code>percentage</code> of the mapped segments into physical memory. This touches every page of
+     * these segments, so that requests issued after startup do not have to wait for the page faults of a cold page
+     * cache.
+     *
+     * @return the number of bytes that were loaded
+     */
+    public long load(int percentage) {
+        if (percentage < 0 || percentage > 100)
+            throw new IllegalArgumentException("Percentage for MMapDataAccess.load for " + getName() + " must be in [0,100] but was " + percentage);
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        int max = Math.round(segments.size() * percentage / 100f);
+        long bytes = 0;
+        for (int i = 0; i < max; i++) {
+            ByteBuffer bb = segments.get(i);
+            if (bb instanceof MappedByteBuffer)
+                ((MappedByteBuffer) bb).load();
+            bytes += bb.capacity();
+        }
+        return bytes;
+    }
+
     @Override
     public void flush() {
         if (isClosed())
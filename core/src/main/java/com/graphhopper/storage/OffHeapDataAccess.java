@@ -0,0 +1,357 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * This is an in-memory byte-based data structure like {@link RAMDataAccess}, but the segments are direct
+ * {@link ByteBuffer}s outside of the Java heap. This keeps big graphs out of the reach of the garbage collector, so the
+ * heap only needs to be sized for the request-scoped objects. The file format is the same as for RAMDataAccess, so
+ * graphs can be switched between RAM_STORE and RAM_OFFHEAP_STORE without a new import. The memory does not count
+ * against -Xmx, see -XX:MaxDirectMemorySize instead.
+ * <p>
+ * The segments are not freed explicitly on close or trimTo but by the garbage collector once they are no longer
+ * referenced. Freeing them eagerly would make a reader that still uses this DataAccess, e.g. a request on a graph
+ * that was swapped in the meantime, access freed native memory and crash the JVM. Now such a reader either still sees
+ * the old segments or gets an exception.
+ * <p>
+ * Thread safe for concurrent reads.
+ */
+public class OffHeapDataAccess extends AbstractDataAccess {
+    private ByteBuffer[] segments = new ByteBuffer[0];
+    private boolean store;
+
+    OffHeapDataAccess(String name, String location, boolean store, ByteOrder order) {
+        super(name, location, order);
+        this.store = store;
+    }
+
+    @Override
+    public boolean isStoring() {
+        return store;
+    }
+
+    @Override
+    public DataAccess copyTo(DataAccess da) {
+        if (da instanceof OffHeapDataAccess) {
+            copyHeader(da);
+            OffHeapDataAccess oda = (OffHeapDataAccess) da;
+            oda.segments = new ByteBuffer[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                ByteBuffer copy = newSegment();
+                copy.put(segments[i].duplicate());
+                oda.segments[i] = copy;
+            }
+            oda.setSegmentSize(segmentSizeInBytes);
+            return da;
+        } else {
+            return super.copyTo(da);
+        }
+    }
+
+    @Override
+    public OffHeapDataAccess create(long bytes) {
+        if (segments.length > 0)
+            throw new IllegalThreadStateException("already created");
+
+        setSegmentSize(segmentSizeInBytes);
+        ensureCapacity(Math.max(10 * 4, bytes));
+        return this;
+    }
+
+    @Override
+    public boolean ensureCapacity(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("new capacity has to be strictly positive");
+
+        long cap = getCapacity();
+        long newBytes = bytes - cap;
+        if (newBytes <= 0)
+            return false;
+
+        int segmentsToCreate = (int) (newBytes / segmentSizeInBytes);
+        if (newBytes % segmentSizeInBytes != 0)
+            segmentsToCreate++;
+
+        try {
+            ByteBuffer[] newSegs = Arrays.copyOf(segments, segments.length + segmentsToCreate);
+            for (int i = segments.length; i < newSegs.length; i++) {
+                newSegs[i] = newSegment();
+            }
+            segments = newSegs;
+        } catch (OutOfMemoryError err) {
+            throw new OutOfMemoryError(err.getMessage() + " - problem when allocating new off-heap memory. Old capacity: "
+                    + cap + ", new bytes:" + newBytes + ", segmentSizeIntsPower:" + segmentSizePower
+                    + ", new segments:" + segmentsToCreate + ", existing:" + segments.length
+                    + ". Increase -XX:MaxDirectMemorySize");
+        }
+        return true;
+    }
+
+    private ByteBuffer newSegment() {
+        // direct buffers are zeroed on allocation
+        return ByteBuffer.allocateDirect(segmentSizeInBytes).order(byteOrder);
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (segments.length > 0)
+            throw new IllegalStateException("already initialized");
+
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        if (!store)
+            return false;
+
+        File file = new File(getFullName());
+        if (!file.exists() || file.length() == 0)
+            return false;
+
+        try {
+            RandomAccessFile raFile = new RandomAccessFile(getFullName(), "r");
+            try {
+                long byteCount = readHeader(raFile) - HEADER_OFFSET;
+                if (byteCount < 0)
+                    return false;
+
+                int segmentCount = (int) (byteCount / segmentSizeInBytes);
+                if (byteCount % segmentSizeInBytes != 0)
+                    segmentCount++;
+
+                // read the file directly into the segments, without copying it through the heap
+                FileChannel channel = raFile.getChannel();
+                segments = new ByteBuffer[segmentCount];
+                long filePos = HEADER_OFFSET;
+                for (int s = 0; s < segmentCount; s++) {
+                    ByteBuffer segment = newSegment();
+                    segments[s] = segment;
+                    while (segment.hasRemaining()) {
+                        int read = channel.read(segment, filePos);
+                        if (read <= 0) {
+                            if (segment.position() == 0)
+                                throw new IllegalStateException("segment " + s + " is empty? " + toString());
+                            break;
+                        }
+                        filePos += read;
+                    }
+                    segment.clear();
+                }
+                return true;
+            } finally {
+                raFile.close();
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Problem while loading " + getFullName(), ex);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (closed)
+            throw new IllegalStateException("already closed");
+
+        if (!store)
+            return;
+
+        try {
+            RandomAccessFile raFile = new RandomAccessFile(getFullName(), "rw");
+            try {
+                long len = getCapacity();
+                writeHeader(raFile, len, segmentSizeInBytes);
+                FileChannel channel = raFile.getChannel();
+                long filePos = HEADER_OFFSET;
+                for (ByteBuffer segment : segments) {
+                    ByteBuffer bb = segment.duplicate();
+                    bb.clear();
+                    while (bb.hasRemaining()) {
+                        filePos += channel.write(bb, filePos);
+                    }
+                }
+            } finally {
+                raFile.close();
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("Couldn't store bytes to " + toString(), ex);
+        }
+    }
+
+    @Override
+    public final void setInt(long bytePos, int value) {
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 4 > segmentSizeInBytes)
+            throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
+        segments[bufferIndex].putInt(index, value);
+    }
+
+    @Override
+    public final int getInt(long bytePos) {
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 4 > segmentSizeInBytes)
+            throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
+        return segments[bufferIndex].getInt(index);
+    }
+
+    @Override
+    public final void setShort(long bytePos, short value) {
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 2 > segmentSizeInBytes) {
+            // special case if short has to be written into two separate segments
+            segments[bufferIndex].put(index, (byte) value);
+            segments[bufferIndex + 1].put(0, (byte) (value >>> 8));
+        } else {
+            segments[bufferIndex].putShort(index, value);
+        }
+    }
+
+    @Override
+    public final short getShort(long bytePos) {
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 2 > segmentSizeInBytes)
+            return (short) ((segments[bufferIndex + 1].get(0) & 0xFF) << 8 | (segments[bufferIndex].get(index) & 0xFF));
+        else
+            return segments[bufferIndex].getShort(index);
+    }
+
+    @Override
+    public void setBytes(long bytePos, byte[] values, int length) {
+        assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        int delta = index + length - segmentSizeInBytes;
+        // relative bulk operations change the position, so use a view to stay thread safe
+        ByteBuffer bb = segments[bufferIndex].duplicate();
+        bb.position(index);
+        if (delta > 0) {
+            length -= delta;
+            bb.put(values, 0, length);
+            bb = segments[bufferIndex + 1].duplicate();
+            bb.position(0);
+            bb.put(values, length, delta);
+        } else {
+            bb.put(values, 0, length);
+        }
+    }
+
+    @Override
+    public void getBytes(long bytePos, byte[] values, int length) {
+        assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        int delta = index + length - segmentSizeInBytes;
+        ByteBuffer bb = segments[bufferIndex].duplicate();
+        bb.position(index);
+        if (delta > 0) {
+            length -= delta;
+            bb.get(values, 0, length);
+            bb = segments[bufferIndex + 1].duplicate();
+            bb.position(0);
+            bb.get(values, length, delta);
+        } else {
+            bb.get(values, 0, length);
+        }
+    }
+
+    @Override
+    public final void setByte(long bytePos, byte value) {
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        segments[bufferIndex].put(index, value);
+    }
+
+    @Override
+    public final byte getByte(long bytePos) {
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        return segments[bufferIndex].get(index);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        segments = new ByteBuffer[0];
+        closed = true;
+    }
+
+    @Override
+    public long getCapacity() {
+        return (long) getSegments() * segmentSizeInBytes;
+    }
+
+    @Override
+    public int getSegments() {
+        return segments.length;
+    }
+
+    @Override
+    public void trimTo(long capacity) {
+        if (capacity > getCapacity()) {
+            throw new IllegalStateException("Cannot increase capacity (" + getCapacity() + ") to " + capacity
+                    + " via trimTo. Use ensureCapacity instead. ");
+        }
+
+        if (capacity < segmentSizeInBytes)
+            capacity = segmentSizeInBytes;
+
+        int remainingSegments = (int) (capacity / segmentSizeInBytes);
+        if (capacity % segmentSizeInBytes != 0) {
+            remainingSegments++;
+        }
+
+        segments = Arrays.copyOf(segments, remainingSegments);
+    }
+
+    @Override
+    public void rename(String newName) {
+        if (!checkBeforeRename(newName)) {
+            return;
+        }
+        if (store) {
+            super.rename(newName);
+        }
+
+        // in every case set the name
+        name = newName;
+    }
+
+    @Override
+    public DAType getType() {
+        if (isStoring())
+            return DAType.RAM_OFFHEAP_STORE;
+        return DAType.RAM_OFFHEAP;
+    }
+}
@@ -38,6 +38,18 @@ public interface RoutingCHGraph {
 
     RoutingCHEdgeExplorer createAllEdgeExplorer();
 
+    /**
+     * @return an explorer for the out-edges that lead to nodes with an equal or higher level, i.e. the edges the
+     * forward search of a CH query needs to expand
+     */
+    RoutingCHEdgeExplorer createUpwardOutEdgeExplorer();
+
+    /**
+     * @return an explorer for the in-edges that come from nodes with an equal or higher level, i.e. the edges the
+     * backward search of a CH query needs to expand
+     */
+    RoutingCHEdgeExplorer createUpwardInEdgeExplorer();
+
     RoutingCHEdgeExplorer createOriginalInEdgeExplorer();
 
     RoutingCHEdgeExplorer createOriginalOutEdgeExplorer();
@@ -19,6 +19,7 @@
 package com.graphhopper.storage;
 
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.UpwardEdgeFilter;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.util.EdgeIteratorState;
 
@@ -88,6 +89,25 @@ public class RoutingCHGraphImpl implements RoutingCHGraph {
         return RoutingCHEdgeIteratorImpl.allEdges(graph.createEdgeExplorer(), weighting);
     }
 
+    @Override
+    public RoutingCHEdgeExplorer createUpwardOutEdgeExplorer() {
+        // without the adjacency arrays the level filter of the algorithm is cheaper than an additional edge filter
+        if (!hasUpwardAdjacencyArrays())
+            return createOutEdgeExplorer();
+        return RoutingCHEdgeIteratorImpl.outEdges(graph.createEdgeExplorer(new UpwardEdgeFilter(chGraph, false)), weighting);
+    }
+
+    @Override
+    public RoutingCHEdgeExplorer createUpwardInEdgeExplorer() {
+        if (!hasUpwardAdjacencyArrays())
+            return createInEdgeExplorer();
+        return RoutingCHEdgeIteratorImpl.inEdges(graph.createEdgeExplorer(new UpwardEdgeFilter(chGraph, true)), weighting);
+    }
+
+    private boolean hasUpwardAdjacencyArrays() {
+        return chGraph instanceof CHGraphImpl && ((CHGraphImpl) chGraph).hasUpwardAdjacencyArrays();
+    }
+
     @Override
     public RoutingCHEdgeExplorer createOriginalInEdgeExplorer() {
         return RoutingCHEdgeIteratorImpl.inEdges(graph.getBaseGraph().createEdgeExplorer(), weighting);
@@ -26,10 +26,13 @@ import com.graphhopper.util.EdgeIterator;
  * @author Peter Karich
  */
 public class SPTEntry implements Cloneable, Comparable<SPTEntry> {
+    static final int NOT_IN_HEAP = 0;
     public int edge;
     public int adjNode;
     public double weight;
     public SPTEntry parent;
+    // the position of this entry in a SPTEntryHeap
+    int heapPosition = NOT_IN_HEAP;
 
     public SPTEntry(int edgeId, int adjNode, double weight) {
         this.edge = edgeId;
@@ -0,0 +1,158 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min heap of {@link SPTEntry} objects ordered by {@link SPTEntry#weight}. Every entry remembers its
+ * position in the heap, so {@link #update} (after the weight of an entry was changed) runs in O(log n) instead of the
+ * O(n) {@link java.util.PriorityQueue#remove}. This is the object based counterpart of
+ * {@link com.graphhopper.coll.MinHeapWithUpdate} for algorithms that still need a linked shortest path tree, e.g. the
+ * bidirectional ones.
+ * <p>
+ * An entry can only be contained in one heap at a time.
+ */
+public class SPTEntryHeap {
+    // the heap is stored 1-based, i.e. tree[1] is the root
+    private SPTEntry[] tree;
+    private int size;
+
+    public SPTEntryHeap(int capacity) {
+        tree = new SPTEntry[Math.max(capacity, 16) + 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(SPTEntry entry) {
+        int pos = entry.heapPosition;
+        return pos > 0 && pos <= size && tree[pos] == entry;
+    }
+
+    /**
+     * Adds an entry that is not yet contained in the heap.
+     */
+    public void add(SPTEntry entry) {
+        if (contains(entry))
+            throw new IllegalStateException("Cannot add " + entry + ", it is already contained in the heap");
+        size++;
+        if (size == tree.length)
+            tree = Arrays.copyOf(tree, tree.length * 2);
+        tree[size] = entry;
+        entry.heapPosition = size;
+        percolateUp(size);
+    }
+
+    /**
+     * Restores the heap order after the weight of the given entry was changed. If the entry is not contained in the
+     * heap (anymore) it is added.
+     */
+    public void update(SPTEntry entry) {
+        if (!contains(entry)) {
+            add(entry);
+            return;
+        }
+        int pos = entry.heapPosition;
+        percolateUp(pos);
+        if (entry.heapPosition == pos)
+            percolateDown(pos);
+    }
+
+    public SPTEntry peek() {
+        if (size == 0)
+            throw new NoSuchElementException("Heap is empty");
+        return tree[1];
+    }
+
+    /**
+     * Removes the entry with the smallest weight and returns it
+     */
+    public SPTEntry poll() {
+        SPTEntry entry = peek();
+        entry.heapPosition = SPTEntry.NOT_IN_HEAP;
+        tree[1] = tree[size];
+        tree[size] = null;
+        size--;
+        if (size > 0) {
+            tree[1].heapPosition = 1;
+            percolateDown(1);
+        }
+        return entry;
+    }
+
+    /**
+     * Re-establishes the heap order for all entries, e.g. after the weights of many entries were changed at once.
+     */
+    public void rebuild() {
+        for (int pos = size >> 1; pos >= 1; pos--)
+            percolateDown(pos);
+    }
+
+    /**
+     * @return the entries currently contained in the heap in no particular order. The weights of the returned entries
+     * may be changed, but {@link #rebuild} has to be called afterwards.
+     */
+    public SPTEntry[] toArray() {
+        return Arrays.copyOfRange(tree, 1, size + 1);
+    }
+
+    public void clear() {
+        for (int i = 1; i <= size; i++) {
+            tree[i].heapPosition = SPTEntry.NOT_IN_HEAP;
+            tree[i] = null;
+        }
+        size = 0;
+    }
+
+    private void percolateUp(int pos) {
+        SPTEntry entry = tree[pos];
+        while (pos > 1 && tree[pos >> 1].weight > entry.weight) {
+            int parent = pos >> 1;
+            tree[pos] = tree[parent];
+            tree[pos].heapPosition = pos;
+            pos = parent;
+        }
+        tree[pos] = entry;
+        entry.heapPosition = pos;
+    }
+
+    private void percolateDown(int pos) {
+        SPTEntry entry = tree[pos];
+        while (true) {
+            int child = pos << 1;
+            if (child > size)
+                break;
+            if (child < size && tree[child + 1].weight < tree[child].weight)
+                child++;
+            if (tree[child].weight >= entry.weight)
+                break;
+            tree[pos] = tree[child];
+            tree[pos].heapPosition = pos;
+            pos = child;
+        }
+        tree[pos] = entry;
+        entry.heapPosition = pos;
+    }
+}
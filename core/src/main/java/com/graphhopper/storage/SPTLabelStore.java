@@ -0,0 +1,168 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * Stores the shortest path tree of a Dijkstra-like search as 'struct of arrays' instead of one {@link SPTEntry} object
+ * per label. Every label is identified by a dense int index, which can be used directly as id for a
+ * {@link com.graphhopper.coll.MinHeapWithUpdate}. The mapping from traversal ids to labels is kept in a primitive
+ * hash map, so the memory consumption depends on the size of the search space and not on the size of the graph.
+ * <p>
+ * {@link #clear} keeps all allocated arrays, so the same store can be used for many searches. Only the hash map is
+ * re-created if it is much larger than the last search needed, as clearing it takes time proportional to its
+ * capacity.
+ */
+public class SPTLabelStore {
+    public static final int NO_LABEL = -1;
+    private final int initialCapacity;
+    private IntIntHashMap labelsByTraversalId;
+    private int[] edges;
+    private int[] adjNodes;
+    private int[] parents;
+    private double[] weights;
+    private int size;
+
+    public SPTLabelStore(int capacity) {
+        capacity = Math.max(capacity, 16);
+        initialCapacity = capacity;
+        labelsByTraversalId = new IntIntHashMap(capacity);
+        edges = new int[capacity];
+        adjNodes = new int[capacity];
+        parents = new int[capacity];
+        weights = new double[capacity];
+    }
+
+    /**
+     * Adds a new label and returns its index. The label is not yet associated with a traversal id, see
+     * {@link #setLabel}.
+     */
+    public int add(int edge, int adjNode, double weight, int parent) {
+        if (size == edges.length)
+            grow(size * 2);
+        int label = size++;
+        edges[label] = edge;
+        adjNodes[label] = adjNode;
+        weights[label] = weight;
+        parents[label] = parent;
+        return label;
+    }
+
+    /**
+     * Changes the edge, weight and parent of an existing label, e.g. when a shorter path was found.
+     */
+    public void update(int label, int edge, double weight, int parent) {
+        edges[label] = edge;
+        weights[label] = weight;
+        parents[label] = parent;
+    }
+
+    /**
+     * @return the label for the given traversal id or {@link #NO_LABEL}
+     */
+    public int getLabel(int traversalId) {
+        return labelsByTraversalId.getOrDefault(traversalId, NO_LABEL);
+    }
+
+    public void setLabel(int traversalId, int label) {
+        labelsByTraversalId.put(traversalId, label);
+    }
+
+    public int getEdge(int label) {
+        return edges[label];
+    }
+
+    public int getAdjNode(int label) {
+        return adjNodes[label];
+    }
+
+    /**
+     * @return the weight of the path from the root to the given label
+     */
+    public double getWeight(int label) {
+        return weights[label];
+    }
+
+    /**
+     * @return the parent label or {@link #NO_LABEL} for the root
+     */
+    public int getParent(int label) {
+        return parents[label];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all labels, the allocated memory is kept.
+     */
+    public void clear() {
+        // hppc fills the whole key array on clear, so after a single big search all following small searches would
+        // pay for it. Instead we start over with a small map, which grows again if needed.
+        if (labelsByTraversalId.keys.length > 4 * Math.max(labelsByTraversalId.size(), initialCapacity))
+            labelsByTraversalId = new IntIntHashMap(initialCapacity);
+        else
+            labelsByTraversalId.clear();
+        size = 0;
+    }
+
+    /**
+     * Creates the chain of {@link SPTEntry}s from the root to the given label, e.g. to use it with the path
+     * extractors. Only the labels on the path are materialized.
+     */
+    public SPTEntry toSPTEntry(int label) {
+        if (label == NO_LABEL)
+            return null;
+        SPTEntry result = new SPTEntry(edges[label], adjNodes[label], weights[label]);
+        SPTEntry curr = result;
+        int parent = parents[label];
+        while (parent != NO_LABEL) {
+            curr.parent = new SPTEntry(edges[parent], adjNodes[parent], weights[parent]);
+            curr = curr.parent;
+            parent = parents[parent];
+        }
+        assert curr.edge == EdgeIterator.NO_EDGE : "the root label must not have an edge, but was: " + curr.edge;
+        return result;
+    }
+
+    /**
+     * Increases the capacity of all arrays, sub-classes storing additional columns need to grow them as well.
+     */
+    protected void grow(int newCapacity) {
+        edges = Arrays.copyOf(edges, newCapacity);
+        adjNodes = Arrays.copyOf(adjNodes, newCapacity);
+        parents = Arrays.copyOf(parents, newCapacity);
+        weights = Arrays.copyOf(weights, newCapacity);
+    }
+
+    /**
+     * @return the current capacity of the arrays, i.e. the number of labels that can be stored without growing them
+     */
+    public int getCapacity() {
+        return edges.length;
+    }
+}
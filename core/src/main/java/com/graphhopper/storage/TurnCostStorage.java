@@ -44,10 +44,17 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
     private static final int TC_FLAGS = 8;
     private static final int TC_NEXT = 12;
     private static final int BYTES_PER_ENTRY = 16;
+    // the optional lookup table is an open addressing hash table with entries |from_edge|via_node|to_edge|flags|
+    private static final int LT_FROM = 0;
+    private static final int LT_VIA = 4;
+    private static final int LT_TO = 8;
+    private static final int LT_FLAGS = 12;
 
     private BaseGraph baseGraph;
     private DataAccess turnCosts;
     private int turnCostsCount;
+    private DataAccess lookupTable;
+    private long lookupMask;
 
     public TurnCostStorage(BaseGraph baseGraph, DataAccess turnCosts) {
         this.baseGraph = baseGraph;
@@ -73,12 +80,13 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
 
     @Override
     public void close() {
+        closeLookupTable();
         turnCosts.close();
     }
 
     @Override
     public long getCapacity() {
-        return turnCosts.getCapacity();
+        return turnCosts.getCapacity() + (lookupTable != null ? lookupTable.getCapacity() : 0);
     }
 
     @Override
@@ -106,6 +114,8 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
     }
 
     private void merge(IntsRef tcFlags, int fromEdge, int viaNode, int toEdge) {
+        // the lookup table would be outdated
+        closeLookupTable();
         int newEntryIndex = turnCostsCount;
         ensureTurnCostIndex(newEntryIndex);
         boolean oldEntryFound = false;
@@ -183,6 +193,10 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
     }
 
     private void readFlags(IntsRef tcFlags, int fromEdge, int viaNode, int toEdge) {
+        if (lookupTable != null) {
+            readFlagsFromLookupTable(tcFlags, fromEdge, viaNode, toEdge);
+            return;
+        }
         int turnCostIndex = baseGraph.getNodeAccess().getTurnCostIndex(viaNode);
         int i = 0;
         for (; i < 1000; i++) {
@@ -208,6 +222,84 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
         tcFlags.ints[0] = EMPTY_FLAGS;
     }
 
+    /**
+     * Builds an open addressing hash table over all turn relations that {@link #get} then uses instead of walking the
+     * linked list of the via node. A lookup usually needs a single random memory access, which matters for
+     * edge-based routing and the edge-based CH preparation. The table is kept in memory, needs 32 bytes per turn
+     * relation and is dropped again if turn costs are changed.
+     */
+    public void buildLookupTable() {
+        closeLookupTable();
+        // keep the load factor below 0.5 so that the probe sequences stay short
+        long slots = 16;
+        while (slots < 2L * turnCostsCount) {
+            slots <<= 1;
+        }
+        long mask = slots - 1;
+        DataAccess table = new GHDirectory("", DAType.RAM_INT).find("turn_cost_lookup").create(slots * BYTES_PER_ENTRY);
+        table.ensureCapacity(slots * BYTES_PER_ENTRY);
+        for (long slot = 0; slot < slots; slot++) {
+            table.setInt(slot * BYTES_PER_ENTRY + LT_FROM, NO_TURN_ENTRY);
+        }
+
+        NodeAccess nodeAccess = baseGraph.getNodeAccess();
+        for (int viaNode = 0; viaNode < baseGraph.getNodes(); viaNode++) {
+            int turnCostIndex = nodeAccess.getTurnCostIndex(viaNode);
+            while (turnCostIndex != NO_TURN_ENTRY) {
+                long turnCostPtr = (long) turnCostIndex * BYTES_PER_ENTRY;
+                int fromEdge = turnCosts.getInt(turnCostPtr + TC_FROM);
+                int toEdge = turnCosts.getInt(turnCostPtr + TC_TO);
+                long slot = hash(fromEdge, viaNode, toEdge) & mask;
+                while (table.getInt(slot * BYTES_PER_ENTRY + LT_FROM) != NO_TURN_ENTRY) {
+                    slot = (slot + 1) & mask;
+                }
+                long slotPtr = slot * BYTES_PER_ENTRY;
+                table.setInt(slotPtr + LT_FROM, fromEdge);
+                table.setInt(slotPtr + LT_VIA, viaNode);
+                table.setInt(slotPtr + LT_TO, toEdge);
+                table.setInt(slotPtr + LT_FLAGS, turnCosts.getInt(turnCostPtr + TC_FLAGS));
+                turnCostIndex = turnCosts.getInt(turnCostPtr + TC_NEXT);
+            }
+        }
+        lookupMask = mask;
+        lookupTable = table;
+    }
+
+    public boolean hasLookupTable() {
+        return lookupTable != null;
+    }
+
+    private void closeLookupTable() {
+        if (lookupTable != null) {
+            lookupTable.close();
+            lookupTable = null;
+        }
+    }
+
+    private void readFlagsFromLookupTable(IntsRef tcFlags, int fromEdge, int viaNode, int toEdge) {
+        long slot = hash(fromEdge, viaNode, toEdge) & lookupMask;
+        while (true) {
+            long slotPtr = slot * BYTES_PER_ENTRY;
+            int slotFromEdge = lookupTable.getInt(slotPtr + LT_FROM);
+            if (slotFromEdge == NO_TURN_ENTRY) {
+                tcFlags.ints[0] = EMPTY_FLAGS;
+                return;
+            }
+            if (slotFromEdge == fromEdge && lookupTable.getInt(slotPtr + LT_TO) == toEdge
+                    && lookupTable.getInt(slotPtr + LT_VIA) == viaNode) {
+                tcFlags.ints[0] = lookupTable.getInt(slotPtr + LT_FLAGS);
+                return;
+            }
+            slot = (slot + 1) & lookupMask;
+        }
+    }
+
+    private static long hash(int fromEdge, int viaNode, int toEdge) {
+        long hash = fromEdge * 0x9E3779B97F4A7C15L + toEdge;
+        hash = hash * 0x9E3779B97F4A7C15L + viaNode;
+        return hash ^ (hash >>> 31);
+    }
+
     private void ensureTurnCostIndex(int nodeIndex) {
         turnCosts.ensureCapacity(((long) nodeIndex + 4) * BYTES_PER_ENTRY);
     }
@@ -19,8 +19,11 @@ package com.graphhopper.storage.index;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.LongObjectHashMap;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.predicates.IntPredicate;
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHIntHashSet;
 import com.graphhopper.coll.GHTBitSet;
@@ -35,6 +38,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * This class implements a Quadtree to get the closest node or edge from GPS coordinates.
@@ -62,6 +66,7 @@ public class LocationIndexTree implements LocationIndex {
     static final int START_POINTER = 1;
     protected final Graph graph;
     final DataAccess dataAccess;
+    private final Directory dir;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final int MAGIC_INT;
     private final NodeAccess nodeAccess;
@@ -78,6 +83,8 @@ public class LocationIndexTree implements LocationIndex {
     private double deltaLon;
     private int initSizeLeafEntries = 4;
     private boolean initialized = false;
+    private boolean streamingPreparation = false;
+    private int preparationThreads = 1;
     private static final Comparator<QueryResult> QR_COMPARATOR = new Comparator<QueryResult>() {
         @Override
         public int compare(QueryResult o1, QueryResult o2) {
@@ -100,6 +107,7 @@ public class LocationIndexTree implements LocationIndex {
         MAGIC_INT = Integer.MAX_VALUE / 22317;
         this.graph = g;
         this.nodeAccess = g.getNodeAccess();
+        this.dir = dir;
         dataAccess = dir.find("location_index", DAType.getPreferredInt(dir.getDefaultType()));
     }
 
@@ -133,6 +141,26 @@ public class LocationIndexTree implements LocationIndex {
         return this;
     }
 
+    /**
+     * Builds the index in a streaming way: the cells of the entries are written to temporary DataAccess objects,
+     * which are off-heap or memory mapped, and only the subtrees of the top level cells that are currently stored
+     * live on the heap. This avoids the big heap usage of the default in-memory preparation for large graphs.
+     */
+    public LocationIndexTree setStreamingPreparation(boolean streamingPreparation) {
+        this.streamingPreparation = streamingPreparation;
+        return this;
+    }
+
+    /**
+     * The number of top level cells that are built in parallel for the streaming preparation.
+     */
+    public LocationIndexTree setPreparationThreads(int preparationThreads) {
+        if (preparationThreads < 1)
+            throw new IllegalArgumentException("Preparation threads of location index must be at least 1 but was " + preparationThreads);
+        this.preparationThreads = preparationThreads;
+        return this;
+    }
+
     void prepareAlgo() {
         // 0.1 meter should count as 'equal'
         equalNormedDelta = distCalc.calcNormalizedDist(0.1);
@@ -290,16 +318,32 @@ public class LocationIndexTree implements LocationIndex {
 
         StopWatch sw = new StopWatch().start();
         prepareAlgo();
-        // in-memory preparation
-        InMemConstructionIndex inMem = getPrepareInMemIndex();
-
-        // compact & store to dataAccess
-        dataAccess.create(64 * 1024);
-        try {
-            inMem.store(inMem.root, START_POINTER);
-            flush();
-        } catch (Exception ex) {
-            throw new IllegalStateException("Problem while storing location index. " + Helper.getMemInfo(), ex);
+        InMemConstructionIndex inMem;
+        if (streamingPreparation) {
+            StreamingConstructionIndex streaming = new StreamingConstructionIndex();
+            try {
+                streaming.prepare();
+                dataAccess.create(64 * 1024);
+                streaming.storeCells(preparationThreads);
+                flush();
+            } catch (RuntimeException ex) {
+                throw new IllegalStateException("Problem while storing location index. " + Helper.getMemInfo(), ex);
+            } finally {
+                streaming.removeCells();
+            }
+            inMem = streaming;
+        } else {
+            // in-memory preparation
+            inMem = getPrepareInMemIndex();
+
+            // compact & store to dataAccess
+            dataAccess.create(64 * 1024);
+            try {
+                inMem.store(inMem.root, START_POINTER);
+                flush();
+            } catch (Exception ex) {
+                throw new IllegalStateException("Problem while storing location index. " + Helper.getMemInfo(), ex);
+            }
         }
         float entriesPerLeaf = (float) inMem.size / inMem.leafs;
         initialized = true;
@@ -310,7 +354,8 @@ public class LocationIndexTree implements LocationIndex {
                 + ", depth:" + entries.length
                 + ", checksum:" + calcChecksum()
                 + ", entries:" + Arrays.toString(entries)
-                + ", entriesPerLeaf:" + entriesPerLeaf);
+                + ", entriesPerLeaf:" + entriesPerLeaf
+                + ", streaming:" + streamingPreparation);
 
         return this;
     }
@@ -524,24 +569,33 @@ public class LocationIndexTree implements LocationIndex {
      */
     final boolean findNetworkEntries(double queryLat, double queryLon,
                                      GHIntHashSet foundEntries, int iteration) {
+        return findNetworkEntries(queryLat, queryLon, foundEntries, iteration, null);
+    }
+
+    /**
+     * @param tileCache if not null the node IDs of every visited tile are stored here and reused for subsequent
+     *                  queries that visit the same tile
+     */
+    final boolean findNetworkEntries(double queryLat, double queryLon,
+                                     GHIntHashSet foundEntries, int iteration, LongObjectHashMap<GHIntHashSet> tileCache) {
         // find entries in border of searchbox
         for (int yreg = -iteration; yreg <= iteration; yreg++) {
             double subqueryLat = queryLat + yreg * deltaLat;
             double subqueryLonA = queryLon - iteration * deltaLon;
             double subqueryLonB = queryLon + iteration * deltaLon;
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonA);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonA, tileCache);
 
             // minor optimization for iteration == 0
             if (iteration > 0)
-                findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonB);
+                findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonB, tileCache);
         }
 
         for (int xreg = -iteration + 1; xreg <= iteration - 1; xreg++) {
             double subqueryLon = queryLon + xreg * deltaLon;
             double subqueryLatA = queryLat - iteration * deltaLat;
             double subqueryLatB = queryLat + iteration * deltaLat;
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon);
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon, tileCache);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon, tileCache);
         }
 
         if (iteration % 2 != 0) {
@@ -579,8 +633,24 @@ public class LocationIndexTree implements LocationIndex {
     }
 
     final void findNetworkEntriesSingleRegion(GHIntHashSet storedNetworkEntryIds, double queryLat, double queryLon) {
+        findNetworkEntriesSingleRegion(storedNetworkEntryIds, queryLat, queryLon, null);
+    }
+
+    private void findNetworkEntriesSingleRegion(GHIntHashSet storedNetworkEntryIds, double queryLat, double queryLon,
+                                                LongObjectHashMap<GHIntHashSet> tileCache) {
         long keyPart = createReverseKey(queryLat, queryLon);
-        fillIDs(keyPart, START_POINTER, storedNetworkEntryIds, 0);
+        if (tileCache == null) {
+            fillIDs(keyPart, START_POINTER, storedNetworkEntryIds, 0);
+            return;
+        }
+
+        GHIntHashSet tileIds = tileCache.get(keyPart);
+        if (tileIds == null) {
+            tileIds = new GHIntHashSet();
+            fillIDs(keyPart, START_POINTER, tileIds, 0);
+            tileCache.put(keyPart, tileIds);
+        }
+        storedNetworkEntryIds.addAll(tileIds);
     }
 
     @Override
@@ -588,18 +658,111 @@ public class LocationIndexTree implements LocationIndex {
         if (isClosed())
             throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
 
+        return findClosest(queryLat, queryLon, edgeFilter, graph.createEdgeExplorer(), null);
+    }
+
+    /**
+     * Snaps many points at once. The points are processed in the order of their spatial key, so that consecutive
+     * points are usually close to each other and the node IDs of the tiles can be shared instead of descending the
+     * tree for every point. The results are identical to calling {@link #findClosest(double, double, EdgeFilter)}
+     * for every point.
+     *
+     * @return the QueryResults in the same order as the specified coordinates
+     */
+    public List<QueryResult> findClosest(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        return findClosest(lats, lons, edgeFilter, null, 1);
+    }
+
+    /**
+     * Like {@link #findClosest(double[], double[], EdgeFilter)} but splits the points into the specified number of
+     * spatially coherent chunks that are snapped in parallel by the specified executor. The executor is owned by the
+     * caller, e.g. a bounded pool that is shared by all requests, and is not shut down. The EdgeFilter must be thread
+     * safe in this case.
+     */
+    public List<QueryResult> findClosest(final double[] lats, final double[] lons, final EdgeFilter edgeFilter,
+                                         ExecutorService executor, int chunks) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("Number of latitudes " + lats.length + " and longitudes " + lons.length + " must be equal");
+        if (chunks < 1)
+            throw new IllegalArgumentException("chunks must be positive but was " + chunks);
+        if (chunks > 1 && executor == null)
+            throw new IllegalArgumentException("An executor is required to snap " + chunks + " chunks in parallel");
+
+        int size = lats.length;
+        final long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = keyAlgo.encode(lats[i], lons[i]);
+        }
+        int[] order = IndirectSort.mergesort(0, size, new IndirectComparator() {
+            @Override
+            public int compare(int indexA, int indexB) {
+                return Long.compare(keys[indexA], keys[indexB]);
+            }
+        });
+
+        final QueryResult[] results = new QueryResult[size];
+        int chunkSize = Math.max(1, (size + chunks - 1) / chunks);
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int start = 0; start < size; start += chunkSize) {
+            final int[] chunk = Arrays.copyOfRange(order, start, Math.min(size, start + chunkSize));
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    EdgeExplorer explorer = graph.createEdgeExplorer();
+                    LongObjectHashMap<GHIntHashSet> tileCache = new LongObjectHashMap<>();
+                    for (int index : chunk) {
+                        // the points are sorted, so the tiles of the previous points are rarely needed again
+                        if (tileCache.size() > 100)
+                            tileCache.clear();
+                        results[index] = findClosest(lats[index], lons[index], edgeFilter, explorer, tileCache);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        if (tasks.size() <= 1) {
+            for (Callable<Object> task : tasks) {
+                try {
+                    task.call();
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        } else {
+            try {
+                for (Future<Object> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) ex.getCause();
+                throw new RuntimeException(ex.getCause());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private QueryResult findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter,
+                                    final EdgeExplorer explorer, LongObjectHashMap<GHIntHashSet> tileCache) {
         GHIntHashSet allCollectedEntryIds = new GHIntHashSet();
         final QueryResult closestMatch = new QueryResult(queryLat, queryLon);
         for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
             GHIntHashSet storedNetworkEntryIds = new GHIntHashSet();
-            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration);
+            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration, tileCache);
             storedNetworkEntryIds.removeAll(allCollectedEntryIds);
             allCollectedEntryIds.addAll(storedNetworkEntryIds);
 
             // clone storedIds to avoid interference with forEach
             final GHBitSet checkBitset = new GHTBitSet(new GHIntHashSet(storedNetworkEntryIds));
             // find nodes from the network entries which are close to 'point'
-            final EdgeExplorer explorer = graph.createEdgeExplorer();
             storedNetworkEntryIds.forEach(new IntPredicate() {
                 @Override
                 public boolean apply(int networkEntryNodeId) {
@@ -888,7 +1051,7 @@ public class LocationIndexTree implements LocationIndex {
                     long key = keyAlgo.encode(lat, lon);
                     long keyPart = createReverseKey(key);
                     // no need to feed both nodes as we search neighbors in fillIDs
-                    addNode(root, nodeA, 0, keyPart, key);
+                    addKey(nodeA, keyPart, key);
                 }
             };
 
@@ -899,6 +1062,10 @@ public class LocationIndexTree implements LocationIndex {
             }
         }
 
+        void addKey(int nodeId, long keyPart, long key) {
+            addNode(root, nodeId, 0, keyPart, key);
+        }
+
         void addNode(InMemEntry entry, int nodeId, int depth, long keyPart, long key) {
             if (entry.isLeaf()) {
                 InMemLeafEntry leafEntry = (InMemLeafEntry) entry;
@@ -1013,6 +1180,120 @@ public class LocationIndexTree implements LocationIndex {
         }
     }
 
+    /**
+     * Instead of adding the keys to the in-memory tree this class appends them to one temporary DataAccess per top
+     * level cell. Afterwards the subtree of every top level cell is built from its DataAccess and stored before the
+     * next subtrees are built, so the heap only holds the subtrees of as many cells as there are threads.
+     */
+    class StreamingConstructionIndex extends InMemConstructionIndex {
+        // every entry is the remaining key part (8 bytes) and the node (4 bytes)
+        private static final int PAIR_BYTES = 12;
+        private final DataAccess[] cellPairs;
+        private final long[] cellBytes;
+
+        StreamingConstructionIndex() {
+            super(entries[0]);
+            DAType type = dir.getDefaultType().isMMap() ? DAType.MMAP : DAType.RAM_OFFHEAP;
+            cellPairs = new DataAccess[entries[0]];
+            cellBytes = new long[entries[0]];
+            for (int cell = 0; cell < cellPairs.length; cell++) {
+                cellPairs[cell] = dir.find("tmp_location_index_" + cell, type).create(64 * 1024);
+            }
+        }
+
+        @Override
+        void addKey(int nodeId, long keyPart, long key) {
+            int cell = (int) (bitmasks[0] & keyPart);
+            long subKeyPart = keyPart >>> shifts[0];
+            DataAccess da = cellPairs[cell];
+            long pointer = cellBytes[cell];
+            da.ensureCapacity(pointer + PAIR_BYTES);
+            da.setInt(pointer, (int) subKeyPart);
+            da.setInt(pointer + 4, (int) (subKeyPart >>> 32));
+            da.setInt(pointer + 8, nodeId);
+            cellBytes[cell] = pointer + PAIR_BYTES;
+        }
+
+        /**
+         * @return the subtree of the specified top level cell or null if the cell is empty
+         */
+        InMemEntry buildCell(int cell) {
+            if (cellBytes[cell] == 0)
+                return null;
+
+            InMemEntry cellEntry = entries.length == 1
+                    ? new InMemLeafEntry(initSizeLeafEntries, 0)
+                    : new InMemTreeEntry(entries[1]);
+            DataAccess da = cellPairs[cell];
+            for (long pointer = 0; pointer < cellBytes[cell]; pointer += PAIR_BYTES) {
+                long subKeyPart = (da.getInt(pointer) & 0xFFFFFFFFL) | ((long) da.getInt(pointer + 4) << 32);
+                addNode(cellEntry, da.getInt(pointer + 8), 1, subKeyPart, 0);
+            }
+            return cellEntry;
+        }
+
+        /**
+         * Stores the root entry and the subtrees of the top level cells in the same layout as store(root, START_POINTER)
+         */
+        void storeCells(int threads) {
+            final int cells = cellPairs.length;
+            int intPointer = START_POINTER + cells;
+            dataAccess.ensureCapacity((long) (intPointer + 1) * 4);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<InMemEntry>> futures = new ArrayList<>(cells);
+                for (int cell = 0; cell < Math.min(threads, cells); cell++) {
+                    futures.add(submitCell(executor, cell));
+                }
+                for (int cell = 0; cell < cells; cell++) {
+                    InMemEntry cellEntry = futures.get(cell).get();
+                    futures.set(cell, null);
+                    dir.remove(cellPairs[cell]);
+                    cellPairs[cell] = null;
+                    if (cell + threads < cells)
+                        futures.add(submitCell(executor, cell + threads));
+
+                    long cellPointer = (long) (START_POINTER + cell) * 4;
+                    if (cellEntry == null) {
+                        dataAccess.setInt(cellPointer, 0);
+                        continue;
+                    }
+                    dataAccess.ensureCapacity((long) (intPointer + 1) * 4);
+                    int prevIntPointer = intPointer;
+                    intPointer = store(cellEntry, prevIntPointer);
+                    dataAccess.setInt(cellPointer, intPointer == prevIntPointer ? 0 : prevIntPointer);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) ex.getCause();
+                throw new RuntimeException(ex.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private Future<InMemEntry> submitCell(ExecutorService executor, final int cell) {
+            return executor.submit(new Callable<InMemEntry>() {
+                @Override
+                public InMemEntry call() {
+                    return buildCell(cell);
+                }
+            });
+        }
+
+        void removeCells() {
+            for (int cell = 0; cell < cellPairs.length; cell++) {
+                if (cellPairs[cell] != null) {
+                    dir.remove(cellPairs[cell]);
+                    cellPairs[cell] = null;
+                }
+            }
+        }
+    }
+
     /**
      * Make it possible to collect nearby location also for other purposes.
      */
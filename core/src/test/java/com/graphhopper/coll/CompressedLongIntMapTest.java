@@ -0,0 +1,120 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.cursors.LongIntCursor;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedLongIntMapTest {
+    @Test
+    public void testGetAndPut() {
+        CompressedLongIntMap map = new CompressedLongIntMap(new RAMDirectory(), "map");
+        assertEquals(-1, map.get(10));
+        assertEquals(-1, map.put(10, 5));
+        assertEquals(-1, map.put(5, 3));
+        assertEquals(-1, map.put(Long.MAX_VALUE, 7));
+        assertEquals(-1, map.put(-Long.MAX_VALUE, 8));
+        assertEquals(4, map.getSize());
+        assertEquals(5, map.get(10));
+        assertEquals(3, map.get(5));
+
+        map.optimize();
+        assertEquals(4, map.getSize());
+        assertEquals(5, map.get(10));
+        assertEquals(3, map.get(5));
+        assertEquals(7, map.get(Long.MAX_VALUE));
+        assertEquals(8, map.get(-Long.MAX_VALUE));
+        assertEquals(-1, map.get(6));
+        assertEquals(-1, map.get(0));
+
+        // update in place
+        assertEquals(5, map.put(10, -3));
+        assertEquals(-3, map.get(10));
+        assertEquals(4, map.getSize());
+
+        // new key after merge
+        assertEquals(-1, map.put(7, 1));
+        assertEquals(1, map.get(7));
+        assertEquals(5, map.getSize());
+    }
+
+    @Test
+    public void testAscendingKeysAreAppended() {
+        CompressedLongIntMap map = new CompressedLongIntMap(new RAMDirectory(), "map");
+        int count = 3 * CompressedLongIntMap.MAX_BUFFER_SIZE;
+        for (int i = 0; i < count; i++) {
+            // sorted ids with gaps like the nodes of a PBF file
+            assertEquals(-1, map.put(10L * i + 3, i));
+            assertEquals(0, map.getBufferSize());
+        }
+        assertEquals(count, map.getSize());
+
+        // a few keys out of order are buffered, but the buffer never exceeds its fixed size
+        for (int i = 0; i < 2 * CompressedLongIntMap.MAX_BUFFER_SIZE; i++) {
+            assertEquals(-1, map.put(10L * i + 5, -i));
+            assertTrue(map.getBufferSize() < CompressedLongIntMap.MAX_BUFFER_SIZE);
+        }
+        // and appending in order continues after a merge
+        assertEquals(-1, map.put(10L * count, count));
+        assertEquals(count + 2 * CompressedLongIntMap.MAX_BUFFER_SIZE + 1, map.getSize());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, map.get(10L * i + 3));
+        }
+        for (int i = 0; i < 2 * CompressedLongIntMap.MAX_BUFFER_SIZE; i++) {
+            assertEquals(-i, map.get(10L * i + 5));
+        }
+        assertEquals(count, map.get(10L * count));
+        assertEquals(-1, map.get(4));
+    }
+
+    @Test
+    public void testRandom() {
+        long seed = System.nanoTime();
+        Random rand = new Random(seed);
+        CompressedLongIntMap map = new CompressedLongIntMap(new RAMDirectory(), "map");
+        LongIntHashMap reference = new LongIntHashMap();
+        for (int i = 0; i < 300_000; i++) {
+            // mostly small and dense keys like OSM node ids, but sometimes very big or negative ones
+            long key = rand.nextInt(10) == 0 ? rand.nextLong() : rand.nextInt(1_000_000);
+            int value = rand.nextInt();
+            int expected = reference.containsKey(key) ? reference.get(key) : -1;
+            assertEquals("seed: " + seed, expected, map.put(key, value));
+            reference.put(key, value);
+        }
+        assertEquals("seed: " + seed, reference.size(), map.getSize());
+        for (LongIntCursor cursor : reference) {
+            assertEquals("seed: " + seed, cursor.value, map.get(cursor.key));
+        }
+
+        map.optimize();
+        for (LongIntCursor cursor : reference) {
+            assertEquals("seed: " + seed, cursor.value, map.get(cursor.key));
+        }
+        for (int i = 0; i < 1000; i++) {
+            long key = rand.nextLong();
+            assertEquals("seed: " + seed, reference.containsKey(key) ? reference.get(key) : -1, map.get(key));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MinHeapWithUpdateTest {
+
+    @Test
+    public void testPushPoll() {
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(4);
+        heap.push(3, 3.5);
+        heap.push(1, 1.5);
+        heap.push(20, 2.5);
+        assertEquals(3, heap.size());
+        assertTrue(heap.contains(20));
+        assertEquals(1, heap.peekId());
+        assertEquals(1.5, heap.peekKey(), 1.e-6);
+        assertEquals(1, heap.poll());
+        assertFalse(heap.contains(1));
+        assertEquals(20, heap.poll());
+        assertEquals(3, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testUpdate() {
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(4);
+        heap.push(0, 5);
+        heap.push(1, 6);
+        heap.push(2, 7);
+        heap.update(2, 1);
+        assertEquals(2, heap.peekId());
+        heap.update(2, 10);
+        assertEquals(0, heap.poll());
+        assertEquals(1, heap.poll());
+        assertEquals(2, heap.poll());
+    }
+
+    @Test
+    public void testClear() {
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(4);
+        heap.push(0, 5);
+        heap.push(7, 6);
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(7));
+        heap.push(7, 2);
+        assertEquals(7, heap.poll());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPushTwice() {
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(4);
+        heap.push(0, 5);
+        heap.push(0, 6);
+    }
+
+    @Test
+    public void random() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        int ids = 500;
+        final double[] keys = new double[ids];
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(16);
+        PriorityQueue<Integer> ref = new PriorityQueue<>(16, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(keys[a], keys[b]);
+            }
+        });
+        for (int i = 0; i < 5000; i++) {
+            int id = rnd.nextInt(ids);
+            double key = rnd.nextDouble() * 100;
+            if (heap.contains(id)) {
+                ref.remove(id);
+                keys[id] = key;
+                ref.add(id);
+                heap.update(id, key);
+            } else if (rnd.nextBoolean()) {
+                keys[id] = key;
+                ref.add(id);
+                heap.push(id, key);
+            } else if (!ref.isEmpty()) {
+                int expected = ref.poll();
+                assertEquals("seed: " + seed, keys[expected], heap.peekKey(), 1.e-9);
+                heap.poll();
+            }
+            assertEquals("seed: " + seed, ref.size(), heap.size());
+        }
+        while (!ref.isEmpty()) {
+            int expected = ref.poll();
+            assertEquals("seed: " + seed, keys[expected], keys[heap.poll()], 1.e-9);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortFastestWeighting;
+import com.graphhopper.util.Parameters;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProfileResolverTest {
+    private final ProfileResolver profileResolver = new ProfileResolver();
+
+    @Test
+    public void testCanUseCH() {
+        assertTrue(profileResolver.canUseCH(new HintsMap()));
+        assertTrue(profileResolver.canUseCH(new HintsMap().setVehicle("car").setWeighting("fastest")));
+        assertFalse(profileResolver.canUseCH(new HintsMap().put(Parameters.CH.DISABLE, true)));
+        assertFalse(profileResolver.canUseCH(new HintsMap().put(Parameters.Routing.BLOCK_AREA, "1.5,42.5")));
+    }
+
+    @Test
+    public void testEveryWeightingHintDisablesCH() throws IllegalAccessException {
+        List<String> hints = new ArrayList<>();
+        for (Class<?> clazz : new Class<?>[]{FastestWeighting.class, ShortFastestWeighting.class}) {
+            for (Field field : clazz.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isPublic(modifiers) && Modifier.isStatic(modifiers) && field.getType() == String.class
+                        && field.getName().endsWith("_FACTOR"))
+                    hints.add((String) field.get(null));
+            }
+        }
+        assertEquals(4, hints.size());
+        for (String hint : hints) {
+            assertFalse(hint, profileResolver.canUseCH(new HintsMap().put(hint, 2)));
+        }
+    }
+}
@@ -90,6 +90,18 @@ public class RandomCHRoutingTest {
         runRandomTest(rnd, 20);
     }
 
+    @Test
+    public void randomWithAdjacencyArrays() {
+        long seed = System.nanoTime();
+        System.out.println("seed: " + seed);
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 50, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        if (traversalMode.isEdgeBased()) {
+            GHUtility.addRandomTurnCosts(graph, seed, encodingManager, encoder, maxTurnCosts, graph.getTurnCostStorage());
+        }
+        runRandomTest(rnd, 20, true);
+    }
+
     @Test
     public void issue1574_1() {
         Assume.assumeFalse(traversalMode.isEdgeBased());
@@ -133,6 +145,10 @@ public class RandomCHRoutingTest {
     }
 
     private void runRandomTest(Random rnd, int numVirtualNodes) {
+        runRandomTest(rnd, numVirtualNodes, false);
+    }
+
+    private void runRandomTest(Random rnd, int numVirtualNodes, boolean adjacencyArrays) {
         locationIndex = new LocationIndexTree(graph, dir);
         locationIndex.prepareIndex();
 
@@ -140,6 +156,7 @@ public class RandomCHRoutingTest {
         CHGraph chGraph = graph.getCHGraph(chProfile);
         PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(graph, chProfile);
         pch.doWork();
+        graph.setCHAdjacencyArrays(adjacencyArrays);
 
         int numQueryGraph = 25;
         for (int j = 0; j < numQueryGraph; j++) {
@@ -0,0 +1,209 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.SPTLabelStore;
+import org.junit.Test;
+
+import static com.graphhopper.routing.RoutingAlgorithmTest.initTestStorage;
+import static org.junit.Assert.*;
+
+public class SearchWorkspacePoolTest {
+    private final FlagEncoder encoder;
+    private final EncodingManager encodingManager;
+    private final Weighting weighting;
+
+    public SearchWorkspacePoolTest() {
+        encodingManager = EncodingManager.create("car");
+        encoder = encodingManager.getEncoder("car");
+        weighting = new ShortestWeighting(encoder);
+    }
+
+    @Test
+    public void testReuse() {
+        SearchWorkspacePool pool = new SearchWorkspacePool(2, 1000);
+        SearchWorkspace workspace = pool.borrow(10);
+        assertEquals(0, pool.getIdleCount());
+        workspace.getLabels().add(-1, 0, 0, -1);
+        workspace.getHeap().push(0, 1);
+        workspace.release();
+        assertEquals(1, pool.getIdleCount());
+
+        SearchWorkspace other = pool.borrow(10);
+        assertSame(workspace, other);
+        assertTrue(other.getLabels().isEmpty());
+        assertTrue(other.getHeap().isEmpty());
+
+        // the pool is empty, so a new workspace has to be created
+        assertNotSame(workspace, pool.borrow(10));
+    }
+
+    @Test
+    public void testIdleWorkspacesAreSharedAndBounded() throws Exception {
+        final SearchWorkspacePool pool = new SearchWorkspacePool(2, 1000);
+        final SearchWorkspace a = pool.borrow(10);
+        SearchWorkspace b = pool.borrow(10);
+        SearchWorkspace c = pool.borrow(10);
+        a.release();
+        b.release();
+        c.release();
+        assertEquals(2, pool.getIdleCount());
+
+        // a workspace released on one thread can be borrowed by another one
+        final SearchWorkspace[] borrowed = new SearchWorkspace[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                borrowed[0] = pool.borrow(10);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertTrue(borrowed[0] == b || borrowed[0] == a);
+        assertEquals(1, pool.getIdleCount());
+
+        pool.setMaxIdle(0);
+        assertEquals(0, pool.getIdleCount());
+        borrowed[0].release();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseTwice() {
+        SearchWorkspace workspace = new SearchWorkspacePool(2, 1000).borrow(10);
+        workspace.release();
+        workspace.release();
+    }
+
+    @Test
+    public void testLargeWorkspacesAreNotRetained() {
+        SearchWorkspacePool pool = new SearchWorkspacePool(2, 3);
+        SearchWorkspace workspace = pool.borrow(10);
+        for (int i = 0; i < 4; i++)
+            workspace.getLabels().add(-1, i, 0, -1);
+        workspace.release();
+        assertEquals(0, pool.getIdleCount());
+
+        // the arrays keep their size, so a workspace that grew once is not retained even if the last search was small
+        pool = new SearchWorkspacePool(2, 100);
+        workspace = pool.borrow(10);
+        for (int i = 0; i < 200; i++)
+            workspace.getLabels().add(-1, i, 0, -1);
+        workspace.getLabels().clear();
+        workspace.getLabels().add(-1, 0, 0, -1);
+        workspace.release();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testAlgorithmsReleaseWorkspace() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        initTestStorage(graph);
+        SearchWorkspacePool pool = new SearchWorkspacePool(2, 1000);
+        for (int i = 0; i < 3; i++) {
+            Path p = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED, pool).calcPath(0, 7);
+            assertEquals(IntArrayList.from(0, 4, 5, 7), p.calcNodes());
+            assertEquals(1, pool.getIdleCount());
+
+            p = new AStar(graph, weighting, TraversalMode.NODE_BASED, pool).calcPath(0, 7);
+            assertEquals(IntArrayList.from(0, 4, 5, 7), p.calcNodes());
+            assertEquals(1, pool.getIdleCount());
+        }
+
+        // the borrowed collections cannot be read after the search
+        Dijkstra finished = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED, pool);
+        finished.calcPath(0, 7);
+        assertNull(finished.labels);
+        assertNull(finished.fromHeap);
+
+        // the workspace is only borrowed while calcPath runs
+        new Dijkstra(graph, weighting, TraversalMode.NODE_BASED, pool);
+        new AStar(graph, weighting, TraversalMode.NODE_BASED, pool);
+        assertEquals(1, pool.getIdleCount());
+
+        // it is also released if the search fails
+        Dijkstra dijkstra = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED, pool);
+        try {
+            dijkstra.calcPath(-1, 7);
+            fail("the search should fail for an invalid node");
+        } catch (RuntimeException ex) {
+            // expected
+        }
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testBidirAlgorithmsReleaseWorkspace() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        initTestStorage(graph);
+        SearchWorkspacePool pool = new SearchWorkspacePool(2, 1000);
+        for (int i = 0; i < 3; i++) {
+            DijkstraBidirectionRef dijkstraBi = new DijkstraBidirectionRef(graph, weighting, TraversalMode.NODE_BASED);
+            dijkstraBi.setWorkspacePool(pool);
+            Path p = dijkstraBi.calcPath(0, 7);
+            assertEquals(IntArrayList.from(0, 4, 5, 7), p.calcNodes());
+            assertEquals(1, pool.getIdleCount());
+
+            AStarBidirection aStarBi = new AStarBidirection(graph, weighting, TraversalMode.NODE_BASED);
+            aStarBi.setWorkspacePool(pool);
+            p = aStarBi.calcPath(0, 7);
+            assertEquals(IntArrayList.from(0, 4, 5, 7), p.calcNodes());
+            assertEquals(1, pool.getIdleCount());
+        }
+
+        // the released workspace is empty and the same one is used for every search
+        BidirSearchWorkspace workspace = pool.borrowBidir(10);
+        assertTrue(workspace.getHeapFrom().isEmpty());
+        assertTrue(workspace.getBestWeightMapFrom().isEmpty());
+        assertTrue(workspace.getBestWeightMapTo().isEmpty());
+        assertEquals(0, pool.getIdleCount());
+        workspace.release();
+
+        // it is also released if the search fails
+        DijkstraBidirectionRef dijkstraBi = new DijkstraBidirectionRef(graph, weighting, TraversalMode.NODE_BASED);
+        dijkstraBi.setWorkspacePool(pool);
+        try {
+            dijkstraBi.calcPath(-1, 7);
+            fail("the search should fail for an invalid node");
+        } catch (RuntimeException ex) {
+            // expected
+        }
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testClearAfterBigSearch() {
+        SPTLabelStore labels = new SPTLabelStore(16);
+        for (int i = 0; i < 10_000; i++)
+            labels.setLabel(i, labels.add(-1, i, 0, -1));
+        labels.clear();
+        assertTrue(labels.isEmpty());
+        for (int i = 0; i < 10_000; i++)
+            assertEquals(SPTLabelStore.NO_LABEL, labels.getLabel(i));
+        labels.setLabel(5, labels.add(-1, 5, 0, -1));
+        assertEquals(0, labels.getLabel(5));
+    }
+}
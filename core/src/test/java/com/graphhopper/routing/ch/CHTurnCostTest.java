@@ -1061,6 +1061,29 @@ public class CHTurnCostTest {
         automaticCompareCHWithDijkstra(100);
     }
 
+    @Test
+    public void testFindPath_parallelContraction_compareWithDijkstra() {
+        long seed = System.nanoTime();
+        LOGGER.info("Seed for testFindPath_parallelContraction_compareWithDijkstra: {}", seed);
+        final Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.2, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, encodingManager, encoder, maxCost, turnCostStorage);
+        graph.freeze();
+        checkStrict = false;
+        PMap pMap = new PMap();
+        // only the nodes that are contracted before the lazy updates start are contracted in parallel
+        pMap.put(LAST_LAZY_NODES_UPDATES, 10);
+        pMap.put(CONTRACTION_THREADS, 4);
+        PrepareContractionHierarchies ch = PrepareContractionHierarchies.fromGraphHopperStorage(graph, chProfile);
+        ch.setParams(pMap);
+        ch.doWork();
+        chGraph = graph.getCHGraph(chProfile);
+        RoutingAlgorithmFactory factory = ch.getRoutingAlgorithmFactory();
+        for (int i = 0; i < 100; ++i) {
+            compareCHQueryWithDijkstra(factory, rnd.nextInt(graph.getNodes()), rnd.nextInt(graph.getNodes()));
+        }
+    }
+
     private int nextCost(Random rnd) {
         // choose bound above max cost such that turn restrictions are likely
         return rnd.nextInt(3 * maxCost);
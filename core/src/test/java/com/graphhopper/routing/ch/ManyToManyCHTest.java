@@ -0,0 +1,138 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.GHUtility;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ManyToManyCHTest {
+    private CarFlagEncoder encoder;
+    private GraphHopperStorage graph;
+    private CHProfile chProfile;
+    private Weighting weighting;
+
+    @Before
+    public void init() {
+        encoder = new CarFlagEncoder();
+        graph = new GraphBuilder(EncodingManager.create(encoder))
+                .setCHProfileStrings("car|fastest|node")
+                .create();
+        chProfile = graph.getCHGraph().getCHProfile();
+        weighting = chProfile.getWeighting();
+    }
+
+    @Test
+    public void testSmallGraph() {
+        // 0-1-2-3
+        //   |   |
+        //   4---5
+        graph.edge(0, 1, 100, true);
+        graph.edge(1, 2, 100, true);
+        graph.edge(2, 3, 100, false);
+        graph.edge(1, 4, 50, true);
+        graph.edge(4, 5, 50, true);
+        graph.edge(5, 3, 50, true);
+        ManyToManyCH.Result result = calc(new int[]{0, 3}, new int[]{0, 3, 2});
+
+        assertEquals(0, result.getDistance(0, 0), 1.e-6);
+        assertEquals(250, result.getDistance(0, 1), 1.e-6);
+        assertEquals(200, result.getDistance(0, 2), 1.e-6);
+        assertEquals(250, result.getDistance(1, 0), 1.e-6);
+        // 3->2 is not allowed, so we have to go around
+        assertEquals(250, result.getDistance(1, 2), 1.e-6);
+        assertTrue(result.getTime(1, 2) > result.getTime(0, 2));
+    }
+
+    @Test
+    public void testDisconnected() {
+        graph.edge(0, 1, 100, true);
+        graph.edge(2, 3, 100, true);
+        ManyToManyCH.Result result = calc(new int[]{0, -1}, new int[]{1, 3});
+        assertTrue(result.isConnected(0, 0));
+        assertFalse(result.isConnected(0, 1));
+        assertEquals(Long.MAX_VALUE, result.getTime(0, 1));
+        assertFalse(result.isConnected(1, 0));
+    }
+
+    @Test
+    public void random() {
+        long seed = System.nanoTime();
+        System.out.println("seed: " + seed);
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        int[] sources = new int[10];
+        int[] targets = new int[15];
+        for (int i = 0; i < sources.length; i++)
+            sources[i] = rnd.nextInt(graph.getNodes());
+        for (int i = 0; i < targets.length; i++)
+            targets[i] = rnd.nextInt(graph.getNodes());
+        ManyToManyCH.Result result = calc(sources, targets);
+
+        for (int s = 0; s < sources.length; s++) {
+            for (int t = 0; t < targets.length; t++) {
+                Path refPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(sources[s], targets[t]);
+                String msg = "seed: " + seed + ", " + sources[s] + "->" + targets[t];
+                assertEquals(msg, refPath.isFound(), result.isConnected(s, t));
+                if (!refPath.isFound())
+                    continue;
+                // the weights of shortcuts are stored with a limited precision
+                assertEquals(msg, refPath.getWeight(), result.getWeight(s, t), 1.e-2);
+                assertEquals(msg, refPath.getDistance(), result.getDistance(s, t), 1.e-6);
+                assertEquals(msg, refPath.getTime(), result.getTime(s, t));
+            }
+        }
+    }
+
+    @Test
+    public void testInterrupted() {
+        graph.edge(0, 1, 100, true);
+        graph.edge(1, 2, 100, true);
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chProfile).doWork();
+        ManyToManyCH manyToMany = new ManyToManyCH(new RoutingCHGraphImpl(graph.getCHGraph(chProfile), weighting));
+        Thread.currentThread().interrupt();
+        try {
+            manyToMany.calc(new int[]{0}, new int[]{2});
+            fail("the calculation should stop if the thread is interrupted");
+        } catch (IllegalStateException ex) {
+            // expected
+        } finally {
+            Thread.interrupted();
+        }
+        assertTrue(manyToMany.calc(new int[]{0}, new int[]{2}).isConnected(0, 0));
+    }
+
+    private ManyToManyCH.Result calc(int[] sources, int[] targets) {
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chProfile).doWork();
+        CHGraph chGraph = graph.getCHGraph(chProfile);
+        return new ManyToManyCH(new RoutingCHGraphImpl(chGraph, weighting)).calc(sources, targets);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PhastCHTest {
+    private CarFlagEncoder encoder;
+    private GraphHopperStorage graph;
+    private CHProfile chProfile;
+    private Weighting weighting;
+    private boolean prepared;
+
+    @Before
+    public void init() {
+        encoder = new CarFlagEncoder();
+        graph = new GraphBuilder(EncodingManager.create(encoder))
+                .setCHProfileStrings("car|fastest|node")
+                .create();
+        chProfile = graph.getCHGraph().getCHProfile();
+        weighting = chProfile.getWeighting();
+    }
+
+    @Test
+    public void testSmallGraph() {
+        // 0-1-2-3
+        //   |   |
+        //   4---5
+        graph.edge(0, 1, 100, true);
+        graph.edge(1, 2, 100, true);
+        graph.edge(2, 3, 100, false);
+        graph.edge(1, 4, 50, true);
+        graph.edge(4, 5, 50, true);
+        graph.edge(5, 3, 50, true);
+        PhastCH.Result result = createPhast().calc(0);
+        assertEquals(0, result.getDistance(0), 1.e-6);
+        assertEquals(EdgeIterator.NO_EDGE, result.getEdge(0));
+        assertEquals(-1, result.getPrevNode(0));
+        assertEquals(200, result.getDistance(2), 1.e-6);
+        assertEquals(250, result.getDistance(3), 1.e-6);
+        assertEquals(200, result.getDistance(5), 1.e-6);
+        assertEquals(5, result.getPrevNode(3));
+        assertEquals(5, result.getEdge(3));
+
+        // 3->2 is not allowed, so we have to go around
+        result = createPhast().setReverse(true).calc(2);
+        assertEquals(200, result.getDistance(0), 1.e-6);
+        assertEquals(250, result.getDistance(3), 1.e-6);
+        assertEquals(250, createPhast().calc(3).getDistance(2), 1.e-6);
+    }
+
+    @Test
+    public void testLimits() {
+        // 0-1-2-3-4
+        graph.edge(0, 1, 100, true);
+        graph.edge(1, 2, 100, true);
+        graph.edge(2, 3, 100, true);
+        graph.edge(3, 4, 100, true);
+        PhastCH.Result result = createPhast().setDistanceLimit(250).calc(0);
+        assertTrue(result.isReached(2));
+        assertFalse(result.isReached(3));
+        assertFalse(result.isReached(4));
+        assertEquals(Long.MAX_VALUE, result.getTime(4));
+
+        long timeToNode2 = result.getTime(2);
+        result = createPhast().setTimeLimit(timeToNode2).calc(0);
+        assertTrue(result.isReached(2));
+        assertFalse(result.isReached(3));
+    }
+
+    @Test
+    public void testDisconnected() {
+        graph.edge(0, 1, 100, true);
+        graph.edge(2, 3, 100, true);
+        PhastCH.Result result = createPhast().calc(0);
+        assertTrue(result.isReached(1));
+        assertFalse(result.isReached(2));
+        assertTrue(Double.isInfinite(result.getWeight(3)));
+    }
+
+    @Test
+    public void testMaxReachedNodes() {
+        // 0-1-2-3-4
+        graph.edge(0, 1, 100, true);
+        graph.edge(1, 2, 100, true);
+        graph.edge(2, 3, 100, true);
+        graph.edge(3, 4, 100, true);
+        PhastCH phast = createPhast().setMaxReachedNodes(2);
+        phast.calc(0);
+        assertTrue(phast.isMaxReachedNodesExceeded());
+
+        phast.setMaxReachedNodes(5).calc(0);
+        assertFalse(phast.isMaxReachedNodesExceeded());
+        assertEquals(5, phast.getReachedNodes());
+
+        phast.setDistanceLimit(150).calc(0);
+        assertEquals(2, phast.getReachedNodes());
+    }
+
+    @Test
+    public void testPool() {
+        // 0-1-2-3
+        graph.edge(0, 1, 100, true);
+        graph.edge(1, 2, 100, true);
+        graph.edge(2, 3, 100, true);
+        PhastCHPool pool = new PhastCHPool(1);
+        PhastCH phast = createPhast(pool);
+        PhastCH.Result result = phast.calc(0);
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(4, result.getNodes());
+        assertEquals(300, result.getDistance(3), 1.e-6);
+        result.release();
+        assertEquals(1, pool.getIdleCount());
+
+        // the released arrays are reused and reset
+        result = createPhast(pool).setDistanceLimit(150).calc(0);
+        assertEquals(0, pool.getIdleCount());
+        assertTrue(result.isReached(1));
+        assertFalse(result.isReached(3));
+        PhastCH.Result other = phast.calc(3);
+        assertFalse(result.isReached(3));
+        assertEquals(300, other.getDistance(0), 1.e-6);
+        result.release();
+        other.release();
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testInterrupt() {
+        // 0-1-2
+        graph.edge(0, 1, 100, true);
+        graph.edge(1, 2, 100, true);
+        PhastCHPool pool = new PhastCHPool(1);
+        PhastCH phast = createPhast(pool);
+        Thread.currentThread().interrupt();
+        try {
+            phast.calc(0);
+            fail("the search should stop if the thread is interrupted");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("interrupted"));
+        } finally {
+            Thread.interrupted();
+        }
+        // the arrays are given back to the pool
+        assertEquals(1, pool.getIdleCount());
+        PhastCH.Result result = createPhast(pool).calc(0);
+        assertEquals(200, result.getDistance(2), 1.e-6);
+        result.release();
+    }
+
+    @Test
+    public void random() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        PhastCH phast = createPhast();
+        for (int i = 0; i < 5; i++) {
+            boolean reverse = i % 2 == 1;
+            int source = rnd.nextInt(graph.getNodes());
+            PhastCH.Result result = phast.setReverse(reverse).calc(source);
+            int strictViolations = 0;
+            int reachedNodes = 0;
+            for (int node = 0; node < graph.getNodes(); node++) {
+                if (result.isReached(node))
+                    reachedNodes++;
+                Dijkstra dijkstra = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED);
+                Path refPath = reverse ? dijkstra.calcPath(node, source) : dijkstra.calcPath(source, node);
+                String msg = "seed: " + seed + ", source: " + source + ", node: " + node + ", reverse: " + reverse;
+                assertEquals(msg, refPath.isFound(), result.isReached(node));
+                if (!refPath.isFound())
+                    continue;
+                assertEquals(msg, refPath.getWeight(), result.getWeight(node), 1.e-2);
+                if (Math.abs(refPath.getDistance() - result.getDistance(node)) > 1.e-1 || Math.abs(refPath.getTime() - result.getTime(node)) > 50)
+                    strictViolations++;
+            }
+            assertTrue("seed: " + seed + ", too many strict violations: " + strictViolations, strictViolations <= 0.05 * graph.getNodes());
+            // nodes that are reached by the upward search and improved by the downward sweep must only be counted once
+            assertEquals("seed: " + seed, reachedNodes, phast.getReachedNodes());
+        }
+    }
+
+    private PhastCH createPhast() {
+        return createPhast(new PhastCHPool(0));
+    }
+
+    private PhastCH createPhast(PhastCHPool pool) {
+        if (!prepared) {
+            prepared = true;
+            graph.freeze();
+            PrepareContractionHierarchies.fromGraphHopperStorage(graph, chProfile).doWork();
+        }
+        CHGraph chGraph = graph.getCHGraph(chProfile);
+        return new PhastCH(new RoutingCHGraphImpl(chGraph, weighting), pool);
+    }
+}
@@ -666,6 +666,36 @@ public class PrepareContractionHierarchiesTest {
         assertTrue("reusing node ordering should speed up ch contraction", timeMotorCycle < 0.5 * timeCar);
     }
 
+    @Test
+    public void testParallelContraction() {
+        CarFlagEncoder carFlagEncoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(carFlagEncoder);
+        CHProfile carProfile = CHProfile.nodeBased(new FastestWeighting(carFlagEncoder));
+        GraphHopperStorage ghStorage = new GraphBuilder(em).setCHProfiles(carProfile).create();
+
+        int numNodes = 5_000;
+        int numQueries = 100;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true, carFlagEncoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        ghStorage.freeze();
+
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, carProfile)
+                .setContractionThreads(4);
+        pch.doWork();
+        CHGraph carCH = ghStorage.getCHGraph(carProfile);
+        for (int i = 0; i < numQueries; ++i) {
+            Dijkstra dijkstra = new Dijkstra(ghStorage, carProfile.getWeighting(), TraversalMode.NODE_BASED);
+            RoutingAlgorithm chAlgo = pch.getRoutingAlgorithmFactory().createAlgo(carCH, AlgorithmOptions.start().weighting(carProfile.getWeighting()).build());
+
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            double dijkstraWeight = dijkstra.calcPath(from, to).getWeight();
+            double chWeight = chAlgo.calcPath(from, to).getWeight();
+            assertEquals("seed: " + seed, dijkstraWeight, chWeight, 1.e-1);
+        }
+    }
+
     private void checkPath(GraphHopperStorage g, CHProfile p, int expShortcuts, double expDistance, IntIndexedContainer expNodes) {
         CHGraph lg = g.getCHGraph(p);
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, p);
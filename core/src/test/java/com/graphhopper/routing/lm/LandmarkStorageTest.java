@@ -40,6 +40,7 @@ import org.locationtech.jts.geom.Polygon;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -168,6 +169,32 @@ public class LandmarkStorageTest {
         assertEquals("[4, 0]", Arrays.toString(storage.getLandmarks(1)));
     }
 
+    @Test
+    public void testParallelLandmarkWeights() {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(ghStorage, new Random(seed), 500, 2.2, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+
+        LandmarkStorage sequential = new LandmarkStorage(ghStorage, new RAMDirectory(), new LMProfile(new FastestWeighting(encoder)), 8);
+        sequential.setMinimumNodes(50);
+        sequential.createLandmarks();
+
+        LandmarkStorage parallel = new LandmarkStorage(ghStorage, new RAMDirectory(), new LMProfile(new FastestWeighting(encoder)), 8);
+        parallel.setMinimumNodes(50);
+        parallel.setLandmarkThreads(4);
+        parallel.createLandmarks();
+
+        assertEquals("seed: " + seed, sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks());
+        for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++) {
+            assertArrayEquals("seed: " + seed, sequential.getLandmarks(subnetwork), parallel.getLandmarks(subnetwork));
+        }
+        for (int node = 0; node < ghStorage.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                assertEquals("seed: " + seed, sequential.getFromWeight(lmIdx, node), parallel.getFromWeight(lmIdx, node));
+                assertEquals("seed: " + seed, sequential.getToWeight(lmIdx, node), parallel.getToWeight(lmIdx, node));
+            }
+        }
+    }
+
     @Test
     public void testWeightingConsistence() {
         // create an indifferent problem: shortest weighting can pass the speed==0 edge but fastest cannot (?)
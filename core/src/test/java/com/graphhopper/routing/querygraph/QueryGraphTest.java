@@ -603,6 +603,30 @@ public class QueryGraphTest {
         assertEquals(expect, isAvoidEdge(queryGraph, QueryGraph.VE_ADJ_REV));
     }
 
+    @Test
+    public void testCreateUnfavoredEdgesAgainstHeading() {
+        initHorseshoeGraph(g);
+        EdgeIteratorState edge = GHUtility.getEdge(g, 0, 1);
+
+        // query result on first vertical part of way (upward)
+        QueryResult qr = fakeEdgeQueryResult(edge, 1.5, 0, 0);
+        QueryGraph queryGraph = lookup(qr);
+
+        // going out north penalizes the edges going south, but only for the returned copies
+        List<EdgeIteratorState> unfavoredEdges = queryGraph.createUnfavoredEdgesAgainstHeading(qr.getClosestNode(), 0., false);
+        assertEquals(2, unfavoredEdges.size());
+        for (EdgeIteratorState unfavoredEdge : unfavoredEdges) {
+            assertTrue(unfavoredEdge.get(EdgeIteratorState.UNFAVORED_EDGE));
+        }
+        assertEquals(queryGraph.getVirtualEdges().get(QueryGraph.VE_BASE_REV).toString(), unfavoredEdges.get(0).toString());
+        assertFalse(isAvoidEdge(queryGraph, QueryGraph.VE_BASE_REV));
+        assertFalse(isAvoidEdge(queryGraph, QueryGraph.VE_BASE));
+        assertTrue(queryGraph.getUnfavoredVirtualEdges().isEmpty());
+
+        assertTrue(queryGraph.createUnfavoredEdgesAgainstHeading(qr.getClosestNode(), Double.NaN, false).isEmpty());
+        assertTrue(queryGraph.createUnfavoredEdgesAgainstHeading(0, 0., false).isEmpty());
+    }
+
     @Test
     public void testunfavorVirtualEdgePair() {
 
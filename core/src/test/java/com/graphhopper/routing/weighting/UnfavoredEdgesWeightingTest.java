@@ -0,0 +1,65 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.IntsRef;
+import com.graphhopper.util.*;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class UnfavoredEdgesWeightingTest {
+    private final FlagEncoder encoder = new CarFlagEncoder(5, 5, 10);
+    private final EncodingManager encodingManager = EncodingManager.create(encoder);
+
+    @Test
+    public void testUnfavoredEdges() {
+        Weighting fastest = new FastestWeighting(encoder, new PMap().
+                put(Parameters.Routing.HEADING_PENALTY, "100"));
+        IntsRef flags = GHUtility.setProperties(encodingManager.createEdgeFlags(), encoder, 10, true, false);
+        VirtualEdgeIteratorState virtEdge = new VirtualEdgeIteratorState(0, 1, 1, 2, 10, flags, "test",
+                Helper.createPointList(51, 0, 51, 1), false);
+        VirtualEdgeIteratorState unfavoredEdge = new VirtualEdgeIteratorState(0, 1, 1, 2, 10, flags, "test",
+                Helper.createPointList(51, 0, 51, 1), false);
+        unfavoredEdge.setUnfavored(true);
+        double time = fastest.calcEdgeWeight(virtEdge, false);
+
+        Weighting instance = new UnfavoredEdgesWeighting(fastest, Collections.<EdgeIteratorState>singletonList(unfavoredEdge));
+        // the penalty is applied although the edge of the graph is not unfavored
+        assertEquals(time + 100, instance.calcEdgeWeight(virtEdge, false), 1e-8);
+        assertEquals(time, fastest.calcEdgeWeight(virtEdge, false), 1e-8);
+
+        VirtualEdgeIteratorState otherEdge = new VirtualEdgeIteratorState(2, 2, 2, 3, 10, flags, "test",
+                Helper.createPointList(51, 1, 51, 2), false);
+        assertEquals(fastest.calcEdgeWeight(otherEdge, false), instance.calcEdgeWeight(otherEdge, false), 1e-8);
+
+        try {
+            new UnfavoredEdgesWeighting(fastest, Collections.<EdgeIteratorState>singletonList(otherEdge));
+            fail("edges that are not unfavored should be rejected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
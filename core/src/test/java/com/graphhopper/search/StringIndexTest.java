@@ -2,6 +2,8 @@ package com.graphhopper.search;
 
 import com.carrotsearch.hppc.LongArrayList;
 import com.graphhopper.Repeat;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.Helper;
 import org.junit.Test;
@@ -223,6 +225,90 @@ public class StringIndexTest {
         assertNull(index.get(pointerB, ""));
     }
 
+    @Test
+    public void testDictionaryEncoding() {
+        StringIndex index = new StringIndex(new RAMDirectory()).setDictionaryEncoding(true).create(1000);
+        long aPointer = index.add(createMap("a", "same name", "b", "same name"));
+        long bPointer = index.add(createMap("c", "other name", "a", ""));
+        // values are stored in the dictionary and so every key only needs 2 bytes for the key index plus 4 bytes for the reference
+        assertEquals(aPointer + 1 + 2 * (2 + 4), bPointer);
+        long cPointer = index.add(createMap("b", "same name"));
+        assertEquals(bPointer + 1 + 2 * (2 + 4), cPointer);
+
+        assertEquals("same name", index.get(aPointer, "a"));
+        assertEquals("same name", index.get(aPointer, "b"));
+        assertNull(index.get(aPointer, "c"));
+        assertEquals("other name", index.get(bPointer, "c"));
+        assertEquals("", index.get(bPointer, "a"));
+        assertEquals("same name", index.get(cPointer, "b"));
+        assertEquals("{a=same name, b=same name}", index.getAll(aPointer).toString());
+        // decoded values are shared
+        assertSame(index.get(aPointer, "a"), index.get(cPointer, "b"));
+
+        try {
+            index.setDictionaryEncoding(false);
+            fail();
+        } catch (IllegalStateException ex) {
+        }
+    }
+
+    @Test
+    public void testDictionaryEncodingFlush() {
+        String location = "./target/stringindex-store";
+        Helper.removeDir(new File(location));
+
+        StringIndex index = new StringIndex(new RAMDirectory(location, true).create()).setDictionaryEncoding(true).create(1000);
+        long pointerA = index.add(createMap("", "test"));
+        long pointerB = index.add(createMap("a", "value", "b", "another value"));
+        index.flush();
+        index.close();
+
+        index = new StringIndex(new RAMDirectory(location, true));
+        assertTrue(index.loadExisting());
+        assertTrue(index.isDictionaryEncoding());
+        assertEquals("test", index.get(pointerA, ""));
+        assertEquals("{a=value, b=another value}", index.getAll(pointerB).toString());
+        // existing values are found again after loadExisting
+        long pointerC = index.add(createMap("c", "another value"));
+        assertEquals(pointerB + 1 + 2 * (2 + 4), pointerC);
+        long pointerD = index.add(createMap("c", "new value"));
+        assertEquals("another value", index.get(pointerC, "c"));
+        assertEquals("new value", index.get(pointerD, "c"));
+        index.close();
+
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testDoThrowExceptionIfFormatIsUnknown() {
+        String location = "./target/stringindex-store";
+        Helper.removeDir(new File(location));
+
+        StringIndex index = new StringIndex(new RAMDirectory(location, true).create()).create(1000);
+        index.add(createMap("", "test"));
+        index.flush();
+        index.close();
+
+        // e.g. a string index created by a newer version with another format
+        Directory dir = new RAMDirectory(location, true);
+        DataAccess vals = dir.find("string_index_vals");
+        assertTrue(vals.loadExisting());
+        vals.setHeader(8, 7);
+        vals.flush();
+        vals.close();
+
+        index = new StringIndex(new RAMDirectory(location, true));
+        try {
+            index.loadExisting();
+            fail();
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Unknown string index format 7"));
+        }
+        index.close();
+
+        Helper.removeDir(new File(location));
+    }
+
     @Test
     @Repeat(times = 100)
     public void testRandom() {
@@ -0,0 +1,155 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.util.UpwardEdgeFilter;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.util.CHEdgeIteratorState;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AdjacencyArraysTest {
+    private final CarFlagEncoder encoder = new CarFlagEncoder();
+    private final EncodingManager encodingManager = EncodingManager.create(encoder);
+
+    @Test
+    public void testSameEdgesAsLinkedLists() {
+        long seed = System.nanoTime();
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 200, 2.2, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+
+        List<List<String>> expected = collect(graph.createEdgeExplorer(DefaultEdgeFilter.outEdges(encoder)), graph.getNodes());
+        List<List<String>> expectedAll = collect(graph.createEdgeExplorer(), graph.getNodes());
+
+        graph.setAdjacencyArrays(true);
+        assertFalse(((BaseGraph) graph.getBaseGraph()).hasAdjacencyArrays());
+        graph.freeze();
+        assertTrue(((BaseGraph) graph.getBaseGraph()).hasAdjacencyArrays());
+
+        assertEquals("seed: " + seed, expected, collect(graph.createEdgeExplorer(DefaultEdgeFilter.outEdges(encoder)), graph.getNodes()));
+        assertEquals("seed: " + seed, expectedAll, collect(graph.createEdgeExplorer(), graph.getNodes()));
+    }
+
+    @Test
+    public void testDetach() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        graph.edge(0, 1, 10, true).setName("a");
+        graph.edge(2, 0, 20, false).setName("b");
+        graph.setAdjacencyArrays(true).freeze();
+
+        EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(0);
+        assertTrue(iter.next());
+        assertEquals(1, iter.getEdge());
+        assertEquals(2, iter.getAdjNode());
+        EdgeIteratorState detached = iter.detach(false);
+        assertEquals(0, detached.getBaseNode());
+        assertEquals(2, detached.getAdjNode());
+        assertEquals("b", detached.getName());
+        EdgeIteratorState reversed = iter.detach(true);
+        assertEquals(2, reversed.getBaseNode());
+        assertEquals(0, reversed.getAdjNode());
+        assertEquals(iter.get(encoder.getAccessEnc()), reversed.getReverse(encoder.getAccessEnc()));
+
+        assertTrue(iter.next());
+        assertEquals(0, iter.getEdge());
+        assertEquals(1, iter.getAdjNode());
+        assertEquals(10, iter.getDistance(), 1e-6);
+        assertFalse(iter.next());
+    }
+
+    @Test
+    public void testSameRoutes() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 200, 2.2, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        FastestWeighting weighting = new FastestWeighting(encoder);
+
+        int[][] queries = new int[50][];
+        double[] weights = new double[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new int[]{rnd.nextInt(graph.getNodes()), rnd.nextInt(graph.getNodes())};
+            weights[i] = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(queries[i][0], queries[i][1]).getWeight();
+        }
+
+        graph.setAdjacencyArrays(true).freeze();
+        for (int i = 0; i < queries.length; i++) {
+            Path path = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(queries[i][0], queries[i][1]);
+            assertEquals("seed: " + seed, weights[i], path.getWeight(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testUpwardEdgesOfCHGraph() {
+        long seed = System.nanoTime();
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).setCHProfileStrings("car|fastest|node").create();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 200, 2.2, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        graph.freeze();
+        CHProfile chProfile = graph.getCHProfiles().get(0);
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chProfile).doWork();
+        CHGraphImpl chGraph = (CHGraphImpl) graph.getCHGraph(chProfile);
+
+        UpwardEdgeFilter outFilter = new UpwardEdgeFilter(chGraph, false);
+        UpwardEdgeFilter inFilter = new UpwardEdgeFilter(chGraph, true);
+        List<List<String>> expectedOut = collect(chGraph.createEdgeExplorer(outFilter), graph.getNodes());
+        List<List<String>> expectedIn = collect(chGraph.createEdgeExplorer(inFilter), graph.getNodes());
+
+        graph.setCHAdjacencyArrays(true);
+        assertTrue(chGraph.hasUpwardAdjacencyArrays());
+        assertEquals("seed: " + seed, expectedOut, collect(chGraph.createEdgeExplorer(outFilter), graph.getNodes()));
+        assertEquals("seed: " + seed, expectedIn, collect(chGraph.createEdgeExplorer(inFilter), graph.getNodes()));
+        graph.setCHAdjacencyArrays(false);
+        assertFalse(chGraph.hasUpwardAdjacencyArrays());
+    }
+
+    private static List<List<String>> collect(EdgeExplorer explorer, int nodes) {
+        List<List<String>> result = new ArrayList<>(nodes);
+        for (int node = 0; node < nodes; node++) {
+            List<String> edges = new ArrayList<>();
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (iter instanceof CHEdgeIteratorState && ((CHEdgeIteratorState) iter).isShortcut()) {
+                    CHEdgeIteratorState shortcut = (CHEdgeIteratorState) iter;
+                    edges.add(iter.getEdge() + ":" + iter.getBaseNode() + "->" + iter.getAdjNode() + "," + shortcut.getWeight()
+                            + "," + shortcut.getFwdAccess() + "," + shortcut.getBwdAccess());
+                } else {
+                    edges.add(iter.getEdge() + ":" + iter.getBaseNode() + "->" + iter.getAdjNode() + "," + iter.getDistance()
+                            + "," + iter.getFlags());
+                }
+            }
+            result.add(edges);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs all storage tests with the delta and variable-length encoded geometry format.
+ */
+public class GraphHopperStorageWithCompressedGeometryTest extends GraphHopperStorageTest {
+    @Override
+    protected GraphHopperStorage newGHStorage(Directory dir, boolean enabled3D, int segmentSize) {
+        return GraphBuilder.start(encodingManager).setDir(dir).set3D(enabled3D).setSegmentSize(segmentSize)
+                .setCompressedGeometry(true).build();
+    }
+
+    @Override
+    @Test
+    public void testDontGrowOnUpdate() {
+        graph = createGHStorage(defaultGraphLoc, true);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 10, 10, 0);
+        na.setNode(1, 11, 20, 1);
+        na.setNode(2, 12, 12, 0.4);
+
+        EdgeIteratorState iter2 = graph.edge(0, 1, 100, true);
+        final BaseGraph baseGraph = (BaseGraph) graph.getBaseGraph();
+        assertEquals(4, baseGraph.getMaxGeoRef());
+        iter2.setWayGeometry(Helper.createPointList3D(1, 2, 3, 3, 4, 5, 5, 6, 7, 7, 8, 9));
+        long maxGeoRef = baseGraph.getMaxGeoRef();
+        assertTrue(maxGeoRef > 4);
+        iter2.setWayGeometry(Helper.createPointList3D(1, 2, 3, 3, 4, 5, 5, 6, 7));
+        assertEquals(maxGeoRef, baseGraph.getMaxGeoRef());
+        iter2.setWayGeometry(Helper.createPointList3D(1, 2, 3));
+        assertEquals(maxGeoRef, baseGraph.getMaxGeoRef());
+        assertEquals(Helper.createPointList3D(1, 2, 3), iter2.fetchWayGeometry(0));
+
+        EdgeIteratorState iter1 = graph.edge(0, 2, 200, true);
+        iter1.setWayGeometry(Helper.createPointList3D(3.5, 4.5, 0, 5, 6, 0));
+        assertTrue(baseGraph.getMaxGeoRef() > maxGeoRef);
+    }
+
+    @Test
+    public void testDoThrowExceptionIfGeometryFormatIsUnknown() {
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false);
+        graph.create(1000);
+        graph.flush();
+        graph.close();
+
+        // e.g. a graph created by a newer version with another geometry format
+        Directory dir = new RAMDirectory(defaultGraphLoc, true);
+        DataAccess geometry = dir.find("geometry");
+        assertTrue(geometry.loadExisting());
+        geometry.setHeader(2 * 4, 7);
+        geometry.flush();
+        geometry.close();
+
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false);
+        try {
+            graph.loadExisting();
+            fail();
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Unknown geometry format 7"));
+        }
+    }
+
+    @Test
+    public void testGeometryIsSmaller() {
+        PointList pointList = new PointList(100, false);
+        for (int i = 0; i < 100; i++) {
+            pointList.add(52.5 + i * 0.0003, 13.4 - i * 0.0002);
+        }
+
+        GraphHopperStorage raw = GraphBuilder.start(encodingManager).create();
+        raw.edge(0, 1, 100, true).setWayGeometry(pointList);
+        GraphHopperStorage compressed = GraphBuilder.start(encodingManager).setCompressedGeometry(true).create();
+        EdgeIteratorState edge = compressed.edge(0, 1, 100, true).setWayGeometry(pointList);
+
+        assertTrue(compressed.isCompressedGeometry());
+        // the first 4 ints are reserved
+        long rawInts = ((BaseGraph) raw.getBaseGraph()).getMaxGeoRef() - 4;
+        long compressedInts = ((BaseGraph) compressed.getBaseGraph()).getMaxGeoRef() - 4;
+        assertTrue(rawInts + " vs. " + compressedInts, compressedInts < rawInts * 0.6);
+
+        PointList fetched = edge.fetchWayGeometry(0);
+        assertEquals(100, fetched.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(pointList.getLat(i), fetched.getLat(i), 1e-6);
+            assertEquals(pointList.getLon(i), fetched.getLon(i), 1e-6);
+        }
+        PointList reverse = compressed.getEdgeIteratorState(edge.getEdge(), 0).fetchWayGeometry(0);
+        assertEquals(pointList.getLat(99), reverse.getLat(0), 1e-6);
+    }
+}
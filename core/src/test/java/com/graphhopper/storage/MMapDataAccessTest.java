@@ -59,4 +59,27 @@ public class MMapDataAccessTest extends DataAccessTest {
         assertEquals(123, da.getInt(7 * 4));
         da.close();
     }
+
+    @Test
+    public void testLoad() {
+        DataAccess da = createDataAccess(name);
+        da.create(128 * 4);
+        da.setInt(3 * 128 + 4, 123);
+        da.flush();
+        da.close();
+
+        MMapDataAccess mmap = (MMapDataAccess) createDataAccess(name);
+        assertTrue(mmap.loadExisting());
+        assertEquals(4, mmap.getSegments());
+        assertEquals(0, mmap.load(0));
+        assertEquals(2 * 128, mmap.load(50));
+        assertEquals(4 * 128, mmap.load(100));
+        assertEquals(123, mmap.getInt(3 * 128 + 4));
+        try {
+            mmap.load(101);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+        mmap.close();
+    }
 }
@@ -17,6 +17,12 @@
  */
 package com.graphhopper.storage;
 
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.assertEquals;
+
 /**
  * @author Peter Karich
  */
@@ -25,4 +31,30 @@ public class MMapDirectoryTest extends AbstractDirectoryTester {
     Directory createDir() {
         return new MMapDirectory(location).create();
     }
+
+    @Test
+    public void testLoadMMap() {
+        GHDirectory dir = new GHDirectory(location, DAType.MMAP);
+        dir.create();
+        for (String name : new String[]{"nodes", "shortcuts_car", "geometry"}) {
+            DataAccess da = dir.find(name).create(100);
+            da.setInt(0, name.length());
+            da.flush();
+        }
+        dir.close();
+
+        dir = new GHDirectory(location, DAType.MMAP_RO);
+        for (String name : new String[]{"nodes", "shortcuts_car", "geometry"}) {
+            dir.find(name).loadExisting();
+        }
+        LinkedHashMap<String, Integer> preloads = new LinkedHashMap<>();
+        preloads.put("geometry", 0);
+        preloads.put("nodes", 100);
+        preloads.put("shortcuts_.*", 50);
+        dir.loadMMap(preloads, 2);
+        assertEquals(5, dir.find("nodes").getInt(0));
+        assertEquals(13, dir.find("shortcuts_car").getInt(0));
+        assertEquals(8, dir.find("geometry").getInt(0));
+        dir.close();
+    }
 }
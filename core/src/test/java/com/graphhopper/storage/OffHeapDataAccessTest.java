@@ -0,0 +1,73 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OffHeapDataAccessTest extends DataAccessTest {
+    @Override
+    public DataAccess createDataAccess(String name) {
+        return new OffHeapDataAccess(name, directory, true, defaultOrder).setSegmentSize(128);
+    }
+
+    @Test
+    public void testLoadFromRAMDataAccess() {
+        DataAccess ramDA = new RAMDataAccess(name, directory, true, defaultOrder).setSegmentSize(128);
+        ramDA.create(300);
+        ramDA.setInt(7 * 4, 123);
+        ramDA.setShort(127, (short) 12345);
+        ramDA.setHeader(4, 77);
+        ramDA.flush();
+        ramDA.close();
+
+        DataAccess da = createDataAccess(name);
+        assertTrue(da.loadExisting());
+        assertEquals(3 * 128, da.getCapacity());
+        assertEquals(123, da.getInt(7 * 4));
+        assertEquals(12345, da.getShort(127));
+        assertEquals(77, da.getHeader(4));
+        da.close();
+    }
+
+    @Test
+    public void testReadAfterClose() {
+        DataAccess da = createDataAccess(name);
+        da.create(300);
+        da.setInt(7 * 4, 123);
+        da.close();
+        // the memory is not freed eagerly, so a late reader gets an exception instead of crashing the JVM
+        try {
+            da.getInt(7 * 4);
+            fail("reading a closed DataAccess should fail");
+        } catch (RuntimeException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFromString() {
+        assertEquals(DAType.RAM_OFFHEAP, DAType.fromString("ram_offheap"));
+        assertEquals(DAType.RAM_OFFHEAP_STORE, DAType.fromString("RAM_OFFHEAP_STORE"));
+        assertEquals("RAM_OFFHEAP_STORE", DAType.RAM_OFFHEAP_STORE.toString());
+        assertEquals(DAType.RAM_OFFHEAP_STORE, DAType.getPreferredInt(DAType.RAM_OFFHEAP_STORE));
+    }
+}
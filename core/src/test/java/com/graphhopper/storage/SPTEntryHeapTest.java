@@ -0,0 +1,136 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SPTEntryHeapTest {
+
+    @Test
+    public void testAddPoll() {
+        SPTEntryHeap heap = new SPTEntryHeap(4);
+        SPTEntry a = new SPTEntry(3, 3.5);
+        SPTEntry b = new SPTEntry(1, 1.5);
+        SPTEntry c = new SPTEntry(20, 2.5);
+        heap.add(a);
+        heap.add(b);
+        heap.add(c);
+        assertEquals(3, heap.size());
+        assertTrue(heap.contains(c));
+        assertSame(b, heap.peek());
+        assertSame(b, heap.poll());
+        assertFalse(heap.contains(b));
+        assertSame(c, heap.poll());
+        assertSame(a, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testUpdate() {
+        SPTEntryHeap heap = new SPTEntryHeap(4);
+        SPTEntry a = new SPTEntry(0, 5);
+        SPTEntry b = new SPTEntry(1, 6);
+        SPTEntry c = new SPTEntry(2, 7);
+        heap.add(a);
+        heap.add(b);
+        heap.add(c);
+        c.weight = 1;
+        heap.update(c);
+        assertSame(c, heap.peek());
+        c.weight = 10;
+        heap.update(c);
+        assertSame(a, heap.poll());
+        // an entry that was already polled is added again
+        a.weight = 8;
+        heap.update(a);
+        assertSame(b, heap.poll());
+        assertSame(a, heap.poll());
+        assertSame(c, heap.poll());
+    }
+
+    @Test
+    public void testRebuild() {
+        SPTEntryHeap heap = new SPTEntryHeap(4);
+        for (int i = 0; i < 10; i++)
+            heap.add(new SPTEntry(i, i));
+        for (SPTEntry entry : heap.toArray())
+            entry.weight = 10 - entry.adjNode;
+        heap.rebuild();
+        for (int i = 9; i >= 0; i--)
+            assertEquals(i, heap.poll().adjNode);
+    }
+
+    @Test
+    public void testClear() {
+        SPTEntryHeap heap = new SPTEntryHeap(4);
+        SPTEntry a = new SPTEntry(0, 5);
+        heap.add(a);
+        heap.add(new SPTEntry(7, 6));
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(a));
+        heap.add(a);
+        assertSame(a, heap.poll());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddTwice() {
+        SPTEntryHeap heap = new SPTEntryHeap(4);
+        SPTEntry a = new SPTEntry(0, 5);
+        heap.add(a);
+        heap.add(a);
+    }
+
+    @Test
+    public void random() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        List<SPTEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+            entries.add(new SPTEntry(i, 0));
+        SPTEntryHeap heap = new SPTEntryHeap(16);
+        PriorityQueue<SPTEntry> ref = new PriorityQueue<>(16);
+        for (int i = 0; i < 5000; i++) {
+            SPTEntry entry = entries.get(rnd.nextInt(entries.size()));
+            double weight = rnd.nextDouble() * 100;
+            if (heap.contains(entry)) {
+                ref.remove(entry);
+                entry.weight = weight;
+                ref.add(entry);
+                heap.update(entry);
+            } else if (rnd.nextBoolean()) {
+                entry.weight = weight;
+                ref.add(entry);
+                heap.add(entry);
+            } else if (!ref.isEmpty()) {
+                SPTEntry expected = ref.poll();
+                assertEquals("seed: " + seed, expected.weight, heap.poll().weight, 1.e-9);
+            }
+            assertEquals("seed: " + seed, ref.size(), heap.size());
+        }
+        while (!ref.isEmpty())
+            assertEquals("seed: " + seed, ref.poll().weight, heap.poll().weight, 1.e-9);
+    }
+}
@@ -30,11 +30,13 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import static com.graphhopper.util.GHUtility.getEdge;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class TurnCostStorageTest {
 
@@ -149,6 +151,76 @@ public class TurnCostStorageTest {
         assertEquals(expectedTurnRelations, allTurnRelations);
     }
 
+    @Test
+    public void testLookupTable() {
+        GraphHopperStorage g = new GraphBuilder(manager).create();
+        initGraph(g);
+        TurnCostStorage turnCostStorage = g.getTurnCostStorage();
+
+        DecimalEncodedValue carEnc = manager.getDecimalEncodedValue(TurnCost.key("car"));
+        DecimalEncodedValue bikeEnc = manager.getDecimalEncodedValue(TurnCost.key("bike"));
+        int edge42 = getEdge(g, 4, 2).getEdge();
+        int edge23 = getEdge(g, 2, 3).getEdge();
+        int edge31 = getEdge(g, 3, 1).getEdge();
+        int edge10 = getEdge(g, 1, 0).getEdge();
+        int edge02 = getEdge(g, 0, 2).getEdge();
+        int edge24 = getEdge(g, 2, 4).getEdge();
+
+        turnCostStorage.set(carEnc, edge42, 2, edge23, Double.POSITIVE_INFINITY);
+        turnCostStorage.set(bikeEnc, edge23, 3, edge31, 2.0);
+        turnCostStorage.set(carEnc, edge31, 1, edge10, 2.0);
+        turnCostStorage.set(bikeEnc, edge31, 1, edge10, Double.POSITIVE_INFINITY);
+        turnCostStorage.set(bikeEnc, edge02, 2, edge24, Double.POSITIVE_INFINITY);
+
+        turnCostStorage.buildLookupTable();
+        assertTrue(turnCostStorage.hasLookupTable());
+        assertEquals(Double.POSITIVE_INFINITY, turnCostStorage.get(carEnc, edge42, 2, edge23), 0);
+        assertEquals(0, turnCostStorage.get(bikeEnc, edge42, 2, edge23), 0);
+        assertEquals(2.0, turnCostStorage.get(bikeEnc, edge23, 3, edge31), 0);
+        assertEquals(2.0, turnCostStorage.get(carEnc, edge31, 1, edge10), 0);
+        assertEquals(Double.POSITIVE_INFINITY, turnCostStorage.get(bikeEnc, edge31, 1, edge10), 0);
+        assertEquals(Double.POSITIVE_INFINITY, turnCostStorage.get(bikeEnc, edge02, 2, edge24), 0);
+        // no entry, also not for a different via node
+        assertEquals(0, turnCostStorage.get(carEnc, edge24, 2, edge02), 0);
+        assertEquals(0, turnCostStorage.get(carEnc, edge42, 3, edge23), 0);
+
+        // changing the turn costs drops the table
+        turnCostStorage.set(carEnc, edge02, 2, edge23, Double.POSITIVE_INFINITY);
+        assertFalse(turnCostStorage.hasLookupTable());
+        assertEquals(Double.POSITIVE_INFINITY, turnCostStorage.get(carEnc, edge02, 2, edge23), 0);
+    }
+
+    @Test
+    public void testLookupTableSameAsLists() {
+        GraphHopperStorage g = new GraphBuilder(manager).create();
+        DecimalEncodedValue carEnc = manager.getDecimalEncodedValue(TurnCost.key("car"));
+        Random rnd = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            g.edge(rnd.nextInt(100), rnd.nextInt(100), 10, true);
+        }
+        TurnCostStorage turnCostStorage = g.getTurnCostStorage();
+        for (int i = 0; i < 2000; i++) {
+            turnCostStorage.set(carEnc, rnd.nextInt(1000), rnd.nextInt(100), rnd.nextInt(1000), rnd.nextInt(3));
+        }
+
+        double[] expected = new double[10_000];
+        int[] queries = new int[3 * expected.length];
+        for (int i = 0; i < expected.length; i++) {
+            queries[3 * i] = rnd.nextInt(1000);
+            queries[3 * i + 1] = rnd.nextInt(100);
+            queries[3 * i + 2] = rnd.nextInt(1000);
+            expected[i] = turnCostStorage.get(carEnc, queries[3 * i], queries[3 * i + 1], queries[3 * i + 2]);
+        }
+        turnCostStorage.buildLookupTable();
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], turnCostStorage.get(carEnc, queries[3 * i], queries[3 * i + 1], queries[3 * i + 2]), 0);
+        }
+        TurnCostStorage.TurnRelationIterator iterator = turnCostStorage.getAllTurnRelations();
+        while (iterator.next()) {
+            assertEquals(iterator.getCost(carEnc), turnCostStorage.get(carEnc, iterator.getFromEdge(), iterator.getViaNode(), iterator.getToEdge()), 0);
+        }
+    }
+
     @Test
     public void testIterateEmptyStore() {
         GraphHopperStorage g = new GraphBuilder(manager).create();
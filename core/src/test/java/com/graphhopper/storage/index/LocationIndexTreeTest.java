@@ -34,6 +34,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.*;
 
@@ -227,6 +230,71 @@ public class LocationIndexTreeTest extends AbstractLocationIndexTester {
         assertEquals(1, res.getClosestNode());
     }
 
+    @Test
+    public void testFindClosestBatch() {
+        Graph graph = createTestGraph(encodingManager);
+        LocationIndexTree index = createIndex(graph, 200);
+        NodeAccess na = graph.getNodeAccess();
+        Random rand = new Random(12);
+        double[] lats = new double[200], lons = new double[200];
+        for (int i = 0; i < lats.length; i++) {
+            // most points are close to the graph, some are too far away to be snapped
+            int node = rand.nextInt(graph.getNodes());
+            double spread = i % 10 == 0 ? 1 : 0.01;
+            lats[i] = na.getLatitude(node) + (rand.nextDouble() - 0.5) * spread;
+            lons[i] = na.getLongitude(node) + (rand.nextDouble() - 0.5) * spread;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for (int chunks : new int[]{1, 3}) {
+            // more chunks than threads, the executor is shared and bounded
+            List<QueryResult> results = index.findClosest(lats, lons, EdgeFilter.ALL_EDGES, executor, chunks);
+            assertEquals(lats.length, results.size());
+            int valid = 0;
+            for (int i = 0; i < lats.length; i++) {
+                QueryResult expected = index.findClosest(lats[i], lons[i], EdgeFilter.ALL_EDGES);
+                QueryResult result = results.get(i);
+                assertEquals(lats[i], result.getQueryPoint().lat, 1e-9);
+                assertEquals(expected.isValid(), result.isValid());
+                if (!expected.isValid())
+                    continue;
+                valid++;
+                assertEquals(expected.getClosestNode(), result.getClosestNode());
+                assertEquals(expected.getClosestEdge().getEdge(), result.getClosestEdge().getEdge());
+                assertEquals(expected.getQueryDistance(), result.getQueryDistance(), 1e-6);
+            }
+            assertTrue("too few valid results: " + valid, valid > lats.length / 2);
+        }
+        // the executor belongs to the caller and is still usable
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+
+        try {
+            index.findClosest(new double[2], new double[1], EdgeFilter.ALL_EDGES);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testStreamingPreparation() {
+        Graph graph = createTestGraph2();
+        LocationIndexTree inMem = createIndex(graph, 200);
+        for (int threads : new int[]{1, 3}) {
+            LocationIndexTree streaming = new LocationIndexTree(graph, new RAMDirectory(location));
+            streaming.setResolution(200);
+            streaming.setStreamingPreparation(true).setPreparationThreads(threads).prepareIndex();
+            assertEquals(inMem.getEntries(), streaming.getEntries());
+
+            long bytes = Math.min(inMem.dataAccess.getCapacity(), streaming.dataAccess.getCapacity());
+            for (long pointer = 0; pointer < bytes; pointer += 4) {
+                assertEquals("pointer " + pointer, inMem.dataAccess.getInt(pointer), streaming.dataAccess.getInt(pointer));
+            }
+            assertEquals(inMem.findClosest(49.94653, 11.57114, EdgeFilter.ALL_EDGES).getClosestNode(),
+                    streaming.findClosest(49.94653, 11.57114, EdgeFilter.ALL_EDGES).getClosestNode());
+        }
+    }
+
     @Test
     public void testReverseSpatialKey() {
         LocationIndexTree index = createIndex(createTestGraph(encodingManager), 200);
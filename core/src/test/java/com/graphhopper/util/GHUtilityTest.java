@@ -110,6 +110,66 @@ public class GHUtilityTest {
         assertEquals(1, newG.getEdgeIteratorState(2, Integer.MIN_VALUE).getBaseNode());
     }
 
+    @Test
+    public void testSortHilbert() {
+        Graph g = initUnsorted(createGraph());
+        Graph newG = GHUtility.sortHilbert(g, createGraph());
+        assertEquals(g.getNodes(), newG.getNodes());
+        assertEquals(g.getEdges(), newG.getEdges());
+        assertEquals(getLengthOfAllEdges(g), getLengthOfAllEdges(newG), 1e-4);
+
+        // node 0 is in the lower left corner where the curve starts
+        NodeAccess na = newG.getNodeAccess();
+        assertEquals(0, na.getLatitude(0), 1e-4);
+        assertEquals(1, na.getLongitude(0), 1e-4);
+
+        // edges are ordered by their smaller node
+        int prevMinNode = -1;
+        for (int edge = 0; edge < newG.getEdges(); edge++) {
+            EdgeIteratorState edgeState = newG.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            int minNode = Math.min(edgeState.getBaseNode(), edgeState.getAdjNode());
+            assertTrue(minNode >= prevMinNode);
+            prevMinNode = minNode;
+        }
+    }
+
+    @Test
+    public void testSortHilbertWithRemovedEdges() {
+        GraphHopperStorage g = (GraphHopperStorage) initUnsorted(createGraph());
+        // like the subnetwork removal: the edges of removed nodes are marked as invalid, but keep their ids
+        g.markNodeRemoved(0);
+        g.optimize();
+        int validEdges = GHUtility.count(g.getAllEdges());
+        assertTrue(validEdges < g.getEdges());
+
+        Graph newG = GHUtility.sortHilbert(g, createGraph());
+        assertEquals(g.getNodes(), newG.getNodes());
+        assertEquals(validEdges, newG.getEdges());
+        assertEquals(getLengthOfAllEdges(g), getLengthOfAllEdges(newG), 1e-4);
+    }
+
+    @Test
+    public void testHilbertIndex() {
+        assertEquals(0, GHUtility.hilbertIndex(1, 0, 0));
+        assertEquals(1, GHUtility.hilbertIndex(1, 0, 1));
+        assertEquals(2, GHUtility.hilbertIndex(1, 1, 1));
+        assertEquals(3, GHUtility.hilbertIndex(1, 1, 0));
+
+        // consecutive cells along the curve are neighbors
+        int order = 3, cells = 1 << order;
+        int[] xs = new int[cells * cells], ys = new int[cells * cells];
+        for (int x = 0; x < cells; x++) {
+            for (int y = 0; y < cells; y++) {
+                int index = (int) GHUtility.hilbertIndex(order, x, y);
+                xs[index] = x;
+                ys[index] = y;
+            }
+        }
+        for (int i = 1; i < xs.length; i++) {
+            assertEquals(1, Math.abs(xs[i] - xs[i - 1]) + Math.abs(ys[i] - ys[i - 1]));
+        }
+    }
+
     @Test
     public void testSortDirected() {
         Graph g = createGraph();
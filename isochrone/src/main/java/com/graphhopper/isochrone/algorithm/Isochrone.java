@@ -17,9 +17,7 @@
  */
 package com.graphhopper.isochrone.algorithm;
 
-import com.carrotsearch.hppc.IntObjectHashMap;
-import com.carrotsearch.hppc.procedures.IntObjectProcedure;
-import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.AbstractRoutingAlgorithm;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.PathExtractor;
@@ -28,7 +26,7 @@ import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
-import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.storage.SPTLabelStore;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.shapes.GHPoint;
@@ -38,35 +36,67 @@ import java.util.*;
 
 import static com.graphhopper.isochrone.algorithm.Isochrone.ExploreType.DISTANCE;
 import static com.graphhopper.isochrone.algorithm.Isochrone.ExploreType.TIME;
+import static com.graphhopper.storage.SPTLabelStore.NO_LABEL;
 
 /**
  * @author Peter Karich
  */
-public class Isochrone extends AbstractRoutingAlgorithm {
+public class Isochrone extends AbstractRoutingAlgorithm implements IsochroneAlgorithm {
+    // check the interrupted flag for the first node and then only every 16384 nodes
+    private static final int INTERRUPT_CHECK_MASK = (1 << 14) - 1;
 
     enum ExploreType {TIME, DISTANCE}
 
-    // TODO use same class as used in GTFS module?
-    class IsoLabel extends SPTEntry {
+    /**
+     * The labels of the isochrone search additionally store the time and distance of the path to every node.
+     */
+    static class IsoLabelStore extends SPTLabelStore {
+        private long[] times;
+        private double[] distances;
+
+        IsoLabelStore(int capacity) {
+            super(capacity);
+            times = new long[getCapacity()];
+            distances = new double[getCapacity()];
+        }
+
+        int add(int edge, int adjNode, double weight, long time, double distance, int parent) {
+            int label = add(edge, adjNode, weight, parent);
+            times[label] = time;
+            distances[label] = distance;
+            return label;
+        }
 
-        IsoLabel(int edgeId, int adjNode, double weight, long time, double distance) {
-            super(edgeId, adjNode, weight);
-            this.time = time;
-            this.distance = distance;
+        void update(int label, int edge, double weight, long time, double distance, int parent) {
+            update(label, edge, weight, parent);
+            times[label] = time;
+            distances[label] = distance;
         }
 
-        public long time;
-        public double distance;
+        long getTime(int label) {
+            return times[label];
+        }
+
+        double getDistance(int label) {
+            return distances[label];
+        }
 
         @Override
-        public String toString() {
-            return super.toString() + ", time:" + time + ", distance:" + distance;
+        protected void grow(int newCapacity) {
+            super.grow(newCapacity);
+            times = Arrays.copyOf(times, newCapacity);
+            distances = Arrays.copyOf(distances, newCapacity);
+        }
+
+        String toString(int label) {
+            return getEdge(label) + " (" + getAdjNode(label) + ") weight: " + getWeight(label)
+                    + ", time:" + getTime(label) + ", distance:" + getDistance(label);
         }
     }
 
-    private IntObjectHashMap<IsoLabel> fromMap;
-    private PriorityQueue<IsoLabel> fromHeap;
-    private IsoLabel currEdge;
+    private final IsoLabelStore labels;
+    private final MinHeapWithUpdate fromHeap;
+    private int currLabel = NO_LABEL;
     private int visitedNodes;
     private double limit = -1;
     private double finishLimit = -1;
@@ -75,8 +105,8 @@ public class Isochrone extends AbstractRoutingAlgorithm {
 
     public Isochrone(Graph g, Weighting weighting, boolean reverseFlow) {
         super(g, weighting, TraversalMode.NODE_BASED);
-        fromHeap = new PriorityQueue<>(1000);
-        fromMap = new GHIntObjectHashMap<>(1000);
+        labels = new IsoLabelStore(1000);
+        fromHeap = new MinHeapWithUpdate(1000);
         this.reverseFlow = reverseFlow;
     }
 
@@ -88,22 +118,33 @@ public class Isochrone extends AbstractRoutingAlgorithm {
     /**
      * Time limit in seconds
      */
+    @Override
     public void setTimeLimit(double limit) {
         exploreType = TIME;
         this.limit = limit * 1000;
-        // we explore until all spt-entries are '>timeLimitInSeconds' 
-        // and add some more into this bucket for car we need a bit more as 
-        // we otherwise get artifacts for motorway endings
-        this.finishLimit = this.limit + Math.max(this.limit * 0.14, 200_000);
+        this.finishLimit = calcFinishLimit(TIME, this.limit);
     }
 
     /**
      * Distance limit in meter
      */
+    @Override
     public void setDistanceLimit(double limit) {
         exploreType = DISTANCE;
         this.limit = limit;
-        this.finishLimit = limit + Math.max(limit * 0.14, 2_000);
+        this.finishLimit = calcFinishLimit(DISTANCE, limit);
+    }
+
+    /**
+     * @param limit the time limit in ms or the distance limit in meter
+     */
+    static double calcFinishLimit(ExploreType exploreType, double limit) {
+        if (exploreType == TIME)
+            // we explore until all spt-entries are '>timeLimitInSeconds'
+            // and add some more into this bucket for car we need a bit more as
+            // we otherwise get artifacts for motorway endings
+            return limit + Math.max(limit * 0.14, 200_000);
+        return limit + Math.max(limit * 0.14, 2_000);
     }
 
     public static class IsoLabelWithCoordinates {
@@ -122,37 +163,36 @@ public class Isochrone extends AbstractRoutingAlgorithm {
         void add(IsoLabelWithCoordinates label);
     }
 
+    @Override
     public void search(int from, final Callback callback) {
         searchInternal(from);
 
         final NodeAccess na = graph.getNodeAccess();
-        fromMap.forEach(new IntObjectProcedure<IsoLabel>() {
-
-            @Override
-            public void apply(int nodeId, IsoLabel label) {
-                double lat = na.getLatitude(nodeId);
-                double lon = na.getLongitude(nodeId);
-                IsoLabelWithCoordinates isoLabelWC = new IsoLabelWithCoordinates(nodeId);
-                isoLabelWC.coordinate = new GHPoint(lat, lon);
-                isoLabelWC.timeMillis = Math.round(label.time);
-                isoLabelWC.distance = (int) Math.round(label.distance);
-                isoLabelWC.edgeId = label.edge;
-                if (label.parent != null) {
-                    IsoLabel prevLabel = (IsoLabel) label.parent;
-                    nodeId = prevLabel.adjNode;
-                    double prevLat = na.getLatitude(nodeId);
-                    double prevLon = na.getLongitude(nodeId);
-                    isoLabelWC.prevNodeId = nodeId;
-                    isoLabelWC.prevEdgeId = prevLabel.edge;
-                    isoLabelWC.prevCoordinate = new GHPoint(prevLat, prevLon);
-                    isoLabelWC.prevDistance = (int) Math.round(prevLabel.distance);
-                    isoLabelWC.prevTimeMillis = Math.round(prevLabel.time);
-                }
-                callback.add(isoLabelWC);
+        for (int label = 0; label < labels.size(); label++) {
+            int nodeId = labels.getAdjNode(label);
+            double lat = na.getLatitude(nodeId);
+            double lon = na.getLongitude(nodeId);
+            IsoLabelWithCoordinates isoLabelWC = new IsoLabelWithCoordinates(nodeId);
+            isoLabelWC.coordinate = new GHPoint(lat, lon);
+            isoLabelWC.timeMillis = (int) labels.getTime(label);
+            isoLabelWC.distance = (int) Math.round(labels.getDistance(label));
+            isoLabelWC.edgeId = labels.getEdge(label);
+            int prevLabel = labels.getParent(label);
+            if (prevLabel != NO_LABEL) {
+                nodeId = labels.getAdjNode(prevLabel);
+                double prevLat = na.getLatitude(nodeId);
+                double prevLon = na.getLongitude(nodeId);
+                isoLabelWC.prevNodeId = nodeId;
+                isoLabelWC.prevEdgeId = labels.getEdge(prevLabel);
+                isoLabelWC.prevCoordinate = new GHPoint(prevLat, prevLon);
+                isoLabelWC.prevDistance = (int) Math.round(labels.getDistance(prevLabel));
+                isoLabelWC.prevTimeMillis = (int) labels.getTime(prevLabel);
             }
-        });
+            callback.add(isoLabelWC);
+        }
     }
 
+    @Override
     public List<List<Coordinate>> searchGPS(int from, final int bucketCount) {
         searchInternal(from);
 
@@ -163,30 +203,28 @@ public class Isochrone extends AbstractRoutingAlgorithm {
             buckets.add(new ArrayList<Coordinate>());
         }
         final NodeAccess na = graph.getNodeAccess();
-        fromMap.forEach(new IntObjectProcedure<IsoLabel>() {
-
-            @Override
-            public void apply(int nodeId, IsoLabel label) {
-                int bucketIndex = (int) (getExploreValue(label) / bucketSize);
-                if (bucketIndex < 0) {
-                    throw new IllegalArgumentException("edge cannot have negative explore value " + nodeId + ", " + label);
-                } else if (bucketIndex > bucketCount) {
-                    return;
-                }
-
-                double lat = na.getLatitude(nodeId);
-                double lon = na.getLongitude(nodeId);
-                buckets.get(bucketIndex).add(new Coordinate(lon, lat));
+        for (int label = 0; label < labels.size(); label++) {
+            int nodeId = labels.getAdjNode(label);
+            int bucketIndex = (int) (getExploreValue(label) / bucketSize);
+            if (bucketIndex < 0) {
+                throw new IllegalArgumentException("edge cannot have negative explore value " + nodeId + ", " + labels.toString(label));
+            } else if (bucketIndex > bucketCount) {
+                continue;
+            }
 
-                // guess center of road to increase precision a bit for longer roads
-                if (label.parent != null) {
-                    nodeId = label.parent.adjNode;
-                    double lat2 = na.getLatitude(nodeId);
-                    double lon2 = na.getLongitude(nodeId);
-                    buckets.get(bucketIndex).add(new Coordinate((lon + lon2) / 2, (lat + lat2) / 2));
-                }
+            double lat = na.getLatitude(nodeId);
+            double lon = na.getLongitude(nodeId);
+            buckets.get(bucketIndex).add(new Coordinate(lon, lat));
+
+            // guess center of road to increase precision a bit for longer roads
+            int parent = labels.getParent(label);
+            if (parent != NO_LABEL) {
+                nodeId = labels.getAdjNode(parent);
+                double lat2 = na.getLatitude(nodeId);
+                double lon2 = na.getLongitude(nodeId);
+                buckets.get(bucketIndex).add(new Coordinate((lon + lon2) / 2, (lat + lat2) / 2));
             }
-        });
+        }
         return buckets;
     }
 
@@ -200,71 +238,68 @@ public class Isochrone extends AbstractRoutingAlgorithm {
             list.add(new HashSet<Integer>());
         }
 
-        fromMap.forEach(new IntObjectProcedure<IsoLabel>() {
-
-            @Override
-            public void apply(int nodeId, IsoLabel label) {
-                if (finished()) {
-                    return;
-                }
-
-                int bucketIndex = (int) (getExploreValue(label) / bucketSize);
-                if (bucketIndex < 0) {
-                    throw new IllegalArgumentException("edge cannot have negative explore value " + nodeId + ", " + label);
-                } else if (bucketIndex == bucketCount) {
-                    bucketIndex = bucketCount - 1;
-                } else if (bucketIndex > bucketCount) {
-                    return;
-                }
+        for (int label = 0; label < labels.size(); label++) {
+            if (finished()) {
+                break;
+            }
 
-                list.get(bucketIndex).add(nodeId);
+            int nodeId = labels.getAdjNode(label);
+            int bucketIndex = (int) (getExploreValue(label) / bucketSize);
+            if (bucketIndex < 0) {
+                throw new IllegalArgumentException("edge cannot have negative explore value " + nodeId + ", " + labels.toString(label));
+            } else if (bucketIndex == bucketCount) {
+                bucketIndex = bucketCount - 1;
+            } else if (bucketIndex > bucketCount) {
+                continue;
             }
-        });
+
+            list.get(bucketIndex).add(nodeId);
+        }
         return list;
     }
 
     private void searchInternal(int from) {
         checkAlreadyRun();
-        currEdge = new IsoLabel(-1, from, 0, 0, 0);
-        fromMap.put(from, currEdge);
+        currLabel = labels.add(EdgeIterator.NO_EDGE, from, 0, 0, 0, NO_LABEL);
+        labels.setLabel(from, currLabel);
         EdgeFilter filter = reverseFlow ? inEdgeFilter : outEdgeFilter;
         while (true) {
             visitedNodes++;
-            if (finished()) {
+            if (isMaxVisitedNodesExceeded() || finished()) {
                 break;
             }
+            // a running search can be cancelled, e.g. an asynchronous isochrone job
+            if ((visitedNodes & INTERRUPT_CHECK_MASK) == 1 && Thread.currentThread().isInterrupted())
+                throw new IllegalStateException("Isochrone calculation was interrupted");
 
-            int neighborNode = currEdge.adjNode;
-            EdgeIterator iter = edgeExplorer.setBaseNode(neighborNode);
+            int currEdge = labels.getEdge(currLabel);
+            EdgeIterator iter = edgeExplorer.setBaseNode(labels.getAdjNode(currLabel));
             while (iter.next()) {
-                if (!accept(iter, currEdge.edge)) {
+                if (!accept(iter, currEdge)) {
                     continue;
                 }
 
                 // todo: for #1776/#1835 move the access check into weighting
                 double tmpWeight = !filter.accept(iter)
                         ? Double.POSITIVE_INFINITY
-                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, reverseFlow, currEdge.edge) + currEdge.weight);
+                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, reverseFlow, currEdge) + labels.getWeight(currLabel));
                 if (Double.isInfinite(tmpWeight))
                     continue;
 
-                double tmpDistance = iter.getDistance() + currEdge.distance;
-                long tmpTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, currEdge.edge) + currEdge.time;
+                double tmpDistance = iter.getDistance() + labels.getDistance(currLabel);
+                long tmpTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, currEdge) + labels.getTime(currLabel);
                 int tmpNode = iter.getAdjNode();
-                IsoLabel nEdge = fromMap.get(tmpNode);
-                if (nEdge == null) {
-                    nEdge = new IsoLabel(iter.getEdge(), tmpNode, tmpWeight, tmpTime, tmpDistance);
-                    nEdge.parent = currEdge;
-                    fromMap.put(tmpNode, nEdge);
-                    fromHeap.add(nEdge);
-                } else if (nEdge.weight > tmpWeight) {
-                    fromHeap.remove(nEdge);
-                    nEdge.edge = iter.getEdge();
-                    nEdge.weight = tmpWeight;
-                    nEdge.distance = tmpDistance;
-                    nEdge.time = tmpTime;
-                    nEdge.parent = currEdge;
-                    fromHeap.add(nEdge);
+                int label = labels.getLabel(tmpNode);
+                if (label == NO_LABEL) {
+                    label = labels.add(iter.getEdge(), tmpNode, tmpWeight, tmpTime, tmpDistance, currLabel);
+                    labels.setLabel(tmpNode, label);
+                    fromHeap.push(label, tmpWeight);
+                } else if (labels.getWeight(label) > tmpWeight) {
+                    labels.update(label, iter.getEdge(), tmpWeight, tmpTime, tmpDistance, currLabel);
+                    if (fromHeap.contains(label))
+                        fromHeap.update(label, tmpWeight);
+                    else
+                        fromHeap.push(label, tmpWeight);
                 }
             }
 
@@ -272,31 +307,28 @@ public class Isochrone extends AbstractRoutingAlgorithm {
                 break;
             }
 
-            currEdge = fromHeap.poll();
-            if (currEdge == null) {
-                throw new AssertionError("Empty edge cannot happen");
-            }
+            currLabel = fromHeap.poll();
         }
     }
 
-    private double getExploreValue(IsoLabel label) {
+    private double getExploreValue(int label) {
         if (exploreType == TIME)
-            return label.time;
+            return labels.getTime(label);
         // if(exploreType == DISTANCE)
-        return label.distance;
+        return labels.getDistance(label);
     }
 
     @Override
     protected boolean finished() {
-        return getExploreValue(currEdge) >= finishLimit;
+        return getExploreValue(currLabel) >= finishLimit;
     }
 
     @Override
     protected Path extractPath() {
-        if (currEdge == null || !finished()) {
+        if (currLabel == NO_LABEL || !finished()) {
             return createEmptyPath();
         }
-        return PathExtractor.extractPath(graph, weighting, currEdge);
+        return PathExtractor.extractPath(graph, weighting, labels.toSPTEntry(currLabel));
     }
 
     @Override
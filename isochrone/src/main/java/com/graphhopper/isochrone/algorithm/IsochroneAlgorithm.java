@@ -0,0 +1,56 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.List;
+
+/**
+ * The common interface of {@link Isochrone}, which explores the base graph with a Dijkstra search, and
+ * {@link IsochroneCH}, which calculates the shortest path tree on a CH graph.
+ */
+public interface IsochroneAlgorithm {
+    /**
+     * Time limit in seconds
+     */
+    void setTimeLimit(double limit);
+
+    /**
+     * Distance limit in meter
+     */
+    void setDistanceLimit(double limit);
+
+    /**
+     * Stops the search once more nodes than this were visited, the result is incomplete then and
+     * {@link #getVisitedNodes()} exceeds this value.
+     */
+    void setMaxVisitedNodes(int maxVisitedNodes);
+
+    /**
+     * Calls the callback for every node of the shortest path tree rooted at the given node.
+     */
+    void search(int from, Isochrone.Callback callback);
+
+    /**
+     * @return the coordinates of the shortest path tree grouped into bucketCount + 1 buckets by their time or distance
+     */
+    List<List<Coordinate>> searchGPS(int from, int bucketCount);
+
+    int getVisitedNodes();
+}
@@ -0,0 +1,168 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ch.PhastCH;
+import com.graphhopper.routing.ch.PhastCHPool;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.shapes.GHPoint;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.graphhopper.isochrone.algorithm.Isochrone.ExploreType.DISTANCE;
+import static com.graphhopper.isochrone.algorithm.Isochrone.ExploreType.TIME;
+
+/**
+ * Calculates the same shortest path tree as {@link Isochrone} but uses {@link PhastCH} on a node-based CH graph. The
+ * upward search plus the linear sweep over all nodes is independent of the limit, so this is much faster for large
+ * time or distance limits, while {@link Isochrone} is faster for small ones. The given graph can be a QueryGraph
+ * wrapping the CH graph, where the node passed to the search methods must be the only virtual node. Share a
+ * {@link PhastCHPool} between the searches on the same CH graph to avoid sorting the nodes and allocating the arrays
+ * for every search.
+ */
+public class IsochroneCH implements IsochroneAlgorithm {
+    private final RoutingCHGraph graph;
+    private final PhastCH phast;
+    private double limit = -1;
+    private double finishLimit = -1;
+    private Isochrone.ExploreType exploreType = TIME;
+
+    public IsochroneCH(RoutingCHGraph graph, boolean reverseFlow) {
+        this(graph, new PhastCHPool(0), reverseFlow);
+    }
+
+    public IsochroneCH(RoutingCHGraph graph, PhastCHPool pool, boolean reverseFlow) {
+        this.graph = graph;
+        this.phast = new PhastCH(graph, pool).setReverse(reverseFlow);
+    }
+
+    /**
+     * Stops the search once more nodes than this are within the limit, the result is incomplete then and
+     * {@link #getVisitedNodes()} exceeds this value.
+     */
+    @Override
+    public void setMaxVisitedNodes(int maxVisitedNodes) {
+        phast.setMaxReachedNodes(maxVisitedNodes);
+    }
+
+    @Override
+    public void setTimeLimit(double limit) {
+        exploreType = TIME;
+        this.limit = limit * 1000;
+        this.finishLimit = Isochrone.calcFinishLimit(TIME, this.limit);
+        phast.setTimeLimit((long) finishLimit).setDistanceLimit(Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public void setDistanceLimit(double limit) {
+        exploreType = DISTANCE;
+        this.limit = limit;
+        this.finishLimit = Isochrone.calcFinishLimit(DISTANCE, limit);
+        phast.setTimeLimit(Long.MAX_VALUE).setDistanceLimit(finishLimit);
+    }
+
+    @Override
+    public void search(int from, Isochrone.Callback callback) {
+        PhastCH.Result result = calc(from);
+        try {
+            searchResult(result, callback);
+        } finally {
+            result.release();
+        }
+    }
+
+    private void searchResult(PhastCH.Result result, Isochrone.Callback callback) {
+        NodeAccess na = graph.getGraph().getNodeAccess();
+        for (int nodeId = 0; nodeId < result.getNodes(); nodeId++) {
+            if (!result.isReached(nodeId))
+                continue;
+            Isochrone.IsoLabelWithCoordinates isoLabelWC = new Isochrone.IsoLabelWithCoordinates(nodeId);
+            isoLabelWC.coordinate = new GHPoint(na.getLatitude(nodeId), na.getLongitude(nodeId));
+            isoLabelWC.timeMillis = (int) result.getTime(nodeId);
+            isoLabelWC.distance = (int) Math.round(result.getDistance(nodeId));
+            isoLabelWC.edgeId = result.getEdge(nodeId);
+            int prevNodeId = result.getPrevNode(nodeId);
+            if (prevNodeId >= 0) {
+                isoLabelWC.prevNodeId = prevNodeId;
+                isoLabelWC.prevEdgeId = result.getEdge(prevNodeId);
+                isoLabelWC.prevCoordinate = new GHPoint(na.getLatitude(prevNodeId), na.getLongitude(prevNodeId));
+                isoLabelWC.prevDistance = (int) Math.round(result.getDistance(prevNodeId));
+                isoLabelWC.prevTimeMillis = (int) result.getTime(prevNodeId);
+            }
+            callback.add(isoLabelWC);
+        }
+    }
+
+    @Override
+    public List<List<Coordinate>> searchGPS(int from, int bucketCount) {
+        PhastCH.Result result = calc(from);
+        try {
+            return searchGPS(result, bucketCount);
+        } finally {
+            result.release();
+        }
+    }
+
+    private List<List<Coordinate>> searchGPS(PhastCH.Result result, int bucketCount) {
+        final double bucketSize = limit / bucketCount;
+        final List<List<Coordinate>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount + 1; i++) {
+            buckets.add(new ArrayList<Coordinate>());
+        }
+        NodeAccess na = graph.getGraph().getNodeAccess();
+        for (int nodeId = 0; nodeId < result.getNodes(); nodeId++) {
+            if (!result.isReached(nodeId))
+                continue;
+            double exploreValue = exploreType == TIME ? result.getTime(nodeId) : result.getDistance(nodeId);
+            int bucketIndex = (int) (exploreValue / bucketSize);
+            if (bucketIndex > bucketCount)
+                continue;
+
+            double lat = na.getLatitude(nodeId);
+            double lon = na.getLongitude(nodeId);
+            buckets.get(bucketIndex).add(new Coordinate(lon, lat));
+
+            // guess center of road to increase precision a bit for longer roads
+            int prevNodeId = result.getPrevNode(nodeId);
+            if (prevNodeId >= 0) {
+                double lat2 = na.getLatitude(prevNodeId);
+                double lon2 = na.getLongitude(prevNodeId);
+                buckets.get(bucketIndex).add(new Coordinate((lon + lon2) / 2, (lat + lat2) / 2));
+            }
+        }
+        return buckets;
+    }
+
+    private PhastCH.Result calc(int from) {
+        if (limit < 0)
+            throw new IllegalStateException("Set a time or distance limit before the search");
+        return phast.calc(from);
+    }
+
+    /**
+     * @return the number of nodes within the limit, which roughly corresponds to the nodes {@link Isochrone} visits.
+     * PHAST itself always scans all nodes of the graph, but it does this in linear time.
+     */
+    @Override
+    public int getVisitedNodes() {
+        return phast.getReachedNodes();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.GHUtility;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class IsochroneCHTest {
+
+    private final EncodingManager encodingManager = EncodingManager.create("car");
+    private final FlagEncoder carEncoder = encodingManager.getEncoder("car");
+
+    // 0-1-2-...-9, every edge is 1km long
+    private RoutingCHGraph createLineGraph() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).setCHProfileStrings("car|fastest|node").create();
+        NodeAccess na = graph.getNodeAccess();
+        for (int i = 0; i < 10; i++) {
+            na.setNode(i, 50, 10 + 0.014 * i);
+            if (i > 0)
+                GHUtility.setProperties(graph.edge(i - 1, i).setDistance(1000), carEncoder, 60, true, true);
+        }
+        graph.freeze();
+        CHProfile chProfile = graph.getCHGraph().getCHProfile();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chProfile).doWork();
+        return new RoutingCHGraphImpl(graph.getCHGraph(chProfile), chProfile.getWeighting());
+    }
+
+    @Test
+    public void testSearch() {
+        IsochroneCH isochrone = new IsochroneCH(createLineGraph(), false);
+        // the search continues until 1500m + 2000m
+        isochrone.setDistanceLimit(1500);
+        final List<Isochrone.IsoLabelWithCoordinates> labels = new ArrayList<>();
+        isochrone.search(0, new Isochrone.Callback() {
+            @Override
+            public void add(Isochrone.IsoLabelWithCoordinates label) {
+                labels.add(label);
+            }
+        });
+        assertEquals(4, labels.size());
+        Isochrone.IsoLabelWithCoordinates label = labels.get(3);
+        assertEquals(3, label.nodeId);
+        assertEquals(2, label.edgeId);
+        assertEquals(3000, label.distance);
+        assertEquals(180_000, label.timeMillis);
+        assertEquals(2, label.prevNodeId);
+        assertEquals(1, label.prevEdgeId);
+        assertEquals(2000, label.prevDistance);
+        assertEquals(120_000, label.prevTimeMillis);
+    }
+
+    @Test
+    public void testSearchGPS() {
+        IsochroneCH isochrone = new IsochroneCH(createLineGraph(), true);
+        isochrone.setDistanceLimit(1500);
+        List<List<Coordinate>> buckets = isochrone.searchGPS(5, 1);
+        assertEquals(2, buckets.size());
+        // nodes 4, 5 and 6 plus the centers of the edges 4-5 and 5-6
+        assertEquals(5, buckets.get(0).size());
+        // nodes 3 and 7 plus the centers of the edges 3-4 and 7-6
+        assertEquals(4, buckets.get(1).size());
+    }
+}
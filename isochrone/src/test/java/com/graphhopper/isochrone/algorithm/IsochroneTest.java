@@ -15,7 +15,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * @author Peter Karich
@@ -80,4 +80,30 @@ public class IsochroneTest {
         res = instance.search(0, 5);
         assertEquals("[[0], [4], [], [6], [1, 7]]", res.toString());
     }
+
+    @Test
+    public void testMaxVisitedNodes() {
+        initDirectedAndDiffSpeed(graph);
+        Isochrone instance = new Isochrone(graph, new FastestWeighting(carEncoder, new PMap()), false);
+        instance.setTimeLimit(60);
+        instance.setMaxVisitedNodes(2);
+        instance.search(0, 5);
+        assertEquals(3, instance.getVisitedNodes());
+    }
+
+    @Test
+    public void testInterrupt() {
+        initDirectedAndDiffSpeed(graph);
+        Isochrone instance = new Isochrone(graph, new FastestWeighting(carEncoder, new PMap()), false);
+        instance.setTimeLimit(60);
+        Thread.currentThread().interrupt();
+        try {
+            instance.search(0, 5);
+            fail("the search should stop if the thread is interrupted");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("interrupted"));
+        } finally {
+            Thread.interrupted();
+        }
+    }
 }
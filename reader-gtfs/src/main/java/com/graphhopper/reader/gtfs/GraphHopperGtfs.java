@@ -78,6 +78,11 @@ public class GraphHopperGtfs extends GraphHopperOSM {
                     return this;
                 }
 
+                @Override
+                public DataReader setWayWorkerThreads(int wayWorkerThreads) {
+                    return this;
+                }
+
                 @Override
                 public DataReader setWayPointMaxDistance(double wayPointMaxDistance) {
                     return this;
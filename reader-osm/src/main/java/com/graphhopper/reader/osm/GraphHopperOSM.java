@@ -18,6 +18,8 @@
 package com.graphhopper.reader.osm;
 
 import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.coll.CompressedLongIntMap;
 import com.graphhopper.json.geo.JsonFeatureCollection;
 import com.graphhopper.reader.DataReader;
 import com.graphhopper.routing.lm.PrepareLandmarks;
@@ -26,6 +28,8 @@ import com.graphhopper.routing.util.spatialrules.SpatialRule;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookup;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookupBuilder;
 import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.MMapDirectory;
+import com.graphhopper.storage.RAMDirectory;
 import org.locationtech.jts.geom.Polygon;
 
 import java.util.Collections;
@@ -39,6 +43,7 @@ import java.util.List;
 public class GraphHopperOSM extends GraphHopper {
 
     private final JsonFeatureCollection landmarkSplittingFeatureCollection;
+    private String nodeMapType = "btree";
 
     public GraphHopperOSM() {
         this(null);
@@ -49,9 +54,33 @@ public class GraphHopperOSM extends GraphHopper {
         this.landmarkSplittingFeatureCollection = landmarkSplittingFeatureCollection;
     }
 
+    @Override
+    public GraphHopper init(GraphHopperConfig ghConfig) {
+        super.init(ghConfig);
+        setNodeMapType(ghConfig.get("datareader.node_map", nodeMapType));
+        return this;
+    }
+
+    /**
+     * Specifies the map from OSM node ids to internal node ids used while importing: 'btree' (default) keeps a
+     * B-Tree in memory, 'compressed' uses the more compact {@link CompressedLongIntMap} and 'compressed_mmap' stores
+     * the compressed map in memory mapped files in the graph folder.
+     */
+    public GraphHopperOSM setNodeMapType(String nodeMapType) {
+        if (!nodeMapType.equals("btree") && !nodeMapType.equals("compressed") && !nodeMapType.equals("compressed_mmap"))
+            throw new IllegalArgumentException("Unknown node map type " + nodeMapType + ", use btree, compressed or compressed_mmap");
+        this.nodeMapType = nodeMapType;
+        return this;
+    }
+
     @Override
     protected DataReader createReader(GraphHopperStorage ghStorage) {
-        return initDataReader(new OSMReader(ghStorage));
+        OSMReader reader = new OSMReader(ghStorage);
+        if (nodeMapType.equals("compressed"))
+            reader.setNodeMap(new CompressedLongIntMap(new RAMDirectory(), "osm_node_map"));
+        else if (nodeMapType.equals("compressed_mmap"))
+            reader.setNodeMap(new CompressedLongIntMap(new MMapDirectory(getGraphHopperLocation()).create(), "osm_node_map"));
+        return initDataReader(reader);
     }
 
     public String getOSMFile() {
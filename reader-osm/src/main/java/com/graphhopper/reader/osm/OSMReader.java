@@ -36,6 +36,8 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -86,6 +88,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     private long skippedLocations;
     private final EncodingManager encodingManager;
     private int workerThreads = 2;
+    private int wayWorkerThreads = 1;
     // Using the correct Map<Long, Integer> is hard. We need a memory efficient and fast solution for big data sets!
     //
     // very slow: new SparseLongLongArray
@@ -94,6 +97,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     // memory overhead due to open addressing and full rehash:
     //        nodeOsmIdToIndexMap = new BigLongIntMap(expectedNodes, EMPTY);
     // smaller memory overhead for bigger data sets because of avoiding a "rehash"
+    // the smallest memory overhead but slower updates, see setNodeMap: new CompressedLongIntMap
     // remember how many times a node was used to identify tower nodes
     private LongIntMap osmNodeIdToInternalNodeMap;
     private GHLongLongHashMap osmNodeIdToNodeFlagsMap;
@@ -142,6 +146,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
 
         StopWatch sw1 = new StopWatch().start();
         preProcess(osmFile);
+        getNodeMap().optimize();
         sw1.stop();
 
         StopWatch sw2 = new StopWatch().start();
@@ -252,6 +257,11 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
+        // the start of the node, way and relation stages, used to log the time spent in every stage
+        long nodeStartNanos = System.nanoTime();
+        long wayStartNanos = -1;
+        long relationStartNanos = -1;
+        WayPipeline wayPipeline = wayWorkerThreads > 1 ? new WayPipeline(wayWorkerThreads) : null;
         try (OSMInput in = openOsmInputFile(osmFile)) {
             LongIntMap nodeFilter = getNodeMap();
 
@@ -260,6 +270,8 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                 switch (item.getType()) {
                     case ReaderElement.NODE:
                         if (nodeFilter.get(item.getId()) != EMPTY_NODE) {
+                            if (wayPipeline != null)
+                                wayPipeline.flush();
                             processNode((ReaderNode) item);
                         }
                         break;
@@ -268,13 +280,20 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                         if (wayStart < 0) {
                             LOGGER.info(nf(counter) + ", now parsing ways");
                             wayStart = counter;
+                            wayStartNanos = System.nanoTime();
                         }
-                        processWay((ReaderWay) item);
+                        if (wayPipeline != null)
+                            wayPipeline.add((ReaderWay) item);
+                        else
+                            processWay((ReaderWay) item);
                         break;
                     case ReaderElement.RELATION:
+                        if (wayPipeline != null)
+                            wayPipeline.flush();
                         if (relationStart < 0) {
                             LOGGER.info(nf(counter) + ", now parsing relations");
                             relationStart = counter;
+                            relationStartNanos = System.nanoTime();
                         }
                         processRelation((ReaderRelation) item);
                         break;
@@ -288,14 +307,30 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                 }
             }
 
+            if (wayPipeline != null)
+                wayPipeline.flush();
+
             if (in.getUnprocessedElements() > 0)
                 throw new IllegalStateException("Still unprocessed elements in reader queue " + in.getUnprocessedElements());
 
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't process file " + osmFile + ", error: " + ex.getMessage(), ex);
+        } finally {
+            if (wayPipeline != null)
+                wayPipeline.close();
         }
 
+        long endNanos = System.nanoTime();
+        long wayEndNanos = relationStartNanos < 0 ? endNanos : relationStartNanos;
+        long nodeEndNanos = wayStartNanos < 0 ? wayEndNanos : wayStartNanos;
+        String wayInfo = wayPipeline == null ? ""
+                : " (encoding in " + wayWorkerThreads + " threads: " + (int) (wayPipeline.encodeNanos.get() / 1e9) + "s"
+                + ", appending to graph: " + (int) wayPipeline.appendSW.getSeconds() + "s)";
+        LOGGER.info("time nodes:" + (int) ((nodeEndNanos - nodeStartNanos) / 1e9) + "s"
+                + ", ways:" + (int) (wayStartNanos < 0 ? 0 : (wayEndNanos - wayStartNanos) / 1e9) + "s" + wayInfo
+                + ", relations:" + (int) (relationStartNanos < 0 ? 0 : (endNanos - relationStartNanos) / 1e9) + "s");
+
         finishedReading();
         if (graph.getNodes() == 0)
             throw new RuntimeException("Graph after reading OSM must not be empty. Read " + counter + " items and " + locations + " locations");
@@ -316,14 +351,22 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         if (!way.hasTags())
             return;
 
-        long wayOsmId = way.getId();
-
         EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
         if (!encodingManager.acceptWay(way, acceptWay))
             return;
 
         IntsRef relationFlags = getRelFlagsMap(way.getId());
+        setEstimatedDistanceTags(way);
+        setDurationTag(way);
+
+        IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, relationFlags);
+        if (edgeFlags.isEmpty())
+            return;
 
+        addWayToGraph(way, edgeFlags);
+    }
+
+    private void setEstimatedDistanceTags(ReaderWay way) {
         // TODO move this after we have created the edge and know the coordinates => encodingManager.applyWayTags
         LongArrayList osmNodeIds = way.getNodes();
         // Estimate length of ways containing a route tag e.g. for ferry speed calculation
@@ -337,7 +380,9 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
             way.setTag("estimated_distance", estimatedDist);
             way.setTag("estimated_center", new GHPoint((firstLat + lastLat) / 2, (firstLon + lastLon) / 2));
         }
+    }
 
+    private static void setDurationTag(ReaderWay way) {
         if (way.getTag("duration") != null) {
             try {
                 long dur = OSMReaderUtility.parseDuration(way.getTag("duration"));
@@ -347,11 +392,30 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                 LOGGER.warn("Parsing error in way with OSMID=" + way.getId() + " : " + ex.getMessage());
             }
         }
+    }
+
+    /**
+     * Accepts the way and encodes its flags. This does not access the graph or the node maps and is called from the
+     * worker threads of the {@link WayPipeline}.
+     *
+     * @return the edge flags or null if the way should be skipped
+     */
+    private IntsRef encodeWay(ReaderWay way, IntsRef relationFlags) {
+        EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
+        if (!encodingManager.acceptWay(way, acceptWay))
+            return null;
 
+        setDurationTag(way);
         IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, relationFlags);
-        if (edgeFlags.isEmpty())
-            return;
+        return edgeFlags.isEmpty() ? null : edgeFlags;
+    }
 
+    /**
+     * Creates the edges for the way, splits it at barriers and applies the way tags to the created edges.
+     */
+    private void addWayToGraph(ReaderWay way, IntsRef edgeFlags) {
+        long wayOsmId = way.getId();
+        LongArrayList osmNodeIds = way.getNodes();
         List<EdgeIteratorState> createdEdges = new ArrayList<>();
         // look for barriers along the way
         final int size = osmNodeIds.size();
@@ -742,6 +806,8 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         pillarInfo.clear();
         encodingManager.releaseParsers();
         eleProvider.release();
+        if (osmNodeIdToInternalNodeMap instanceof CompressedLongIntMap)
+            ((CompressedLongIntMap) osmNodeIdToInternalNodeMap).remove();
         osmNodeIdToInternalNodeMap = null;
         osmNodeIdToNodeFlagsMap = null;
         osmWayIdToRouteWeightMap = null;
@@ -861,6 +927,17 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return true;
     }
 
+    /**
+     * Changes the map from OSM node ids to the internal node ids, which is a {@link GHLongIntBTree} by default. The
+     * map must be empty and return {@link #EMPTY_NODE} for missing keys.
+     */
+    public OSMReader setNodeMap(LongIntMap nodeMap) {
+        if (nodeMap.getSize() > 0)
+            throw new IllegalArgumentException("The node map must be empty but had " + nodeMap.getSize() + " entries");
+        this.osmNodeIdToInternalNodeMap = nodeMap;
+        return this;
+    }
+
     /**
      * Maps OSM IDs (long) to internal node IDs (int)
      */
@@ -907,6 +984,14 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return this;
     }
 
+    @Override
+    public OSMReader setWayWorkerThreads(int wayWorkerThreads) {
+        if (wayWorkerThreads < 1)
+            throw new IllegalArgumentException("way worker threads has to be at least 1, but was " + wayWorkerThreads);
+        this.wayWorkerThreads = wayWorkerThreads;
+        return this;
+    }
+
     @Override
     public OSMReader setElevationProvider(ElevationProvider eleProvider) {
         if (eleProvider == null)
@@ -942,4 +1027,112 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     public String toString() {
         return getClass().getSimpleName();
     }
+
+    /**
+     * Accepts the ways and encodes their flags in worker threads while the thread reading the OSM file adds the
+     * already encoded ways to the graph. The ways are added in the same order as they were read, so the resulting
+     * graph is identical to the one created without this pipeline. Everything that reads or modifies the node maps
+     * or the graph stays on the reading thread.
+     */
+    private class WayPipeline {
+        private static final int BATCH_SIZE = 1_000;
+        private final ExecutorService executor;
+        private final int maxPendingBatches;
+        private final Deque<WayBatch> pendingBatches = new ArrayDeque<>();
+        private WayBatch currentBatch = new WayBatch();
+        // the time spent in the worker threads, summed over all threads
+        final AtomicLong encodeNanos = new AtomicLong();
+        final StopWatch appendSW = new StopWatch();
+
+        WayPipeline(int threads) {
+            this.executor = Executors.newFixedThreadPool(threads);
+            this.maxPendingBatches = threads * 4;
+        }
+
+        void add(ReaderWay way) {
+            if (way.getNodes().size() < 2)
+                return;
+
+            // ignore multipolygon geometry
+            if (!way.hasTags())
+                return;
+
+            // all nodes of accepted ways were stored while preprocessing, so we can skip ways with unknown nodes early
+            if (getNodeMap().get(way.getNodes().get(0)) == EMPTY_NODE)
+                return;
+
+            // the relation flags and the estimated distance are read from maps that are not thread safe
+            IntsRef relationFlags = IntsRef.deepCopyOf(getRelFlagsMap(way.getId()));
+            setEstimatedDistanceTags(way);
+            currentBatch.ways.add(way);
+            currentBatch.relationFlags.add(relationFlags);
+            if (currentBatch.ways.size() >= BATCH_SIZE)
+                submitCurrentBatch();
+        }
+
+        private void submitCurrentBatch() {
+            if (currentBatch.ways.isEmpty())
+                return;
+
+            final WayBatch batch = currentBatch;
+            currentBatch = new WayBatch();
+            batch.edgeFlags = executor.submit(new Callable<IntsRef[]>() {
+                @Override
+                public IntsRef[] call() {
+                    long start = System.nanoTime();
+                    IntsRef[] edgeFlags = new IntsRef[batch.ways.size()];
+                    for (int i = 0; i < edgeFlags.length; i++) {
+                        edgeFlags[i] = encodeWay(batch.ways.get(i), batch.relationFlags.get(i));
+                    }
+                    encodeNanos.addAndGet(System.nanoTime() - start);
+                    return edgeFlags;
+                }
+            });
+            pendingBatches.add(batch);
+            while (pendingBatches.size() >= maxPendingBatches) {
+                addToGraph(pendingBatches.poll());
+            }
+        }
+
+        /**
+         * Adds all ways that were passed to this pipeline so far to the graph.
+         */
+        void flush() {
+            submitCurrentBatch();
+            while (!pendingBatches.isEmpty()) {
+                addToGraph(pendingBatches.poll());
+            }
+        }
+
+        private void addToGraph(WayBatch batch) {
+            IntsRef[] edgeFlags;
+            try {
+                edgeFlags = batch.edgeFlags.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) ex.getCause();
+                throw new RuntimeException(ex.getCause());
+            }
+
+            appendSW.start();
+            for (int i = 0; i < edgeFlags.length; i++) {
+                if (edgeFlags[i] != null)
+                    addWayToGraph(batch.ways.get(i), edgeFlags[i]);
+            }
+            appendSW.stop();
+        }
+
+        void close() {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class WayBatch {
+        final List<ReaderWay> ways = new ArrayList<>(WayPipeline.BATCH_SIZE);
+        final List<IntsRef> relationFlags = new ArrayList<>(WayPipeline.BATCH_SIZE);
+        Future<IntsRef[]> edgeFlags;
+    }
 }
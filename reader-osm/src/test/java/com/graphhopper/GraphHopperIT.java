@@ -1778,6 +1778,80 @@ public class GraphHopperIT {
         assertDetail(streetNames.get(5), " [38, 40]");
     }
 
+    @Test
+    public void testConcurrentLegsSameAsSequential() {
+        final String vehicle = "car";
+        final String weighting = "fastest";
+        GraphHopper sequentialHopper = createMonacoCHAndLMHopper(vehicle, weighting, 1);
+        sequentialHopper.importOrLoad();
+        // loads the graph that was just stored
+        GraphHopper concurrentHopper = createMonacoCHAndLMHopper(vehicle, weighting, 4);
+        concurrentHopper.importOrLoad();
+
+        List<GHPoint> points = asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.729584, 7.410965), new GHPoint(43.732499, 7.426758),
+                new GHPoint(43.741069, 7.426854), new GHPoint(43.744445, 7.429483));
+        for (String mode : new String[]{"ch", "lm", "flex"}) {
+            for (boolean withHeadings : new boolean[]{false, true}) {
+                // headings are not supported for CH
+                if (withHeadings && mode.equals("ch"))
+                    continue;
+
+                GHRequest req = new GHRequest(points).setVehicle(vehicle).setWeighting(weighting);
+                if (withHeadings)
+                    req.setHeadings(asList(Double.NaN, 90.0, Double.NaN, 180.0, 0.0, Double.NaN));
+                req.putHint(CH.DISABLE, !mode.equals("ch"));
+                req.putHint(Landmark.DISABLE, !mode.equals("lm"));
+                if (!mode.equals("ch"))
+                    req.setAlgorithm(ASTAR_BI);
+
+                String msg = mode + ", headings: " + withHeadings;
+                GHResponse expected = sequentialHopper.route(req);
+                GHResponse result = concurrentHopper.route(req);
+                assertFalse(msg + ", " + expected.getErrors(), expected.hasErrors());
+                assertFalse(msg + ", " + result.getErrors(), result.hasErrors());
+                PathWrapper expectedPath = expected.getBest();
+                PathWrapper path = result.getBest();
+                assertEquals(msg, expectedPath.getPoints(), path.getPoints());
+                assertEquals(msg, expectedPath.getDistance(), path.getDistance(), 1e-6);
+                assertEquals(msg, expectedPath.getTime(), path.getTime());
+                assertEquals(msg, expectedPath.getRouteWeight(), path.getRouteWeight(), 1e-6);
+
+                InstructionList expectedInstructions = expectedPath.getInstructions();
+                InstructionList instructions = path.getInstructions();
+                assertEquals(msg, expectedInstructions.size(), instructions.size());
+                for (int i = 0; i < expectedInstructions.size(); i++) {
+                    Instruction expectedInstruction = expectedInstructions.get(i);
+                    Instruction instruction = instructions.get(i);
+                    String instructionMsg = msg + ", instruction " + i;
+                    assertEquals(instructionMsg, expectedInstruction.getSign(), instruction.getSign());
+                    assertEquals(instructionMsg, expectedInstruction.getName(), (Object) instruction.getName());
+                    assertEquals(instructionMsg, expectedInstruction.getDistance(), instruction.getDistance(), 1e-6);
+                    assertEquals(instructionMsg, expectedInstruction.getTime(), instruction.getTime());
+                    assertEquals(instructionMsg, expectedInstruction.getPoints(), instruction.getPoints());
+                    assertEquals(instructionMsg, expectedInstruction.getExtraInfoJSON(), instruction.getExtraInfoJSON());
+                }
+            }
+        }
+        sequentialHopper.close();
+        concurrentHopper.close();
+    }
+
+    private static GraphHopper createMonacoCHAndLMHopper(String vehicle, String weighting, int legThreads) {
+        GraphHopper hopper = createGraphHopper(vehicle).
+                setOSMFile(MONACO).
+                setProfiles(new ProfileConfig("profile").setVehicle(vehicle).setWeighting(weighting)).
+                setStoreOnFlush(true);
+        hopper.setLegThreads(legThreads);
+        hopper.getCHPreparationHandler()
+                .setCHProfileConfigs(new CHProfileConfig("profile"))
+                .setDisablingAllowed(true);
+        hopper.getLMPreparationHandler()
+                .setLMProfileConfigs(new LMProfileConfig("profile"))
+                .setDisablingAllowed(true);
+        return hopper;
+    }
+
     private void assertInstruction(Instruction instruction, String expectedName, String expectedInterval, int expectedLength, int expectedPoints) {
         assertEquals(expectedName, instruction.getName());
         assertEquals(expectedInterval, ((ShallowImmutablePointList) instruction.getPoints()).getIntervalString());
@@ -22,6 +22,7 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperIT;
+import com.graphhopper.coll.CompressedLongIntMap;
 import com.graphhopper.reader.DataReader;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
@@ -941,6 +942,50 @@ public class OSMReaderTest {
         assertTrue(ex.getMessage(), ex.getMessage().contains("You requested the details [toll]"));
     }
 
+    @Test
+    public void testWayWorkerThreads() throws IOException {
+        GraphHopperStorage sequential = newMonacoGraph();
+        importMonaco(new OSMReader(sequential));
+        GraphHopperStorage pipelined = newMonacoGraph();
+        importMonaco(new OSMReader(pipelined).setWayWorkerThreads(4));
+        assertSameGraph(sequential, pipelined);
+        sequential.close();
+        pipelined.close();
+    }
+
+    @Test
+    public void testCompressedNodeMap() throws IOException {
+        GraphHopperStorage btree = newMonacoGraph();
+        importMonaco(new OSMReader(btree));
+        GraphHopperStorage compressed = newMonacoGraph();
+        importMonaco(new OSMReader(compressed).setNodeMap(new CompressedLongIntMap(new RAMDirectory(), "osm_node_map")));
+        assertSameGraph(btree, compressed);
+        btree.close();
+        compressed.close();
+    }
+
+    private GraphHopperStorage newMonacoGraph() {
+        return newGraph(dir, EncodingManager.create("car,bike,foot"), false, false);
+    }
+
+    private void importMonaco(OSMReader reader) throws IOException {
+        reader.setFile(new File(GraphHopperIT.DIR, "monaco.osm.gz")).readGraph();
+    }
+
+    private void assertSameGraph(GraphHopperStorage expected, GraphHopperStorage actual) {
+        assertEquals(expected.getNodes(), actual.getNodes());
+        assertEquals(expected.getEdges(), actual.getEdges());
+        AllEdgesIterator iter = expected.getAllEdges();
+        while (iter.next()) {
+            EdgeIteratorState edge = actual.getEdgeIteratorState(iter.getEdge(), Integer.MIN_VALUE);
+            assertEquals(iter.getBaseNode(), edge.getBaseNode());
+            assertEquals(iter.getAdjNode(), edge.getAdjNode());
+            assertEquals(iter.getFlags(), edge.getFlags());
+            assertEquals(iter.getName(), edge.getName());
+            assertEquals(iter.fetchWayGeometry(3), edge.fetchWayGeometry(3));
+        }
+    }
+
     class GraphHopperFacade extends GraphHopperOSM {
         public GraphHopperFacade(String osmFile) {
             this(osmFile, false, "");
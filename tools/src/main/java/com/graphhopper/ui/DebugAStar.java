@@ -22,7 +22,6 @@ import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
-import com.graphhopper.storage.SPTEntry;
 import com.graphhopper.util.EdgeIteratorState;
 
 import java.awt.*;
@@ -47,10 +46,11 @@ public class DebugAStar extends AStar implements DebugAlgo {
     }
 
     @Override
-    public void updateBestPath(EdgeIteratorState es, SPTEntry bestEE, int currLoc) {
+    public void updateBestPath(EdgeIteratorState es, int label, int currLoc) {
         if (g2 != null) {
-            mg.plotEdge(g2, na.getLat(bestEE.parent.adjNode), na.getLon(bestEE.parent.adjNode), na.getLat(currLoc), na.getLon(currLoc), .8f);
+            int parentNode = labels.getAdjNode(labels.getParent(label));
+            mg.plotEdge(g2, na.getLat(parentNode), na.getLon(parentNode), na.getLat(currLoc), na.getLon(currLoc), .8f);
         }
-        super.updateBestPath(es, bestEE, currLoc);
+        super.updateBestPath(es, label, currLoc);
     }
 }
@@ -0,0 +1,494 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.jackson.PathWrapperDeserializer;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.exceptions.GHException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A compact binary representation of a route response as alternative to the JSON format for clients that need to
+ * decode many responses. It is negotiated via the Accept header, see {@link #MEDIA_TYPE}. In contrast to the JSON
+ * the numbers are not converted into text:
+ * <ul>
+ * <li>points are stored as zigzag encoded varint deltas with a precision of 1e6 (elevation 1e2)</li>
+ * <li>all strings like instruction texts, street names and path detail keys or values are written only once and
+ * are referenced via their index afterwards</li>
+ * <li>instructions and path details are stored as tables with the point interval as varints</li>
+ * </ul>
+ * The response contains the same information that {@link PathWrapperDeserializer} reads from the JSON and the
+ * decoded values have the same types, e.g. integral numbers of instructions and errors are an Integer if they fit
+ * into it and a Long otherwise.
+ * Fields that are only used for public transit (legs, fare, transfers) are not included.
+ */
+public class GHResponseBinaryCodec {
+    public static final String MEDIA_TYPE = "application/x-graphhopper-route";
+    static final int VERSION = 2;
+
+    private static final double PRECISION = 1e6;
+    private static final double ELE_PRECISION = 1e2;
+
+    private static final int NULL = 0, FALSE = 1, TRUE = 2, LONG = 3, DOUBLE = 4, STRING = 5;
+
+    private GHResponseBinaryCodec() {
+    }
+
+    public static void write(OutputStream os, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, float took) throws IOException {
+        Encoder encoder = new Encoder(os);
+        encoder.out.writeByte(VERSION);
+        encoder.writeVarLong(0);
+        encoder.out.writeFloat(took);
+        Map<String, String> hints = ghRsp.getHints().toMap();
+        encoder.writeVarLong(hints.size());
+        for (Map.Entry<String, String> entry : hints.entrySet()) {
+            encoder.writeString(entry.getKey());
+            encoder.writeString(entry.getValue());
+        }
+        encoder.writeVarLong(ghRsp.getAll().size());
+        for (PathWrapper path : ghRsp.getAll()) {
+            encoder.out.writeDouble(path.getDistance());
+            encoder.out.writeDouble(path.getRouteWeight());
+            encoder.writeVarLong(path.getTime());
+            encoder.out.writeDouble(path.getAscend());
+            encoder.out.writeDouble(path.getDescend());
+            encoder.writeVarLong(path.getDescription().size());
+            for (String description : path.getDescription()) {
+                encoder.writeString(description);
+            }
+            encoder.writePoints(path.getWaypoints(), enableElevation);
+            encoder.out.writeBoolean(calcPoints);
+            if (calcPoints) {
+                encoder.writePoints(path.getPoints(), enableElevation);
+                encoder.out.writeBoolean(enableInstructions);
+                if (enableInstructions)
+                    encoder.writeInstructions(path.getInstructions());
+                encoder.writePathDetails(path.getPathDetails());
+            }
+        }
+        encoder.out.flush();
+    }
+
+    /**
+     * Writes the errors of a failed request. The client recreates the exceptions like for the JSON format, see
+     * {@link PathWrapperDeserializer#createError}.
+     */
+    public static void writeErrors(OutputStream os, List<Throwable> errors) throws IOException {
+        if (errors.isEmpty())
+            throw new IllegalArgumentException("writeErrors should not be called with an empty list");
+
+        Encoder encoder = new Encoder(os);
+        encoder.out.writeByte(VERSION);
+        encoder.writeVarLong(errors.size());
+        for (Throwable t : errors) {
+            encoder.writeString(t.getClass().getName());
+            encoder.writeString(t.getMessage() == null ? t.getClass().getSimpleName() : t.getMessage());
+            Map<String, Object> details = t instanceof GHException ? ((GHException) t).getDetails() : Collections.<String, Object>emptyMap();
+            encoder.writeVarLong(details.size());
+            for (Map.Entry<String, Object> entry : details.entrySet()) {
+                encoder.writeString(entry.getKey());
+                encoder.writeValue(entry.getValue());
+            }
+        }
+        encoder.out.flush();
+    }
+
+    /**
+     * @param turnDescription if false the instruction texts are replaced by the street names, see
+     *                        {@link PathWrapperDeserializer#createPathWrapper}
+     */
+    public static GHResponse read(InputStream is, boolean turnDescription) throws IOException {
+        Decoder decoder = new Decoder(is);
+        int version = decoder.in.readUnsignedByte();
+        if (version != VERSION)
+            throw new IllegalStateException("Unsupported version of the binary route format: " + version + ", expected " + VERSION);
+
+        GHResponse rsp = new GHResponse();
+        int errors = decoder.readVarInt();
+        if (errors > 0) {
+            List<Throwable> list = new ArrayList<>(errors);
+            for (int i = 0; i < errors; i++) {
+                String exClass = decoder.readString();
+                String exMessage = decoder.readString();
+                int detailsCount = decoder.readVarInt();
+                Map<String, Object> details = new HashMap<>(detailsCount);
+                for (int j = 0; j < detailsCount; j++) {
+                    details.put(decoder.readString(), decoder.readValue());
+                }
+                list.add(PathWrapperDeserializer.createError(exClass, exMessage, details));
+            }
+            rsp.addErrors(list);
+            return rsp;
+        }
+
+        // took is not part of the GHResponse
+        decoder.in.readFloat();
+        int hints = decoder.readVarInt();
+        for (int i = 0; i < hints; i++) {
+            rsp.getHints().put(decoder.readString(), decoder.readString());
+        }
+        int paths = decoder.readVarInt();
+        for (int i = 0; i < paths; i++) {
+            PathWrapper path = new PathWrapper();
+            double distance = decoder.in.readDouble();
+            path.setRouteWeight(decoder.in.readDouble());
+            long time = decoder.readVarLong();
+            path.setAscend(decoder.in.readDouble());
+            path.setDescend(decoder.in.readDouble());
+            int descriptions = decoder.readVarInt();
+            if (descriptions > 0) {
+                List<String> description = new ArrayList<>(descriptions);
+                for (int j = 0; j < descriptions; j++) {
+                    description.add(decoder.readString());
+                }
+                path.setDescription(description);
+            }
+            path.setWaypoints(decoder.readPoints());
+            if (decoder.in.readBoolean()) {
+                PointList points = decoder.readPoints();
+                path.setPoints(points);
+                if (decoder.in.readBoolean())
+                    path.setInstructions(decoder.readInstructions(points, turnDescription));
+                path.addPathDetails(decoder.readPathDetails());
+            }
+
+            List<Integer> pointsOrder = new ArrayList<>(path.getWaypoints().size());
+            for (int j = 0; j < path.getWaypoints().size(); j++) {
+                pointsOrder.add(j);
+            }
+            path.setPointsOrder(pointsOrder);
+            path.setDistance(distance).setTime(time);
+            rsp.add(path);
+        }
+        return rsp;
+    }
+
+    private static class Encoder {
+        final DataOutputStream out;
+        // maps every string written so far to its index
+        final Map<String, Integer> strings = new HashMap<>();
+
+        Encoder(OutputStream os) {
+            this.out = new DataOutputStream(new BufferedOutputStream(os));
+        }
+
+        void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        void writeZigZag(long value) throws IOException {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Writes 0 for null, 1 and the UTF-8 bytes for a new string or the index + 2 for a string written before.
+         */
+        void writeString(String str) throws IOException {
+            if (str == null) {
+                writeVarLong(0);
+                return;
+            }
+            Integer index = strings.get(str);
+            if (index != null) {
+                writeVarLong(index + 2);
+                return;
+            }
+            strings.put(str, strings.size());
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(1);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+
+        void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof Boolean) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                out.writeByte(LONG);
+                writeZigZag(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                out.writeByte(DOUBLE);
+                out.writeDouble(((Number) value).doubleValue());
+            } else {
+                out.writeByte(STRING);
+                writeString(value.toString());
+            }
+        }
+
+        void writePoints(PointList points, boolean enableElevation) throws IOException {
+            boolean is3D = enableElevation && points.is3D();
+            int size = points.getSize();
+            writeVarLong(size);
+            out.writeBoolean(is3D);
+            long prevLat = 0, prevLon = 0, prevEle = 0;
+            for (int i = 0; i < size; i++) {
+                long lat = Math.round(points.getLatitude(i) * PRECISION);
+                writeZigZag(lat - prevLat);
+                prevLat = lat;
+                long lon = Math.round(points.getLongitude(i) * PRECISION);
+                writeZigZag(lon - prevLon);
+                prevLon = lon;
+                if (is3D) {
+                    long ele = Math.round(points.getElevation(i) * ELE_PRECISION);
+                    writeZigZag(ele - prevEle);
+                    prevEle = ele;
+                }
+            }
+        }
+
+        void writeInstructions(InstructionList instructions) throws IOException {
+            writeVarLong(instructions.size());
+            for (Instruction instruction : instructions) {
+                InstructionAnnotation ia = instruction.getAnnotation();
+                String text = instruction.getTurnDescription(instructions.getTr());
+                if (Helper.isEmpty(text))
+                    text = ia.getMessage();
+                writeZigZag(instruction.getSign());
+                writeString(Helper.firstBig(text));
+                writeString(instruction.getName());
+                out.writeDouble(instruction.getDistance());
+                writeVarLong(instruction.getTime());
+                writeVarLong(instruction.getLength());
+                if (ia.isEmpty()) {
+                    writeString(null);
+                } else {
+                    writeString(ia.getMessage());
+                    writeZigZag(ia.getImportance());
+                }
+                Map<String, Object> extraInfo = instruction.getExtraInfoJSON();
+                writeVarLong(extraInfo.size());
+                for (Map.Entry<String, Object> entry : extraInfo.entrySet()) {
+                    writeString(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            }
+        }
+
+        void writePathDetails(Map<String, List<PathDetail>> pathDetails) throws IOException {
+            writeVarLong(pathDetails.size());
+            for (Map.Entry<String, List<PathDetail>> entry : pathDetails.entrySet()) {
+                writeString(entry.getKey());
+                writeVarLong(entry.getValue().size());
+                int prevLast = 0;
+                for (PathDetail pd : entry.getValue()) {
+                    // usually the intervals are adjacent and the first delta is 0
+                    writeZigZag(pd.getFirst() - prevLast);
+                    writeVarLong(pd.getLength());
+                    writeValue(pd.getValue());
+                    prevLast = pd.getLast();
+                }
+            }
+        }
+    }
+
+    private static class Decoder {
+        final DataInputStream in;
+        final List<String> strings = new ArrayList<>();
+
+        Decoder(InputStream is) {
+            this.in = new DataInputStream(new BufferedInputStream(is));
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IllegalStateException("Malformed varint");
+        }
+
+        int readVarInt() throws IOException {
+            return (int) readVarLong();
+        }
+
+        long readZigZag() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() throws IOException {
+            int ref = readVarInt();
+            if (ref == 0)
+                return null;
+            if (ref > 1)
+                return strings.get(ref - 2);
+            byte[] bytes = new byte[readVarInt()];
+            in.readFully(bytes);
+            String str = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(str);
+            return str;
+        }
+
+        Object readValue() throws IOException {
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case NULL:
+                    return null;
+                case FALSE:
+                    return false;
+                case TRUE:
+                    return true;
+                case LONG:
+                    // like Jackson for the JSON format use an Integer if the value fits
+                    long value = readZigZag();
+                    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+                        return (int) value;
+                    return value;
+                case DOUBLE:
+                    return in.readDouble();
+                case STRING:
+                    return readString();
+                default:
+                    throw new IllegalStateException("Unknown value type " + type);
+            }
+        }
+
+        PointList readPoints() throws IOException {
+            int size = readVarInt();
+            boolean is3D = in.readBoolean();
+            PointList points = new PointList(size, is3D);
+            long lat = 0, lon = 0, ele = 0;
+            for (int i = 0; i < size; i++) {
+                lat += readZigZag();
+                lon += readZigZag();
+                if (is3D) {
+                    ele += readZigZag();
+                    points.add(lat / PRECISION, lon / PRECISION, ele / ELE_PRECISION);
+                } else {
+                    points.add(lat / PRECISION, lon / PRECISION);
+                }
+            }
+            return points;
+        }
+
+        InstructionList readInstructions(PointList points, boolean turnDescription) throws IOException {
+            int size = readVarInt();
+            InstructionList il = new InstructionList(size, null);
+            int viaCount = 1;
+            int from = 0;
+            for (int i = 0; i < size; i++) {
+                int sign = (int) readZigZag();
+                String text = readString();
+                String streetName = readString();
+                double distance = in.readDouble();
+                long time = readVarLong();
+                int to = from + readVarInt();
+                InstructionAnnotation ia = InstructionAnnotation.EMPTY;
+                String annotationText = readString();
+                if (annotationText != null)
+                    ia = new InstructionAnnotation((int) readZigZag(), annotationText);
+                int extraInfoCount = readVarInt();
+                Map<String, Object> extraInfo = new HashMap<>(extraInfoCount);
+                for (int j = 0; j < extraInfoCount; j++) {
+                    extraInfo.put(readString(), readValue());
+                }
+
+                PointList instPL = new PointList(to - from + 1, points.is3D());
+                for (int j = from; j <= to; j++) {
+                    instPL.add(points, j);
+                }
+                from = to;
+
+                String name = turnDescription ? text : streetName;
+                Instruction instr;
+                if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
+                    RoundaboutInstruction ri = new RoundaboutInstruction(sign, name, ia, instPL);
+                    if (extraInfo.containsKey("exit_number"))
+                        ri.setExitNumber(((Number) extraInfo.get("exit_number")).intValue());
+                    if (Boolean.TRUE.equals(extraInfo.get("exited")))
+                        ri.setExited();
+                    if (extraInfo.containsKey("turn_angle")) {
+                        double angle = ((Number) extraInfo.get("turn_angle")).doubleValue();
+                        ri.setDirOfRotation(angle);
+                        ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
+                    }
+                    instr = ri;
+                } else if (sign == Instruction.REACHED_VIA) {
+                    ViaInstruction tmpInstr = new ViaInstruction(name, ia, instPL);
+                    tmpInstr.setViaCount(viaCount);
+                    viaCount++;
+                    instr = tmpInstr;
+                } else if (sign == Instruction.FINISH) {
+                    instr = new FinishInstruction(name, instPL, 0);
+                } else {
+                    instr = new Instruction(sign, name, ia, instPL);
+                }
+                // the extra info of a roundabout is calculated from the fields set above
+                if (!(instr instanceof RoundaboutInstruction)) {
+                    for (Map.Entry<String, Object> entry : extraInfo.entrySet()) {
+                        instr.setExtraInfo(entry.getKey(), entry.getValue());
+                    }
+                }
+
+                if (turnDescription)
+                    instr.setUseRawName();
+                instr.setDistance(distance).setTime(time);
+                il.add(instr);
+            }
+            return il;
+        }
+
+        Map<String, List<PathDetail>> readPathDetails() throws IOException {
+            int size = readVarInt();
+            Map<String, List<PathDetail>> pathDetails = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                String key = readString();
+                int count = readVarInt();
+                List<PathDetail> list = new ArrayList<>(count);
+                int prevLast = 0;
+                for (int j = 0; j < count; j++) {
+                    int first = prevLast + (int) readZigZag();
+                    int last = first + readVarInt();
+                    PathDetail pd = createPathDetail(readValue());
+                    pd.setFirst(first);
+                    pd.setLast(last);
+                    list.add(pd);
+                    prevLast = last;
+                }
+                pathDetails.put(key, list);
+            }
+            return pathDetails;
+        }
+
+        private static PathDetail createPathDetail(Object value) {
+            if (value instanceof Boolean)
+                return new PathDetail((Boolean) value);
+            // like in PathDetailDeserializer all integral values are stored as long
+            if (value instanceof Integer || value instanceof Long)
+                return new PathDetail(((Number) value).longValue());
+            if (value instanceof Double)
+                return new PathDetail((Double) value);
+            return new PathDetail((String) value);
+        }
+    }
+}
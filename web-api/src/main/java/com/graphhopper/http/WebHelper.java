@@ -17,6 +17,7 @@
  */
 package com.graphhopper.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -25,6 +26,7 @@ import com.graphhopper.PathWrapper;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.text.NumberFormat;
@@ -129,6 +131,50 @@ public class WebHelper {
         return sb.toString();
     }
 
+    /**
+     * Writes the encoded polyline as JSON string. In contrast to encodePolyline the characters are encoded into a
+     * buffer that is handed over to the generator directly, without creating a StringBuilder and a String.
+     */
+    public static void writePolyline(JsonGenerator json, PointList poly, boolean includeElevation, double precision) throws IOException {
+        int size = poly.getSize();
+        // a delta needs at most 7 characters but typically only 2 to 4
+        char[] buffer = new char[Math.max(32, size * (includeElevation ? 3 : 2) * 3)];
+        int pos = 0;
+        int prevLat = 0;
+        int prevLon = 0;
+        int prevEle = 0;
+        for (int i = 0; i < size; i++) {
+            if (pos + 3 * 7 > buffer.length)
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+            int num = (int) Math.floor(poly.getLatitude(i) * precision);
+            pos = encodeNumber(buffer, pos, num - prevLat);
+            prevLat = num;
+            num = (int) Math.floor(poly.getLongitude(i) * precision);
+            pos = encodeNumber(buffer, pos, num - prevLon);
+            prevLon = num;
+            if (includeElevation) {
+                num = (int) Math.floor(poly.getElevation(i) * 100);
+                pos = encodeNumber(buffer, pos, num - prevEle);
+                prevEle = num;
+            }
+        }
+        json.writeString(buffer, 0, pos);
+    }
+
+    private static int encodeNumber(char[] buffer, int pos, int num) {
+        num = num << 1;
+        if (num < 0) {
+            num = ~num;
+        }
+        while (num >= 0x20) {
+            buffer[pos++] = (char) ((0x20 | (num & 0x1f)) + 63);
+            num >>= 5;
+        }
+        buffer[pos++] = (char) (num + 63);
+        return pos;
+    }
+
     private static void encodeNumber(StringBuilder sb, int num) {
         num = num << 1;
         if (num < 0) {
@@ -193,4 +239,57 @@ public class WebHelper {
         return json;
     }
 
+    /**
+     * Writes the same JSON as {@link #jsonObject} but directly into the specified generator, i.e. without building the
+     * ObjectNode tree first. The generator needs an ObjectMapper with the GraphHopper serializers as codec.
+     */
+    public static void writeJson(JsonGenerator json, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, float took) throws IOException {
+        json.writeStartObject();
+        json.writeObjectField("hints", ghRsp.getHints().toMap());
+        json.writeObjectFieldStart("info");
+        json.writeObjectField("copyrights", COPYRIGHTS);
+        json.writeNumberField("took", Math.round(took * 1000));
+        json.writeEndObject();
+        json.writeArrayFieldStart("paths");
+        for (PathWrapper ar : ghRsp.getAll()) {
+            json.writeStartObject();
+            json.writeNumberField("distance", Helper.round(ar.getDistance(), 3));
+            json.writeNumberField("weight", Helper.round6(ar.getRouteWeight()));
+            json.writeNumberField("time", ar.getTime());
+            json.writeNumberField("transfers", ar.getNumChanges());
+            if (!ar.getDescription().isEmpty()) {
+                json.writeObjectField("description", ar.getDescription());
+            }
+            if (calcPoints) {
+                json.writeBooleanField("points_encoded", pointsEncoded);
+                if (ar.getPoints().getSize() >= 2) {
+                    json.writeObjectField("bbox", ar.calcBBox2D());
+                }
+                json.writeFieldName("points");
+                writePoints(json, ar.getPoints(), enableElevation, pointsEncoded);
+                if (enableInstructions) {
+                    json.writeObjectField("instructions", ar.getInstructions());
+                }
+                json.writeObjectField("legs", ar.getLegs());
+                json.writeObjectField("details", ar.getPathDetails());
+                json.writeNumberField("ascend", ar.getAscend());
+                json.writeNumberField("descend", ar.getDescend());
+            }
+            json.writeFieldName("snapped_waypoints");
+            writePoints(json, ar.getWaypoints(), enableElevation, pointsEncoded);
+            if (ar.getFare() != null) {
+                json.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(ar.getFare()));
+            }
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private static void writePoints(JsonGenerator json, PointList points, boolean enableElevation, boolean pointsEncoded) throws IOException {
+        if (pointsEncoded)
+            writePolyline(json, points, enableElevation, 1e5);
+        else
+            json.writeObject(points.toLineString(enableElevation));
+    }
 }
@@ -26,38 +26,44 @@ import com.graphhopper.util.InstructionAnnotation;
 import com.graphhopper.util.InstructionList;
 
 import java.io.IOException;
-import java.util.*;
+import java.util.Map;
 
 public class InstructionListSerializer extends JsonSerializer<InstructionList> {
     @Override
     public void serialize(InstructionList instructions, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
-        List<Map<String, Object>> instrList = new ArrayList<>(instructions.size());
+        // write the instructions directly instead of creating a Map per instruction first
+        jsonGenerator.writeStartArray();
         int pointsIndex = 0;
         for (Instruction instruction : instructions) {
-            Map<String, Object> instrJson = new HashMap<>();
-            instrList.add(instrJson);
+            jsonGenerator.writeStartObject();
 
             InstructionAnnotation ia = instruction.getAnnotation();
             String text = instruction.getTurnDescription(instructions.getTr());
             if (Helper.isEmpty(text))
                 text = ia.getMessage();
-            instrJson.put("text", Helper.firstBig(text));
+            jsonGenerator.writeStringField("text", Helper.firstBig(text));
             if (!ia.isEmpty()) {
-                instrJson.put("annotation_text", ia.getMessage());
-                instrJson.put("annotation_importance", ia.getImportance());
+                jsonGenerator.writeStringField("annotation_text", ia.getMessage());
+                jsonGenerator.writeNumberField("annotation_importance", ia.getImportance());
             }
 
-            instrJson.put("street_name", instruction.getName());
-            instrJson.put("time", instruction.getTime());
-            instrJson.put("distance", Helper.round(instruction.getDistance(), 3));
-            instrJson.put("sign", instruction.getSign());
-            instrJson.putAll(instruction.getExtraInfoJSON());
+            jsonGenerator.writeStringField("street_name", instruction.getName());
+            jsonGenerator.writeNumberField("time", instruction.getTime());
+            jsonGenerator.writeNumberField("distance", Helper.round(instruction.getDistance(), 3));
+            jsonGenerator.writeNumberField("sign", instruction.getSign());
+            for (Map.Entry<String, Object> entry : instruction.getExtraInfoJSON().entrySet()) {
+                serializerProvider.defaultSerializeField(entry.getKey(), entry.getValue(), jsonGenerator);
+            }
 
             int tmpIndex = pointsIndex + instruction.getLength();
-            instrJson.put("interval", Arrays.asList(pointsIndex, tmpIndex));
+            jsonGenerator.writeArrayFieldStart("interval");
+            jsonGenerator.writeNumber(pointsIndex);
+            jsonGenerator.writeNumber(tmpIndex);
+            jsonGenerator.writeEndArray();
             pointsIndex = tmpIndex;
 
+            jsonGenerator.writeEndObject();
         }
-        jsonGenerator.writeObject(instrList);
+        jsonGenerator.writeEndArray();
     }
 }
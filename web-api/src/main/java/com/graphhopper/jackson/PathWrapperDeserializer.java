@@ -137,6 +137,11 @@ public class PathWrapperDeserializer extends JsonDeserializer<PathWrapper> {
                         }
                     }
 
+                    // a via instruction is created from the finish instruction of the previous leg
+                    if ((sign == Instruction.REACHED_VIA || sign == Instruction.FINISH) && jsonObj.has("last_heading")) {
+                        instr.setExtraInfo("last_heading", jsonObj.get("last_heading").asDouble());
+                    }
+
                     // Usually, the translation is done from the routing service so just use the provided string
                     // instead of creating a combination with sign and name etc.
                     // This is called the turn description.
@@ -215,27 +220,7 @@ public class PathWrapperDeserializer extends JsonDeserializer<PathWrapper> {
                 exClass = error.get("details").asText();
 
             String exMessage = error.get("message").asText();
-
-            if (exClass.equals(UnsupportedOperationException.class.getName()))
-                errors.add(new UnsupportedOperationException(exMessage));
-            else if (exClass.equals(IllegalStateException.class.getName()))
-                errors.add(new IllegalStateException(exMessage));
-            else if (exClass.equals(RuntimeException.class.getName()))
-                errors.add(new DetailedRuntimeException(exMessage, toMap(objectMapper, error)));
-            else if (exClass.equals(IllegalArgumentException.class.getName()))
-                errors.add(new DetailedIllegalArgumentException(exMessage, toMap(objectMapper, error)));
-            else if (exClass.equals(ConnectionNotFoundException.class.getName())) {
-                errors.add(new ConnectionNotFoundException(exMessage, toMap(objectMapper, error)));
-            } else if (exClass.equals(PointNotFoundException.class.getName())) {
-                int pointIndex = error.get("point_index").asInt();
-                errors.add(new PointNotFoundException(exMessage, pointIndex));
-            } else if (exClass.equals(PointOutOfBoundsException.class.getName())) {
-                int pointIndex = error.get("point_index").asInt();
-                errors.add(new PointOutOfBoundsException(exMessage, pointIndex));
-            } else if (exClass.isEmpty())
-                errors.add(new DetailedRuntimeException(exMessage, toMap(objectMapper, error)));
-            else
-                errors.add(new DetailedRuntimeException(exClass + " " + exMessage, toMap(objectMapper, error)));
+            errors.add(createError(exClass, exMessage, toMap(objectMapper, error)));
         }
 
         if (json.has("message") && errors.isEmpty())
@@ -244,6 +229,30 @@ public class PathWrapperDeserializer extends JsonDeserializer<PathWrapper> {
         return errors;
     }
 
+    /**
+     * Recreates the exception from the class name and message of an error entry in the response.
+     */
+    public static Throwable createError(String exClass, String exMessage, Map<String, Object> details) {
+        if (exClass.equals(UnsupportedOperationException.class.getName()))
+            return new UnsupportedOperationException(exMessage);
+        else if (exClass.equals(IllegalStateException.class.getName()))
+            return new IllegalStateException(exMessage);
+        else if (exClass.equals(RuntimeException.class.getName()))
+            return new DetailedRuntimeException(exMessage, details);
+        else if (exClass.equals(IllegalArgumentException.class.getName()))
+            return new DetailedIllegalArgumentException(exMessage, details);
+        else if (exClass.equals(ConnectionNotFoundException.class.getName()))
+            return new ConnectionNotFoundException(exMessage, details);
+        else if (exClass.equals(PointNotFoundException.class.getName()))
+            return new PointNotFoundException(exMessage, ((Number) details.get("point_index")).intValue());
+        else if (exClass.equals(PointOutOfBoundsException.class.getName()))
+            return new PointOutOfBoundsException(exMessage, ((Number) details.get("point_index")).intValue());
+        else if (exClass.isEmpty())
+            return new DetailedRuntimeException(exMessage, details);
+        else
+            return new DetailedRuntimeException(exClass + " " + exMessage, details);
+    }
+
     // Credits to: http://stackoverflow.com/a/24012023/194609
     private static Map<String, Object> toMap(ObjectMapper objectMapper, JsonNode object) {
         return objectMapper.convertValue(object, new TypeReference<Map<String, Object>>() {
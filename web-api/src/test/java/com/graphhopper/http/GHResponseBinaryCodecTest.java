@@ -0,0 +1,140 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.exceptions.PointOutOfBoundsException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class GHResponseBinaryCodecTest {
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        PointList points = Helper.createPointList3D(42.554851, 1.536198, 1210.5, 42.553, 1.537, 1203,
+                42.551, 1.539, 1190.25, 42.510071, 1.548128, 1100);
+        PathWrapper path = new PathWrapper().setDistance(1234.5678).setTime(5678).setRouteWeight(12.3);
+        path.setAscend(10.5).setDescend(121);
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(42.554851, 1.536198, 1210.5, 42.510071, 1.548128, 1100));
+
+        InstructionList il = new InstructionList(null);
+        Instruction instr = new Instruction(Instruction.CONTINUE_ON_STREET, "la Callisa", InstructionAnnotation.EMPTY, points.copy(0, 1));
+        instr.setExtraInfo("heading", 123.4);
+        il.add(instr.setDistance(100.5).setTime(2000));
+        RoundaboutInstruction ri = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "la Callisa", new InstructionAnnotation(1, "toll"), points.copy(1, 3));
+        ri.setExitNumber(2).setExited();
+        il.add(ri.setDistance(1000).setTime(3000));
+        FinishInstruction finish = new FinishInstruction("", points, 3);
+        finish.setExtraInfo("last_heading", 160.5);
+        il.add(finish.setDistance(0).setTime(0));
+        for (Instruction i : il) {
+            i.setUseRawName();
+        }
+        path.setInstructions(il);
+
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("average_speed", Arrays.asList(createDetail(new PathDetail(30.0), 0, 2), createDetail(new PathDetail(60.1), 2, 3)));
+        details.put("edge_id", Collections.singletonList(createDetail(new PathDetail(880L), 0, 3)));
+        details.put("osm_id", Collections.singletonList(createDetail(new PathDetail(5_000_000_000L), 0, 3)));
+        details.put("street_name", Arrays.asList(createDetail(new PathDetail("la Callisa"), 0, 1), createDetail(new PathDetail("la Callisa"), 1, 3)));
+        path.addPathDetails(details);
+
+        GHResponse rsp = new GHResponse();
+        rsp.getHints().put("visited_nodes.sum", 123);
+        rsp.add(path);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GHResponseBinaryCodec.write(out, rsp, true, true, true, 0.25f);
+        GHResponse result = GHResponseBinaryCodec.read(new ByteArrayInputStream(out.toByteArray()), true);
+
+        assertFalse(result.hasErrors());
+        assertEquals("123", result.getHints().get("visited_nodes.sum", ""));
+        assertEquals(1, result.getAll().size());
+        PathWrapper resPath = result.getBest();
+        assertEquals(1234.5678, resPath.getDistance(), 1e-6);
+        assertEquals(5678, resPath.getTime());
+        assertEquals(12.3, resPath.getRouteWeight(), 1e-6);
+        assertEquals(10.5, resPath.getAscend(), 1e-6);
+        assertEquals(121, resPath.getDescend(), 1e-6);
+        assertEquals(points, resPath.getPoints());
+        assertEquals(path.getWaypoints(), resPath.getWaypoints());
+        assertEquals(Arrays.asList(0, 1), resPath.getPointsOrder());
+
+        InstructionList resIl = resPath.getInstructions();
+        assertEquals(3, resIl.size());
+        assertEquals("La Callisa", resIl.get(0).getTurnDescription(null));
+        assertEquals(123.4, resIl.get(0).getExtraInfoJSON().get("heading"));
+        assertEquals(2, resIl.get(0).getPoints().size());
+        assertEquals(100.5, resIl.get(0).getDistance(), 1e-6);
+        assertEquals(2000, resIl.get(0).getTime());
+        assertEquals(Instruction.USE_ROUNDABOUT, resIl.get(1).getSign());
+        assertEquals(2, resIl.get(1).getExtraInfoJSON().get("exit_number"));
+        assertEquals(true, resIl.get(1).getExtraInfoJSON().get("exited"));
+        assertEquals("toll", resIl.get(1).getAnnotation().getMessage());
+        assertEquals(Instruction.FINISH, resIl.get(2).getSign());
+        assertEquals(42.510071, resIl.get(2).getPoints().getLat(0), 1e-6);
+        assertEquals(160.5, resIl.get(2).getExtraInfoJSON().get("last_heading"));
+
+        Map<String, List<PathDetail>> resDetails = resPath.getPathDetails();
+        assertEquals(4, resDetails.size());
+        assertEquals(60.1, resDetails.get("average_speed").get(1).getValue());
+        assertEquals(2, resDetails.get("average_speed").get(1).getFirst());
+        assertEquals(3, resDetails.get("average_speed").get(1).getLast());
+        // like for the JSON format integral path detail values are a Long
+        assertEquals(880L, resDetails.get("edge_id").get(0).getValue());
+        assertEquals(5_000_000_000L, resDetails.get("osm_id").get(0).getValue());
+        assertEquals("la Callisa", resDetails.get("street_name").get(1).getValue());
+
+        // without instructions and elevation
+        out = new ByteArrayOutputStream();
+        GHResponseBinaryCodec.write(out, rsp, false, true, false, 0.25f);
+        result = GHResponseBinaryCodec.read(new ByteArrayInputStream(out.toByteArray()), false);
+        assertFalse(result.getBest().getPoints().is3D());
+        assertEquals(4, result.getBest().getPoints().size());
+        assertEquals(4, result.getBest().getPathDetails().size());
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GHResponseBinaryCodec.writeErrors(out, Arrays.<Throwable>asList(new IllegalArgumentException("wrong vehicle"),
+                new PointOutOfBoundsException("point 1 is out of bounds", 1)));
+        GHResponse result = GHResponseBinaryCodec.read(new ByteArrayInputStream(out.toByteArray()), true);
+        assertEquals(2, result.getErrors().size());
+        assertTrue(result.getErrors().get(0) instanceof IllegalArgumentException);
+        assertEquals("wrong vehicle", result.getErrors().get(0).getMessage());
+        assertEquals(1, ((PointOutOfBoundsException) result.getErrors().get(1)).getPointIndex());
+        assertEquals(1, ((PointOutOfBoundsException) result.getErrors().get(1)).getDetails().get("point_index"));
+    }
+
+    private static PathDetail createDetail(PathDetail pd, int first, int last) {
+        pd.setFirst(first);
+        pd.setLast(last);
+        return pd;
+    }
+}
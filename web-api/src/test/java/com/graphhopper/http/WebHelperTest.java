@@ -17,11 +17,20 @@
  */
 package com.graphhopper.http;
 
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.PointList;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -79,4 +88,102 @@ public class WebHelperTest {
     public void testEncode1e6() throws Exception {
         assertEquals("ohdfzAgt}bVoEL", WebHelper.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+    public void testWritePolyline() throws Exception {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        PointList list = Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234, 43.252, -126.453, 1234);
+        assertEquals(WebHelper.encodePolyline(list, false, 1e5), writePolyline(objectMapper, list, false, 1e5));
+        assertEquals(WebHelper.encodePolyline(list, true, 1e5), writePolyline(objectMapper, list, true, 1e5));
+        assertEquals(WebHelper.encodePolyline(list, false, 1e6), writePolyline(objectMapper, list, false, 1e6));
+        assertEquals("", writePolyline(objectMapper, new PointList(), false, 1e5));
+
+        // enforce growing the buffer
+        list = new PointList(1000, false);
+        for (int i = 0; i < 1000; i++) {
+            list.add(i % 2 == 0 ? -80 : 80, i % 2 == 0 ? -170 : 170);
+        }
+        assertEquals(WebHelper.encodePolyline(list, false, 1e5), writePolyline(objectMapper, list, false, 1e5));
+    }
+
+    private String writePolyline(ObjectMapper objectMapper, PointList list, boolean includeElevation, double precision) throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+        WebHelper.writePolyline(json, list, includeElevation, precision);
+        json.close();
+        return objectMapper.readValue(writer.toString(), String.class);
+    }
+
+    @Test
+    public void testWriteJsonSameAsJsonObject() throws Exception {
+        PathWrapper path = new PathWrapper().setDistance(1234.5678).setTime(5678).setRouteWeight(12.3);
+        path.setPoints(Helper.createPointList(38.5, -120.2, 40.7, -120.95, 43.252, -126.453));
+        path.setWaypoints(Helper.createPointList(38.5, -120.2, 43.252, -126.453));
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.getHints().put("visited_nodes.sum", 42);
+        assertWriteJsonSameAsJsonObject(rsp, false, true, false);
+    }
+
+    @Test
+    public void testWriteJsonSameAsJsonObjectWithInstructionsDetailsAndElevation() throws Exception {
+        PointList points = Helper.createPointList3D(42.554851, 1.536198, 1210.5, 42.553, 1.537, 1203,
+                42.551, 1.539, 1190.25, 42.510071, 1.548128, 1100);
+        PathWrapper path = new PathWrapper().setDistance(1234.5678).setTime(5678).setRouteWeight(12.3);
+        path.setAscend(10.5).setDescend(121);
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(42.554851, 1.536198, 1210.5, 42.510071, 1.548128, 1100));
+        path.setDescription(Collections.singletonList("fastest"));
+
+        InstructionList il = new InstructionList(null);
+        Instruction instr = new Instruction(Instruction.CONTINUE_ON_STREET, "la Callisa", InstructionAnnotation.EMPTY, points.copy(0, 2));
+        instr.setExtraInfo("heading", 123.4);
+        il.add(instr.setDistance(100.5).setTime(2000));
+        RoundaboutInstruction ri = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "la Callisa", new InstructionAnnotation(1, "toll"), points.copy(2, 3));
+        ri.setExitNumber(2).setExited();
+        il.add(ri.setDistance(1000).setTime(3000));
+        il.add(new FinishInstruction("", points, 3).setDistance(0).setTime(0));
+        for (Instruction i : il) {
+            i.setUseRawName();
+        }
+        path.setInstructions(il);
+
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("average_speed", Arrays.asList(createDetail(new PathDetail(30.0), 0, 2), createDetail(new PathDetail(60.1), 2, 3)));
+        details.put("edge_id", Collections.singletonList(createDetail(new PathDetail(880L), 0, 3)));
+        details.put("max_speed", Collections.singletonList(createDetail(new PathDetail(50), 0, 3)));
+        details.put("toll", Collections.singletonList(createDetail(new PathDetail(true), 0, 3)));
+        details.put("street_name", Arrays.asList(createDetail(new PathDetail("la Callisa"), 0, 1), createDetail(new PathDetail("la Callisa"), 1, 3)));
+        path.addPathDetails(details);
+
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.getHints().put("visited_nodes.sum", 42);
+
+        for (boolean enableInstructions : new boolean[]{true, false}) {
+            for (boolean enableElevation : new boolean[]{true, false}) {
+                assertWriteJsonSameAsJsonObject(rsp, enableInstructions, true, enableElevation);
+            }
+        }
+        assertWriteJsonSameAsJsonObject(rsp, true, false, true);
+    }
+
+    private static PathDetail createDetail(PathDetail detail, int first, int last) {
+        detail.setFirst(first);
+        detail.setLast(last);
+        return detail;
+    }
+
+    private void assertWriteJsonSameAsJsonObject(GHResponse rsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation) throws IOException {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        for (boolean pointsEncoded : new boolean[]{true, false}) {
+            String expected = objectMapper.writeValueAsString(WebHelper.jsonObject(rsp, enableInstructions, calcPoints, enableElevation, pointsEncoded, 0.25f));
+            StringWriter writer = new StringWriter();
+            JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+            WebHelper.writeJson(json, rsp, enableInstructions, calcPoints, enableElevation, pointsEncoded, 0.25f);
+            json.close();
+            String msg = "instructions: " + enableInstructions + ", points: " + calcPoints + ", elevation: " + enableElevation + ", encoded: " + pointsEncoded;
+            assertEquals(msg, objectMapper.readTree(expected), objectMapper.readTree(writer.toString()));
+        }
+    }
 }
@@ -21,6 +21,7 @@ package com.graphhopper.http;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.module.SimpleModule;
@@ -28,6 +29,7 @@ import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
 import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.GraphHopperConfig;
@@ -42,17 +44,46 @@ import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.TranslationMap;
 import io.dropwizard.ConfiguredBundle;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
 import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.process.internal.RequestScoped;
 
 import javax.inject.Inject;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
+    /**
+     * Provides the current GraphHopper instance for every request, so that the graph can be swapped while the
+     * server is running. The instance is not closed before the request is finished.
+     */
+    static class GraphHopperFactory implements Factory<GraphHopper> {
+
+        private final GraphHopperManaged graphHopperManaged;
+
+        GraphHopperFactory(GraphHopperManaged graphHopperManaged) {
+            this.graphHopperManaged = graphHopperManaged;
+        }
+
+        @Override
+        public GraphHopper provide() {
+            return graphHopperManaged.acquire();
+        }
+
+        @Override
+        public void dispose(GraphHopper instance) {
+            graphHopperManaged.release(instance);
+        }
+    }
+
     static class TranslationMapFactory implements Factory<TranslationMap> {
 
         @Inject
@@ -184,22 +215,50 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         // If the "?type=gpx" parameter is present, sets a corresponding media type header
         environment.jersey().register(new TypeGPXFilter());
 
-        // Together, these two take care that MultiExceptions thrown from RouteResource
-        // come out as JSON or GPX, depending on the media type
+        // Together, these take care that MultiExceptions thrown from RouteResource
+        // come out as JSON, GPX or binary, depending on the media type
         environment.jersey().register(new MultiExceptionMapper());
         environment.jersey().register(new MultiExceptionGPXMessageBodyWriter());
+        environment.jersey().register(new MultiExceptionBinaryMessageBodyWriter());
 
         environment.jersey().register(new IllegalArgumentExceptionMapper());
+        // streams the JSON of RouteResource instead of building the ObjectNode tree
+        environment.jersey().register(new GHResponseMessageBodyWriter(environment.getObjectMapper()));
+        environment.jersey().register(new GHResponseBinaryMessageBodyWriter());
         environment.jersey().register(new GHPointConverterProvider());
 
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), environment.getObjectMapper());
         environment.lifecycle().manage(graphHopperManaged);
+        GraphHopperConfig ghConfig = configuration.getGraphHopperConfiguration();
+        // bounds the number of threads that calculate the routes of all POST /route/batch requests together and the
+        // number of routes waiting for them. This is what the executorService builder of the lifecycle creates, but
+        // the resource needs the queue to reject batches that do not fit.
+        int routeBatchThreads = ghConfig.getInt("web.route_batch.threads", Runtime.getRuntime().availableProcessors());
+        final ThreadPoolExecutor routeBatchExecutor = new ThreadPoolExecutor(routeBatchThreads, routeBatchThreads,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(ghConfig.getInt("web.route_batch.max_queued", 10_000)),
+                new ThreadFactoryBuilder().setNameFormat("route-batch-%d").build());
+        environment.lifecycle().manage(new ExecutorServiceManager(routeBatchExecutor, Duration.seconds(5), "route-batch-%d"));
+        // executes the asynchronous matrix and isochrone jobs, it is stopped before the GraphHopper instance
+        final JobManager jobManager = new JobManager(graphHopperManaged, ghConfig.getInt("web.jobs.threads", 2),
+                ghConfig.getInt("web.jobs.max_pending", 100), ghConfig.getInt("web.jobs.keep_seconds", 600),
+                ghConfig.getInt("web.jobs.max_wait_seconds", 60));
+        environment.lifecycle().manage(jobManager);
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
-                bind(graphHopperManaged.getGraphHopper()).to(GraphHopper.class);
-                bind(graphHopperManaged.getGraphHopper()).to(GraphHopperAPI.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
+                bind(routeBatchExecutor).to(ThreadPoolExecutor.class).named("routeBatchExecutor");
+                bind(jobManager).to(JobManager.class);
+                bind(graphHopperManaged).to(GraphHopperManaged.class);
+                if (graphHopperManaged.getGraphHopper() instanceof GraphHopperGtfs) {
+                    // the public transit resources also need the GraphHopperGtfs instance outside of requests
+                    bind(graphHopperManaged.getGraphHopper()).to(GraphHopper.class);
+                    bind(graphHopperManaged.getGraphHopper()).to(GraphHopperAPI.class);
+                } else {
+                    bindFactory(new GraphHopperFactory(graphHopperManaged)).to(GraphHopper.class).to(GraphHopperAPI.class).
+                            proxy(false).in(RequestScoped.class);
+                }
 
                 bindFactory(HasElevation.class).to(Boolean.class).named("hasElevation");
                 bindFactory(LocationIndexFactory.class).to(LocationIndex.class);
@@ -217,7 +276,9 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(RouteBatchResource.class);
         environment.jersey().register(IsochroneResource.class);
+        environment.jersey().register(MatrixResource.class);
         if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
             // These are pt-specific implementations of /route and /isochrone, but the same API.
             // We serve them under different paths (/route-pt and /isochrone-pt), and forward
@@ -229,6 +290,9 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(SPTResource.class);
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
-        environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopperManaged.getGraphHopper()));
+        if (configuration.getGraphHopperConfiguration().getBool("web.graph_swap.enabled", false)) {
+            environment.admin().addTask(new GraphSwapTask(graphHopperManaged));
+        }
+        environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopperManaged));
     }
 }
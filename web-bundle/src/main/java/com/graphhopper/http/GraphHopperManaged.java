@@ -27,7 +27,9 @@ import com.graphhopper.reader.gtfs.GraphHopperGtfs;
 import com.graphhopper.reader.osm.GraphHopperOSM;
 import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookupHelper;
+import com.graphhopper.util.EngineWarmUp;
 import com.graphhopper.util.Parameters;
+import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.shapes.BBox;
 import io.dropwizard.lifecycle.Managed;
 import org.locationtech.jts.geom.Envelope;
@@ -45,12 +47,36 @@ import java.util.List;
 
 import static com.graphhopper.util.Helper.UTF_CS;
 
+/**
+ * Manages the lifecycle of the GraphHopper instance used by the resources. The graph can be replaced at runtime by
+ * another graph folder via {@link #swap(String)}: the new graph is loaded and warmed up while the old one still
+ * serves requests, then new requests get the new instance and the old one is closed when its last request finished.
+ */
 public class GraphHopperManaged implements Managed {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
-    private final GraphHopper graphHopper;
+    private final GraphHopperConfig configuration;
+    private final JsonFeatureCollection landmarkSplittingFeatureCollection;
+    private final List<JsonFeatureCollection> spatialRuleFeatureCollections = new ArrayList<>();
+    private final Object swapLock = new Object();
+    // guarded by this
+    private Lease current;
+    private final List<Lease> retired = new ArrayList<>();
+
+    /**
+     * Counts the requests that currently use a GraphHopper instance.
+     */
+    private static class Lease {
+        final GraphHopper graphHopper;
+        int requests;
+
+        Lease(GraphHopper graphHopper) {
+            this.graphHopper = graphHopper;
+        }
+    }
 
     public GraphHopperManaged(GraphHopperConfig configuration, ObjectMapper objectMapper) {
+        this.configuration = configuration;
         ObjectMapper localObjectMapper = objectMapper.copy();
         localObjectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         String splitAreaLocation = configuration.get(Parameters.Landmark.PREPARE + "split_area_location", "");
@@ -61,52 +87,152 @@ public class GraphHopperManaged implements Managed {
             logger.error("Problem while reading border map GeoJSON. Skipping this.", e1);
             landmarkSplittingFeatureCollection = null;
         }
-        if (configuration.has("gtfs.file")) {
-            graphHopper = new GraphHopperGtfs(configuration);
-        } else {
-            graphHopper = new GraphHopperOSM(landmarkSplittingFeatureCollection).forServer();
-        }
+        this.landmarkSplittingFeatureCollection = landmarkSplittingFeatureCollection;
         if (!configuration.get("spatial_rules.location", "").isEmpty()) {
             throw new RuntimeException("spatial_rules.location has been deprecated. Please use spatial_rules.borders_directory instead.");
         }
         String spatialRuleBordersDirLocation = configuration.get("spatial_rules.borders_directory", "");
         if (!spatialRuleBordersDirLocation.isEmpty()) {
-            final BBox maxBounds = BBox.parseBBoxString(configuration.get("spatial_rules.max_bbox", "-180, 180, -90, 90"));
             final Path bordersDirectory = Paths.get(spatialRuleBordersDirLocation);
-            List<JsonFeatureCollection> jsonFeatureCollections = new ArrayList<>();
             try (DirectoryStream<Path> stream = Files.newDirectoryStream(bordersDirectory, "*.{geojson,json}")) {
                 for (Path borderFile : stream) {
                     try (BufferedReader reader = Files.newBufferedReader(borderFile, StandardCharsets.UTF_8)) {
                         JsonFeatureCollection jsonFeatureCollection = localObjectMapper.readValue(reader, JsonFeatureCollection.class);
-                        jsonFeatureCollections.add(jsonFeatureCollection);
+                        spatialRuleFeatureCollections.add(jsonFeatureCollection);
                     }
                 }
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
+        }
+        current = new Lease(createGraphHopper());
+    }
+
+    private GraphHopper createGraphHopper() {
+        GraphHopper graphHopper;
+        if (configuration.has("gtfs.file")) {
+            graphHopper = new GraphHopperGtfs(configuration);
+        } else {
+            graphHopper = new GraphHopperOSM(landmarkSplittingFeatureCollection).forServer();
+        }
+        if (!spatialRuleFeatureCollections.isEmpty()) {
+            final BBox maxBounds = BBox.parseBBoxString(configuration.get("spatial_rules.max_bbox", "-180, 180, -90, 90"));
             SpatialRuleLookupHelper.buildAndInjectCountrySpatialRules(graphHopper,
-                    new Envelope(maxBounds.minLon, maxBounds.maxLon, maxBounds.minLat, maxBounds.maxLat), jsonFeatureCollections);
+                    new Envelope(maxBounds.minLon, maxBounds.maxLon, maxBounds.minLat, maxBounds.maxLat), spatialRuleFeatureCollections);
         }
         graphHopper.init(configuration);
+        return graphHopper;
     }
 
     @Override
     public void start() {
+        GraphHopper graphHopper = getGraphHopper();
         graphHopper.importOrLoad();
+        logInfo(graphHopper);
+    }
+
+    private void logInfo(GraphHopper graphHopper) {
         logger.info("loaded graph at:{}, data_reader_file:{}, encoded values:{}, {}",
                 graphHopper.getGraphHopperLocation(), graphHopper.getDataReaderFile(),
                 graphHopper.getEncodingManager().toEncodedValuesAsString(),
                 graphHopper.getGraphHopperStorage().toDetailsString());
     }
 
-    public GraphHopper getGraphHopper() {
-        return graphHopper;
+    /**
+     * @return the GraphHopper instance that is currently used for new requests. It is not protected against being
+     * closed by a {@link #swap}, so only use it where no swap can happen, e.g. while starting, or to read the
+     * configuration of the instance. Use {@link #acquire} and {@link #release} to access the graph.
+     */
+    public synchronized GraphHopper getGraphHopper() {
+        return current.graphHopper;
     }
 
-    @Override
-    public void stop() {
-        graphHopper.close();
+    /**
+     * Returns the current GraphHopper instance and makes sure it is not closed before {@link #release} was called
+     * for it.
+     */
+    public synchronized GraphHopper acquire() {
+        current.requests++;
+        return current.graphHopper;
+    }
+
+    public void release(GraphHopper graphHopper) {
+        Lease closeable = null;
+        synchronized (this) {
+            if (current.graphHopper == graphHopper) {
+                current.requests--;
+                return;
+            }
+            for (Lease lease : retired) {
+                if (lease.graphHopper == graphHopper) {
+                    lease.requests--;
+                    if (lease.requests <= 0) {
+                        retired.remove(lease);
+                        closeable = lease;
+                    }
+                    break;
+                }
+            }
+        }
+        if (closeable != null)
+            close(closeable);
     }
 
+    /**
+     * Loads the graph from the given folder, including the CH and LM preparations, and replaces the current graph
+     * with it. The folder has to be created with the same configuration, and the new graph is warmed up before it is
+     * used. The old graph is closed as soon as the requests that are still using it are finished.
+     */
+    public void swap(String graphLocation) {
+        synchronized (swapLock) {
+            GraphHopper oldGraphHopper = getGraphHopper();
+            if (oldGraphHopper instanceof GraphHopperGtfs)
+                throw new IllegalStateException("Swapping the graph is not supported for public transit");
+            if (new File(graphLocation).getAbsoluteFile().equals(new File(oldGraphHopper.getGraphHopperLocation()).getAbsoluteFile()))
+                throw new IllegalArgumentException("The new graph has to be in another folder than the current one: " + graphLocation);
+
+            StopWatch sw = new StopWatch().start();
+            GraphHopper graphHopper = createGraphHopper();
+            try {
+                if (!graphHopper.load(graphLocation))
+                    throw new IllegalArgumentException("Cannot find graph at " + graphLocation);
+                EngineWarmUp.warmUp(graphHopper, configuration.getInt("web.graph_swap.warm_up_iterations", 100));
+            } catch (RuntimeException ex) {
+                graphHopper.close();
+                throw ex;
+            }
 
+            Lease closeable = null;
+            synchronized (this) {
+                Lease old = current;
+                current = new Lease(graphHopper);
+                if (old.requests <= 0)
+                    closeable = old;
+                else
+                    retired.add(old);
+            }
+            logInfo(graphHopper);
+            logger.info("swapped graph from {} to {}, took: {}s", oldGraphHopper.getGraphHopperLocation(), graphLocation, sw.stop().getSeconds());
+            if (closeable != null)
+                close(closeable);
+        }
+    }
+
+    private void close(Lease lease) {
+        logger.info("closing graph at {}", lease.graphHopper.getGraphHopperLocation());
+        lease.graphHopper.close();
+    }
+
+    @Override
+    public void stop() {
+        List<Lease> leases;
+        synchronized (this) {
+            leases = new ArrayList<>(retired);
+            leases.add(current);
+            retired.clear();
+        }
+        for (Lease lease : leases) {
+            lease.graphHopper.close();
+        }
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+
+/**
+ * Admin task to replace the graph of the running server without downtime, e.g. after a new import:
+ * <pre>
+ * curl -X POST 'http://localhost:8990/tasks/swap-graph?location=/data/graph-cache-new'
+ * </pre>
+ * The request returns after the new graph was loaded and warmed up, see {@link GraphHopperManaged#swap(String)}.
+ */
+public class GraphSwapTask extends Task {
+
+    private final GraphHopperManaged graphHopperManaged;
+
+    public GraphSwapTask(GraphHopperManaged graphHopperManaged) {
+        super("swap-graph");
+        this.graphHopperManaged = graphHopperManaged;
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) {
+        ImmutableCollection<String> locations = parameters.get("location");
+        if (locations.size() != 1)
+            throw new IllegalArgumentException("Specify the new graph folder via the location parameter");
+        String location = locations.iterator().next();
+        graphHopperManaged.swap(location);
+        output.println("swapped graph to " + location);
+    }
+}
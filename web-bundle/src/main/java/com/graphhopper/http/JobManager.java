@@ -0,0 +1,358 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.MultiException;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.container.AsyncResponse;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Executes expensive requests like large matrices or isochrones in the background, so that they do not block a
+ * request thread of the server. A job is submitted and the client polls for the result via its id. A poll can wait
+ * for the result without blocking a request thread (long polling). The protocol is the same as for the
+ * GHMatrixBatchRequester of the client-hc module: the solution contains a 'status' of waiting, processing, finished
+ * or cancelled and the result is returned as 'solution'. Failed jobs return the errors like a synchronous request.
+ * <p>
+ * The jobs are executed by a fixed number of threads and cheaper jobs are preferred, i.e. a small matrix does not have
+ * to wait for a huge one. All job types share one queue, so their costs are given in the same unit, the expected
+ * number of settled nodes, see {@link #estimateIsochroneCosts} and {@link #estimateMatrixCosts}. The number of
+ * pending jobs is limited and finished jobs are removed after some time, which is checked periodically while the
+ * manager is started and for every submit. The algorithms are limited by their usual maxVisitedNodes budget and can
+ * be cancelled in between, see {@link #cancel}.
+ */
+public class JobManager implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(JobManager.class);
+    // roughly the number of nodes settled by one upward search in a CH graph of a country
+    private static final long CH_UPWARD_SEARCH_NODES = 500;
+
+    public enum Status {
+        WAITING, PROCESSING, FINISHED, FAILED, CANCELLED;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final GraphHopperManaged graphHopperManaged;
+    private final int maxPendingJobs;
+    private final long keepMillis;
+    private final int maxWaitSeconds;
+    private final ThreadPoolExecutor executor;
+    private ScheduledExecutorService cleanupExecutor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingJobs = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public JobManager(GraphHopperManaged graphHopperManaged, int threads, int maxPendingJobs, long keepSeconds, int maxWaitSeconds) {
+        if (threads < 1)
+            throw new IllegalArgumentException("At least one thread is required for the jobs but was " + threads);
+        this.graphHopperManaged = graphHopperManaged;
+        this.maxPendingJobs = maxPendingJobs;
+        this.keepMillis = TimeUnit.SECONDS.toMillis(keepSeconds);
+        this.maxWaitSeconds = maxWaitSeconds;
+        // only Jobs are added to the queue, they are ordered by their costs and then by their submission
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "job-" + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param costs the expected number of settled nodes of this job, see {@link #estimateIsochroneCosts} and
+     *              {@link #estimateMatrixCosts}. Cheaper jobs are executed first.
+     * @param task  calculates the solution, it gets a GraphHopper instance that cannot be closed by a graph swap
+     *              while the job is running
+     * @return the id of the new job
+     */
+    public String submit(String type, long costs, Function<GraphHopper, Object> task) {
+        removeExpiredJobs();
+        if (pendingJobs.incrementAndGet() > maxPendingJobs) {
+            pendingJobs.decrementAndGet();
+            throw new IllegalArgumentException("Too many pending jobs, the maximum is " + maxPendingJobs + ". Please try again later");
+        }
+        Job job = new Job(UUID.randomUUID().toString(), type, costs, sequence.getAndIncrement(), task);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.id);
+            pendingJobs.decrementAndGet();
+            throw ex;
+        }
+        return job.id;
+    }
+
+    /**
+     * Estimates the settled nodes of an isochrone search that explores a disc with the specified radius, assuming the
+     * nodes are evenly distributed within the bounds of the graph.
+     */
+    public static long estimateIsochroneCosts(Graph graph, double radiusInMeter) {
+        BBox bounds = graph.getBounds();
+        if (!bounds.isValid())
+            return graph.getNodes();
+        double width = Helper.DIST_PLANE.calcDist(bounds.minLat, bounds.minLon, bounds.minLat, bounds.maxLon);
+        double height = Helper.DIST_PLANE.calcDist(bounds.minLat, bounds.minLon, bounds.maxLat, bounds.minLon);
+        double nodesPerSquareMeter = graph.getNodes() / Math.max(1, width * height);
+        double settledNodes = Math.PI * radiusInMeter * radiusInMeter * nodesPerSquareMeter;
+        return Math.round(Math.min(graph.getNodes(), settledNodes));
+    }
+
+    /**
+     * Estimates the settled nodes of a many-to-many CH calculation: one upward search per point plus one bucket scan
+     * per matrix entry, which is counted like a settled node.
+     */
+    public static long estimateMatrixCosts(int fromPoints, int toPoints) {
+        return (fromPoints + toPoints) * CH_UPWARD_SEARCH_NODES + (long) fromPoints * toPoints;
+    }
+
+    /**
+     * Resumes the response with the current status of the job. If the job is not done yet the response waits up to
+     * waitSeconds for its completion without blocking the request thread.
+     */
+    public void poll(String id, int waitSeconds, final AsyncResponse response) {
+        final Job job = getJob(id);
+        if (waitSeconds <= 0 || job.isDone()) {
+            resume(job, response);
+            return;
+        }
+        final Runnable listener = () -> resume(job, response);
+        response.setTimeout(Math.min(waitSeconds, maxWaitSeconds), TimeUnit.SECONDS);
+        response.setTimeoutHandler(asyncResponse -> {
+            // otherwise the job would keep a listener for every timed out poll until it is done
+            job.removeListener(listener);
+            resume(job, asyncResponse);
+        });
+        job.onDone(listener);
+    }
+
+    /**
+     * Cancels the job. A waiting job is removed from the queue and a running job is interrupted, which stops the
+     * algorithm at its next check, e.g. between the single searches of a matrix calculation.
+     *
+     * @return the status of the job after the cancellation
+     */
+    public Status cancel(String id) {
+        Job job = getJob(id);
+        job.cancel();
+        return job.status;
+    }
+
+    /**
+     * @return the current status of the job
+     */
+    public Status getStatus(String id) {
+        return getJob(id).status;
+    }
+
+    private Job getJob(String id) {
+        Job job = jobs.get(id);
+        if (job == null)
+            throw new NotFoundException("Job not found: " + id);
+        return job;
+    }
+
+    private static void resume(Job job, AsyncResponse response) {
+        if (job.status == Status.FAILED) {
+            response.resume(job.error instanceof MultiException ? job.error : new MultiException(job.error));
+            return;
+        }
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("job_id", job.id);
+        json.put("status", job.status.toString());
+        if (job.status == Status.FINISHED)
+            json.putPOJO("solution", job.result);
+        response.resume(json);
+    }
+
+    private void removeExpiredJobs() {
+        long now = System.currentTimeMillis();
+        Iterator<Job> iter = jobs.values().iterator();
+        while (iter.hasNext()) {
+            Job job = iter.next();
+            if (job.isDone() && job.doneMillis + keepMillis < now)
+                iter.remove();
+        }
+    }
+
+    @Override
+    public void start() {
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "job-cleanup");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // otherwise the solutions would be kept until the next job is submitted
+        long period = Math.max(1000, keepMillis / 2);
+        cleanupExecutor.scheduleWithFixedDelay(this::removeExpiredJobs, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (cleanupExecutor != null)
+            cleanupExecutor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private class Job implements Runnable, Comparable<Job> {
+        final String id;
+        final String type;
+        final long costs;
+        final long sequence;
+        final Function<GraphHopper, Object> task;
+        final List<Runnable> listeners = new ArrayList<>();
+        volatile Status status = Status.WAITING;
+        volatile Object result;
+        volatile Throwable error;
+        volatile long doneMillis;
+        Thread runner;
+
+        Job(String id, String type, long costs, long sequence, Function<GraphHopper, Object> task) {
+            this.id = id;
+            this.type = type;
+            this.costs = costs;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Job o) {
+            int res = Long.compare(costs, o.costs);
+            return res != 0 ? res : Long.compare(sequence, o.sequence);
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (status != Status.WAITING)
+                    return;
+                status = Status.PROCESSING;
+                runner = Thread.currentThread();
+            }
+            long start = System.currentTimeMillis();
+            Object tmpResult = null;
+            Throwable tmpError = null;
+            List<Runnable> tmpListeners;
+            try {
+                GraphHopper graphHopper = graphHopperManaged.acquire();
+                try {
+                    tmpResult = task.apply(graphHopper);
+                } finally {
+                    graphHopperManaged.release(graphHopper);
+                }
+            } catch (Throwable ex) {
+                // also an Error has to fail the job, otherwise it would stay pending forever
+                if (ex instanceof Error)
+                    logger.error(type + " job " + id + " failed", ex);
+                tmpError = ex;
+            }
+
+            synchronized (this) {
+                runner = null;
+                // clear the interrupted flag if the job was cancelled while it was running
+                Thread.interrupted();
+                if (status == Status.CANCELLED) {
+                    logger.info("cancelled " + type + " job " + id + " after " + (System.currentTimeMillis() - start) + "ms");
+                    return;
+                }
+                result = tmpResult;
+                error = tmpError;
+                tmpListeners = finish(tmpError == null ? Status.FINISHED : Status.FAILED);
+            }
+            // the listeners write the responses, which must not block a cancel or poll of this job
+            notifyListeners(tmpListeners);
+            logger.info(type + " job " + id + " " + status + ", took: " + (System.currentTimeMillis() - start) + "ms");
+        }
+
+        void cancel() {
+            List<Runnable> tmpListeners;
+            synchronized (this) {
+                if (isDone())
+                    return;
+                if (runner != null)
+                    runner.interrupt();
+                else
+                    executor.remove(this);
+                tmpListeners = finish(Status.CANCELLED);
+            }
+            notifyListeners(tmpListeners);
+        }
+
+        synchronized boolean isDone() {
+            return status != Status.WAITING && status != Status.PROCESSING;
+        }
+
+        void onDone(Runnable listener) {
+            synchronized (this) {
+                if (!isDone()) {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+            listener.run();
+        }
+
+        synchronized void removeListener(Runnable listener) {
+            listeners.remove(listener);
+        }
+
+        // must be called while holding the lock of this job, returns the listeners that have to be notified
+        private List<Runnable> finish(Status status) {
+            this.status = status;
+            doneMillis = System.currentTimeMillis();
+            pendingJobs.decrementAndGet();
+            List<Runnable> tmpListeners = new ArrayList<>(listeners);
+            listeners.clear();
+            return tmpListeners;
+        }
+
+        private void notifyListeners(List<Runnable> listeners) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+}
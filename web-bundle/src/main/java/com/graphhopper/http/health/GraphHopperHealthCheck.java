@@ -20,19 +20,26 @@ package com.graphhopper.http.health;
 
 import com.codahale.metrics.health.HealthCheck;
 import com.graphhopper.GraphHopper;
-import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.http.GraphHopperManaged;
 
 public class GraphHopperHealthCheck extends HealthCheck {
 
-    private final GraphHopper graphHopper;
+    private final GraphHopperManaged graphHopperManaged;
 
-    public GraphHopperHealthCheck(GraphHopper graphHopper) {
-        this.graphHopper = graphHopper;
+    public GraphHopperHealthCheck(GraphHopperManaged graphHopperManaged) {
+        this.graphHopperManaged = graphHopperManaged;
     }
 
     @Override
     protected Result check() {
-        boolean valid = graphHopper.getGraphHopperStorage().getBounds().isValid();
+        // the graph must not be closed by a swap while it is checked
+        GraphHopper graphHopper = graphHopperManaged.acquire();
+        boolean valid;
+        try {
+            valid = graphHopper.getGraphHopperStorage().getBounds().isValid();
+        } finally {
+            graphHopperManaged.release(graphHopper);
+        }
         if (valid) {
             return Result.healthy();
         } else {
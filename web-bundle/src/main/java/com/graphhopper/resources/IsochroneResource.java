@@ -4,16 +4,23 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.http.JobManager;
 import com.graphhopper.http.WebHelper;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
 import com.graphhopper.isochrone.algorithm.Isochrone;
+import com.graphhopper.isochrone.algorithm.IsochroneAlgorithm;
+import com.graphhopper.isochrone.algorithm.IsochroneCH;
 import com.graphhopper.json.geo.JsonFeature;
+import com.graphhopper.routing.ch.PhastCHPool;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.BlockAreaWeighting;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.CHProfile;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.RoutingCHGraphImpl;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.Parameters;
@@ -29,25 +36,33 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.util.*;
 
+/**
+ * Calculates isochrones around a point. Big isochrones can be calculated asynchronously via POST /isochrone/calculate,
+ * which accepts the same query parameters, and polled via GET /isochrone/solution/{id}, see {@link JobManager}.
+ */
 @Path("isochrone")
 public class IsochroneResource {
 
     private static final Logger logger = LoggerFactory.getLogger(IsochroneResource.class);
 
     private final GraphHopper graphHopper;
-    private final EncodingManager encodingManager;
+    private final JobManager jobManager;
     private final GeometryFactory geometryFactory = new GeometryFactory();
 
     @Inject
-    public IsochroneResource(GraphHopper graphHopper, EncodingManager encodingManager) {
+    public IsochroneResource(GraphHopper graphHopper, JobManager jobManager) {
         this.graphHopper = graphHopper;
-        this.encodingManager = encodingManager;
+        this.jobManager = jobManager;
     }
 
     @GET
@@ -61,26 +76,93 @@ public class IsochroneResource {
             @QueryParam("distance_limit") @DefaultValue("-1") double distanceInMeter,
             @QueryParam("type") @DefaultValue("json") String respType) {
 
+        checkParameters(nBuckets, point, respType);
+        StopWatch sw = new StopWatch().start();
+        ObjectNode json = calc(graphHopper, uriInfo.getQueryParameters(), nBuckets, reverseFlow, point, timeLimitInSeconds, distanceInMeter, respType);
+        sw.stop();
+        return Response.ok(json).header("X-GH-Took", "" + sw.getSeconds() * 1000).
+                build();
+    }
+
+    /**
+     * Submits the calculation as job. This is a POST request as it creates a job, although the parameters are the
+     * query parameters of the synchronous GET request.
+     */
+    @POST
+    @Path("calculate")
+    @Produces({MediaType.APPLICATION_JSON})
+    public ObjectNode doCalculate(
+            @Context UriInfo uriInfo,
+            @QueryParam("buckets") @DefaultValue("1") int nBuckets,
+            @QueryParam("reverse_flow") @DefaultValue("false") boolean reverseFlow,
+            @QueryParam("point") GHPoint point,
+            @QueryParam("time_limit") @DefaultValue("600") long timeLimitInSeconds,
+            @QueryParam("distance_limit") @DefaultValue("-1") double distanceInMeter,
+            @QueryParam("type") @DefaultValue("json") String respType) {
+
+        checkParameters(nBuckets, point, respType);
+        // the parameters of the request are no longer available when the job is executed
+        MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>(uriInfo.getQueryParameters());
+        // the explored radius of a time limit is estimated with an average speed of 10m/s
+        double radiusInMeter = distanceInMeter > 0 ? distanceInMeter : timeLimitInSeconds * 10;
+        long costs = JobManager.estimateIsochroneCosts(graphHopper.getGraphHopperStorage(), radiusInMeter);
+        String jobId = jobManager.submit("isochrone", costs, hopper ->
+                calc(hopper, queryParameters, nBuckets, reverseFlow, point, timeLimitInSeconds, distanceInMeter, respType));
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("job_id", jobId);
+        return json;
+    }
+
+    /**
+     * @param waitSeconds waits up to the specified seconds for the job to finish before the current status is
+     *                    returned
+     */
+    @GET
+    @Path("solution/{job_id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void doGetSolution(@PathParam("job_id") String jobId, @QueryParam("wait") @DefaultValue("0") int waitSeconds,
+                              @Suspended AsyncResponse response) {
+        jobManager.poll(jobId, waitSeconds, response);
+    }
+
+    @DELETE
+    @Path("solution/{job_id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ObjectNode doCancel(@PathParam("job_id") String jobId) {
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("job_id", jobId);
+        json.put("status", jobManager.cancel(jobId).toString());
+        return json;
+    }
+
+    private static void checkParameters(int nBuckets, GHPoint point, String respType) {
         if (nBuckets > 20 || nBuckets < 1)
             throw new IllegalArgumentException("Number of buckets has to be in the range [1, 20]");
 
         if (point == null)
             throw new IllegalArgumentException("point parameter cannot be null");
 
-        StopWatch sw = new StopWatch().start();
-
         if (respType != null && !respType.equalsIgnoreCase("json") && !respType.equalsIgnoreCase("geojson"))
             throw new IllegalArgumentException("Format not supported:" + respType);
+    }
 
+    /**
+     * Calculates the isochrone with the specified GraphHopper instance, which is not necessarily the one of the
+     * current request as asynchronous jobs acquire their own instance.
+     */
+    private ObjectNode calc(GraphHopper graphHopper, MultivaluedMap<String, String> queryParameters, int nBuckets,
+                            boolean reverseFlow, GHPoint point, long timeLimitInSeconds, double distanceInMeter, String respType) {
+        StopWatch sw = new StopWatch().start();
         HintsMap hintsMap = new HintsMap();
-        RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        RouteResource.initHints(hintsMap, queryParameters);
+        boolean useCH = graphHopper.getProfileResolver().canUseCH(hintsMap);
         hintsMap.put(Parameters.CH.DISABLE, true);
         hintsMap.put(Parameters.Landmark.DISABLE, true);
         ProfileConfig profile = graphHopper.resolveProfile(hintsMap);
         if (profile.isTurnCosts()) {
             throw new IllegalArgumentException("Isochrone calculation does not support turn costs yet");
         }
-        FlagEncoder encoder = encodingManager.getEncoder(profile.getVehicle());
+        FlagEncoder encoder = graphHopper.getEncodingManager().getEncoder(profile.getVehicle());
         EdgeFilter edgeFilter = DefaultEdgeFilter.allEdges(encoder);
         LocationIndex locationIndex = graphHopper.getLocationIndex();
         QueryResult qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
@@ -88,14 +170,25 @@ public class IsochroneResource {
             throw new IllegalArgumentException("Point not found:" + point);
 
         Graph graph = graphHopper.getGraphHopperStorage();
-        QueryGraph queryGraph = QueryGraph.lookup(graph, qr);
-
-        Weighting weighting = graphHopper.createWeighting(profile, hintsMap);
-        if (hintsMap.has(Parameters.Routing.BLOCK_AREA))
-            weighting = new BlockAreaWeighting(weighting, GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
-                    Collections.singletonList(point), hintsMap, DefaultEdgeFilter.allEdges(encoder)));
-        Isochrone isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
+        CHProfile chProfile = findCHProfile(graphHopper, profile, useCH);
+        IsochroneAlgorithm isochrone;
+        int maxVisitedNodes = graphHopper.getMaxVisitedNodes() / 5;
+        if (chProfile != null) {
+            CHGraph chGraph = graphHopper.getGraphHopperStorage().getCHGraph(chProfile);
+            QueryGraph queryGraph = QueryGraph.lookup(chGraph, qr);
+            isochrone = new IsochroneCH(new RoutingCHGraphImpl(queryGraph, chProfile.getWeighting()),
+                    getPhastPool(graphHopper, chProfile), reverseFlow);
+        } else {
+            QueryGraph queryGraph = QueryGraph.lookup(graph, qr);
+            Weighting weighting = graphHopper.createWeighting(profile, hintsMap);
+            if (hintsMap.has(Parameters.Routing.BLOCK_AREA))
+                weighting = new BlockAreaWeighting(weighting, GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
+                        Collections.singletonList(point), hintsMap, DefaultEdgeFilter.allEdges(encoder)));
+            isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
+        }
 
+        // stop early, the search would only be checked afterwards otherwise
+        isochrone.setMaxVisitedNodes(maxVisitedNodes);
         if (distanceInMeter > 0) {
             isochrone.setDistanceLimit(distanceInMeter);
         } else {
@@ -103,9 +196,11 @@ public class IsochroneResource {
         }
 
         List<List<Coordinate>> buckets = isochrone.searchGPS(qr.getClosestNode(), nBuckets);
-        if (isochrone.getVisitedNodes() > graphHopper.getMaxVisitedNodes() / 5) {
+        if (isochrone.getVisitedNodes() > maxVisitedNodes) {
             throw new IllegalArgumentException("Too many nodes would have to explored (" + isochrone.getVisitedNodes() + "). Let us know if you need this increased.");
         }
+        // the searches stop if a job is cancelled, the expensive triangulation is checked between its steps
+        checkInterrupted();
 
         ArrayList<JsonFeature> features = new ArrayList<>();
         Collection<ConstraintVertex> sites = new ArrayList<>();
@@ -121,7 +216,9 @@ public class IsochroneResource {
         ConformingDelaunayTriangulator conformingDelaunayTriangulator = new ConformingDelaunayTriangulator(sites, 0.0);
         conformingDelaunayTriangulator.setConstraints(new ArrayList<>(), new ArrayList<>());
         conformingDelaunayTriangulator.formInitialDelaunay();
+        checkInterrupted();
         conformingDelaunayTriangulator.enforceConstraints();
+        checkInterrupted();
         Geometry convexHull = conformingDelaunayTriangulator.getConvexHull();
 
         // If there's only one site (and presumably also if the convex hull is otherwise degenerated),
@@ -148,6 +245,7 @@ public class IsochroneResource {
         ArrayList<Coordinate[]> polygonShells = new ArrayList<>();
         ContourBuilder contourBuilder = new ContourBuilder(tin);
         for (int i = 0; i < buckets.size() - 1; i++) {
+            checkInterrupted();
             MultiPolygon multiPolygon = contourBuilder.computeIsoline((double) i + 0.5);
             Polygon maxPolygon = heuristicallyFindMainConnectedComponent(multiPolygon, geometryFactory.createPoint(new Coordinate(point.lon, point.lat)));
             polygonShells.add(maxPolygon.getExteriorRing().getCoordinates());
@@ -176,9 +274,30 @@ public class IsochroneResource {
         }
 
         sw.stop();
-        logger.info("took: " + sw.getSeconds() + ", visited nodes:" + isochrone.getVisitedNodes() + ", " + uriInfo.getQueryParameters());
-        return Response.ok(finalJson).header("X-GH-Took", "" + sw.getSeconds() * 1000).
-                build();
+        logger.info("took: " + sw.getSeconds() + ", visited nodes:" + isochrone.getVisitedNodes() + ", " + queryParameters);
+        return finalJson;
+    }
+
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted())
+            throw new IllegalStateException("Isochrone calculation was interrupted");
+    }
+
+    /**
+     * @return the node-based CH profile that allows the calculation of the shortest path tree for the given request
+     * with {@link IsochroneCH} or null if the request has to be calculated without CH
+     */
+    static CHProfile findCHProfile(GraphHopper graphHopper, ProfileConfig profile, boolean useCH) {
+        if (!useCH)
+            return null;
+        return graphHopper.getProfileResolver().findNodeBasedCHProfile(graphHopper.getCHPreparationHandler().getCHProfiles(), profile);
+    }
+
+    /**
+     * @return the pool shared by all {@link IsochroneCH} searches on the CH graph of the given profile
+     */
+    static PhastCHPool getPhastPool(GraphHopper graphHopper, CHProfile chProfile) {
+        return graphHopper.getCHPreparationHandler().getPreparation(chProfile.getName()).getPhastCHPool();
     }
 
     private Polygon heuristicallyFindMainConnectedComponent(MultiPolygon multiPolygon, Point point) {
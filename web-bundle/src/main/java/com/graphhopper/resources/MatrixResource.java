@@ -0,0 +1,285 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.http.JobManager;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.ManyToManyCH;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.CHProfile;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Calculates time, distance and weight tables between many source and target points. The request and response
+ * format is the one used by the GHMatrixSyncRequester of the client-hc module. The calculation requires a node-based
+ * CH profile and uses {@link ManyToManyCH}, i.e. one upward search per point instead of one route calculation per
+ * point pair.
+ * <p>
+ * Big matrices can be calculated asynchronously like with the GHMatrixBatchRequester: POST /matrix/calculate submits
+ * a job to the {@link JobManager} and returns its id, GET /matrix/solution/{id} returns the status and, once finished,
+ * the same response as the synchronous request.
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    private final GraphHopper graphHopper;
+    private final JobManager jobManager;
+    private final int maxLocations;
+
+    @Inject
+    public MatrixResource(GraphHopperConfig config, GraphHopper graphHopper, JobManager jobManager) {
+        this.graphHopper = graphHopper;
+        this.jobManager = jobManager;
+        this.maxLocations = config.getInt("web.matrix.max_locations", 1000);
+    }
+
+    public static class MatrixRequest {
+        public List<GHPoint> points = new ArrayList<>();
+        public List<GHPoint> from_points = new ArrayList<>();
+        public List<GHPoint> to_points = new ArrayList<>();
+        public List<String> out_arrays = new ArrayList<>();
+        public String vehicle = "";
+        public String weighting = "";
+        public boolean fail_fast = true;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(MatrixRequest request) {
+        checkRequest(request);
+        StopWatch sw = new StopWatch().start();
+        ObjectNode json = calc(graphHopper, request);
+        sw.stop();
+        return Response.ok(WebHelper.jsonResponsePutInfo(json, sw.getSeconds())).
+                header("X-GH-Took", "" + Math.round(sw.getSeconds() * 1000)).
+                build();
+    }
+
+    @POST
+    @Path("calculate")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public ObjectNode doCalculate(MatrixRequest request) {
+        checkRequest(request);
+        long costs = JobManager.estimateMatrixCosts(getFromPoints(request).size(), getToPoints(request).size());
+        String jobId = jobManager.submit("matrix", costs, hopper -> {
+            StopWatch sw = new StopWatch().start();
+            ObjectNode json = calc(hopper, request);
+            return WebHelper.jsonResponsePutInfo(json, sw.stop().getSeconds());
+        });
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("job_id", jobId);
+        return json;
+    }
+
+    /**
+     * @param waitSeconds waits up to the specified seconds for the job to finish before the current status is
+     *                    returned
+     */
+    @GET
+    @Path("solution/{job_id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void doGetSolution(@PathParam("job_id") String jobId, @QueryParam("wait") @DefaultValue("0") int waitSeconds,
+                              @Suspended AsyncResponse response) {
+        jobManager.poll(jobId, waitSeconds, response);
+    }
+
+    @DELETE
+    @Path("solution/{job_id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ObjectNode doCancel(@PathParam("job_id") String jobId) {
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        json.put("job_id", jobId);
+        json.put("status", jobManager.cancel(jobId).toString());
+        return json;
+    }
+
+    private void checkRequest(MatrixRequest request) {
+        if (request == null)
+            throw new IllegalArgumentException("Empty request");
+        List<GHPoint> fromPoints = getFromPoints(request);
+        List<GHPoint> toPoints = getToPoints(request);
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            throw new IllegalArgumentException("Specify 'points' or both 'from_points' and 'to_points'");
+        if (fromPoints.size() > maxLocations || toPoints.size() > maxLocations)
+            throw new IllegalArgumentException("Too many points: " + fromPoints.size() + "x" + toPoints.size()
+                    + ", the maximum is " + maxLocations + " per side");
+    }
+
+    private static List<GHPoint> getFromPoints(MatrixRequest request) {
+        return request.from_points.isEmpty() ? request.points : request.from_points;
+    }
+
+    private static List<GHPoint> getToPoints(MatrixRequest request) {
+        return request.to_points.isEmpty() ? request.points : request.to_points;
+    }
+
+    /**
+     * Calculates the tables with the specified GraphHopper instance, which is not necessarily the one of the current
+     * request as asynchronous jobs acquire their own instance.
+     */
+    private static ObjectNode calc(GraphHopper graphHopper, MatrixRequest request) {
+        StopWatch sw = new StopWatch().start();
+        List<GHPoint> fromPoints = getFromPoints(request);
+        List<GHPoint> toPoints = getToPoints(request);
+        List<String> outArrays = request.out_arrays.isEmpty() ? Arrays.asList("weights") : request.out_arrays;
+
+        HintsMap hintsMap = new HintsMap();
+        hintsMap.setVehicle(request.vehicle);
+        hintsMap.setWeighting(request.weighting);
+        ProfileConfig profile = graphHopper.resolveProfile(hintsMap);
+        if (profile.isTurnCosts())
+            throw new IllegalArgumentException("Matrix calculation does not support turn costs yet");
+        RoutingAlgorithmFactory algorithmFactory = graphHopper.getAlgorithmFactory(profile.getName(), false, true);
+        if (!(algorithmFactory instanceof CHRoutingAlgorithmFactory))
+            throw new IllegalArgumentException("Matrix calculation requires a CH profile, but there is none for '" + profile.getName() + "'");
+        CHProfile chProfile = ((CHRoutingAlgorithmFactory) algorithmFactory).getCHProfile();
+        CHGraph chGraph = graphHopper.getGraphHopperStorage().getCHGraph(chProfile);
+
+        EdgeFilter edgeFilter = DefaultEdgeFilter.allEdges(graphHopper.getEncodingManager().getEncoder(profile.getVehicle()));
+        List<Integer> invalidFromPoints = new ArrayList<>();
+        List<Integer> invalidToPoints = new ArrayList<>();
+        List<QueryResult> fromResults = lookup(graphHopper, fromPoints, edgeFilter, invalidFromPoints, request.fail_fast);
+        // for symmetric matrices every point must be added to the query graph only once
+        boolean symmetric = fromPoints == toPoints;
+        List<QueryResult> toResults = symmetric ? fromResults : lookup(graphHopper, toPoints, edgeFilter, invalidToPoints, request.fail_fast);
+        if (symmetric)
+            invalidToPoints.addAll(invalidFromPoints);
+        List<QueryResult> validResults = new ArrayList<>(fromResults.size() + toResults.size());
+        for (QueryResult qr : fromResults)
+            if (qr.isValid())
+                validResults.add(qr);
+        if (!symmetric)
+            for (QueryResult qr : toResults)
+                if (qr.isValid())
+                    validResults.add(qr);
+        QueryGraph queryGraph = QueryGraph.lookup(chGraph, validResults);
+
+        ManyToManyCH manyToMany = new ManyToManyCH(new RoutingCHGraphImpl(queryGraph, chProfile.getWeighting()));
+        manyToMany.setMaxVisitedNodes(graphHopper.getMaxVisitedNodes());
+        ManyToManyCH.Result result = manyToMany.calc(toNodes(fromResults), toNodes(toResults));
+
+        ArrayNode weights = JsonNodeFactory.instance.arrayNode();
+        ArrayNode times = JsonNodeFactory.instance.arrayNode();
+        ArrayNode distances = JsonNodeFactory.instance.arrayNode();
+        ArrayNode disconnectedPairs = JsonNodeFactory.instance.arrayNode();
+        for (int fromIdx = 0; fromIdx < fromResults.size(); fromIdx++) {
+            ArrayNode weightRow = weights.addArray();
+            ArrayNode timeRow = times.addArray();
+            ArrayNode distanceRow = distances.addArray();
+            for (int toIdx = 0; toIdx < toResults.size(); toIdx++) {
+                boolean valid = fromResults.get(fromIdx).isValid() && toResults.get(toIdx).isValid();
+                if (!valid || !result.isConnected(fromIdx, toIdx)) {
+                    if (valid) {
+                        if (request.fail_fast)
+                            throw new IllegalArgumentException("Connection between locations not found: " + fromIdx + " -> " + toIdx);
+                        disconnectedPairs.addArray().add(fromIdx).add(toIdx);
+                    }
+                    weightRow.addNull();
+                    timeRow.addNull();
+                    distanceRow.addNull();
+                    continue;
+                }
+                weightRow.add(Helper.round(result.getWeight(fromIdx, toIdx), 3));
+                timeRow.add(Math.round(result.getTime(fromIdx, toIdx) / 1000d));
+                distanceRow.add(Helper.round(result.getDistance(fromIdx, toIdx), 0));
+            }
+        }
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (outArrays.contains("weights"))
+            json.set("weights", weights);
+        if (outArrays.contains("times"))
+            json.set("times", times);
+        if (outArrays.contains("distances"))
+            json.set("distances", distances);
+        if (!request.fail_fast) {
+            ArrayNode hints = json.putArray("hints");
+            if (disconnectedPairs.size() > 0) {
+                ObjectNode disconnectedHint = hints.addObject().put("message", "Connection between locations not found");
+                disconnectedHint.set("point_pairs", disconnectedPairs);
+            }
+            if (!invalidFromPoints.isEmpty() || !invalidToPoints.isEmpty()) {
+                ObjectNode invalidHint = hints.addObject().put("message", "Cannot find point");
+                invalidHint.putPOJO("invalid_from_points", invalidFromPoints);
+                invalidHint.putPOJO("invalid_to_points", invalidToPoints);
+            }
+        }
+        sw.stop();
+        logger.info("took: " + sw.getSeconds() + ", matrix: " + fromPoints.size() + "x" + toPoints.size()
+                + ", profile: " + profile.getName() + ", visited nodes: " + manyToMany.getVisitedNodes());
+        return json;
+    }
+
+    private static List<QueryResult> lookup(GraphHopper graphHopper, List<GHPoint> points, EdgeFilter edgeFilter, List<Integer> invalidPoints, boolean failFast) {
+        LocationIndex locationIndex = graphHopper.getLocationIndex();
+        List<QueryResult> results = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            GHPoint point = points.get(i);
+            QueryResult qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+            if (!qr.isValid()) {
+                if (failFast)
+                    throw new IllegalArgumentException("Cannot find point " + i + ": " + point);
+                invalidPoints.add(i);
+            }
+            results.add(qr);
+        }
+        return results;
+    }
+
+    private static int[] toNodes(List<QueryResult> results) {
+        int[] nodes = new int[results.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            // invalid points are skipped by the many-to-many search and reported separately
+            nodes[i] = results.get(i).isValid() ? results.get(i).getClosestNode() : -1;
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.MultiException;
+import com.graphhopper.http.GraphHopperManaged;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.graphhopper.util.Parameters.Routing.CALC_POINTS;
+import static com.graphhopper.util.Parameters.Routing.INSTRUCTIONS;
+
+/**
+ * Calculates many independent routes in one HTTP request. The requests are executed on a bounded worker pool that is
+ * shared by all batches (web.route_batch.threads). A batch is rejected with 503 if its requests do not fit into the
+ * queue of this pool (web.route_batch.max_queued). The requests are only submitted when the response is written and
+ * every result is written as one JSON line as soon as it is finished, i.e. not necessarily in the order of the
+ * requests. Every line contains the index of the request and the response in the same format as for POST /route, or
+ * the errors of this request.
+ * <p>
+ * Every route is calculated like a single POST /route request, i.e. the points are snapped per request and not in one
+ * shared pass, because the requests can use different profiles and snapping options. Like the asynchronous jobs of
+ * the JobManager every task acquires the GraphHopper instance itself, so that a graph swap cannot close the graph
+ * while a task is still running, even if the batch was already cancelled.
+ */
+@Path("route/batch")
+public class RouteBatchResource {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteBatchResource.class);
+
+    private final GraphHopperManaged graphHopperManaged;
+    private final Boolean hasElevation;
+    private final ThreadPoolExecutor executor;
+    private final ObjectMapper objectMapper;
+    private final int maxRequests;
+
+    @Inject
+    public RouteBatchResource(GraphHopperConfig config, GraphHopperManaged graphHopperManaged, @Named("hasElevation") Boolean hasElevation,
+                              @Named("routeBatchExecutor") ThreadPoolExecutor executor, ObjectMapper objectMapper) {
+        this.graphHopperManaged = graphHopperManaged;
+        this.hasElevation = hasElevation;
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.maxRequests = config.getInt("web.route_batch.max_requests", 1000);
+    }
+
+    public static class BatchRequest {
+        public List<GHRequest> requests = new ArrayList<>();
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, NDJSON})
+    public Response doPost(BatchRequest batch) {
+        if (batch == null || batch.requests.isEmpty())
+            throw new IllegalArgumentException("Specify at least one route request in 'requests'");
+        if (batch.requests.size() > maxRequests)
+            throw new IllegalArgumentException("Too many route requests: " + batch.requests.size() + ", the maximum is " + maxRequests);
+
+        // reject the batch as a whole while the workers are busy with other batches instead of failing single routes
+        if (executor.getQueue().remainingCapacity() < batch.requests.size())
+            throw new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(new MultiException(new IllegalStateException("Too many route requests are waiting. Please try again later")))
+                    .build());
+
+        final StopWatch sw = new StopWatch().start();
+        StreamingOutput output = entityStream -> {
+            JsonGenerator json = objectMapper.getFactory().createGenerator(entityStream, JsonEncoding.UTF8);
+            // the container is responsible to close the entity stream
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // every result is terminated by a new line instead
+            json.setRootValueSeparator(null);
+            // the tasks are only submitted here, so they are always cancelled in the finally block
+            final CompletionService<RouteResult> completionService = new ExecutorCompletionService<>(executor);
+            final List<Future<RouteResult>> futures = new ArrayList<>(batch.requests.size());
+            try {
+                for (int i = 0; i < batch.requests.size(); i++) {
+                    final int index = i;
+                    final GHRequest request = batch.requests.get(i);
+                    try {
+                        futures.add(completionService.submit(() -> route(index, request)));
+                    } catch (RejectedExecutionException ex) {
+                        // another batch filled the queue since the check above
+                        GHResponse ghResponse = new GHResponse();
+                        ghResponse.addError(new IllegalStateException("Too many route requests are waiting. Please try again later"));
+                        writeResult(json, new RouteResult(index, request, ghResponse, 0));
+                    }
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    writeResult(json, completionService.take().get());
+                    // flush every line so that the client can process the routes that are already finished
+                    json.flush();
+                }
+                logger.info("batch of " + batch.requests.size() + " route requests, took:" + sw.stop().getSeconds());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) ex.getCause();
+                throw new RuntimeException(ex.getCause());
+            } finally {
+                // e.g. if the client closed the connection there is no need to calculate the remaining routes. Tasks
+                // that are already running hold their own GraphHopper instance until they are finished.
+                for (Future<RouteResult> future : futures) {
+                    future.cancel(true);
+                }
+                json.close();
+            }
+        };
+        return Response.ok(output, NDJSON).build();
+    }
+
+    private RouteResult route(int index, GHRequest request) {
+        StopWatch sw = new StopWatch().start();
+        GHResponse ghResponse;
+        if (request.getHints().getBool("elevation", false) && !hasElevation) {
+            ghResponse = new GHResponse();
+            ghResponse.addError(new IllegalArgumentException("Elevation not supported!"));
+        } else {
+            GraphHopper graphHopper = graphHopperManaged.acquire();
+            try {
+                ghResponse = graphHopper.route(request);
+            } catch (RuntimeException ex) {
+                // do not let a single request fail the whole batch
+                ghResponse = new GHResponse();
+                ghResponse.addError(ex);
+            } finally {
+                graphHopperManaged.release(graphHopper);
+            }
+        }
+        return new RouteResult(index, request, ghResponse, sw.stop().getSeconds());
+    }
+
+    private void writeResult(JsonGenerator json, RouteResult result) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("index", result.index);
+        json.writeFieldName("response");
+        if (result.response.hasErrors()) {
+            json.writeObject(new MultiException(result.response.getErrors()));
+        } else {
+            boolean instructions = result.request.getHints().getBool(INSTRUCTIONS, true);
+            boolean calcPoints = result.request.getHints().getBool(CALC_POINTS, true);
+            boolean enableElevation = result.request.getHints().getBool("elevation", false);
+            boolean pointsEncoded = result.request.getHints().getBool("points_encoded", true);
+            WebHelper.writeJson(json, result.response, instructions, calcPoints, enableElevation, pointsEncoded, result.took);
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static class RouteResult {
+        final int index;
+        final GHRequest request;
+        final GHResponse response;
+        final float took;
+
+        RouteResult(int index, GHRequest request, GHResponse response, float took) {
+            this.index = index;
+            this.request = request;
+            this.response = response;
+            this.took = took;
+        }
+    }
+}
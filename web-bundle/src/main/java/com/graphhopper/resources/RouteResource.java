@@ -21,7 +21,8 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.MultiException;
-import com.graphhopper.http.WebHelper;
+import com.graphhopper.http.GHResponseBinaryCodec;
+import com.graphhopper.http.RouteResponse;
 import com.graphhopper.routing.util.HintsMap;
 import com.graphhopper.util.Constants;
 import com.graphhopper.util.InstructionList;
@@ -48,7 +49,8 @@ import static com.graphhopper.util.Parameters.Routing.*;
 /**
  * Resource to use GraphHopper in a remote client application like mobile or browser. Note: If type
  * is json it returns the points in GeoJson array format [longitude,latitude] unlike the format "lat,lon"
- * used for the request. See the full API response format in docs/web/api-doc.md
+ * used for the request. See the full API response format in docs/web/api-doc.md. Clients that accept the media type
+ * of {@link GHResponseBinaryCodec} get a more compact binary response instead of the JSON.
  *
  * @author Peter Karich
  */
@@ -67,7 +69,7 @@ public class RouteResource {
     }
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", GHResponseBinaryCodec.MEDIA_TYPE})
     public Response doGet(
             @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
@@ -164,7 +166,7 @@ public class RouteResource {
                             header("X-GH-Took", "" + Math.round(took * 1000)).
                             build()
                     :
-                    Response.ok(WebHelper.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    Response.ok(new RouteResponse(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
                             header("X-GH-Took", "" + Math.round(took * 1000)).
                             build();
         }
@@ -172,7 +174,7 @@ public class RouteResource {
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", GHResponseBinaryCodec.MEDIA_TYPE})
     public Response doPost(GHRequest request, @Context HttpServletRequest httpReq) {
         if (request == null)
             throw new IllegalArgumentException("Empty request");
@@ -213,7 +215,7 @@ public class RouteResource {
                             header("X-GH-Took", "" + Math.round(took * 1000)).
                             build()
                     :
-                    Response.ok(WebHelper.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    Response.ok(new RouteResponse(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
                             header("X-GH-Took", "" + Math.round(took * 1000)).
                             build();
         }
@@ -3,13 +3,18 @@ package com.graphhopper.resources;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.ProfileConfig;
 import com.graphhopper.isochrone.algorithm.Isochrone;
+import com.graphhopper.isochrone.algorithm.IsochroneAlgorithm;
+import com.graphhopper.isochrone.algorithm.IsochroneCH;
 import com.graphhopper.routing.profiles.*;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.BlockAreaWeighting;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.CHProfile;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.RoutingCHGraphImpl;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
@@ -62,6 +67,7 @@ public class SPTResource {
         StopWatch sw = new StopWatch().start();
         HintsMap hintsMap = new HintsMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        boolean useCH = graphHopper.getProfileResolver().canUseCH(hintsMap);
         hintsMap.put(Parameters.CH.DISABLE, true);
         hintsMap.put(Parameters.Landmark.DISABLE, true);
         ProfileConfig profile = graphHopper.resolveProfile(hintsMap);
@@ -76,14 +82,22 @@ public class SPTResource {
             throw new IllegalArgumentException("Point not found:" + point);
 
         Graph graph = graphHopper.getGraphHopperStorage();
-        QueryGraph queryGraph = QueryGraph.lookup(graph, qr);
-
-        Weighting weighting = graphHopper.createWeighting(profile, hintsMap);
-        if (hintsMap.has(Parameters.Routing.BLOCK_AREA))
-            weighting = new BlockAreaWeighting(weighting, GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
-                    Collections.singletonList(point), hintsMap, DefaultEdgeFilter.allEdges(encoder)));
-
-        Isochrone isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
+        CHProfile chProfile = IsochroneResource.findCHProfile(graphHopper, profile, useCH);
+        QueryGraph queryGraph;
+        IsochroneAlgorithm isochrone;
+        if (chProfile != null) {
+            CHGraph chGraph = graphHopper.getGraphHopperStorage().getCHGraph(chProfile);
+            queryGraph = QueryGraph.lookup(chGraph, qr);
+            isochrone = new IsochroneCH(new RoutingCHGraphImpl(queryGraph, chProfile.getWeighting()),
+                    IsochroneResource.getPhastPool(graphHopper, chProfile), reverseFlow);
+        } else {
+            queryGraph = QueryGraph.lookup(graph, qr);
+            Weighting weighting = graphHopper.createWeighting(profile, hintsMap);
+            if (hintsMap.has(Parameters.Routing.BLOCK_AREA))
+                weighting = new BlockAreaWeighting(weighting, GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
+                        Collections.singletonList(point), hintsMap, DefaultEdgeFilter.allEdges(encoder)));
+            isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
+        }
 
         if (distanceInMeter > 0) {
             isochrone.setDistanceLimit(distanceInMeter);
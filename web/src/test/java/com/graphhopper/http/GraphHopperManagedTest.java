@@ -0,0 +1,129 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.CHProfileConfig;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.util.Helper;
+import io.dropwizard.jackson.Jackson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class GraphHopperManagedTest {
+    private static final String DIR = "./target/andorra-managed-gh/";
+    private static final String NEW_DIR = "./target/andorra-managed-new-gh/";
+    private GraphHopperManaged managed;
+
+    @Before
+    public void setUp() {
+        cleanUp();
+        GraphHopperConfig config = new GraphHopperConfig().
+                put("graph.flag_encoders", "car").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("graph.location", DIR).
+                put("web.graph_swap.warm_up_iterations", 10).
+                setProfiles(Collections.singletonList(new ProfileConfig("my_car").setVehicle("car").setWeighting("fastest"))).
+                setCHProfiles(Collections.singletonList(new CHProfileConfig("my_car")));
+        managed = new GraphHopperManaged(config, Jackson.newObjectMapper());
+        managed.start();
+    }
+
+    @After
+    public void tearDown() {
+        managed.stop();
+        cleanUp();
+    }
+
+    private static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+        Helper.removeDir(new File(NEW_DIR));
+    }
+
+    @Test
+    public void testSwapWhileInUse() throws IOException {
+        copyGraph();
+        GraphHopper oldHopper = managed.acquire();
+        managed.swap(NEW_DIR);
+        GraphHopper newHopper = managed.acquire();
+        assertNotSame(oldHopper, newHopper);
+        assertSame(newHopper, managed.getGraphHopper());
+        // the pools of the CH searches belong to the instance and are dropped with the old graph
+        assertNotSame(oldHopper.getCHPreparationHandler().getPreparation("my_car").getPhastCHPool(),
+                newHopper.getCHPreparationHandler().getPreparation("my_car").getPhastCHPool());
+
+        // the old graph is still used, so it must not be closed
+        assertFalse(oldHopper.getGraphHopperStorage().isClosed());
+        assertTrue(oldHopper.getGraphHopperStorage().getBounds().isValid());
+        managed.release(oldHopper);
+        assertTrue(oldHopper.getGraphHopperStorage().isClosed());
+
+        managed.release(newHopper);
+        assertFalse(newHopper.getGraphHopperStorage().isClosed());
+    }
+
+    @Test
+    public void testSwapWithoutRequests() throws IOException {
+        copyGraph();
+        GraphHopper oldHopper = managed.getGraphHopper();
+        managed.swap(NEW_DIR);
+        assertTrue(oldHopper.getGraphHopperStorage().isClosed());
+        assertFalse(managed.getGraphHopper().getGraphHopperStorage().isClosed());
+    }
+
+    @Test
+    public void testFailedSwapKeepsGraph() {
+        GraphHopper oldHopper = managed.acquire();
+        try {
+            managed.swap(NEW_DIR);
+            fail("the folder does not contain a graph");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Cannot find graph"));
+        }
+        assertSame(oldHopper, managed.getGraphHopper());
+        managed.release(oldHopper);
+        assertFalse(oldHopper.getGraphHopperStorage().isClosed());
+
+        GraphHopper hopper = managed.acquire();
+        assertSame(oldHopper, hopper);
+        assertTrue(hopper.getGraphHopperStorage().getBounds().isValid());
+        managed.release(hopper);
+    }
+
+    private static void copyGraph() throws IOException {
+        // a new import would usually be created by a separate import command
+        Files.createDirectories(Paths.get(NEW_DIR));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(DIR))) {
+            for (Path file : stream) {
+                Files.copy(file, Paths.get(NEW_DIR).resolve(file.getFileName()));
+            }
+        }
+    }
+}
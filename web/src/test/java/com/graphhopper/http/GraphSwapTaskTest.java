@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.config.CHProfileConfig;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.Assert.assertEquals;
+
+public class GraphSwapTaskTest {
+    private static final String DIR = "./target/andorra-swap-gh/";
+    private static final String NEW_DIR = "./target/andorra-swap-new-gh/";
+
+    private static final GraphHopperServerTestConfiguration config = new GraphHopperServerTestConfiguration();
+
+    static {
+        config.getGraphHopperConfiguration().
+                put("graph.flag_encoders", "car").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("graph.location", DIR).
+                put("web.graph_swap.enabled", true).
+                put("web.graph_swap.warm_up_iterations", 10)
+                .setProfiles(Collections.singletonList(new ProfileConfig("my_car").setVehicle("car").setWeighting("fastest")))
+                .setCHProfiles(Collections.singletonList(new CHProfileConfig("my_car")));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerTestConfiguration> app = new DropwizardAppRule(GraphHopperApplication.class, config);
+
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+        Helper.removeDir(new File(NEW_DIR));
+    }
+
+    @Test
+    public void testSwap() throws IOException {
+        // a new import would usually be created by a separate import command. The class rule starts the server
+        // before any @BeforeClass method, so the old folder can only be removed here
+        Helper.removeDir(new File(NEW_DIR));
+        Files.createDirectories(Paths.get(NEW_DIR));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(DIR))) {
+            for (Path file : stream) {
+                Files.copy(file, Paths.get(NEW_DIR).resolve(file.getFileName()));
+            }
+        }
+
+        assertEquals(200, swap(NEW_DIR).getStatus());
+        Response response = clientTarget(app, "/route?point=42.554851,1.536198&point=42.510071,1.548128").request().get();
+        assertEquals(200, response.getStatus());
+
+        // the folder of the current graph cannot be loaded a second time
+        assertEquals(500, swap(NEW_DIR).getStatus());
+        response = clientTarget(app, "/route?point=42.554851,1.536198&point=42.510071,1.548128").request().get();
+        assertEquals(200, response.getStatus());
+    }
+
+    private Response swap(String location) {
+        return app.client().target("http://localhost:" + app.getAdminPort() + "/tasks/swap-graph").
+                queryParam("location", location).request().post(Entity.text(""));
+    }
+}
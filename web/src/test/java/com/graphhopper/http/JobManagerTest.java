@@ -0,0 +1,270 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.MultiException;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import io.dropwizard.jackson.Jackson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class JobManagerTest {
+    private GraphHopperManaged managed;
+    private JobManager jobManager;
+
+    @Before
+    public void setUp() {
+        // the jobs do not need a graph, so the GraphHopper instance is not started
+        GraphHopperConfig config = new GraphHopperConfig().
+                put("graph.flag_encoders", "car").
+                put("graph.location", "./target/job-manager-gh/").
+                setProfiles(Collections.singletonList(new ProfileConfig("my_car").setVehicle("car").setWeighting("fastest")));
+        managed = new GraphHopperManaged(config, Jackson.newObjectMapper());
+    }
+
+    @After
+    public void tearDown() {
+        if (jobManager != null)
+            jobManager.stop();
+    }
+
+    @Test
+    public void testCostsOfJobTypesAreComparable() {
+        // 10 000 nodes on roughly 11km x 11km
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(new CarFlagEncoder())).create();
+        NodeAccess na = graph.getNodeAccess();
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 100; j++) {
+                na.setNode(i * 100 + j, 0.001 * i, 0.001 * j);
+            }
+        }
+        assertEquals(260, JobManager.estimateIsochroneCosts(graph, 1000), 10);
+        long isochrone = JobManager.estimateIsochroneCosts(graph, 5000);
+        assertEquals(6500, isochrone, 200);
+        // the whole graph is explored at most
+        assertEquals(10_000, JobManager.estimateIsochroneCosts(graph, 100_000));
+
+        assertEquals(1_001, JobManager.estimateMatrixCosts(1, 1));
+        assertEquals(110_000, JobManager.estimateMatrixCosts(100, 100));
+        assertTrue(JobManager.estimateMatrixCosts(1, 1) < isochrone);
+        assertTrue(JobManager.estimateMatrixCosts(100, 100) > JobManager.estimateIsochroneCosts(graph, 100_000));
+    }
+
+    @Test
+    public void testCheaperJobsFirst() throws InterruptedException {
+        jobManager = new JobManager(managed, 1, 10, 600, 60);
+        CountDownLatch blocker = new CountDownLatch(1);
+        jobManager.submit("test", 0, await(blocker));
+
+        final List<Long> order = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(4);
+        for (long costs : new long[]{100, 10, 50, 10}) {
+            jobManager.submit("test", costs, hopper -> {
+                order.add(costs);
+                done.countDown();
+                return costs;
+            });
+        }
+        blocker.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(10L, 10L, 50L, 100L), order);
+    }
+
+    @Test
+    public void testCancelWaitingJob() throws InterruptedException {
+        jobManager = new JobManager(managed, 1, 10, 600, 60);
+        CountDownLatch blocker = new CountDownLatch(1);
+        jobManager.submit("test", 0, await(blocker));
+        final CountDownLatch executed = new CountDownLatch(1);
+        String id = jobManager.submit("test", 0, hopper -> {
+            executed.countDown();
+            return 1;
+        });
+        assertEquals(JobManager.Status.CANCELLED, jobManager.cancel(id));
+        blocker.countDown();
+        assertFalse(executed.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(JobManager.Status.CANCELLED, jobManager.getStatus(id));
+    }
+
+    @Test
+    public void testCancelRunningJob() throws InterruptedException {
+        jobManager = new JobManager(managed, 1, 10, 600, 60);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        String id = jobManager.submit("test", 0, hopper -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+                throw new IllegalStateException("interrupted", ex);
+            }
+            return 1;
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(JobManager.Status.CANCELLED, jobManager.cancel(id));
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+
+        // the thread can execute the next job and is not interrupted anymore
+        final CountDownLatch next = new CountDownLatch(1);
+        final boolean[] nextInterrupted = new boolean[1];
+        jobManager.submit("test", 0, hopper -> {
+            nextInterrupted[0] = Thread.currentThread().isInterrupted();
+            next.countDown();
+            return 1;
+        });
+        assertTrue(next.await(10, TimeUnit.SECONDS));
+        assertFalse(nextInterrupted[0]);
+        assertEquals(JobManager.Status.CANCELLED, jobManager.getStatus(id));
+    }
+
+    @Test
+    public void testMaxPendingJobs() {
+        jobManager = new JobManager(managed, 1, 2, 600, 60);
+        CountDownLatch blocker = new CountDownLatch(1);
+        jobManager.submit("test", 0, await(blocker));
+        jobManager.submit("test", 0, await(blocker));
+        try {
+            jobManager.submit("test", 0, await(blocker));
+            fail("the number of pending jobs is limited");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Too many pending jobs"));
+        }
+        blocker.countDown();
+    }
+
+    @Test
+    public void testJobFailsWithError() throws InterruptedException {
+        jobManager = new JobManager(managed, 1, 1, 600, 60);
+        String id = jobManager.submit("test", 0, hopper -> {
+            throw new AssertionError("broken");
+        });
+        final List<Object> resumed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(1);
+        jobManager.poll(id, 10, createResponse(resumed, done, new TimeoutHandler[1]));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(JobManager.Status.FAILED, jobManager.getStatus(id));
+        assertEquals("broken", ((MultiException) resumed.get(0)).getErrors().get(0).getMessage());
+
+        // the failed job is not pending anymore
+        jobManager.submit("test", 0, hopper -> 1);
+    }
+
+    @Test
+    public void testPollTimeout() throws InterruptedException {
+        jobManager = new JobManager(managed, 1, 10, 600, 60);
+        CountDownLatch blocker = new CountDownLatch(1);
+        String id = jobManager.submit("test", 0, await(blocker));
+        final List<Object> resumed = Collections.synchronizedList(new ArrayList<>());
+        TimeoutHandler[] timeoutHandler = new TimeoutHandler[1];
+        AsyncResponse response = createResponse(resumed, new CountDownLatch(1), timeoutHandler);
+        jobManager.poll(id, 10, response);
+        timeoutHandler[0].handleTimeout(response);
+        assertEquals(1, resumed.size());
+
+        // the timed out poll is not resumed again when the job is done
+        final CountDownLatch done = new CountDownLatch(1);
+        jobManager.poll(id, 10, createResponse(new ArrayList<>(), done, new TimeoutHandler[1]));
+        blocker.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, resumed.size());
+    }
+
+    @Test
+    public void testRemoveExpiredJobs() throws InterruptedException {
+        jobManager = new JobManager(managed, 1, 10, 0, 60);
+        final CountDownLatch done = new CountDownLatch(1);
+        String id = jobManager.submit("test", 0, hopper -> {
+            done.countDown();
+            return 1;
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        // the job is finished shortly after the task returned
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (jobManager.getStatus(id) != JobManager.Status.FINISHED) {
+            assertTrue("the job was not finished", System.currentTimeMillis() < end);
+            Thread.sleep(10);
+        }
+
+        // the periodic cleanup removes the finished job without another submit
+        jobManager.start();
+        end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (true) {
+            try {
+                jobManager.getStatus(id);
+            } catch (NotFoundException ex) {
+                break;
+            }
+            assertTrue("the job was not removed", System.currentTimeMillis() < end);
+            Thread.sleep(100);
+        }
+    }
+
+    private static AsyncResponse createResponse(final List<Object> resumed, final CountDownLatch done,
+                                                final TimeoutHandler[] timeoutHandler) {
+        return (AsyncResponse) Proxy.newProxyInstance(JobManagerTest.class.getClassLoader(), new Class[]{AsyncResponse.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setTimeout":
+                            return true;
+                        case "setTimeoutHandler":
+                            timeoutHandler[0] = (TimeoutHandler) args[0];
+                            return null;
+                        case "resume":
+                            resumed.add(args[0]);
+                            done.countDown();
+                            return true;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static Function<GraphHopper, Object> await(final CountDownLatch latch) {
+        return hopper -> {
+            try {
+                latch.await();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return 0;
+        };
+    }
+}
@@ -262,4 +262,35 @@ public class IsochroneResourceTest {
         assertEquals(lastFeature.path("geometry").path("type").asText(), "Polygon");
     }
 
+    @Test
+    public void testJob() {
+        Response response = clientTarget(app, "/isochrone/calculate?point=42.531073,1.573792&time_limit=130&buckets=2")
+                .request().post(null);
+        assertEquals(200, response.getStatus());
+        String jobId = response.readEntity(JsonNode.class).get("job_id").asText();
+
+        // waits for the job to finish
+        response = clientTarget(app, "/isochrone/solution/" + jobId).queryParam("wait", 30).request().get();
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertEquals("finished", json.get("status").asText());
+        assertEquals(2, json.get("solution").get("polygons").size());
+        assertEquals("Polygon", json.get("solution").get("polygons").get(0).get("geometry").get("type").asText());
+
+        // cancelling a finished job does not change it
+        json = clientTarget(app, "/isochrone/solution/" + jobId).request().delete().readEntity(JsonNode.class);
+        assertEquals("finished", json.get("status").asText());
+
+        response = clientTarget(app, "/isochrone/solution/unknown").request().get();
+        assertEquals(404, response.getStatus());
+
+        // a job is only created via POST
+        response = clientTarget(app, "/isochrone/calculate?point=42.531073,1.573792").request().get();
+        assertEquals(405, response.getStatus());
+
+        // invalid requests are rejected before a job is created
+        response = clientTarget(app, "/isochrone/calculate?point=42.531073,1.573792&buckets=30").request().post(null);
+        assertEquals(400, response.getStatus());
+    }
+
 }
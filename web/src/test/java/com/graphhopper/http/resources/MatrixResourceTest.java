@@ -0,0 +1,161 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.api.GHMatrixBatchRequester;
+import com.graphhopper.api.MatrixResponse;
+import com.graphhopper.config.CHProfileConfig;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Collections;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static com.graphhopper.http.util.TestUtils.clientUrl;
+import static org.junit.Assert.*;
+
+public class MatrixResourceTest {
+    private static final String DIR = "./target/andorra-matrix-gh/";
+
+    private static final GraphHopperServerTestConfiguration config = new GraphHopperServerTestConfiguration();
+
+    static {
+        config.getGraphHopperConfiguration().
+                put("graph.flag_encoders", "car").
+                put("prepare.min_network_size", "0").
+                put("prepare.min_one_way_network_size", "0").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("graph.location", DIR)
+                .setProfiles(Collections.singletonList(new ProfileConfig("my_car").setVehicle("car").setWeighting("fastest")))
+                .setCHProfiles(Collections.singletonList(new CHProfileConfig("my_car")));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerTestConfiguration> app = new DropwizardAppRule(GraphHopperApplication.class, config);
+
+    @BeforeClass
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testSymmetricMatrix() {
+        String jsonStr = "{ \"points\": [[1.536198,42.554851], [1.548128, 42.510071], [1.573792, 42.531073]], " +
+                "\"out_arrays\": [\"weights\", \"times\", \"distances\"] }";
+        final Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertEquals(3, json.get("distances").size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(3, json.get("weights").get(i).size());
+            assertEquals(0, json.get("distances").get(i).get(i).asDouble(), 1.e-6);
+            assertEquals(0, json.get("times").get(i).get(i).asLong());
+        }
+        // the same point pair as in RouteResourceTest#testBasicQuery
+        double distance = json.get("distances").get(0).get(1).asDouble();
+        assertTrue("distance wasn't correct:" + distance, distance > 9000);
+        assertTrue("distance wasn't correct:" + distance, distance < 9500);
+        assertTrue(json.get("times").get(0).get(1).asLong() > 0);
+    }
+
+    @Test
+    public void testFromAndToPoints() {
+        String jsonStr = "{ \"from_points\": [[1.536198,42.554851]], \"to_points\": [[1.548128, 42.510071], [1.536198,42.554851]], " +
+                "\"out_arrays\": [\"distances\"] }";
+        final Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertFalse(json.has("weights"));
+        assertFalse(json.has("times"));
+        assertEquals(1, json.get("distances").size());
+        assertEquals(2, json.get("distances").get(0).size());
+        assertEquals(0, json.get("distances").get(0).get(1).asDouble(), 1.e-6);
+    }
+
+    @Test
+    public void testInvalidPoint() {
+        String jsonStr = "{ \"points\": [[1.536198,42.554851], [-1.0, -1.0]], \"out_arrays\": [\"weights\"] }";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(400, response.getStatus());
+
+        jsonStr = "{ \"points\": [[1.536198,42.554851], [-1.0, -1.0]], \"out_arrays\": [\"weights\"], \"fail_fast\": false }";
+        response = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("weights").get(0).get(1).isNull());
+        assertEquals(1, json.get("hints").get(0).get("invalid_to_points").get(0).asInt());
+    }
+
+    @Test
+    public void testJob() {
+        String jsonStr = "{ \"points\": [[1.536198,42.554851], [1.548128, 42.510071]], \"out_arrays\": [\"distances\"] }";
+        Response response = clientTarget(app, "/matrix/calculate").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        String jobId = response.readEntity(JsonNode.class).get("job_id").asText();
+
+        // waits for the job to finish
+        response = clientTarget(app, "/matrix/solution/" + jobId).queryParam("wait", 30).request().get();
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertEquals("finished", json.get("status").asText());
+        double distance = json.get("solution").get("distances").get(0).get(1).asDouble();
+        assertTrue("distance wasn't correct:" + distance, distance > 9000);
+        assertTrue("distance wasn't correct:" + distance, distance < 9500);
+
+        // cancelling a finished job does not change it
+        json = clientTarget(app, "/matrix/solution/" + jobId).request().delete().readEntity(JsonNode.class);
+        assertEquals("finished", json.get("status").asText());
+
+        response = clientTarget(app, "/matrix/solution/unknown").request().get();
+        assertEquals(404, response.getStatus());
+
+        // invalid requests are rejected before a job is created
+        response = clientTarget(app, "/matrix/calculate").request().post(Entity.json("{ \"points\": [] }"));
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testBatchRequester() {
+        GHMatrixBatchRequester requester = new GHMatrixBatchRequester(clientUrl(app, "/matrix")).setSleepAfterGET(100);
+        GHMRequest request = new GHMRequest();
+        request.setVehicle("car");
+        request.addPoint(new GHPoint(42.554851, 1.536198));
+        request.addPoint(new GHPoint(42.510071, 1.548128));
+        request.addOutArray("distances");
+        request.addOutArray("times");
+        MatrixResponse response = requester.route(request);
+        assertFalse(response.getErrors().toString(), response.hasErrors());
+        assertEquals(0, response.getDistance(0, 0), 1.e-6);
+        assertTrue(response.getDistance(0, 1) > 9000);
+        assertTrue(response.getTime(1, 0) > 0);
+    }
+}
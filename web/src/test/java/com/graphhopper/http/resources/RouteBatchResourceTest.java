@@ -0,0 +1,152 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.api.GraphHopperWeb;
+import com.graphhopper.config.CHProfileConfig;
+import com.graphhopper.config.ProfileConfig;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.exceptions.PointOutOfBoundsException;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.*;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static com.graphhopper.http.util.TestUtils.clientUrl;
+import static org.junit.Assert.*;
+
+public class RouteBatchResourceTest {
+    private static final String DIR = "./target/andorra-batch-gh/";
+
+    private static final GraphHopperServerTestConfiguration config = new GraphHopperServerTestConfiguration();
+
+    static {
+        config.getGraphHopperConfiguration().
+                put("graph.flag_encoders", "car").
+                put("prepare.min_network_size", "0").
+                put("prepare.min_one_way_network_size", "0").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("graph.location", DIR).
+                put("web.route_batch.threads", "2").
+                put("web.route_batch.max_requests", "5").
+                put("web.route_batch.max_queued", "4")
+                .setProfiles(Collections.singletonList(new ProfileConfig("my_car").setVehicle("car").setWeighting("fastest")))
+                .setCHProfiles(Collections.singletonList(new CHProfileConfig("my_car")));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerTestConfiguration> app = new DropwizardAppRule(GraphHopperApplication.class, config);
+
+    @BeforeClass
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        String jsonStr = "{ \"requests\": [" +
+                "{ \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }, " +
+                "{ \"points\": [[0,0], [1.548128, 42.510071]] }, " +
+                "{ \"points\": [[1.536198,42.554851], [1.553278, 42.531896], [1.548128, 42.510071]], \"instructions\": false } ] }";
+        final Response response = clientTarget(app, "/route/batch").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        String[] lines = response.readEntity(String.class).split("\n");
+        assertEquals(3, lines.length);
+
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        Map<Integer, JsonNode> results = new HashMap<>();
+        for (String line : lines) {
+            JsonNode json = objectMapper.readTree(line);
+            results.put(json.get("index").asInt(), json.get("response"));
+        }
+        double distance = results.get(0).get("paths").get(0).get("distance").asDouble();
+        assertTrue("distance wasn't correct:" + distance, distance > 9000);
+        assertTrue("distance wasn't correct:" + distance, distance < 9500);
+
+        // an invalid request does not fail the other requests
+        assertTrue(results.get(1).get("message").asText(), results.get(1).get("message").asText().contains("out of bounds"));
+
+        JsonNode path = results.get(2).get("paths").get(0);
+        assertFalse(path.has("instructions"));
+        distance = path.get("distance").asDouble();
+        assertTrue("distance wasn't correct:" + distance, distance > 20000);
+        assertTrue("distance wasn't correct:" + distance, distance < 21000);
+    }
+
+    @Test
+    public void testTooManyRequests() {
+        final Response response = clientTarget(app, "/route/batch").request().post(Entity.json(createBatch(6)));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText(), json.get("message").asText().contains("Too many route requests"));
+    }
+
+    @Test
+    public void testQueueFull() {
+        // the batch is allowed, but does not fit into the queue of the worker pool
+        final Response response = clientTarget(app, "/route/batch").request().post(Entity.json(createBatch(5)));
+        assertEquals(503, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText(), json.get("message").asText().contains("Too many route requests are waiting"));
+    }
+
+    private static String createBatch(int requests) {
+        StringBuilder jsonStr = new StringBuilder("{ \"requests\": [");
+        for (int i = 0; i < requests; i++) {
+            jsonStr.append(i > 0 ? ", " : "").append("{ \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }");
+        }
+        return jsonStr.append("] }").toString();
+    }
+
+    @Test
+    public void testGraphHopperWeb() {
+        GraphHopperWeb hopper = new GraphHopperWeb(clientUrl(app, "/route"));
+        List<GHRequest> requests = Arrays.asList(
+                new GHRequest(42.554851, 1.536198, 42.510071, 1.548128),
+                new GHRequest(0.0, 0.0, 42.510071, 1.548128),
+                new GHRequest(42.510071, 1.548128, 42.554851, 1.536198));
+        List<GHResponse> responses = hopper.routeBatch(requests);
+        assertEquals(3, responses.size());
+
+        assertFalse(responses.get(0).getErrors().toString(), responses.get(0).hasErrors());
+        GHResponse single = hopper.route(new GHRequest(42.554851, 1.536198, 42.510071, 1.548128));
+        assertEquals(single.getBest().getDistance(), responses.get(0).getBest().getDistance(), 1e-3);
+        assertEquals(single.getBest().getInstructions().size(), responses.get(0).getBest().getInstructions().size());
+
+        assertTrue(responses.get(1).hasErrors());
+        assertEquals(0, ((PointOutOfBoundsException) responses.get(1).getErrors().get(0)).getPointIndex());
+
+        assertFalse(responses.get(2).getErrors().toString(), responses.get(2).hasErrors());
+        assertTrue(responses.get(2).getBest().getDistance() > 9000);
+    }
+}
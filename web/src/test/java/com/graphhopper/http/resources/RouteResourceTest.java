@@ -202,6 +202,38 @@ public class RouteResourceTest {
         assertEquals(false, instructions.get(22).getExtraInfoJSON().get("exited"));
     }
 
+    @Test
+    public void testGraphHopperWebBinary() {
+        GraphHopperWeb hopper = new GraphHopperWeb().setBinaryResponse(true);
+        assertTrue(hopper.load(clientUrl(app, "/route")));
+        GHRequest request = new GHRequest().
+                addPoint(new GHPoint(42.554851, 1.536198)).
+                addPoint(new GHPoint(42.531896, 1.553278)).
+                addPoint(new GHPoint(42.510071, 1.548128));
+        request.setPathDetails(Arrays.asList("average_speed", "edge_id"));
+        GraphHopperWeb jsonHopper = new GraphHopperWeb(clientUrl(app, "/route"));
+        GHResponse jsonRsp = jsonHopper.route(request);
+        GHResponse rsp = hopper.route(request);
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+
+        PathWrapper arsp = rsp.getBest();
+        assertEquals(jsonRsp.getBest().getDistance(), arsp.getDistance(), 1e-3);
+        assertEquals(jsonRsp.getBest().getTime(), arsp.getTime());
+        assertEquals(jsonRsp.getBest().getPoints().size(), arsp.getPoints().size());
+        InstructionList instructions = arsp.getInstructions();
+        assertEquals(24, instructions.size());
+        assertEquals("Continue onto la Callisa", instructions.get(0).getTurnDescription(null));
+        assertEquals("At roundabout, take exit 2", instructions.get(4).getTurnDescription(null));
+        assertEquals(true, instructions.get(4).getExtraInfoJSON().get("exited"));
+        assertEquals(jsonRsp.getBest().getPathDetails().get("edge_id").size(), arsp.getPathDetails().get("edge_id").size());
+        assertEquals(30.0, arsp.getPathDetails().get("average_speed").get(0).getValue());
+
+        // errors are transferred in the binary format too
+        rsp = hopper.route(new GHRequest(0.0, 0.0, 0.0, 0.0));
+        assertFalse("Errors expected but not found.", rsp.getErrors().isEmpty());
+        assertEquals(0, ((PointOutOfBoundsException) rsp.getErrors().get(0)).getPointIndex());
+    }
+
     @Test
     public void testPathDetailsRoadClass() {
         GraphHopperAPI hopper = new com.graphhopper.api.GraphHopperWeb();
@@ -18,6 +18,8 @@
 
 package com.graphhopper.http.resources;
 
+import com.graphhopper.config.CHProfileConfig;
+import com.graphhopper.config.ProfileConfig;
 import com.graphhopper.http.GraphHopperApplication;
 import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
 import com.graphhopper.util.Helper;
@@ -29,7 +31,11 @@ import org.junit.Test;
 import javax.ws.rs.core.Response;
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
@@ -47,7 +53,10 @@ public class SPTResourceTest {
                 put("graph.flag_encoders", "car").
                 put("graph.encoded_values", "max_speed,road_class").
                 put("datareader.file", "../core/files/andorra.osm.pbf").
-                put("graph.location", DIR);
+                put("routing.ch.disabling_allowed", true).
+                put("graph.location", DIR).
+                setProfiles(Collections.singletonList(new ProfileConfig("car").setVehicle("car").setWeighting("fastest"))).
+                setCHProfiles(Collections.singletonList(new CHProfileConfig("car")));
     }
 
     @ClassRule
@@ -67,13 +76,13 @@ public class SPTResourceTest {
         assertTrue(lines.length > 500);
         List<String> headers = Arrays.asList(lines[0].split(","));
         assertEquals("[longitude, latitude, time, distance]", headers.toString());
-        String[] row = lines[1].split(",");
-        assertEquals(1.5552, Double.parseDouble(row[0]), 0.0001);
-        assertEquals(42.5179, Double.parseDouble(row[1]), 0.0001);
+        // the order of the rows is not specified
+        String[] row = findRow(lines, r -> Math.abs(Double.parseDouble(r[0]) - 1.5552) < 0.0001
+                && Math.abs(Double.parseDouble(r[1]) - 42.5179) < 0.0001);
         assertEquals(118, Integer.parseInt(row[2]) / 1000, 1);
         assertEquals(2263, Integer.parseInt(row[3]), 1);
 
-        rsp = clientTarget(app, "/spt?point=42.531073,1.573792&columns=prev_time").request().buildGet().invoke();
+        rsp = clientTarget(app, "/spt?point=42.531073,1.573792&columns=longitude,latitude,prev_time").request().buildGet().invoke();
         rspCsvString = rsp.readEntity(String.class);
         lines = rspCsvString.split("\n");
         assertTrue(lines.length > 500);
@@ -81,8 +90,44 @@ public class SPTResourceTest {
         int prevTimeIndex = headers.indexOf("prev_time");
         assertNotEquals(-1, prevTimeIndex);
 
-        row = lines[1].split(",");
-        assertEquals(115, Integer.parseInt(row[prevTimeIndex]) / 1000);
+        row = findRow(lines, r -> Math.abs(Double.parseDouble(r[0]) - 1.5552) < 0.0001
+                && Math.abs(Double.parseDouble(r[1]) - 42.5179) < 0.0001);
+        assertEquals(115, Integer.parseInt(row[prevTimeIndex]) / 1000, 1);
+    }
+
+    @Test
+    public void requestSPTWithCH() {
+        // the CH search returns the nodes ordered by their id and not by their time
+        Map<String, Integer> timesCH = readTimesByNode("/spt?point=42.531073,1.573792&time_limit=300&columns=node_id,time");
+        Map<String, Integer> times = readTimesByNode("/spt?point=42.531073,1.573792&time_limit=300&columns=node_id,time&ch.disable=true");
+        assertTrue(times.size() > 500);
+        // the times of the CH shortcuts are rounded, which can move nodes at the limit in or out
+        assertEquals(times.size(), timesCH.size(), times.size() / 100);
+        for (Map.Entry<String, Integer> entry : times.entrySet()) {
+            Integer timeCH = timesCH.get(entry.getKey());
+            if (timeCH != null)
+                assertEquals("node " + entry.getKey(), entry.getValue() / 1000.0, timeCH / 1000.0, 1);
+        }
+    }
+
+    @Test
+    public void requestSPTWithWeightingHint() {
+        // the CH preparation ignores the hints of the request, so the search falls back to the exact non-CH one
+        String url = "/spt?point=42.531073,1.573792&time_limit=300&columns=node_id,time&road_access_private_factor=2";
+        Map<String, Integer> times = readTimesByNode(url);
+        assertTrue(times.size() > 500);
+        assertEquals(readTimesByNode(url + "&ch.disable=true"), times);
+    }
+
+    private static Map<String, Integer> readTimesByNode(String url) {
+        String[] lines = clientTarget(app, url).request().buildGet().invoke().readEntity(String.class).split("\n");
+        assertEquals("node_id,time", lines[0]);
+        Map<String, Integer> times = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            String[] row = lines[i].split(",");
+            times.put(row[0], Integer.parseInt(row[1]));
+        }
+        return times;
     }
 
     @Test
@@ -92,14 +137,21 @@ public class SPTResourceTest {
         String[] lines = rspCsvString.split("\n");
         assertTrue(lines.length > 500);
 
-        String[] row = lines[16].split(",");
-        assertEquals("", row[0]);
-        assertEquals("service", row[1]);
-        assertEquals(20, Double.parseDouble(row[2]), .1);
+        // split drops trailing empty columns
+        findRow(lines, r -> r.length == 3 && r[0].isEmpty() && r[1].equals("service")
+                && Math.abs(Double.parseDouble(r[2]) - 20) < .1);
 
-        row = lines[9].split(",");
-        assertEquals("Carretera d'Engolasters CS-200", row[0]);
+        String[] row = findRow(lines, r -> r.length == 3 && r[0].equals("Carretera d'Engolasters CS-200"));
         assertEquals("secondary", row[1]);
         assertTrue(Double.isInfinite(Double.parseDouble(row[2])));
     }
+
+    private static String[] findRow(String[] lines, Predicate<String[]> predicate) {
+        for (int i = 1; i < lines.length; i++) {
+            String[] row = lines[i].split(",");
+            if (predicate.test(row))
+                return row;
+        }
+        throw new AssertionError("no matching row found");
+    }
 }
\ No newline at end of file